@@ -0,0 +1,38 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Pokreće benchmark-e sa uključenim GC profilerom, pa se uz propusnost i
+ * percentile latencije prijavljuje i brzina alokacije. Prihvata iste argumente
+ * komandne linije kao standardni JMH pokretač (npr. filter benchmark-a, {@code -p size=20}).
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    /**
+     * Ulazna tačka za pokretanje benchmark-a.
+     *
+     * @param args Argumenti komandne linije za JMH.
+     * @throws RunnerException Ako pokretanje benchmark-a ne uspije.
+     * @throws CommandLineOptionException Ako argumenti nisu ispravni.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
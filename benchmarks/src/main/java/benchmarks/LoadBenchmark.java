@@ -0,0 +1,49 @@
+package benchmarks;
+
+import main.transport.Network;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mjeri učitavanje mreže iz JSON fajla za mreže različitih veličina.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"10", "20", "40"})
+    public int size;
+
+    private Path json;
+
+    /**
+     * Generiše JSON fajl mreže jednom za svaku veličinu.
+     *
+     * @throws IOException Ako fajl ne može biti kreiran.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        NetworkFixture.silenceStandardOutput();
+        json = NetworkFixture.generateJson(size);
+    }
+
+    /**
+     * Učitava mrežu iz JSON fajla.
+     *
+     * @return Učitana mreža.
+     */
+    @Benchmark
+    public Network loadFromJson() {
+        return NetworkFixture.load(json, size);
+    }
+}
@@ -0,0 +1,91 @@
+package benchmarks;
+
+import dataGenerator.TransportDataGenerator;
+import main.model.City;
+import main.transport.Network;
+import main.util.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Pomoćne metode za pripremu mreža za benchmark-e. Mreže se generišu generatorom
+ * sa fiksnim sjemenom, pa svako pokretanje mjeri iste podatke.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+final class NetworkFixture {
+    static final long SEED = 20250602L;
+
+    private NetworkFixture() {
+    }
+
+    /**
+     * Generiše JSON fajl kvadratne mreže date veličine u privremenom direktorijumu.
+     *
+     * @param size Broj redova i kolona mreže.
+     * @return Putanja do generisanog fajla.
+     * @throws IOException Ako fajl ne može biti kreiran.
+     */
+    static Path generateJson(int size) throws IOException {
+        Path file = Files.createTempFile("transport_" + size + "x" + size + "_", ".json");
+        file.toFile().deleteOnExit();
+        new TransportDataGenerator(size, size, SEED).writeJson(file.toString());
+        return file;
+    }
+
+    /**
+     * Učitava mrežu iz JSON fajla.
+     *
+     * @param json Putanja do JSON fajla.
+     * @param size Broj redova i kolona mreže.
+     * @return Učitana mreža.
+     */
+    static Network load(Path json, int size) {
+        Network network = new Network();
+        network.loadFromJson(json.toString());
+        network.setGridRows(size);
+        network.setGridCols(size);
+        return network;
+    }
+
+    /**
+     * Bira parove različitih gradova sa fiksnim sjemenom.
+     *
+     * @param network Učitana mreža.
+     * @param count Broj parova.
+     * @return Niz parova {početni grad, krajnji grad}.
+     */
+    static City[][] cityPairs(Network network, int count) {
+        List<City> cities = new ArrayList<>(network.getCities().values());
+        cities.sort(Comparator.comparing(City::getName));
+        Random random = new Random(SEED);
+        City[][] pairs = new City[count][];
+        for (int i = 0; i < count; i++) {
+            City start = cities.get(random.nextInt(cities.size()));
+            City end;
+            do {
+                end = cities.get(random.nextInt(cities.size()));
+            } while (end == start);
+            pairs[i] = new City[]{start, end};
+        }
+        return pairs;
+    }
+
+    /**
+     * Isključuje log poruke ispod nivoa WARN i standardni izlaz (npr. generatora), jer bi
+     * inače dominirali izlazom benchmark-a.
+     */
+    static void silenceStandardOutput() {
+        Logger.setLevel(Logger.Level.WARN);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import main.model.City;
+import main.transport.Network;
+import main.transport.Route;
+import main.transport.StandardCriterion;
+import main.util.TicketUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mjeri opis rute po segmentima i generisanje računa za kupljenu kartu.
+ * Ruta se pronalazi jednom, između dva udaljena grada mreže 20x20.
+ * Računi se dopisuju u knjigu prodaje u direktorijumu "racuni" radnog direktorijuma benchmark-a.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiptBenchmark {
+    private static final int SIZE = 20;
+
+    private final TicketUtil ticketUtil = new TicketUtil();
+    private City startCity;
+    private City endCity;
+    private Route route;
+
+    /**
+     * Učitava mrežu i pronalazi rutu za koju se pravi račun.
+     *
+     * @throws IOException Ako JSON fajl ne može biti kreiran.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        NetworkFixture.silenceStandardOutput();
+        Network network = NetworkFixture.load(NetworkFixture.generateJson(SIZE), SIZE);
+        startCity = network.getCities().get("G_0_0");
+        endCity = network.getCities().get("G_" + (SIZE - 1) + "_" + (SIZE - 1));
+        List<Route> routes = network.findRoutes(startCity, endCity, StandardCriterion.TIME, 480);
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("Nema rute između " + startCity.getName() + " i " + endCity.getName());
+        }
+        route = routes.get(0);
+    }
+
+    /**
+     * Pravi tekstualni opis rute po segmentima.
+     *
+     * @return Opis rute.
+     */
+    @Benchmark
+    public String getSegmentedDescription() {
+        return route.getSegmentedDescription(endCity);
+    }
+
+    /**
+     * Generiše račun i dopisuje ga u knjigu prodaje, uključujući potvrdu upisa na disku.
+     *
+     * @return Opis računa.
+     * @throws IOException Ako račun ne može biti upisan.
+     */
+    @Benchmark
+    public String generateReceipt() throws IOException {
+        return ticketUtil.generateReceipt(route, startCity, endCity);
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import main.model.City;
+import main.transport.Network;
+import main.transport.Route;
+import main.transport.RouteCache;
+import main.transport.StandardCriterion;
+import main.transport.StandardEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mjeri {@link Network#findRoutes} za svaki kriterijum optimizacije nad mrežama
+ * različitih veličina. Svaki poziv koristi sljedeći par gradova iz fiksnog niza,
+ * pa se mjeri prosjek preko različitih udaljenosti. Algoritam se bira parametrom
+ * {@code engine} (npr. {@code -p engine=RAPTOR}, vidi {@link StandardEngine}). Keš rezultata je podrazumijevano
+ * isključen, pa se mjeri sama pretraga; sa {@code -p cache=true} ponovljeni parovi se
+ * vraćaju iz keša.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+    private static final int PAIRS = 64;
+
+    @Param({"10", "20", "40"})
+    public int size;
+
+    @Param({"time", "price", "transfers"})
+    public String criterion;
+
+    @Param({"BEST_FIRST", "A_STAR", "CORRIDOR"})
+    public String engine;
+
+    @Param({"false"})
+    public boolean cache;
+
+    private Network network;
+    private StandardCriterion selectedCriterion;
+    private City[][] pairs;
+    private int next;
+
+    /**
+     * Generiše i učitava mrežu i bira parove gradova.
+     *
+     * @throws IOException Ako JSON fajl ne može biti kreiran.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        NetworkFixture.silenceStandardOutput();
+        network = NetworkFixture.load(NetworkFixture.generateJson(size), size);
+        network.setEngine(StandardEngine.valueOf(engine));
+        selectedCriterion = StandardCriterion.fromName(criterion);
+        network.setRouteCache(cache ? new RouteCache() : null);
+        pairs = NetworkFixture.cityPairs(network, PAIRS);
+    }
+
+    /**
+     * Traži rute za sljedeći par gradova.
+     *
+     * @return Pronađene rute.
+     */
+    @Benchmark
+    public List<Route> findRoutes() {
+        City[] pair = pairs[next++ & (PAIRS - 1)];
+        return network.findRoutes(pair[0], pair[1], selectedCriterion, 480);
+    }
+}
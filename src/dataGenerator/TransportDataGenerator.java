@@ -1,10 +1,24 @@
 package dataGenerator;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Generiše transportne podatke za simulaciju mreže gradova, stanica i polazaka.
+ * <p>
+ * Mreža se dijeli na pojaseve susjednih redova, sa oko {@value #DEPARTURES_PER_BAND}
+ * polazaka po pojasu. Svaki pojas ima sopstveni generator slučajnih brojeva izveden
+ * iz sjemena i rednog broja pojasa, pa se pojasevi mogu generisati paralelno, a
+ * rezultat za isto sjeme i iste dimenzije je uvijek isti, bez obzira na broj niti.
+ * Pri upisu u JSON polasci se ne čuvaju u memoriji, već se pojas po pojas upisuju
+ * u bafereni tok, pa veličina mreže nije ograničena memorijom.
  *
  * @author Mladen Grbić
  * @version 1.0
@@ -12,8 +26,11 @@ import java.util.*;
 public class TransportDataGenerator {
     private final int rows; // Broj redova mreže
     private final int cols; // Broj kolona mreže
+    private final long seed; // Sjeme iz kojeg se izvode generatori pojaseva
+    private final int bandRows; // Broj redova mreže u jednom pojasu
     private static final int DEPARTURES_PER_STATION = 20; // Broj polazaka po stanici
-    private static final Random random = new Random(); // Generator slučajnih brojeva
+    private static final int DEPARTURES_PER_BAND = 32768; // Približan broj polazaka u jednom pojasu
+    private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
 
     /**
      * Konstruktor za inicijalizaciju generatora sa dimenzijama mreže.
@@ -22,8 +39,21 @@ public class TransportDataGenerator {
      * @param cols Broj kolona mreže.
      */
     public TransportDataGenerator(int rows, int cols) {
+        this(rows, cols, new Random().nextLong());
+    }
+
+    /**
+     * Konstruktor za generator koji za isto sjeme uvijek pravi iste podatke.
+     *
+     * @param rows Broj redova mreže.
+     * @param cols Broj kolona mreže.
+     * @param seed Sjeme generatora slučajnih brojeva.
+     */
+    public TransportDataGenerator(int rows, int cols, long seed) {
         this.rows = rows;
         this.cols = cols;
+        this.seed = seed;
+        this.bandRows = Math.max(1, DEPARTURES_PER_BAND / Math.max(1, cols * DEPARTURES_PER_STATION * 2));
     }
 
     /**
@@ -58,7 +88,27 @@ public class TransportDataGenerator {
     }
 
     /**
-     * Generiše kompletne transportne podatke (mapu, stanice, polaske).
+     * Prima generisane polaske jednog pojasa.
+     */
+    private interface DepartureSink {
+
+        /**
+         * Prima jedan polazak.
+         *
+         * @param type Tip prevoza ("autobus" ili "voz").
+         * @param from Ime polazne stanice.
+         * @param to Ime destinacijskog grada.
+         * @param departureTime Vrijeme polaska u minutama.
+         * @param duration Trajanje putovanja u minutama.
+         * @param price Cijena putovanja.
+         * @param minTransferTime Minimalno vrijeme za transfer u minutama.
+         */
+        void accept(String type, String from, String to, int departureTime, int duration, int price, int minTransferTime);
+    }
+
+    /**
+     * Generiše kompletne transportne podatke (mapu, stanice, polaske) u memoriji.
+     * Za velike mreže treba koristiti {@link #writeJson(String)}, koji polaske ne čuva u memoriji.
      *
      * @return Objekat sa generisanim podacima.
      */
@@ -66,7 +116,20 @@ public class TransportDataGenerator {
         TransportData data = new TransportData();
         data.countryMap = generateCountryMap();
         data.stations = generateStations();
-        data.departures = generateDepartures(data.stations);
+        data.departures = new ArrayList<>(rows * cols * DEPARTURES_PER_STATION * 2);
+        for (int band = 0; band < bandCount(); band++) {
+            generateBand(band, (type, from, to, departureTime, duration, price, minTransferTime) -> {
+                Departure departure = new Departure();
+                departure.type = type;
+                departure.from = from;
+                departure.to = to;
+                departure.departureTime = formatTime(departureTime);
+                departure.duration = duration;
+                departure.price = price;
+                departure.minTransferTime = minTransferTime;
+                data.departures.add(departure);
+            });
+        }
         return data;
     }
 
@@ -105,46 +168,53 @@ public class TransportDataGenerator {
     }
 
     /**
-     * Generiše polaske za sve stanice.
+     * Vraća broj pojaseva mreže.
      *
-     * @param stations Lista stanica iz kojih se generišu polasci.
-     * @return Lista generisanih polazaka.
+     * @return Broj pojaseva.
      */
-    private List<Departure> generateDepartures(List<Station> stations) {
-        List<Departure> departures = new ArrayList<>();
-        for (Station station : stations) {
-            int x = Integer.parseInt(station.city.split("_")[1]);
-            int y = Integer.parseInt(station.city.split("_")[2]);
-            for (int i = 0; i < DEPARTURES_PER_STATION; i++) {
-                departures.add(generateDeparture("autobus", station.busStation, x, y));
-                departures.add(generateDeparture("voz", station.trainStation, x, y));
+    private int bandCount() {
+        return (rows + bandRows - 1) / bandRows;
+    }
+
+    /**
+     * Generiše polaske svih stanica jednog pojasa, red po red i grad po grad.
+     *
+     * @param band Redni broj pojasa.
+     * @param sink Prima generisane polaske.
+     */
+    private void generateBand(int band, DepartureSink sink) {
+        Random random = new Random(seed + band * 0x9E3779B97F4A7C15L);
+        int lastRow = Math.min(rows, (band + 1) * bandRows);
+        for (int x = band * bandRows; x < lastRow; x++) {
+            for (int y = 0; y < cols; y++) {
+                String busStation = "A_" + x + "_" + y;
+                String trainStation = "Z_" + x + "_" + y;
+                List<String> neighbors = getNeighbors(x, y);
+                for (int i = 0; i < DEPARTURES_PER_STATION; i++) {
+                    generateDeparture(random, "autobus", busStation, neighbors, sink);
+                    generateDeparture(random, "voz", trainStation, neighbors, sink);
+                }
             }
         }
-        return departures;
     }
 
     /**
      * Generiše pojedinačni polazak za datu stanicu.
      *
+     * @param random Generator slučajnih brojeva pojasa.
      * @param type Tip prevoza ("autobus" ili "voz").
      * @param from Ime polazne stanice.
-     * @param x Red koordinata grada.
-     * @param y Kolona koordinata grada.
-     * @return Generisani polazak.
-     */
-    private Departure generateDeparture(String type, String from, int x, int y) {
-        Departure departure = new Departure();
-        departure.type = type;
-        departure.from = from;
-        List<String> neighbors = getNeighbors(x, y);
-        departure.to = neighbors.isEmpty() ? from : neighbors.get(random.nextInt(neighbors.size()));
+     * @param neighbors Imena susjednih gradova.
+     * @param sink Prima generisani polazak.
+     */
+    private void generateDeparture(Random random, String type, String from, List<String> neighbors, DepartureSink sink) {
+        String to = neighbors.isEmpty() ? from : neighbors.get(random.nextInt(neighbors.size()));
         int hour = random.nextInt(24);
         int minute = random.nextInt(4) * 15; // 0, 15, 30, 45
-        departure.departureTime = String.format("%02d:%02d", hour, minute);
-        departure.duration = 30 + random.nextInt(151); // 30–180 minuta
-        departure.price = 100 + random.nextInt(901); // 100–1000
-        departure.minTransferTime = 5 + random.nextInt(26); // 5–30 minuta
-        return departure;
+        int duration = 30 + random.nextInt(151); // 30–180 minuta
+        int price = 100 + random.nextInt(901); // 100–1000
+        int minTransferTime = 5 + random.nextInt(26); // 5–30 minuta
+        sink.accept(type, from, to, hour * 60 + minute, duration, price, minTransferTime);
     }
 
     /**
@@ -155,9 +225,8 @@ public class TransportDataGenerator {
      * @return Lista imena susjednih gradova.
      */
     private List<String> getNeighbors(int x, int y) {
-        List<String> neighbors = new ArrayList<>();
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
-        for (int[] dir : directions) {
+        List<String> neighbors = new ArrayList<>(DIRECTIONS.length);
+        for (int[] dir : DIRECTIONS) {
             int nx = x + dir[0];
             int ny = y + dir[1];
             if (nx >= 0 && nx < rows && ny >= 0 && ny < cols) {
@@ -167,6 +236,18 @@ public class TransportDataGenerator {
         return neighbors;
     }
 
+    /**
+     * Formatira vrijeme u minutama kao "HH:mm".
+     *
+     * @param minutes Vrijeme u minutama.
+     * @return Vrijeme u formatu "HH:mm".
+     */
+    private static String formatTime(int minutes) {
+        int hour = minutes / 60;
+        int minute = minutes % 60;
+        return (hour < 10 ? "0" : "") + hour + (minute < 10 ? ":0" : ":") + minute;
+    }
+
     /**
      * Čuva generisane podatke u JSON fajl.
      *
@@ -174,55 +255,155 @@ public class TransportDataGenerator {
      * @param filename Ime fajla za čuvanje.
      */
     public void saveToJson(TransportData data, String filename) {
-        try (FileWriter file = new FileWriter(filename)) {
-            StringBuilder json = new StringBuilder();
-            json.append("{\n");
-
-            json.append("  \"countryMap\": [\n");
-            for (int i = 0; i < rows; i++) {
-                json.append("    [");
-                for (int j = 0; j < cols; j++) {
-                    json.append("\"").append(data.countryMap[i][j]).append("\"");
-                    if (j < cols - 1) json.append(", ");
-                }
-                json.append("]");
-                if (i < rows - 1) json.append(",");
-                json.append("\n");
-            }
-            json.append("  ],\n");
-
-            json.append("  \"stations\": [\n");
-            for (int i = 0; i < data.stations.size(); i++) {
-                Station s = data.stations.get(i);
-                json.append("    {\"city\": \"").append(s.city)
-                        .append("\", \"busStation\": \"").append(s.busStation)
-                        .append("\", \"trainStation\": \"").append(s.trainStation)
-                        .append("\"}");
-                if (i < data.stations.size() - 1) json.append(",");
-                json.append("\n");
-            }
-            json.append("  ],\n");
-
-            json.append("  \"departures\": [\n");
+        try (Writer writer = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+            writeHeader(writer, data.countryMap, data.stations);
+            writer.write("  \"departures\": [\n");
+            StringBuilder line = new StringBuilder(160);
             for (int i = 0; i < data.departures.size(); i++) {
                 Departure d = data.departures.get(i);
-                json.append("    {\"type\": \"").append(d.type)
-                        .append("\", \"from\": \"").append(d.from)
-                        .append("\", \"to\": \"").append(d.to)
-                        .append("\", \"departureTime\": \"").append(d.departureTime)
-                        .append("\", \"duration\": ").append(d.duration)
-                        .append(", \"price\": ").append(d.price)
-                        .append(", \"minTransferTime\": ").append(d.minTransferTime)
-                        .append("}");
-                if (i < data.departures.size() - 1) json.append(",");
-                json.append("\n");
+                line.setLength(0);
+                appendDeparture(line, d.type, d.from, d.to, d.departureTime, d.duration, d.price, d.minTransferTime);
+                if (i < data.departures.size() - 1) line.append(",");
+                line.append("\n");
+                writer.append(line);
             }
-            json.append("  ]\n");
-
-            json.append("}");
-            file.write(json.toString());
+            writer.write("  ]\n}");
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Generiše podatke i upisuje ih direktno u JSON fajl koristeći zajednički
+     * fork-join bazen niti.
+     *
+     * @param filename Ime fajla za čuvanje.
+     * @throws IOException Ako dođe do greške pri pisanju fajla.
+     */
+    public void writeJson(String filename) throws IOException {
+        writeJson(filename, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generiše podatke i upisuje ih direktno u JSON fajl. Pojasevi se generišu
+     * paralelno u datom bazenu niti, a upisuju redom; istovremeno se u memoriji drži
+     * najviše dvostruko više pojaseva nego što bazen ima niti.
+     *
+     * @param filename Ime fajla za čuvanje.
+     * @param executor Bazen niti za generisanje pojaseva.
+     * @throws IOException Ako dođe do greške pri pisanju fajla.
+     */
+    public void writeJson(String filename, ExecutorService executor) throws IOException {
+        int maxInFlight = 2 * Math.max(1, executor instanceof ForkJoinPool pool
+                ? pool.getParallelism() : Runtime.getRuntime().availableProcessors());
+        try (Writer writer = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+            writeHeader(writer, generateCountryMap(), generateStations());
+            writer.write("  \"departures\": [\n");
+
+            Deque<CompletableFuture<String>> pending = new ArrayDeque<>();
+            int nextBand = 0;
+            boolean first = true;
+            while (nextBand < bandCount() || !pending.isEmpty()) {
+                while (nextBand < bandCount() && pending.size() < maxInFlight) {
+                    int band = nextBand++;
+                    pending.add(CompletableFuture.supplyAsync(() -> bandToJson(band), executor));
+                }
+                String text = join(pending.poll());
+                if (text.isEmpty()) continue;
+                if (!first) writer.write(",\n");
+                writer.write(text);
+                first = false;
+            }
+            writer.write("\n  ]\n}");
+        }
+    }
+
+    /**
+     * Čeka rezultat generisanja pojasa.
+     *
+     * @param future Zadatak generisanja pojasa.
+     * @return JSON tekst polazaka pojasa.
+     * @throws IOException Ako generisanje nije uspjelo.
+     */
+    private static String join(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IOException("Greška pri generisanju polazaka", e.getCause());
+        }
+    }
+
+    /**
+     * Generiše polaske jednog pojasa kao JSON zapise razdvojene zarezom, bez zareza na kraju.
+     *
+     * @param band Redni broj pojasa.
+     * @return JSON tekst polazaka pojasa.
+     */
+    private String bandToJson(int band) {
+        StringBuilder json = new StringBuilder(bandRows * cols * DEPARTURES_PER_STATION * 2 * 140);
+        generateBand(band, (type, from, to, departureTime, duration, price, minTransferTime) -> {
+            if (json.length() > 0) json.append(",\n");
+            appendDeparture(json, type, from, to, formatTime(departureTime), duration, price, minTransferTime);
+        });
+        return json.toString();
+    }
+
+    /**
+     * Upisuje početak JSON fajla: mapu gradova i listu stanica.
+     *
+     * @param writer Tok za pisanje.
+     * @param countryMap Matrica gradova.
+     * @param stations Lista stanica.
+     * @throws IOException Ako dođe do greške pri pisanju.
+     */
+    private void writeHeader(Writer writer, String[][] countryMap, List<Station> stations) throws IOException {
+        writer.write("{\n");
+
+        writer.write("  \"countryMap\": [\n");
+        for (int i = 0; i < countryMap.length; i++) {
+            writer.write("    [");
+            for (int j = 0; j < countryMap[i].length; j++) {
+                writer.write("\"" + countryMap[i][j] + "\"");
+                if (j < countryMap[i].length - 1) writer.write(", ");
+            }
+            writer.write("]");
+            if (i < countryMap.length - 1) writer.write(",");
+            writer.write("\n");
+        }
+        writer.write("  ],\n");
+
+        writer.write("  \"stations\": [\n");
+        for (int i = 0; i < stations.size(); i++) {
+            Station s = stations.get(i);
+            writer.write("    {\"city\": \"" + s.city + "\", \"busStation\": \"" + s.busStation
+                    + "\", \"trainStation\": \"" + s.trainStation + "\"}");
+            if (i < stations.size() - 1) writer.write(",");
+            writer.write("\n");
+        }
+        writer.write("  ],\n");
+    }
+
+    /**
+     * Dodaje JSON zapis jednog polaska.
+     *
+     * @param json Tekst u koji se dodaje zapis.
+     * @param type Tip prevoza.
+     * @param from Polazna stanica.
+     * @param to Destinacijski grad.
+     * @param departureTime Vrijeme polaska u formatu "HH:mm".
+     * @param duration Trajanje putovanja u minutama.
+     * @param price Cijena putovanja.
+     * @param minTransferTime Minimalno vrijeme za transfer u minutama.
+     */
+    private static void appendDeparture(StringBuilder json, String type, String from, String to, String departureTime,
+                                        int duration, int price, int minTransferTime) {
+        json.append("    {\"type\": \"").append(type)
+                .append("\", \"from\": \"").append(from)
+                .append("\", \"to\": \"").append(to)
+                .append("\", \"departureTime\": \"").append(departureTime)
+                .append("\", \"duration\": ").append(duration)
+                .append(", \"price\": ").append(price)
+                .append(", \"minTransferTime\": ").append(minTransferTime)
+                .append("}");
+    }
+}
@@ -0,0 +1,584 @@
+package main.controller;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.paint.Color;
+import main.model.City;
+import main.model.CompactGraph;
+import main.model.Edge;
+import main.model.Station;
+import main.transport.Route;
+import main.util.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Crta mapu mreže na dva platna: osnovni sloj (veze između gradova i gradovi) i sloj
+ * rute iznad njega.
+ * <p>
+ * Veze između gradova se pri učitavanju mreže svode na jednu neusmjerenu vezu po paru
+ * gradova i raspoređuju u pločice od {@value #TILE}×{@value #TILE} gradova. Osnovni sloj
+ * se crta samo pri učitavanju mreže i pri promjeni prikaza (zumiranje točkićem miša,
+ * pomjeranje prevlačenjem, dvoklik vraća cijelu mapu), i to samo pločice koje se vide.
+ * Pretraga ruta ponovo crta samo sloj rute.
+ * <p>
+ * Nivo detalja zavisi od veličine ćelije mreže na ekranu: imena gradova se crtaju samo
+ * kad ima mjesta za njih, gradovi se ne crtaju kad su manji od tačke, a kad su veze
+ * gušće od {@value #MIN_LINK_SPACING} piksela, susjedni gradovi se spajaju u blokove i
+ * crta se po jedna veza između susjednih blokova.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+final class MapRenderer {
+    private static final Logger LOG = Logger.getLogger(MapRenderer.class);
+    private static final int TILE = 16;
+    private static final double MIN_LINK_SPACING = 6;
+    private static final double MIN_LABEL_WIDTH = 48;
+    private static final double MIN_LABEL_HEIGHT = 24;
+    private static final double CITY_RADIUS = 10;
+    private static final double MAX_CELL_SIZE = 400;
+    private static final double ZOOM_STEP = 1.25;
+
+    private final Canvas baseCanvas;
+    private final Canvas overlayCanvas;
+
+    private City[] cities = new City[0];
+    private City[] cityAt = new City[0];
+    private int rows;
+    private int cols;
+    private int[] linkFrom = new int[0];
+    private int[] linkTo = new int[0];
+    private int tileRows;
+    private int tileCols;
+    private int[][] tileLinks = new int[0][];
+    private int[] drawnStamp = new int[0];
+    private int stamp;
+    private final Map<Integer, int[]> mergedLinks = new HashMap<>();
+
+    private double zoom = 1;
+    private double offsetX;
+    private double offsetY;
+    private double dragX;
+    private double dragY;
+
+    private Route route;
+    private City startCity;
+    private City endCity;
+
+    /**
+     * Kreira crtač mape nad dva platna iste veličine i na platno rute (koje je iznad)
+     * postavlja obradu zumiranja i pomjeranja.
+     *
+     * @param baseCanvas Platno osnovnog sloja.
+     * @param overlayCanvas Platno sloja rute, iznad osnovnog.
+     */
+    MapRenderer(Canvas baseCanvas, Canvas overlayCanvas) {
+        this.baseCanvas = baseCanvas;
+        this.overlayCanvas = overlayCanvas;
+        overlayCanvas.addEventHandler(ScrollEvent.SCROLL, this::onScroll);
+        overlayCanvas.addEventHandler(MouseEvent.MOUSE_PRESSED, event -> {
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        overlayCanvas.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onDrag);
+        overlayCanvas.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+            if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
+                zoom = 1;
+                offsetX = 0;
+                offsetY = 0;
+                redraw();
+            }
+        });
+    }
+
+    /**
+     * Učitava mrežu: svodi polaske na neusmjerene veze između gradova, raspoređuje ih u
+     * pločice, vraća prikaz na cijelu mapu i crta oba sloja.
+     *
+     * @param graph Kompaktni graf mreže, ili null za praznu mapu.
+     */
+    void setGraph(CompactGraph graph) {
+        long start = System.nanoTime();
+        mergedLinks.clear();
+        route = null;
+        startCity = null;
+        endCity = null;
+        zoom = 1;
+        offsetX = 0;
+        offsetY = 0;
+        if (graph == null) {
+            cities = new City[0];
+            cityAt = new City[0];
+            rows = 0;
+            cols = 0;
+            linkFrom = new int[0];
+            linkTo = new int[0];
+            buildTiles();
+            redraw();
+            return;
+        }
+
+        int n = graph.cityCount();
+        cities = new City[n];
+        rows = 0;
+        cols = 0;
+        for (int c = 0; c < n; c++) {
+            cities[c] = graph.city(c);
+            rows = Math.max(rows, cities[c].getRow() + 1);
+            cols = Math.max(cols, cities[c].getColumn() + 1);
+        }
+        cityAt = new City[rows * cols];
+        for (City city : cities) {
+            cityAt[city.getRow() * cols + city.getColumn()] = city;
+        }
+        buildLinks(graph);
+        buildTiles();
+        redraw();
+        LOG.debug(() -> String.format("Mapa pripremljena: %d gradova, %d veza, %d pločica za %.1f ms",
+                cities.length, linkFrom.length, tileLinks.length, (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Prikazuje rutu na sloju rute; osnovni sloj se ne crta ponovo.
+     *
+     * @param route Ruta za prikaz, ili null da se prikažu samo označeni gradovi.
+     * @param startCity Početni grad, ili null.
+     * @param endCity Krajnji grad, ili null.
+     */
+    void showRoute(Route route, City startCity, City endCity) {
+        this.route = route;
+        this.startCity = startCity;
+        this.endCity = endCity;
+        drawOverlay();
+    }
+
+    /**
+     * Svodi polaske na neusmjerene veze između gradova: za svaki grad se skupe različiti
+     * susjedni gradovi do kojih vode polasci njegovih stanica, a veza {@code a-b} se
+     * zapisuje jednom, iz grada sa manjim identifikatorom ili iz grada {@code a} ako
+     * {@code b} nema polazak prema {@code a}.
+     *
+     * @param graph Kompaktni graf mreže.
+     */
+    private void buildLinks(CompactGraph graph) {
+        int n = graph.cityCount();
+        int[] neighborStart = new int[n + 1];
+        int[] neighbors = new int[Math.max(16, n * 4)];
+        int count = 0;
+        int[] buffer = new int[16];
+        for (int c = 0; c < n; c++) {
+            neighborStart[c] = count;
+            int size = 0;
+            for (int s = 2 * c; s <= 2 * c + 1; s++) {
+                for (int e = graph.firstEdge(s); e < graph.endEdge(s); e++) {
+                    int to = graph.cityOf(graph.target(e));
+                    if (to == c || contains(buffer, 0, size, to)) continue;
+                    if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+                    buffer[size++] = to;
+                }
+            }
+            if (count + size > neighbors.length) {
+                neighbors = Arrays.copyOf(neighbors, Math.max(neighbors.length * 2, count + size));
+            }
+            System.arraycopy(buffer, 0, neighbors, count, size);
+            count += size;
+        }
+        neighborStart[n] = count;
+
+        int[] from = new int[count];
+        int[] to = new int[count];
+        int links = 0;
+        for (int a = 0; a < n; a++) {
+            for (int i = neighborStart[a]; i < neighborStart[a + 1]; i++) {
+                int b = neighbors[i];
+                if (a < b || !contains(neighbors, neighborStart[b], neighborStart[b + 1], a)) {
+                    from[links] = a;
+                    to[links] = b;
+                    links++;
+                }
+            }
+        }
+        linkFrom = Arrays.copyOf(from, links);
+        linkTo = Arrays.copyOf(to, links);
+    }
+
+    /**
+     * Provjerava da li se vrijednost nalazi u dijelu niza.
+     *
+     * @param values Niz.
+     * @param from Početak dijela (uključen).
+     * @param to Kraj dijela (isključen).
+     * @param value Tražena vrijednost.
+     * @return true ako je vrijednost pronađena.
+     */
+    private static boolean contains(int[] values, int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Raspoređuje veze u pločice: veza pripada svakoj pločici koju pokriva njen
+     * pravougaonik u mreži gradova.
+     */
+    private void buildTiles() {
+        tileRows = (rows + TILE - 1) / TILE;
+        tileCols = (cols + TILE - 1) / TILE;
+        int[] counts = new int[tileRows * tileCols];
+        forEachTile((link, tile) -> counts[tile]++);
+        tileLinks = new int[counts.length][];
+        for (int t = 0; t < counts.length; t++) {
+            tileLinks[t] = new int[counts[t]];
+        }
+        int[] filled = new int[counts.length];
+        forEachTile((link, tile) -> tileLinks[tile][filled[tile]++] = link);
+        drawnStamp = new int[linkFrom.length];
+        stamp = 0;
+    }
+
+    /**
+     * Obilazi parove (veza, pločica) za sve pločice koje veze pokrivaju.
+     *
+     * @param action Akcija nad vezom i pločicom.
+     */
+    private void forEachTile(TileAction action) {
+        for (int link = 0; link < linkFrom.length; link++) {
+            City a = cities[linkFrom[link]];
+            City b = cities[linkTo[link]];
+            int firstRow = Math.min(a.getRow(), b.getRow()) / TILE;
+            int lastRow = Math.max(a.getRow(), b.getRow()) / TILE;
+            int firstCol = Math.min(a.getColumn(), b.getColumn()) / TILE;
+            int lastCol = Math.max(a.getColumn(), b.getColumn()) / TILE;
+            for (int r = firstRow; r <= lastRow; r++) {
+                for (int c = firstCol; c <= lastCol; c++) {
+                    action.accept(link, r * tileCols + c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Akcija nad parom (veza, pločica).
+     */
+    @FunctionalInterface
+    private interface TileAction {
+        /**
+         * Obrađuje vezu u pločici.
+         *
+         * @param link Indeks veze.
+         * @param tile Indeks pločice.
+         */
+        void accept(int link, int tile);
+    }
+
+    /**
+     * Vraća spojene veze za dati nivo spajanja: gradovi se grupišu u blokove od
+     * {@code factor}×{@code factor} ćelija, a veze između istih blokova se svode na jednu.
+     * Rezultat se čuva, pa se računa jednom po nivou i mreži.
+     *
+     * @param factor Broj ćelija po strani bloka (stepen broja 2).
+     * @return Parovi indeksa blokova ({@code red * brojKolona + kolona}), po dva broja za vezu.
+     */
+    private int[] mergedLinks(int factor) {
+        return mergedLinks.computeIfAbsent(factor, k -> {
+            int blockCols = (cols + k - 1) / k;
+            Set<Long> seen = new HashSet<>();
+            int[] pairs = new int[16];
+            int size = 0;
+            for (int link = 0; link < linkFrom.length; link++) {
+                City a = cities[linkFrom[link]];
+                City b = cities[linkTo[link]];
+                int blockA = a.getRow() / k * blockCols + a.getColumn() / k;
+                int blockB = b.getRow() / k * blockCols + b.getColumn() / k;
+                if (blockA == blockB) continue;
+                int low = Math.min(blockA, blockB);
+                int high = Math.max(blockA, blockB);
+                if (!seen.add(((long) low << 32) | high)) continue;
+                if (size + 2 > pairs.length) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                pairs[size++] = low;
+                pairs[size++] = high;
+            }
+            return Arrays.copyOf(pairs, size);
+        });
+    }
+
+    /**
+     * Ponovo crta oba sloja, npr. nakon promjene prikaza.
+     */
+    private void redraw() {
+        drawBase();
+        drawOverlay();
+    }
+
+    /**
+     * Crta osnovni sloj: veze i gradove koji se vide, sa nivoom detalja prema veličini ćelije.
+     */
+    private void drawBase() {
+        GraphicsContext gc = baseCanvas.getGraphicsContext2D();
+        double width = baseCanvas.getWidth();
+        double height = baseCanvas.getHeight();
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, width, height);
+        if (cities.length == 0) return;
+
+        double cellWidth = cellWidth();
+        double cellHeight = cellHeight();
+        double cell = Math.min(cellWidth, cellHeight);
+        int firstRow = Math.max(0, (int) Math.floor(-offsetY / cellHeight) - 1);
+        int lastRow = Math.min(rows - 1, (int) Math.ceil((height - offsetY) / cellHeight));
+        int firstCol = Math.max(0, (int) Math.floor(-offsetX / cellWidth) - 1);
+        int lastCol = Math.min(cols - 1, (int) Math.ceil((width - offsetX) / cellWidth));
+
+        gc.setStroke(Color.BLACK);
+        gc.setLineWidth(1);
+        if (cell >= MIN_LINK_SPACING) {
+            drawLinks(gc, firstRow, lastRow, firstCol, lastCol);
+        } else {
+            int factor = 2;
+            while (cell * factor < MIN_LINK_SPACING) factor *= 2;
+            drawMergedLinks(gc, factor, width, height);
+        }
+
+        double radius = Math.min(CITY_RADIUS, cell / 4);
+        if (radius < 1) return;
+        boolean labels = cellWidth >= MIN_LABEL_WIDTH && cellHeight >= MIN_LABEL_HEIGHT;
+        gc.setTextBaseline(VPos.BASELINE);
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                City city = cityAt[r * cols + c];
+                if (city == null) continue;
+                double x = x(city);
+                double y = y(city);
+                gc.setFill(Color.GRAY);
+                gc.fillOval(x - radius, y - radius, 2 * radius, 2 * radius);
+                if (labels) {
+                    gc.setFill(Color.BLACK);
+                    gc.fillText(city.getName(), x + radius, y - radius);
+                }
+            }
+        }
+    }
+
+    /**
+     * Crta veze iz pločica koje presijecaju vidljivi dio mreže. Veza koja pokriva više
+     * pločica crta se jednom.
+     *
+     * @param gc Grafički kontekst osnovnog sloja.
+     * @param firstRow Prvi vidljivi red.
+     * @param lastRow Posljednji vidljivi red.
+     * @param firstCol Prva vidljiva kolona.
+     * @param lastCol Posljednja vidljiva kolona.
+     */
+    private void drawLinks(GraphicsContext gc, int firstRow, int lastRow, int firstCol, int lastCol) {
+        if (++stamp == 0) {
+            Arrays.fill(drawnStamp, 0);
+            stamp = 1;
+        }
+        int drawn = 0;
+        for (int tr = firstRow / TILE; tr <= lastRow / TILE; tr++) {
+            for (int tc = firstCol / TILE; tc <= lastCol / TILE; tc++) {
+                for (int link : tileLinks[tr * tileCols + tc]) {
+                    if (drawnStamp[link] == stamp) continue;
+                    drawnStamp[link] = stamp;
+                    City a = cities[linkFrom[link]];
+                    City b = cities[linkTo[link]];
+                    gc.strokeLine(x(a), y(a), x(b), y(b));
+                    drawn++;
+                }
+            }
+        }
+        int total = drawn;
+        LOG.debug(() -> "Nacrtano veza: " + total + " od " + linkFrom.length);
+    }
+
+    /**
+     * Crta spojene veze između blokova gradova koje se vide.
+     *
+     * @param gc Grafički kontekst osnovnog sloja.
+     * @param factor Broj ćelija po strani bloka.
+     * @param width Širina platna.
+     * @param height Visina platna.
+     */
+    private void drawMergedLinks(GraphicsContext gc, int factor, double width, double height) {
+        int[] pairs = mergedLinks(factor);
+        int blockCols = (cols + factor - 1) / factor;
+        double blockWidth = cellWidth() * factor;
+        double blockHeight = cellHeight() * factor;
+        for (int i = 0; i < pairs.length; i += 2) {
+            double x1 = offsetX + (pairs[i] % blockCols + 0.5) * blockWidth;
+            double y1 = offsetY + (pairs[i] / blockCols + 0.5) * blockHeight;
+            double x2 = offsetX + (pairs[i + 1] % blockCols + 0.5) * blockWidth;
+            double y2 = offsetY + (pairs[i + 1] / blockCols + 0.5) * blockHeight;
+            if (Math.max(x1, x2) < 0 || Math.min(x1, x2) > width
+                    || Math.max(y1, y2) < 0 || Math.min(y1, y2) > height) {
+                continue;
+            }
+            gc.strokeLine(x1, y1, x2, y2);
+        }
+    }
+
+    /**
+     * Crta sloj rute: gradove rute spojene crvenom linijom i označen početni (zeleno) i
+     * krajnji grad (plavo) sa imenima.
+     */
+    private void drawOverlay() {
+        GraphicsContext gc = overlayCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, overlayCanvas.getWidth(), overlayCanvas.getHeight());
+        if (cities.length == 0) return;
+
+        List<City> routeCities = new ArrayList<>();
+        if (route != null && route.getEdges() != null && !route.getEdges().isEmpty()) {
+            Station startStation = route.startStation();
+            if (startStation != null && startStation.getCity() != null) routeCities.add(startStation.getCity());
+            for (Edge edge : route.getEdges()) {
+                if (!edge.isTransfer() && edge.getTo() != null && edge.getTo().getCity() != null) {
+                    routeCities.add(edge.getTo().getCity());
+                }
+            }
+        }
+        if (routeCities.size() > 1) {
+            gc.setStroke(Color.RED);
+            gc.setLineWidth(4);
+            for (int i = 0; i < routeCities.size() - 1; i++) {
+                City from = routeCities.get(i);
+                City to = routeCities.get(i + 1);
+                gc.strokeLine(x(from), y(from), x(to), y(to));
+            }
+        }
+
+        double radius = Math.max(4, Math.min(CITY_RADIUS, Math.min(cellWidth(), cellHeight()) / 4));
+        gc.setTextBaseline(VPos.BASELINE);
+        drawMarker(gc, startCity, Color.GREEN, radius);
+        drawMarker(gc, endCity, Color.BLUE, radius);
+    }
+
+    /**
+     * Crta oznaku grada sa imenom na sloju rute.
+     *
+     * @param gc Grafički kontekst sloja rute.
+     * @param city Grad, ili null.
+     * @param color Boja oznake.
+     * @param radius Poluprečnik oznake.
+     */
+    private void drawMarker(GraphicsContext gc, City city, Color color, double radius) {
+        if (city == null) return;
+        double x = x(city);
+        double y = y(city);
+        gc.setFill(color);
+        gc.fillOval(x - radius, y - radius, 2 * radius, 2 * radius);
+        gc.setFill(Color.BLACK);
+        gc.fillText(city.getName(), x + radius, y - radius);
+    }
+
+    /**
+     * Zumira prikaz oko pozicije miša.
+     *
+     * @param event Događaj točkića miša.
+     */
+    private void onScroll(ScrollEvent event) {
+        if (event.getDeltaY() == 0 || cities.length == 0) return;
+        double maxZoom = Math.max(1, MAX_CELL_SIZE / Math.min(fitCellWidth(), fitCellHeight()));
+        double next = event.getDeltaY() > 0 ? zoom * ZOOM_STEP : zoom / ZOOM_STEP;
+        next = Math.max(1, Math.min(maxZoom, next));
+        if (next == zoom) return;
+        double ratio = next / zoom;
+        offsetX = event.getX() - (event.getX() - offsetX) * ratio;
+        offsetY = event.getY() - (event.getY() - offsetY) * ratio;
+        zoom = next;
+        clampOffset();
+        redraw();
+        event.consume();
+    }
+
+    /**
+     * Pomjera prikaz za pomjeraj miša od prethodnog događaja.
+     *
+     * @param event Događaj prevlačenja mišem.
+     */
+    private void onDrag(MouseEvent event) {
+        offsetX += event.getX() - dragX;
+        offsetY += event.getY() - dragY;
+        dragX = event.getX();
+        dragY = event.getY();
+        clampOffset();
+        redraw();
+    }
+
+    /**
+     * Ograničava pomjeraj tako da mapa uvijek pokriva platno.
+     */
+    private void clampOffset() {
+        double mapWidth = cols * cellWidth();
+        double mapHeight = rows * cellHeight();
+        offsetX = Math.min(0, Math.max(baseCanvas.getWidth() - mapWidth, offsetX));
+        offsetY = Math.min(0, Math.max(baseCanvas.getHeight() - mapHeight, offsetY));
+    }
+
+    /**
+     * Vraća širinu ćelije kad cijela mapa staje na platno.
+     *
+     * @return Širina ćelije u pikselima.
+     */
+    private double fitCellWidth() {
+        return baseCanvas.getWidth() / Math.max(1, cols);
+    }
+
+    /**
+     * Vraća visinu ćelije kad cijela mapa staje na platno.
+     *
+     * @return Visina ćelije u pikselima.
+     */
+    private double fitCellHeight() {
+        return baseCanvas.getHeight() / Math.max(1, rows);
+    }
+
+    /**
+     * Vraća širinu ćelije za trenutni prikaz.
+     *
+     * @return Širina ćelije u pikselima.
+     */
+    private double cellWidth() {
+        return fitCellWidth() * zoom;
+    }
+
+    /**
+     * Vraća visinu ćelije za trenutni prikaz.
+     *
+     * @return Visina ćelije u pikselima.
+     */
+    private double cellHeight() {
+        return fitCellHeight() * zoom;
+    }
+
+    /**
+     * Vraća x koordinatu centra grada na platnu.
+     *
+     * @param city Grad.
+     * @return Koordinata u pikselima.
+     */
+    private double x(City city) {
+        return offsetX + (city.getColumn() + 0.5) * cellWidth();
+    }
+
+    /**
+     * Vraća y koordinatu centra grada na platnu.
+     *
+     * @param city Grad.
+     * @return Koordinata u pikselima.
+     */
+    private double y(City city) {
+        return offsetY + (city.getRow() + 0.5) * cellHeight();
+    }
+}
@@ -1,6 +1,7 @@
 package main.controller;
 
 import dataGenerator.TransportDataGenerator;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -10,6 +11,8 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import main.transport.Network;
+import main.transport.NetworkSnapshot;
+import main.util.Logger;
 
 import java.io.IOException;
 
@@ -20,6 +23,9 @@ import java.io.IOException;
  * @version 1.0
  */
 public class MapSizeController {
+    private static final Logger LOG = Logger.getLogger(MapSizeController.class);
+    private static final String DATA_PATH = "src/main/resources/transport_data.json";
+
     @FXML private TextField nField;
     @FXML private TextField mField;
     @FXML private Button createButton;
@@ -65,20 +71,9 @@ public class MapSizeController {
             try {
                 int n = Integer.parseInt(nField.getText());
                 int m = Integer.parseInt(mField.getText());
-                TransportDataGenerator generator = new TransportDataGenerator(n, m);
-                TransportDataGenerator.TransportData data = generator.generateData();
-                generator.saveToJson(data, "src/main/resources/transport_data.json");
-                network.loadFromJson("src/main/resources/transport_data.json");
-                System.out.println("Učitani gradovi nakon JSON-a: " + network.getCities().size());
-                network.setGridRows(n);
-                network.setGridCols(m);
-                routePlanningController.setup();
-                primaryStage.setScene(routePlanningController.getScene());
-                primaryStage.setMaximized(true);
+                reload(n, m);
             } catch (NumberFormatException ex) {
                 showAlert("Nevažeći unos", "Unesite validne brojeve za n i m.");
-            } catch (Exception ex) {
-                showAlert("Greška", "Greška pri učitavanju JSON-a: " + ex.getMessage());
             }
         });
 
@@ -88,13 +83,49 @@ public class MapSizeController {
                 Parent root = loader.load();
                 Stage statisticsStage = new Stage();
                 statisticsStage.setTitle("Statistika prodaje");
-                statisticsStage.setScene(new Scene(root, 300, 150));
+                statisticsStage.setScene(new Scene(root, 420, 560));
                 statisticsStage.show();
             } catch (IOException e) {
                 showAlert("Greška", "Došlo je do greške pri otvaranju prozora sa statistikom: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("Greška pri otvaranju prozora sa statistikom", e);
+            }
+        });
+    }
+
+    /**
+     * Generiše podatke i gradi novi snimak mreže u pozadinskoj niti, pa ga postavlja u
+     * mrežu i prikazuje planer. Pretrage koje su u toku završavaju nad starom mrežom.
+     *
+     * @param n Broj redova mreže.
+     * @param m Broj kolona mreže.
+     */
+    private void reload(int n, int m) {
+        Task<NetworkSnapshot> load = new Task<>() {
+            @Override
+            protected NetworkSnapshot call() throws Exception {
+                TransportDataGenerator generator = new TransportDataGenerator(n, m);
+                generator.writeJson(DATA_PATH);
+                return NetworkSnapshot.fromJson(DATA_PATH, network.getEngine()).withGrid(n, m);
             }
+        };
+        load.setOnSucceeded(event -> {
+            createButton.setDisable(false);
+            network.setSnapshot(load.getValue());
+            LOG.info(() -> "Učitani gradovi nakon JSON-a: " + network.getCities().size());
+            routePlanningController.setup();
+            primaryStage.setScene(routePlanningController.getScene());
+            primaryStage.setMaximized(true);
+        });
+        load.setOnFailed(event -> {
+            createButton.setDisable(false);
+            LOG.error("Greška pri učitavanju JSON-a", load.getException());
+            showAlert("Greška", "Greška pri učitavanju JSON-a: " + load.getException().getMessage());
         });
+
+        createButton.setDisable(true);
+        Thread loader = new Thread(load, "network-loader");
+        loader.setDaemon(true);
+        loader.start();
     }
 
     /**
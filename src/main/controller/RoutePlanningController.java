@@ -1,34 +1,44 @@
 package main.controller;
 
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import main.model.*;
+import main.transport.Criterion;
 import main.transport.Network;
+import main.transport.NetworkSnapshot;
 import main.transport.Route;
-import main.util.TicketUtil;
+import main.transport.StandardCriterion;
+import main.util.Logger;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
  * Kontroler za planiranje ruta u JavaFX aplikaciji za pretraživanje transportnih ruta.
  * Omogućava odabir početnog i krajnjeg grada, kriterijuma pretrage i prikaz optimalne rute.
+ * <p>
+ * Pretraga se izvršava u pozadinskoj niti, pa prozor ne zastaje ni na velikim mrežama.
+ * Dok pretraga traje prikazuje se najbolja dosad pronađena ruta, a nova pretraga
+ * prekida prethodnu. Kupovina karte se takođe izvršava u pozadinskoj niti ({@link TicketPurchase}).
  *
  * @author Mladen Grbić
  * @version 1.0
  */
 public class RoutePlanningController {
+    private static final Logger LOG = Logger.getLogger(RoutePlanningController.class);
+    private static final int MAX_ROUTES = 5;
+
     @FXML private ComboBox<String> startCityCombo;
     @FXML private ComboBox<String> endCityCombo;
     @FXML private RadioButton timeRadio;
@@ -42,6 +52,7 @@ public class RoutePlanningController {
     @FXML private Label transfersLabel;
     @FXML private Button buyButton;
     @FXML private Canvas canvas;
+    @FXML private Canvas overlayCanvas;
 
     private Network network;
     private Scene scene;
@@ -52,6 +63,14 @@ public class RoutePlanningController {
     private TopRoutesController topRoutesController;
     private City previousStartCity;
     private City previousEndCity;
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "route-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Task<List<Route>> currentSearch;
+    private ProgressIndicator searchProgress;
+    private MapRenderer mapRenderer;
 
     /**
      * Postavlja transportnu mrežu za kontroler.
@@ -81,25 +100,32 @@ public class RoutePlanningController {
     }
 
     /**
-     * Inicijalizuje ComboBox-ove sa imenima gradova i priprema ekran za crtanje.
+     * Inicijalizuje ComboBox-ove sa imenima gradova i crta mapu učitane mreže. Poziva se i
+     * nakon ponovnog učitavanja mreže; tada se prekida pretraga koja još traje nad starom mrežom.
      */
     public void setup() {
         if (network == null) {
             showAlert("Greška", "Mreža nije inicijalizovana.");
-            System.out.println("Network je null!");
+            LOG.warn("Mreža nije inicijalizovana");
             return;
         }
-        Map<String, City> cities = network.getCities();
-        System.out.println("Broj gradova u setup: " + cities.size());
+        NetworkSnapshot snapshot = network.getSnapshot();
+        Map<String, City> cities = snapshot.getCities();
+        LOG.debug(() -> "Broj gradova u setup: " + cities.size());
         List<String> cityNames = cities.keySet().stream().sorted().collect(Collectors.toList());
-        System.out.println("Gradovi u setup: " + cityNames);
+        LOG.debug(() -> "Gradovi u setup: " + cityNames);
         startCityCombo.getItems().setAll(cityNames);
         endCityCombo.getItems().setAll(cityNames);
-        drawGraph(null);
+        if (currentSearch != null) {
+            currentSearch.cancel(true);
+            finishSearch();
+        }
+        clearSelection();
+        mapRenderer.setGraph(snapshot.getGraph().getCompactGraph());
     }
 
     /**
-     * Inicijalizuje kontroler, postavlja grupu radio dugmadi i akcije za dugmad.
+     * Inicijalizuje kontroler, postavlja grupu radio dugmadi, crtač mape i akcije za dugmad.
      */
     @FXML
     private void initialize() {
@@ -107,6 +133,7 @@ public class RoutePlanningController {
         timeRadio.setToggleGroup(criteriaGroup);
         priceRadio.setToggleGroup(criteriaGroup);
         transfersRadio.setToggleGroup(criteriaGroup);
+        mapRenderer = new MapRenderer(canvas, overlayCanvas);
 
         findRoutesButton.setOnAction(event -> {
             if (network == null) {
@@ -123,183 +150,208 @@ public class RoutePlanningController {
             Map<String, City> cities = network.getCities();
             City startCity = cities.get(startCityName);
             this.endCity = cities.get(endCityName);
-            String criterion = timeRadio.isSelected() ? "time" : priceRadio.isSelected() ? "price" : "transfers";
+            Criterion criterion = timeRadio.isSelected() ? StandardCriterion.TIME
+                    : priceRadio.isSelected() ? StandardCriterion.PRICE : StandardCriterion.TRANSFERS;
             int startTime = 0;
 
-            List<Route> routes = network.findRoutes(startCity, endCity, criterion, startTime);
+            startSearch(startCity, endCity, startCityName, endCityName, criterion, startTime);
+        });
 
-            if (routes.isEmpty()) {
-                showAlert("Nema ruta", "Nisu pronađene rute između izabranih gradova.");
-                selectedRoute = null;
-                pathLabel.setText("");
-                timeLabel.setText("");
-                priceLabel.setText("");
-                transfersLabel.setText("");
+        buyButton.setOnAction(event -> {
+            if (selectedRoute != null) {
+                City startCity = network.getCities().get(startCityCombo.getValue());
                 buyButton.setDisable(true);
-                drawGraph(null);
-                previousStartCity = null;
-                previousEndCity = null;
-                return;
+                TicketPurchase.start(selectedRoute, startCity, endCity, receiptPath -> {
+                    buyButton.setDisable(selectedRoute == null);
+                    showAlert("Kupovina uspešna", "Karta je uspešno kupljena! Sačuvan je " + receiptPath);
+                }, error -> {
+                    buyButton.setDisable(selectedRoute == null);
+                    showAlert("Greška", "Došlo je do greške prilikom kreiranja računa: " + error.getMessage());
+                });
             }
+        });
+    }
 
-            selectedRoute = routes.get(0);
-            pathLabel.setText(selectedRoute.getSegmentedDescription(endCity));
-            int totalTime = selectedRoute.getTotalTime();
-            int hours = totalTime / 60;
-            int minutes = totalTime % 60;
-            timeLabel.setText(String.format("%dh%02dm", hours, minutes));
-            priceLabel.setText(String.valueOf(selectedRoute.getTotalPrice()));
-            transfersLabel.setText(String.valueOf(selectedRoute.getTransferCount()));
-            buyButton.setDisable(false);
-
-            System.out.println("Optimalna ruta od " + startCityName + " do " + endCityName + " (kriterijum: " + criterion + "):");
-            System.out.print("Čvorovi: " + selectedRoute.startStation().getName());
-            for (Edge edge : selectedRoute.getEdges()) {
-                System.out.print(" -> " + edge.getTo().getName());
+    /**
+     * Pokreće pretragu ruta u pozadinskoj niti i prekida prethodnu pretragu ako još traje.
+     * Svaka ruta koju algoritam pronađe odmah se prikazuje ako je najbolja dosad, a po
+     * završetku se prikazuju konačne rute.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param startCityName Ime početnog grada.
+     * @param endCityName Ime krajnjeg grada.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama.
+     */
+    private void startSearch(City startCity, City endCity, String startCityName, String endCityName,
+                             Criterion criterion, int startTime) {
+        if (currentSearch != null) {
+            currentSearch.cancel(true);
+        }
+        List<Route> found = new ArrayList<>();
+        Task<List<Route>> search = new Task<>() {
+            @Override
+            protected List<Route> call() {
+                return network.findRoutes(startCity, endCity, criterion, startTime, route -> {
+                    found.add(route);
+                    List<Route> best = new ArrayList<>(found);
+                    best.sort(criterion::compare);
+                    updateValue(best);
+                    updateProgress(found.size(), MAX_ROUTES);
+                });
             }
-            System.out.println();
-            System.out.println("Detalji rute: " + selectedRoute.getSegmentedDescription(endCity));
+        };
+        currentSearch = search;
 
-            drawGraph(selectedRoute, startCity, endCity);
-
-            if (showTopRoutesButton == null) {
-                showTopRoutesButton = new Button("Prikaz dodatnih ruta");
-                ((VBox) findRoutesButton.getParent()).getChildren().add(showTopRoutesButton);
+        search.valueProperty().addListener((observable, previous, best) -> {
+            if (search == currentSearch && search.isRunning() && best != null && !best.isEmpty()) {
+                showRoute(best.get(0), startCity, endCity);
             }
-
-            showTopRoutesButton.setOnAction(e -> {
-                try {
-                    if (topRoutesStage == null || !topRoutesStage.isShowing()) {
-                        FXMLLoader loader = new FXMLLoader(getClass().getResource("/TopRoutesWindow.fxml"));
-                        Parent root = loader.load();
-                        topRoutesController = loader.getController();
-                        topRoutesController.setNetwork(network);
-                        topRoutesController.setTopRoutes(routes, startCity, endCity);
-                        topRoutesController.setEndCity(endCity);
-                        topRoutesStage = new Stage();
-                        topRoutesStage.setTitle("Top 5 ruta");
-                        topRoutesStage.setScene(new Scene(root, 600, 400));
-                        topRoutesStage.show();
-                    } else {
-                        topRoutesController.setTopRoutes(routes, startCity, endCity);
-                        topRoutesController.setEndCity(endCity);
-                    }
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
-            });
-
-            previousStartCity = startCity;
-            previousEndCity = endCity;
         });
-
-        buyButton.setOnAction(event -> {
-            if (selectedRoute != null) {
-                try {
-                    TicketUtil newTicketUtil = new TicketUtil();
-                    City startCity = network.getCities().get(startCityCombo.getValue());
-                    String receiptPath = newTicketUtil.generateReceipt(selectedRoute, startCity, endCity);
-                    System.out.println("Račun kreiran: " + receiptPath);
-                    showAlert("Kupovina uspešna", "Karta je uspešno kupljena! Račun je sačuvan na: " + receiptPath);
-                } catch (IOException e) {
-                    showAlert("Greška", "Došlo je do greške prilikom kreiranja računa: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
+        search.setOnSucceeded(event -> {
+            if (search != currentSearch) return;
+            finishSearch();
+            showRoutes(search.getValue(), startCity, endCity, startCityName, endCityName, criterion);
         });
+        search.setOnFailed(event -> {
+            if (search != currentSearch) return;
+            finishSearch();
+            LOG.error("Greška pri pretrazi ruta", search.getException());
+            showAlert("Greška", "Došlo je do greške pri pretrazi ruta: " + search.getException().getMessage());
+        });
+
+        selectedRoute = null;
+        buyButton.setDisable(true);
+        if (searchProgress == null) {
+            searchProgress = new ProgressIndicator();
+            searchProgress.setMaxSize(40, 40);
+            ((VBox) findRoutesButton.getParent()).getChildren().add(searchProgress);
+        }
+        searchProgress.progressProperty().bind(search.progressProperty());
+        searchProgress.setVisible(true);
+        searchExecutor.submit(search);
     }
 
     /**
-     * Crta graf gradova i ruta na ekranu.
-     *
-     * @param selectedRoute Odabrana ruta za prikaz, ili null ako se prikazuje samo graf.
-     * @param startCity Početni grad, ili null ako nije specificiran.
-     * @param endCity Krajnji grad, ili null ako nije specificiran.
+     * Sakriva indikator napretka nakon završene pretrage.
      */
-    private void drawGraph(Route selectedRoute, City startCity, City endCity) {
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-        gc.setFill(Color.WHITE);
-        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    private void finishSearch() {
+        currentSearch = null;
+        searchProgress.progressProperty().unbind();
+        searchProgress.setVisible(false);
+    }
 
-        if (network == null) return;
+    /**
+     * Prikazuje rezultat pretrage: najbolju rutu i dugme za prikaz dodatnih ruta, ili
+     * obavještenje da ruta nema.
+     *
+     * @param routes Pronađene rute, sortirane po kriterijumu.
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param startCityName Ime početnog grada.
+     * @param endCityName Ime krajnjeg grada.
+     * @param criterion Kriterijum optimizacije.
+     */
+    private void showRoutes(List<Route> routes, City startCity, City endCity, String startCityName,
+                            String endCityName, Criterion criterion) {
+        if (routes.isEmpty()) {
+            showAlert("Nema ruta", "Nisu pronađene rute između izabranih gradova.");
+            clearSelection();
+            return;
+        }
 
-        double width = canvas.getWidth();
-        double height = canvas.getHeight();
-        int rows = network.getCities().values().stream().mapToInt(City::getRow).max().orElse(4) + 1;
-        int cols = network.getCities().values().stream().mapToInt(City::getColumn).max().orElse(4) + 1;
-        double cellWidth = width / cols;
-        double cellHeight = height / rows;
+        selectedRoute = routes.get(0);
+        showRoute(selectedRoute, startCity, endCity);
+        buyButton.setDisable(false);
 
-        List<City> routeCities = new ArrayList<>();
-        if (selectedRoute != null && selectedRoute.getEdges() != null && !selectedRoute.getEdges().isEmpty()) {
-            Station startStation = selectedRoute.startStation();
-            if (startStation != null && startStation.getCity() != null) routeCities.add(startStation.getCity());
-            for (Edge edge : selectedRoute.getEdges()) {
-                if (!edge.isTransfer() && edge.getTo() != null && edge.getTo().getCity() != null) {
-                    routeCities.add(edge.getTo().getCity());
-                }
-            }
-        }
+        LOG.debug(() -> describeRoute(selectedRoute, startCityName, endCityName, criterion));
 
-        gc.setStroke(Color.BLACK);
-        gc.setLineWidth(1);
-        for (Station station : network.getGraph().getNodes()) {
-            if (station == null || station.getCity() == null) continue;
-            City fromCity = station.getCity();
-            double x1 = fromCity.getColumn() * cellWidth + cellWidth / 2;
-            double y1 = fromCity.getRow() * cellHeight + cellHeight / 2;
-            for (Edge edge : network.getGraph().getEdges(station)) {
-                if (!edge.isTransfer() && edge.getTo() != null && edge.getTo().getCity() != null) {
-                    City toCity = edge.getTo().getCity();
-                    double x2 = toCity.getColumn() * cellWidth + cellWidth / 2;
-                    double y2 = toCity.getRow() * cellHeight + cellHeight / 2;
-                    gc.strokeLine(x1, y1, x2, y2);
-                }
-            }
+        if (showTopRoutesButton == null) {
+            showTopRoutesButton = new Button("Prikaz dodatnih ruta");
+            ((VBox) findRoutesButton.getParent()).getChildren().add(showTopRoutesButton);
         }
 
-        if (!routeCities. isEmpty() && routeCities.size() > 1) {
-            gc.setStroke(Color.RED);
-            gc.setLineWidth(4);
-            for (int i = 0; i < routeCities.size() - 1; i++) {
-                City fromCity = routeCities.get(i);
-                City toCity = routeCities.get(i + 1);
-                if (fromCity != null && toCity != null) {
-                    double x1 = fromCity.getColumn() * cellWidth + cellWidth / 2;
-                    double y1 = fromCity.getRow() * cellHeight + cellHeight / 2;
-                    double x2 = toCity.getColumn() * cellWidth + cellWidth / 2;
-                    double y2 = toCity.getRow() * cellHeight + cellHeight / 2;
-                    gc.strokeLine(x1, y1, x2, y2);
+        showTopRoutesButton.setOnAction(e -> {
+            try {
+                if (topRoutesStage == null || !topRoutesStage.isShowing()) {
+                    FXMLLoader loader = new FXMLLoader(getClass().getResource("/TopRoutesWindow.fxml"));
+                    Parent root = loader.load();
+                    topRoutesController = loader.getController();
+                    topRoutesController.setNetwork(network);
+                    topRoutesController.setTopRoutes(routes, startCity, endCity);
+                    topRoutesController.setEndCity(endCity);
+                    topRoutesStage = new Stage();
+                    topRoutesStage.setTitle("Top 5 ruta");
+                    topRoutesStage.setScene(new Scene(root, 600, 400));
+                    topRoutesStage.show();
+                } else {
+                    topRoutesController.setTopRoutes(routes, startCity, endCity);
+                    topRoutesController.setEndCity(endCity);
                 }
+            } catch (Exception ex) {
+                LOG.error("Greška pri otvaranju prozora sa dodatnim rutama", ex);
             }
-        }
+        });
 
-        for (City city : network.getCities().values()) {
-            if (city == null) continue;
-            double x = city.getColumn() * cellWidth + cellWidth / 2;
-            double y = city.getRow() * cellHeight + cellHeight / 2;
+        previousStartCity = startCity;
+        previousEndCity = endCity;
+    }
 
-            if (city.equals(startCity)) {
-                gc.setFill(Color.GREEN);
-            } else if (city.equals(endCity)) {
-                gc.setFill(Color.BLUE);
-            } else {
-                gc.setFill(Color.GRAY);
-            }
+    /**
+     * Briše izabranu rutu iz oznaka i sa mape.
+     */
+    private void clearSelection() {
+        selectedRoute = null;
+        pathLabel.setText("");
+        timeLabel.setText("");
+        priceLabel.setText("");
+        transfersLabel.setText("");
+        buyButton.setDisable(true);
+        mapRenderer.showRoute(null, null, null);
+        previousStartCity = null;
+        previousEndCity = null;
+    }
 
-            gc.fillOval(x - 10, y - 10, 20, 20);
-            gc.setFill(Color.BLACK);
-            gc.fillText(city.getName(), x + 10, y - 10);
-        }
+    /**
+     * Prikazuje rutu u oznakama i na mapi.
+     *
+     * @param route Ruta za prikaz.
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     */
+    private void showRoute(Route route, City startCity, City endCity) {
+        pathLabel.setText(route.getSegmentedDescription(endCity));
+        int totalTime = route.getTotalTime();
+        int hours = totalTime / 60;
+        int minutes = totalTime % 60;
+        timeLabel.setText(String.format("%dh%02dm", hours, minutes));
+        priceLabel.setText(String.valueOf(route.getTotalPrice()));
+        transfersLabel.setText(String.valueOf(route.getTransferCount()));
+        mapRenderer.showRoute(route, startCity, endCity);
     }
 
     /**
-     * Crta graf bez specifične rute.
+     * Opisuje izabranu rutu za ispis u log: relaciju, stanice i segmente rute.
      *
-     * @param selectedRoute Odabrana ruta za prikaz, ili null.
+     * @param route Izabrana ruta.
+     * @param startCityName Ime početnog grada.
+     * @param endCityName Ime krajnjeg grada.
+     * @param criterion Kriterijum optimizacije.
+     * @return Opis rute.
      */
-    private void drawGraph(Route selectedRoute) {
-        drawGraph(selectedRoute, null, null);
+    private String describeRoute(Route route, String startCityName, String endCityName, Criterion criterion) {
+        StringBuilder description = new StringBuilder()
+                .append("Optimalna ruta od ").append(startCityName).append(" do ").append(endCityName)
+                .append(" (kriterijum: ").append(criterion.getName()).append("):")
+                .append(System.lineSeparator())
+                .append("Čvorovi: ").append(route.startStation().getName());
+        for (Edge edge : route.getEdges()) {
+            description.append(" -> ").append(edge.getTo().getName());
+        }
+        return description.append(System.lineSeparator())
+                .append("Detalji rute: ").append(route.getSegmentedDescription(endCity))
+                .toString();
     }
 
     /**
@@ -2,105 +2,81 @@ package main.controller;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
-import main.model.Ticket;
+import main.util.Logger;
+import main.util.SalesStatistics;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
 
 /**
  * Kontroler za prikaz statistike prodatih karata.
+ * Podaci se čitaju iz statistike prodaje koja se ažurira sa svakom kupovinom ({@link SalesStatistics}).
  *
  * @author Mladen Grbić
  * @version 1.0
  */
 public class StatisticsController {
+    private static final Logger LOG = Logger.getLogger(StatisticsController.class);
+
+    private static final int DAYS_SHOWN = 7;
+    private static final int TOP_RELATIONS = 5;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
     @FXML private Label ticketsSoldLabel;
     @FXML private Label totalRevenueLabel;
+    @FXML private Label averageTransfersLabel;
+    @FXML private Label pricePercentilesLabel;
+    @FXML private Label dailyRevenueLabel;
+    @FXML private Label hourlyRevenueLabel;
+    @FXML private Label topRelationsLabel;
 
     /**
      * Inicijalizuje kontroler i prikazuje statistiku prodatih karata.
      */
     @FXML
     private void initialize() {
-        Statistics stats = calculateStatistics();
-        ticketsSoldLabel.setText("Ukupan broj prodatih karata: " + stats.getTotalTickets());
-        totalRevenueLabel.setText("Ukupan prihod: " + stats.getTotalRevenue() + " novčanih jedinica");
-    }
-
-    /**
-     * Izračunava statistiku prodatih karata na osnovu fajlova u direktorijumu "racuni".
-     *
-     * @return Objekat sa ukupnim brojem karata i prihodom.
-     */
-    private Statistics calculateStatistics() {
-        Path receiptsDir = Paths.get("racuni");
-        if (!Files.exists(receiptsDir)) {
-            return new Statistics(0, 0);
-        }
-
+        SalesStatistics stats;
         try {
-            List<Ticket> tickets = Files.list(receiptsDir)
-                    .filter(path -> path.toString().endsWith(".txt"))
-                    .map(path -> {
-                        try {
-                            String content = Files.readString(path);
-                            return Ticket.fromFileFormat(content);
-                        } catch (IOException | IllegalArgumentException e) {
-                            System.err.println("Greška pri učitavanju računa: " + path + " - " + e.getMessage());
-                            return null;
-                        }
-                    })
-                    .filter(ticket -> ticket != null)
-                    .collect(Collectors.toList());
-
-            int totalTickets = tickets.size();
-            int totalRevenue = tickets.stream().mapToInt(Ticket::getPrice).sum();
-
-            return new Statistics(totalTickets, totalRevenue);
+            stats = SalesStatistics.getDefault();
         } catch (IOException e) {
-            System.err.println("Greška pri čitanju foldera racuni: " + e.getMessage());
-            return new Statistics(0, 0);
+            LOG.error("Greška pri čitanju statistike prodaje", e);
+            return;
         }
-    }
-
-    /**
-     * Unutrašnja klasa za čuvanje statističkih podataka.
-     */
-    private static class Statistics {
-        private final int totalTickets;
-        private final int totalRevenue;
+        ticketsSoldLabel.setText("Ukupan broj prodatih karata: " + stats.getTotalTickets());
+        totalRevenueLabel.setText("Ukupan prihod: " + stats.getTotalRevenue() + " novčanih jedinica");
+        averageTransfersLabel.setText(String.format(Locale.ROOT, "Prosječan broj presjedanja: %.2f", stats.getAverageTransfers()));
+        pricePercentilesLabel.setText("Cijena karte (medijana / 90% / 99%): " + stats.getPricePercentile(0.5)
+                + " / " + stats.getPricePercentile(0.9) + " / " + stats.getPricePercentile(0.99));
 
-        /**
-         * Konstruktor za statistiku.
-         *
-         * @param totalTickets Ukupan broj prodatih karata.
-         * @param totalRevenue Ukupan prihod od prodatih karata.
-         */
-        public Statistics(int totalTickets, int totalRevenue) {
-            this.totalTickets = totalTickets;
-            this.totalRevenue = totalRevenue;
+        LocalDate today = LocalDateTime.now().toLocalDate();
+        StringBuilder daily = new StringBuilder("Prihod po danu (posljednjih " + DAYS_SHOWN + " dana):");
+        SortedMap<LocalDate, Long> dailyRevenue = stats.getDailyRevenue(today.minusDays(DAYS_SHOWN - 1), today);
+        for (Map.Entry<LocalDate, Long> entry : dailyRevenue.entrySet()) {
+            daily.append("\n  ").append(entry.getKey().format(DAY_FORMAT)).append(": ").append(entry.getValue());
         }
+        if (dailyRevenue.isEmpty()) daily.append("\n  nema prodaje");
+        dailyRevenueLabel.setText(daily.toString());
 
-        /**
-         * Vraća ukupan broj prodatih karata.
-         *
-         * @ return Broj karata.
-         */
-        public int getTotalTickets() {
-            return totalTickets;
+        StringBuilder hourly = new StringBuilder("Prihod po satu (danas):");
+        SortedMap<Integer, Long> hourlyRevenue = stats.getHourlyRevenue(today);
+        for (Map.Entry<Integer, Long> entry : hourlyRevenue.entrySet()) {
+            hourly.append("\n  ").append(String.format("%02d:00", entry.getKey())).append(": ").append(entry.getValue());
         }
+        if (hourlyRevenue.isEmpty()) hourly.append("\n  nema prodaje");
+        hourlyRevenueLabel.setText(hourly.toString());
 
-        /**
-         * Vraća ukupan prihod od prodatih karata.
-         *
-         * @return Prihod u novčanim jedinicama.
-         */
-        public int getTotalRevenue() {
-            return totalRevenue;
+        StringBuilder top = new StringBuilder("Najprodavanije relacije:");
+        List<Map.Entry<String, Long>> topRelations = stats.getTopRelations(TOP_RELATIONS);
+        for (Map.Entry<String, Long> entry : topRelations) {
+            top.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
         }
+        if (topRelations.isEmpty()) top.append("\n  nema prodaje");
+        topRelationsLabel.setText(top.toString());
     }
-}
\ No newline at end of file
+}
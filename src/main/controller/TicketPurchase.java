@@ -0,0 +1,63 @@
+package main.controller;
+
+import javafx.concurrent.Task;
+import main.model.City;
+import main.transport.Route;
+import main.util.Logger;
+import main.util.TicketUtil;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Kupovina karte u pozadinskoj niti. Upis računa u knjigu prodaje čeka da podaci budu
+ * trajno zapisani na disk, pa se ne izvršava u JavaFX niti. Kupovine iz svih prozora
+ * izvršava jedna zajednička nit, redom kojim su pokrenute.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+final class TicketPurchase {
+    private static final Logger LOG = Logger.getLogger(TicketPurchase.class);
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ticket-purchase");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Privatni konstruktor; klasa ima samo statičke metode.
+     */
+    private TicketPurchase() {
+    }
+
+    /**
+     * Pokreće kupovinu karte za rutu. Povratni pozivi se izvršavaju u JavaFX niti.
+     *
+     * @param route Ruta za koju se kupuje karta.
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param onSuccess Poziva se sa opisom računa nakon uspješne kupovine.
+     * @param onFailure Poziva se sa greškom ako kupovina nije uspjela.
+     */
+    static void start(Route route, City startCity, City endCity, Consumer<String> onSuccess,
+                      Consumer<Throwable> onFailure) {
+        Task<String> purchase = new Task<>() {
+            @Override
+            protected String call() throws IOException {
+                return new TicketUtil().generateReceipt(route, startCity, endCity);
+            }
+        };
+        purchase.setOnSucceeded(event -> {
+            LOG.info(() -> "Račun kreiran: " + purchase.getValue());
+            onSuccess.accept(purchase.getValue());
+        });
+        purchase.setOnFailed(event -> {
+            LOG.error("Greška pri kreiranju računa", purchase.getException());
+            onFailure.accept(purchase.getException());
+        });
+        EXECUTOR.submit(purchase);
+    }
+}
@@ -10,10 +10,9 @@ import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 import main.model.City;
-import main.util.TicketUtil;
+import main.util.Logger;
 import main.transport.Network;
 import main.transport.Route;
-import java.io.IOException;
 
 /**
  * Kontroler za prikaz top 5 ruta između dva grada.
@@ -22,6 +21,8 @@ import java.io.IOException;
  * @version 1.0
  */
 public class TopRoutesController {
+    private static final Logger LOG = Logger.getLogger(TopRoutesController.class);
+
     @FXML private TableView<Route> routesTable;
     private List<Route> topRoutes;
     private City endCity;
@@ -46,7 +47,7 @@ public class TopRoutesController {
         this.topRoutes = topRoutes;
         this.startCity = startCity;
         this.endCity = endCity;
-        System.out.println("Broj prosleđenih ruta za TopRoutes: " + topRoutes.size());
+        LOG.debug(() -> "Broj prosleđenih ruta za TopRoutes: " + topRoutes.size());
         initializeTable();
     }
 
@@ -90,15 +91,14 @@ public class TopRoutesController {
             {
                 buyButton.setOnAction(event -> {
                     Route route = getTableView().getItems().get(getIndex());
-                    try {
-                        TicketUtil newTicketUtil = new TicketUtil();
-                        String receiptPath = newTicketUtil.generateReceipt(route, startCity, endCity);
-                        System.out.println("Račun kreiran: " + receiptPath);
-                        showAlert("Kupovina uspešna", "Karta je uspešno kupljena! Račun je sačuvan na: " + receiptPath);
-                    } catch (IOException e) {
-                        showAlert("Greška", "Došlo je do greške prilikom kreiranja računa: " + e.getMessage());
-                        e.printStackTrace();
-                    }
+                    buyButton.setDisable(true);
+                    TicketPurchase.start(route, startCity, endCity, receiptPath -> {
+                        buyButton.setDisable(false);
+                        showAlert("Kupovina uspešna", "Karta je uspešno kupljena! Sačuvan je " + receiptPath);
+                    }, error -> {
+                        buyButton.setDisable(false);
+                        showAlert("Greška", "Došlo je do greške prilikom kreiranja računa: " + error.getMessage());
+                    });
                 });
             }
 
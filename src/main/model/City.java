@@ -12,6 +12,7 @@ public class City {
     private final int column;
     private BusStation busStation;
     private TrainStation trainStation;
+    private int id = -1;
 
     /**
      * Konstruktor za kreiranje grada na osnovu imena sa koordinatama.
@@ -47,14 +48,30 @@ public class City {
     public int getColumn() { return column; }
 
     /**
-     * Vraća autobusku stanicu grada.
+     * Vraća gusti identifikator grada u kompaktnom grafu.
+     *
+     * @return Identifikator grada, ili -1 ako nije dodijeljen.
+     */
+    public int getId() { return id; }
+
+    /**
+     * Postavlja gusti identifikator grada u kompaktnom grafu.
+     *
+     * @param id Identifikator grada.
+     */
+    public void setId(int id) { this.id = id; }
+
+    /**
+     * Vraća autobusku stanicu grada, postavljenu pri učitavanju mreže. Izmjena reda vožnje
+     * ne mijenja grad, pa se tekući polasci traže po identifikatoru stanice u grafu.
      *
      * @return Autobuska stanica, ili null ako nije postavljena.
      */
     public BusStation getBusStation() { return busStation; }
 
     /**
-     * Vraća železničku stanicu grada.
+     * Vraća železničku stanicu grada, postavljenu pri učitavanju mreže (vidi
+     * {@link #getBusStation()}).
      *
      * @return Železnička stanica, ili null ako nije postavljena.
      */
@@ -0,0 +1,890 @@
+package main.model;
+
+import main.transport.Departure;
+import main.util.PagedArray;
+import main.util.PagedIntArray;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zamrznuti (nepromjenljivi) graf polazaka u CSR obliku.
+ * Stanice i gradovi imaju guste cjelobrojne identifikatore, a parametri polazaka
+ * čuvaju se u paralelnim cjelobrojnim nizovima. Polasci jedne stanice zauzimaju
+ * uzastopni opseg {@code [firstEdge(s), endEdge(s))}, sortiran po vremenu polaska,
+ * pa obilazak susjeda ne alocira nijedan objekat.
+ * <p>
+ * Autobuska stanica grada {@code c} ima identifikator {@code 2c}, a železnička
+ * {@code 2c + 1}. Transferi između stanica istog grada se ne čuvaju kao ivice,
+ * već se dobijaju preko {@link #partner(int)}.
+ * <p>
+ * Nizovi su {@link IntBuffer}-i, pa graf može biti u memoriji (nakon učitavanja JSON-a)
+ * ili mapiran direktno iz binarnog snimka mreže (vidi {@link #writeTo(Path)} i
+ * {@link #open(Path)}); u drugom slučaju pretrage čitaju mapirane stranice fajla,
+ * koje više procesa na istom računaru dijeli preko keša operativnog sistema.
+ * <p>
+ * Graf nakon izmjene reda vožnje ({@link #withDepartures}) dijeli nizove sa prethodnim:
+ * nove polaske promijenjenih stanica dopisuje u zajednički rep iza osnovnih nizova i
+ * preusmjerava opsege tih stanica na njih, a stari opsezi ostaju neiskorišćeni. Zato
+ * identifikatori ivica idu do {@link #edgeLimit()}, a ne do {@link #edgeCount()}.
+ * Stanice, opsezi stanica i redoslijed polazaka po vremenu ({@link #connection(int, int)})
+ * čuvaju se po stranicama, odnosno po minutima, pa izmjena kopira samo ono što mijenja.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class CompactGraph {
+    /** Trajanje transfera između autobuske i železničke stanice u minutama. */
+    public static final int TRANSFER_TIME = 15;
+    /** Cijena transfera između autobuske i železničke stanice. */
+    public static final int TRANSFER_PRICE = 15;
+
+    private static final int SNAPSHOT_MAGIC = 0x53505254;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int HEADER_INTS = 6;
+    /** Rep se sabija u nove osnovne nizove kada pređe ovaj dio broja osnovnih ivica. */
+    private static final int TAIL_FRACTION = 4;
+    private static final int DAY = 1440;
+
+    private final PagedArray<Station> stations;
+    private final City[] cities;
+    private final IntBuffer edgeStart;
+    private final IntBuffer source;
+    private final IntBuffer target;
+    private final IntBuffer departureTime;
+    private final IntBuffer duration;
+    private final IntBuffer price;
+    private final IntBuffer minTransferTime;
+    private final int baseEdges;
+    private final int edgeCount;
+    private final PagedIntArray ranges;
+    private final Tail tail;
+    private final int tailSize;
+    private final int[] tailSource;
+    private final int[] tailTarget;
+    private final int[] tailDepartureTime;
+    private final int[] tailDuration;
+    private final int[] tailPrice;
+    private final int[] tailMinTransferTime;
+    private final Connections connections;
+
+    /**
+     * Kreira graf nad već popunjenim nizovima.
+     *
+     * @param stations Stanice indeksirane identifikatorom.
+     * @param cities Gradovi indeksirani identifikatorom.
+     * @param arrays Nizovi redom: edgeStart, source, target, departureTime, duration,
+     *               price, minTransferTime, connections.
+     */
+    private CompactGraph(Station[] stations, City[] cities, IntBuffer... arrays) {
+        this.stations = PagedArray.of(stations);
+        this.cities = cities;
+        this.edgeStart = arrays[0];
+        this.source = arrays[1];
+        this.target = arrays[2];
+        this.departureTime = arrays[3];
+        this.duration = arrays[4];
+        this.price = arrays[5];
+        this.minTransferTime = arrays[6];
+        this.connections = Connections.of(arrays[7], departureTime);
+        this.baseEdges = source.limit();
+        this.edgeCount = baseEdges;
+        this.ranges = null;
+        this.tail = null;
+        this.tailSize = 0;
+        this.tailSource = null;
+        this.tailTarget = null;
+        this.tailDepartureTime = null;
+        this.tailDuration = null;
+        this.tailPrice = null;
+        this.tailMinTransferTime = null;
+    }
+
+    /**
+     * Kreira graf koji dijeli osnovne nizove i gradove sa datim grafom, a opsezi stanica
+     * mogu pokazivati u rep.
+     *
+     * @param stations Stanice indeksirane identifikatorom.
+     * @param base Graf čije osnovne nizove novi graf dijeli.
+     * @param ranges Opsezi ivica po stanici: početak na {@code 2s}, kraj (isključivo) na {@code 2s + 1}.
+     * @param edgeCount Broj polazaka u opsezima svih stanica.
+     * @param tail Rep sa dopisanim polascima.
+     * @param tailSize Broj ivica repa koje pripadaju ovom grafu.
+     * @param connections Redoslijed polazaka po vremenu.
+     */
+    private CompactGraph(PagedArray<Station> stations, CompactGraph base, PagedIntArray ranges, int edgeCount,
+                         Tail tail, int tailSize, Connections connections) {
+        this.stations = stations;
+        this.cities = base.cities;
+        this.edgeStart = base.edgeStart;
+        this.source = base.source;
+        this.target = base.target;
+        this.departureTime = base.departureTime;
+        this.duration = base.duration;
+        this.price = base.price;
+        this.minTransferTime = base.minTransferTime;
+        this.baseEdges = base.baseEdges;
+        this.edgeCount = edgeCount;
+        this.ranges = ranges;
+        this.tail = tail;
+        this.tailSize = tailSize;
+        this.tailSource = tail.columns[0];
+        this.tailTarget = tail.columns[1];
+        this.tailDepartureTime = tail.columns[2];
+        this.tailDuration = tail.columns[3];
+        this.tailPrice = tail.columns[4];
+        this.tailMinTransferTime = tail.columns[5];
+        this.connections = connections;
+    }
+
+    /**
+     * Vraća gradove stanica: grad {@code c} je grad autobuske stanice {@code 2c}.
+     *
+     * @param stations Stanice indeksirane identifikatorom.
+     * @return Gradovi indeksirani identifikatorom.
+     */
+    private static City[] citiesOf(Station[] stations) {
+        City[] cities = new City[stations.length / 2];
+        for (int c = 0; c < cities.length; c++) {
+            cities[c] = stations[2 * c].getCity();
+        }
+        return cities;
+    }
+
+    /**
+     * Gradi kompaktni graf iz liste susjedstva.
+     *
+     * @param stations Stanice indeksirane identifikatorom.
+     * @param adjacencyList Ivice po polaznim stanicama; transfer ivice se preskaču.
+     * @return Kompaktni graf u memoriji.
+     */
+    static CompactGraph build(Station[] stations, Map<Station, List<Edge>> adjacencyList) {
+        int n = stations.length;
+        int[] edgeStart = new int[n + 1];
+        for (int s = 0; s < n; s++) {
+            int count = 0;
+            for (Edge edge : adjacencyList.getOrDefault(stations[s], List.of())) {
+                if (!edge.isTransfer()) count++;
+            }
+            edgeStart[s + 1] = edgeStart[s] + count;
+        }
+
+        int m = edgeStart[n];
+        int[][] columns = new int[6][m];
+        int[] source = columns[0], target = columns[1], departureTime = columns[2];
+        int[] duration = columns[3], price = columns[4], minTransferTime = columns[5];
+        for (int s = 0; s < n; s++) {
+            int e = edgeStart[s];
+            for (Edge edge : adjacencyList.getOrDefault(stations[s], List.of())) {
+                if (edge.isTransfer()) continue;
+                source[e] = s;
+                target[e] = edge.getTo().getId();
+                departureTime[e] = edge.getDepartureTime();
+                duration[e] = edge.getDuration();
+                price[e] = edge.getPrice();
+                minTransferTime[e] = edge.getMinTransferTime();
+                e++;
+            }
+            sortByDepartureTime(columns, edgeStart[s], edgeStart[s + 1]);
+        }
+        int[] connections = sortConnections(departureTime);
+
+        return new CompactGraph(stations, citiesOf(stations), IntBuffer.wrap(edgeStart), IntBuffer.wrap(source),
+                IntBuffer.wrap(target), IntBuffer.wrap(departureTime), IntBuffer.wrap(duration), IntBuffer.wrap(price),
+                IntBuffer.wrap(minTransferTime), IntBuffer.wrap(connections));
+    }
+
+    /**
+     * Gradi graf u kojem datim stanicama pripadaju polasci iz njihovih lista
+     * ({@link Station#getDepartures()}), a ostale stanice zadržavaju svoje stanice i polaske.
+     * <p>
+     * Novi polasci se dopisuju u rep koji novi graf dijeli sa ovim, a stanice, opsezi stanica
+     * i redoslijed polazaka kopiraju samo stranice, odnosno minute, u kojima se mijenjaju, pa
+     * je posao srazmjeran izmjeni; ovaj graf se ne mijenja. Kada rep pređe četvrtinu osnovnih
+     * nizova, polasci svih stanica se jednom prepisuju u nove osnovne nizove, pa je i ta
+     * cijena raspoređena na izmjene koje su je izazvale.
+     *
+     * @param changed Nove stanice, sa istim identifikatorima kao stanice koje zamjenjuju,
+     *                poredane rastuće po identifikatoru i bez ponavljanja.
+     * @return Novi kompaktni graf.
+     */
+    public CompactGraph withDepartures(Station[] changed) {
+        int[] ids = new int[changed.length];
+        int[][][] replaced = new int[changed.length][][];
+        int removedEdges = 0;
+        int addedEdges = 0;
+        for (int i = 0; i < changed.length; i++) {
+            int s = changed[i].getId();
+            ids[i] = s;
+            List<Departure> departures = changed[i].getDepartures();
+            int[][] columns = new int[6][departures.size()];
+            for (int k = 0; k < departures.size(); k++) {
+                Departure departure = departures.get(k);
+                columns[0][k] = s;
+                columns[1][k] = 2 * departure.getToCity().getId() + (s & 1);
+                columns[2][k] = departure.getDepartureTime();
+                columns[3][k] = departure.getDuration();
+                columns[4][k] = departure.getPrice();
+                columns[5][k] = departure.getMinTransferTime();
+            }
+            sortByDepartureTime(columns, 0, departures.size());
+            replaced[i] = columns;
+            removedEdges += endEdge(s) - firstEdge(s);
+            addedEdges += departures.size();
+        }
+        PagedArray<Station> updatedStations = stations.with(ids, changed);
+        if (tailSize + addedEdges > baseEdges / TAIL_FRACTION) {
+            return rebuild(updatedStations, ids, replaced);
+        }
+
+        PagedIntArray.Editor updatedRanges = (ranges != null ? ranges : rangesOf(edgeStart)).edit();
+        int[] firstReplaced = new int[changed.length];
+        int at = baseEdges + tailSize;
+        for (int i = 0; i < changed.length; i++) {
+            firstReplaced[i] = at;
+            updatedRanges.set(2 * ids[i], at);
+            at += replaced[i][0].length;
+            updatedRanges.set(2 * ids[i] + 1, at);
+        }
+        Tail appended = (tail != null ? tail : new Tail(0)).append(tailSize, replaced, addedEdges);
+        Connections updatedConnections = connections.with(this, ids, replaced, firstReplaced);
+        return new CompactGraph(updatedStations, this, updatedRanges.build(), edgeCount - removedEdges + addedEdges,
+                appended, tailSize + addedEdges, updatedConnections);
+    }
+
+    /**
+     * Pravi opsege ivica po stanici iz početaka opsega osnovnih nizova.
+     *
+     * @param edgeStart Početak opsega po stanici, sa krajem posljednjeg opsega na kraju.
+     * @return Opsezi: početak na {@code 2s}, kraj na {@code 2s + 1}.
+     */
+    private static PagedIntArray rangesOf(IntBuffer edgeStart) {
+        int n = edgeStart.limit() - 1;
+        int[] ranges = new int[2 * n];
+        for (int s = 0; s < n; s++) {
+            ranges[2 * s] = edgeStart.get(s);
+            ranges[2 * s + 1] = edgeStart.get(s + 1);
+        }
+        return PagedIntArray.of(ranges);
+    }
+
+    /**
+     * Prepisuje polaske svih stanica u nove osnovne nizove, bez repa i neiskorišćenih opsega.
+     *
+     * @param stations Stanice novog grafa, indeksirane istim identifikatorima.
+     * @param changed Identifikatori stanica čiji se polasci mijenjaju, rastuće.
+     * @param replaced Novi polasci promijenjenih stanica, po kolonama i sortirani po vremenu.
+     * @return Novi kompaktni graf u memoriji.
+     */
+    private CompactGraph rebuild(PagedArray<Station> stations, int[] changed, int[][][] replaced) {
+        int n = stationCount();
+        int m = edgeCount;
+        for (int i = 0; i < changed.length; i++) {
+            m += replaced[i][0].length - (endEdge(changed[i]) - firstEdge(changed[i]));
+        }
+        Station[] stationsById = new Station[n];
+        int[] newStart = new int[n + 1];
+        int[][] columns = new int[6][m];
+        IntBuffer[] baseColumns = {source, target, departureTime, duration, price, minTransferTime};
+        int next = 0;
+        for (int s = 0; s < n; s++) {
+            stationsById[s] = stations.get(s);
+            int from = newStart[s];
+            if (next < changed.length && changed[next] == s) {
+                int count = replaced[next][0].length;
+                for (int k = 0; k < columns.length; k++) {
+                    System.arraycopy(replaced[next][k], 0, columns[k], from, count);
+                }
+                next++;
+                newStart[s + 1] = from + count;
+                continue;
+            }
+            int first = firstEdge(s);
+            int count = endEdge(s) - first;
+            for (int k = 0; k < columns.length; k++) {
+                if (first < baseEdges) {
+                    baseColumns[k].get(first, columns[k], from, count);
+                } else {
+                    System.arraycopy(tail.columns[k], first - baseEdges, columns[k], from, count);
+                }
+            }
+            newStart[s + 1] = from + count;
+        }
+        int[] connections = sortConnections(columns[2]);
+        return new CompactGraph(stationsById, cities, IntBuffer.wrap(newStart), IntBuffer.wrap(columns[0]),
+                IntBuffer.wrap(columns[1]), IntBuffer.wrap(columns[2]), IntBuffer.wrap(columns[3]),
+                IntBuffer.wrap(columns[4]), IntBuffer.wrap(columns[5]), IntBuffer.wrap(connections));
+    }
+
+    /**
+     * Provjerava da li ovaj graf, nastao iz datog grafa izmjenom reda vožnje
+     * ({@link #withDepartures}), zadržava identifikatore ivica datog grafa, tj. da polasci
+     * nisu prepisani u nove osnovne nizove. Tada ivica koja je postojala u datom grafu
+     * ima iste podatke i u ovom, a nove ivice imaju identifikatore iza {@code previous.edgeLimit()}.
+     *
+     * @param previous Graf iz kojeg je ovaj nastao.
+     * @return true ako su identifikatori ivica zadržani.
+     */
+    public boolean sharesEdgeIds(CompactGraph previous) {
+        return source == previous.source && tailSize >= previous.tailSize;
+    }
+
+    /**
+     * Sortira polaske jedne stanice po vremenu polaska (sortiranje umetanjem, stabilno).
+     * Kolona izvora se ne pomjera jer je ista za cijeli opseg.
+     *
+     * @param columns Kolone: source, target, departureTime, duration, price, minTransferTime.
+     * @param from Početak opsega.
+     * @param to Kraj opsega (isključivo).
+     */
+    private static void sortByDepartureTime(int[][] columns, int from, int to) {
+        int[] departureTime = columns[2];
+        for (int i = from + 1; i < to; i++) {
+            int time = departureTime[i];
+            int j = i - 1;
+            while (j >= from && departureTime[j] > time) {
+                j--;
+            }
+            if (j == i - 1) continue;
+            for (int k = 1; k < columns.length; k++) {
+                int[] column = columns[k];
+                int value = column[i];
+                System.arraycopy(column, j + 1, column, j + 2, i - j - 1);
+                column[j + 1] = value;
+            }
+        }
+    }
+
+    /**
+     * Sortira sve polaske mreže po vremenu polaska (sortiranje prebrojavanjem).
+     *
+     * @param departureTime Vremena polaska po ivicama.
+     * @return Identifikatori ivica sortirani po vremenu polaska.
+     */
+    private static int[] sortConnections(int[] departureTime) {
+        int[] counts = new int[1441];
+        for (int time : departureTime) {
+            counts[time + 1]++;
+        }
+        for (int t = 0; t < 1440; t++) {
+            counts[t + 1] += counts[t];
+        }
+        int[] sorted = new int[departureTime.length];
+        for (int e = 0; e < departureTime.length; e++) {
+            sorted[counts[departureTime[e]]++] = e;
+        }
+        return sorted;
+    }
+
+    /**
+     * Upisuje graf u binarni snimak: zaglavlje, nizove grafa i imena gradova i stanica.
+     * Svi brojevi se upisuju kao little-endian {@code int}. Graf sa repom se prije upisa
+     * prepisuje u osnovne nizove.
+     *
+     * @param path Putanja do fajla snimka.
+     * @throws IOException Ako dođe do greške pri pisanju.
+     */
+    public void writeTo(Path path) throws IOException {
+        if (tail != null) {
+            rebuild(stations, new int[0], new int[0][][]).writeTo(path);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            int[] header = {SNAPSHOT_MAGIC, SNAPSHOT_VERSION, cityCount(), edgeCount(), TRANSFER_TIME, TRANSFER_PRICE};
+            for (int value : header) {
+                buffer = putInt(channel, buffer, value);
+            }
+            for (IntBuffer array : new IntBuffer[]{edgeStart, source, target, departureTime, duration,
+                    price, minTransferTime, connections.base}) {
+                for (int i = 0; i < array.limit(); i++) {
+                    buffer = putInt(channel, buffer, array.get(i));
+                }
+            }
+            for (int c = 0; c < cities.length; c++) {
+                for (String name : new String[]{cities[c].getName(), station(2 * c).getName(), station(2 * c + 1).getName()}) {
+                    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                    buffer = putInt(channel, buffer, bytes.length);
+                    for (byte b : bytes) {
+                        if (!buffer.hasRemaining()) buffer = flush(channel, buffer);
+                        buffer.put(b);
+                    }
+                }
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Otvara binarni snimak mreže i mapira ga u memoriju. Gradovi i stanice se kreiraju
+     * iz tabele imena, a nizovi grafa ostaju u mapiranim stranicama fajla.
+     * Polasci se ne dodaju stanicama; to radi pozivalac ako su mu potrebni.
+     *
+     * @param path Putanja do fajla snimka.
+     * @return Kompaktni graf nad mapiranim fajlom.
+     * @throws IOException Ako fajl ne postoji ili nije ispravan snimak.
+     */
+    public static CompactGraph open(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped.limit() < HEADER_INTS * 4 || mapped.getInt(0) != SNAPSHOT_MAGIC) {
+            throw new IOException("Fajl nije snimak mreže: " + path);
+        }
+        if (mapped.getInt(4) != SNAPSHOT_VERSION || mapped.getInt(16) != TRANSFER_TIME
+                || mapped.getInt(20) != TRANSFER_PRICE) {
+            throw new IOException("Nepodržana verzija snimka mreže: " + path);
+        }
+        int cityCount = mapped.getInt(8);
+        int m = mapped.getInt(12);
+        int n = 2 * cityCount;
+
+        int offset = HEADER_INTS * 4;
+        IntBuffer[] arrays = new IntBuffer[8];
+        int[] lengths = {n + 1, m, m, m, m, m, m, m};
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = mapped.duplicate().position(offset).limit(offset + 4 * lengths[i])
+                    .slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            offset += 4 * lengths[i];
+        }
+
+        Station[] stations = new Station[n];
+        ByteBuffer names = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(offset);
+        for (int c = 0; c < cityCount; c++) {
+            City city = new City(readString(names));
+            BusStation busStation = new BusStation(readString(names), city);
+            TrainStation trainStation = new TrainStation(readString(names), city);
+            city.setBusStation(busStation);
+            city.setTrainStation(trainStation);
+            city.setId(c);
+            busStation.setId(2 * c);
+            trainStation.setId(2 * c + 1);
+            stations[2 * c] = busStation;
+            stations[2 * c + 1] = trainStation;
+        }
+        return new CompactGraph(stations, citiesOf(stations), arrays);
+    }
+
+    /**
+     * Upisuje broj u bafer, prazneći bafer u kanal kada se napuni.
+     *
+     * @param channel Kanal fajla.
+     * @param buffer Bafer za pisanje.
+     * @param value Broj koji se upisuje.
+     * @return Bafer spreman za dalje pisanje.
+     * @throws IOException Ako dođe do greške pri pisanju.
+     */
+    private static ByteBuffer putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+        if (buffer.remaining() < 4) buffer = flush(channel, buffer);
+        return buffer.putInt(value);
+    }
+
+    /**
+     * Prazni bafer u kanal.
+     *
+     * @param channel Kanal fajla.
+     * @param buffer Bafer za pisanje.
+     * @return Ispražnjen bafer.
+     * @throws IOException Ako dođe do greške pri pisanju.
+     */
+    private static ByteBuffer flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * Čita UTF-8 string sa prefiksom dužine iz bafera.
+     *
+     * @param buffer Bafer pozicioniran na dužinu stringa.
+     * @return Pročitani string.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Vraća broj stanica u grafu.
+     *
+     * @return Broj stanica.
+     */
+    public int stationCount() { return stations.length(); }
+
+    /**
+     * Vraća broj gradova u grafu.
+     *
+     * @return Broj gradova.
+     */
+    public int cityCount() { return cities.length; }
+
+    /**
+     * Vraća broj polazaka u grafu (ivica bez transfera).
+     *
+     * @return Broj polazaka.
+     */
+    public int edgeCount() { return edgeCount; }
+
+    /**
+     * Vraća gornju granicu identifikatora ivica. Veća je od {@link #edgeCount()} ako graf
+     * ima neiskorišćene opsege nakon izmjene reda vožnje; ivica koja nije u opsegu svoje
+     * polazne stanice ne pripada grafu.
+     *
+     * @return Broj identifikatora ivica.
+     */
+    public int edgeLimit() { return baseEdges + tailSize; }
+
+    /**
+     * Vraća stanicu sa datim identifikatorom.
+     *
+     * @param id Identifikator stanice.
+     * @return Stanica.
+     */
+    public Station station(int id) { return stations.get(id); }
+
+    /**
+     * Vraća grad sa datim identifikatorom.
+     *
+     * @param id Identifikator grada.
+     * @return Grad.
+     */
+    public City city(int id) { return cities[id]; }
+
+    /**
+     * Vraća identifikator grada kojem stanica pripada.
+     *
+     * @param station Identifikator stanice.
+     * @return Identifikator grada.
+     */
+    public int cityOf(int station) { return station >> 1; }
+
+    /**
+     * Vraća drugu stanicu istog grada (autobuska ↔ železnička).
+     *
+     * @param station Identifikator stanice.
+     * @return Identifikator partnerske stanice.
+     */
+    public int partner(int station) { return station ^ 1; }
+
+    /**
+     * Vraća prvu ivicu stanice.
+     *
+     * @param station Identifikator stanice.
+     * @return Indeks prve ivice.
+     */
+    public int firstEdge(int station) { return ranges == null ? edgeStart.get(station) : ranges.get(2 * station); }
+
+    /**
+     * Vraća kraj opsega ivica stanice (isključivo).
+     *
+     * @param station Identifikator stanice.
+     * @return Indeks iza posljednje ivice.
+     */
+    public int endEdge(int station) { return ranges == null ? edgeStart.get(station + 1) : ranges.get(2 * station + 1); }
+
+    /**
+     * Vraća polaznu stanicu ivice.
+     *
+     * @param edge Indeks ivice.
+     * @return Polazna stanica ivice.
+     */
+    public int source(int edge) { return edge < baseEdges ? source.get(edge) : tailSource[edge - baseEdges]; }
+
+    /**
+     * Vraća destinacionu stanicu ivice.
+     *
+     * @param edge Indeks ivice.
+     * @return Destinaciona stanica ivice.
+     */
+    public int target(int edge) { return edge < baseEdges ? target.get(edge) : tailTarget[edge - baseEdges]; }
+
+    /**
+     * Vraća vrijeme polaska ivice.
+     *
+     * @param edge Indeks ivice.
+     * @return Vrijeme polaska u minutama.
+     */
+    public int departureTime(int edge) {
+        return edge < baseEdges ? departureTime.get(edge) : tailDepartureTime[edge - baseEdges];
+    }
+
+    /**
+     * Vraća trajanje vožnje.
+     *
+     * @param edge Indeks ivice.
+     * @return Trajanje u minutama.
+     */
+    public int duration(int edge) { return edge < baseEdges ? duration.get(edge) : tailDuration[edge - baseEdges]; }
+
+    /**
+     * Vraća cijenu polaska.
+     *
+     * @param edge Indeks ivice.
+     * @return Cijena polaska.
+     */
+    public int price(int edge) { return edge < baseEdges ? price.get(edge) : tailPrice[edge - baseEdges]; }
+
+    /**
+     * Vraća minimalno vrijeme čekanja za transfer nakon dolaska.
+     *
+     * @param edge Indeks ivice.
+     * @return Minimalno vrijeme za transfer u minutama.
+     */
+    public int minTransferTime(int edge) {
+        return edge < baseEdges ? minTransferTime.get(edge) : tailMinTransferTime[edge - baseEdges];
+    }
+
+    /**
+     * Vraća broj polazaka mreže u datom minutu dana.
+     *
+     * @param minute Minut dana (0-1439).
+     * @return Broj polazaka.
+     */
+    public int connectionCount(int minute) {
+        return connections.start[minute + 1] - connections.start[minute];
+    }
+
+    /**
+     * Vraća polazak mreže u datom minutu dana. Polasci istog minuta su poredani po polaznoj
+     * stanici, kao u grafu izgrađenom iznova.
+     *
+     * @param minute Minut dana (0-1439).
+     * @param index Pozicija među polascima tog minuta.
+     * @return Indeks ivice.
+     */
+    public int connection(int minute, int index) {
+        return connections.get(minute, index);
+    }
+
+    /**
+     * Pravi objekat ivice za dati polazak (koristi se samo za gotove rute).
+     *
+     * @param edge Indeks ivice.
+     * @return Nova ivica.
+     */
+    public Edge toEdge(int edge) {
+        return new Edge(station(source(edge)), station(target(edge)), departureTime(edge),
+                duration(edge), price(edge), minTransferTime(edge), false);
+    }
+
+    /**
+     * Pravi objekat transfer ivice između stanica istog grada.
+     *
+     * @param from Identifikator polazne stanice.
+     * @return Nova transfer ivica ka partnerskoj stanici.
+     */
+    public Edge toTransferEdge(int from) {
+        return new Edge(station(from), station(partner(from)), 0, TRANSFER_TIME, TRANSFER_PRICE, 0, true);
+    }
+
+    /**
+     * Redoslijed svih polazaka po vremenu, po minutima dana. Osnovni redoslijed je niz
+     * identifikatora ivica sortiran po vremenu polaska (u memoriji ili u mapiranom snimku);
+     * graf nastao izmjenom reda vožnje za minute u kojima su se polasci mijenjali ima
+     * posebne nizove, a ostale minute čita iz osnovnog redoslijeda.
+     */
+    private static final class Connections {
+        private final IntBuffer base;
+        private final int[] baseStart;
+        private final int[][] minutes;
+        private final int[] start;
+
+        /**
+         * Konstruktor za redoslijed polazaka.
+         *
+         * @param base Osnovni redoslijed: identifikatori ivica sortirani po vremenu polaska.
+         * @param baseStart Početak svakog minuta u osnovnom redoslijedu (1441 vrijednost).
+         * @param minutes Polasci po minutu koji zamjenjuju osnovni redoslijed, ili null.
+         * @param start Početak svakog minuta u redoslijedu grafa (1441 vrijednost).
+         */
+        Connections(IntBuffer base, int[] baseStart, int[][] minutes, int[] start) {
+            this.base = base;
+            this.baseStart = baseStart;
+            this.minutes = minutes;
+            this.start = start;
+        }
+
+        /**
+         * Pravi redoslijed nad osnovnim nizom, nalazeći početak svakog minuta binarnom pretragom.
+         *
+         * @param order Identifikatori ivica sortirani po vremenu polaska.
+         * @param departureTime Vremena polaska po ivicama.
+         * @return Redoslijed polazaka.
+         */
+        static Connections of(IntBuffer order, IntBuffer departureTime) {
+            int[] start = new int[DAY + 1];
+            for (int t = 0; t <= DAY; t++) {
+                int low = t == 0 ? 0 : start[t - 1];
+                int high = order.limit();
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (departureTime.get(order.get(mid)) < t) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                start[t] = low;
+            }
+            return new Connections(order, start, null, start);
+        }
+
+        /**
+         * Vraća polazak u datom minutu.
+         *
+         * @param minute Minut dana.
+         * @param index Pozicija među polascima tog minuta.
+         * @return Indeks ivice.
+         */
+        int get(int minute, int index) {
+            int[] replaced = minutes == null ? null : minutes[minute];
+            return replaced != null ? replaced[index] : base.get(baseStart[minute] + index);
+        }
+
+        /**
+         * Pravi redoslijed u kojem su polasci datih stanica zamijenjeni novim polascima.
+         * Ponovo se prave samo minuti u kojima promijenjene stanice imaju stare ili nove
+         * polaske: iz njih se izbacuju stari polasci, a novi se umeću po polaznoj stanici.
+         *
+         * @param graph Graf kojem pripada ovaj redoslijed.
+         * @param changed Identifikatori promijenjenih stanica, rastuće.
+         * @param replaced Novi polasci promijenjenih stanica, po kolonama i sortirani po vremenu.
+         * @param firstReplaced Identifikator prve nove ivice svake promijenjene stanice.
+         * @return Novi redoslijed; ovaj se ne mijenja.
+         */
+        Connections with(CompactGraph graph, int[] changed, int[][][] replaced, int[] firstReplaced) {
+            boolean[] touched = new boolean[DAY];
+            int addedCount = 0;
+            for (int i = 0; i < changed.length; i++) {
+                for (int e = graph.firstEdge(changed[i]); e < graph.endEdge(changed[i]); e++) {
+                    touched[graph.departureTime(e)] = true;
+                }
+                addedCount += replaced[i][0].length;
+            }
+            long[] added = new long[addedCount];
+            int count = 0;
+            for (int i = 0; i < changed.length; i++) {
+                int[] times = replaced[i][2];
+                for (int k = 0; k < times.length; k++) {
+                    touched[times[k]] = true;
+                    added[count++] = ((long) times[k] << 32) | (firstReplaced[i] + k);
+                }
+            }
+            Arrays.sort(added);
+
+            int[][] updated = minutes == null ? new int[DAY][] : minutes.clone();
+            int[] updatedStart = new int[DAY + 1];
+            int next = 0;
+            for (int t = 0; t < DAY; t++) {
+                int size = start[t + 1] - start[t];
+                if (touched[t]) {
+                    int from = next;
+                    while (next < added.length && (int) (added[next] >>> 32) == t) {
+                        next++;
+                    }
+                    int[] list = new int[size + next - from];
+                    int length = 0;
+                    int a = from;
+                    for (int k = 0; k < size; k++) {
+                        int e = get(t, k);
+                        int s = graph.source(e);
+                        if (Arrays.binarySearch(changed, s) >= 0) continue;
+                        while (a < next && sourceOf((int) added[a], changed, firstReplaced) < s) {
+                            list[length++] = (int) added[a++];
+                        }
+                        list[length++] = e;
+                    }
+                    while (a < next) {
+                        list[length++] = (int) added[a++];
+                    }
+                    updated[t] = length == list.length ? list : Arrays.copyOf(list, length);
+                    size = length;
+                }
+                updatedStart[t + 1] = updatedStart[t] + size;
+            }
+            return new Connections(base, baseStart, updated, updatedStart);
+        }
+
+        /**
+         * Vraća polaznu stanicu nove ivice promijenjene stanice.
+         *
+         * @param edge Identifikator nove ivice.
+         * @param changed Identifikatori promijenjenih stanica, rastuće.
+         * @param firstReplaced Identifikator prve nove ivice svake promijenjene stanice (rastuće).
+         * @return Identifikator polazne stanice.
+         */
+        private static int sourceOf(int edge, int[] changed, int[] firstReplaced) {
+            int i = Arrays.binarySearch(firstReplaced, edge);
+            if (i < 0) {
+                i = -i - 2;
+            } else {
+                while (i + 1 < firstReplaced.length && firstReplaced[i + 1] == edge) i++;
+            }
+            return changed[i];
+        }
+    }
+
+    /**
+     * Rep sa polascima dopisanim pri izmjenama reda vožnje, po kolonama: source, target,
+     * departureTime, duration, price, minTransferTime. Više grafova dijeli isti rep, a svaki
+     * čita samo svoj početni dio. Graf dopisuje na mjesto iza svog dijela samo ako iza njega
+     * još niko nije dopisao, pa dopisivanje ne mijenja ništa što drugi grafovi čitaju; u
+     * suprotnom (ili kada ponestane mjesta) pravi se novi rep.
+     */
+    private static final class Tail {
+        private final int[][] columns;
+        private int size;
+
+        /**
+         * Konstruktor za prazan rep.
+         *
+         * @param capacity Broj ivica za koje ima mjesta.
+         */
+        Tail(int capacity) {
+            this.columns = new int[6][capacity];
+        }
+
+        /**
+         * Dopisuje blokove polazaka iza prvih {@code length} ivica repa.
+         *
+         * @param length Broj ivica repa koje pripadaju grafu koji dopisuje.
+         * @param blocks Blokovi polazaka po kolonama.
+         * @param count Ukupan broj polazaka u blokovima.
+         * @return Rep koji sadrži prvih {@code length} ivica ovog repa i dopisane polaske.
+         */
+        synchronized Tail append(int length, int[][][] blocks, int count) {
+            Tail appended = this;
+            if (length != size || length + count > columns[0].length) {
+                appended = new Tail(Math.max(64, 2 * (length + count)));
+                for (int k = 0; k < columns.length; k++) {
+                    System.arraycopy(columns[k], 0, appended.columns[k], 0, length);
+                }
+            }
+            int at = length;
+            for (int[][] block : blocks) {
+                for (int k = 0; k < columns.length; k++) {
+                    System.arraycopy(block[k], 0, appended.columns[k], at, block[k].length);
+                }
+                at += block[0].length;
+            }
+            appended.size = at;
+            return appended;
+        }
+    }
+}
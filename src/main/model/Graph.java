@@ -4,12 +4,16 @@ import java.util.*;
 
 /**
  * Predstavlja graf stanica i veza (polazaka i transfera).
+ * Graf se puni preko liste susjedstva, a nakon učitavanja se zamrzava u
+ * {@link CompactGraph}; tada se lista susjedstva oslobađa, a pretrage koriste
+ * kompaktne nizove.
  *
  * @author Mladen Grbić
  * @version 1.0
  */
 public class Graph {
     private final Map<Station, List<Edge>> adjacencyList;
+    private CompactGraph compactGraph;
 
     /**
      * Kreira prazan graf.
@@ -32,27 +36,89 @@ public class Graph {
      *
      * @param from Polazna stanica.
      * @param edge Ivica sa destinacijom i parametrima.
+     * @throws IllegalStateException Ako je graf već zamrznut.
      */
     public void addEdge(Station from, Edge edge) {
+        if (compactGraph != null) {
+            throw new IllegalStateException("Graf je zamrznut");
+        }
         adjacencyList.computeIfAbsent(from, k -> new ArrayList<>()).add(edge);
     }
 
+    /**
+     * Zamrzava graf: gradi kompaktnu CSR reprezentaciju i oslobađa listu susjedstva.
+     * Stanice moraju imati dodijeljene guste identifikatore (vidi {@link CompactGraph}).
+     *
+     * @param stationsById Stanice indeksirane identifikatorom.
+     */
+    public void freeze(Station[] stationsById) {
+        compactGraph = CompactGraph.build(stationsById, adjacencyList);
+        adjacencyList.clear();
+    }
+
+    /**
+     * Postavlja već izgrađen kompaktni graf (npr. mapiran iz binarnog snimka mreže).
+     *
+     * @param compactGraph Kompaktni graf.
+     */
+    public void load(CompactGraph compactGraph) {
+        adjacencyList.clear();
+        this.compactGraph = compactGraph;
+    }
+
+    /**
+     * Briše sve stanice i ivice iz grafa.
+     */
+    public void clear() {
+        adjacencyList.clear();
+        compactGraph = null;
+    }
+
+    /**
+     * Vraća kompaktnu reprezentaciju grafa.
+     *
+     * @return Kompaktni graf, ili null ako graf još nije zamrznut.
+     */
+    public CompactGraph getCompactGraph() {
+        return compactGraph;
+    }
+
     /**
      * Vraća sve stanice u grafu.
      *
      * @return Skup stanica.
      */
     public Set<Station> getNodes() {
-        return adjacencyList.keySet();
+        if (compactGraph == null) {
+            return adjacencyList.keySet();
+        }
+        Set<Station> nodes = new LinkedHashSet<>();
+        for (int s = 0; s < compactGraph.stationCount(); s++) {
+            nodes.add(compactGraph.station(s));
+        }
+        return nodes;
     }
 
     /**
-     * Vraća ivice iz date stanice.
+     * Vraća ivice iz date stanice. Za zamrznut graf lista se pravi iz kompaktnih
+     * nizova pri svakom pozivu, pa je metoda namijenjena prikazu, a ne pretrazi.
      *
      * @param station Polazna stanica.
      * @return Lista ivica, ili prazna lista ako stanica nema ivica.
      */
     public List<Edge> getEdges(Station station) {
-        return adjacencyList.getOrDefault(station, Collections.emptyList());
+        if (compactGraph == null) {
+            return adjacencyList.getOrDefault(station, Collections.emptyList());
+        }
+        int id = station.getId();
+        if (id < 0 || id >= compactGraph.stationCount()) {
+            return Collections.emptyList();
+        }
+        List<Edge> edges = new ArrayList<>(compactGraph.endEdge(id) - compactGraph.firstEdge(id) + 1);
+        edges.add(compactGraph.toTransferEdge(id));
+        for (int e = compactGraph.firstEdge(id); e < compactGraph.endEdge(id); e++) {
+            edges.add(compactGraph.toEdge(e));
+        }
+        return edges;
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,11 @@ package main.model;
 
 import main.transport.Departure;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Apstraktna klasa koja predstavlja stanicu (autobusku ili železničku) u gradu.
@@ -15,6 +18,8 @@ public abstract class Station {
     protected final String name;
     protected final City city;
     protected final List<Departure> departures;
+    private int id = -1;
+    private volatile Map<City, Departure[]> departureIndex;
 
     /**
      * Konstruktor za kreiranje stanice.
@@ -35,6 +40,67 @@ public abstract class Station {
      */
     public void addDeparture(Departure departure) {
         departures.add(departure);
+        departureIndex = null;
+    }
+
+    /**
+     * Gradi indeks polazaka: polasci se grupišu po destinacijskom gradu i sortiraju
+     * po vremenu polaska, pa se sljedeći polazak traži binarnom pretragom.
+     * Poziva se nakon učitavanja mreže; ako se polasci naknadno mijenjaju,
+     * indeks se ponovo gradi pri prvoj pretrazi.
+     */
+    public void buildDepartureIndex() {
+        departureIndex = indexDepartures();
+    }
+
+    /**
+     * Grupiše polaske po destinacijskom gradu, sortirane po vremenu polaska.
+     *
+     * @return Indeks polazaka po destinacijskom gradu.
+     */
+    private Map<City, Departure[]> indexDepartures() {
+        Map<City, List<Departure>> grouped = new HashMap<>();
+        for (Departure departure : departures) {
+            grouped.computeIfAbsent(departure.getToCity(), k -> new ArrayList<>()).add(departure);
+        }
+        Map<City, Departure[]> index = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<City, List<Departure>> entry : grouped.entrySet()) {
+            Departure[] sorted = entry.getValue().toArray(new Departure[0]);
+            Arrays.sort(sorted, Comparator.comparingInt(Departure::getDepartureTime));
+            index.put(entry.getKey(), sorted);
+        }
+        return index;
+    }
+
+    /**
+     * Vraća prvi polazak do datog grada u ili nakon datog vremena. Ako takvog
+     * polaska nema do kraja dana, vraća se prvi polazak narednog dana.
+     *
+     * @param toCity Destinacijski grad.
+     * @param time Vrijeme u minutama (0-1439).
+     * @return Sljedeći polazak, ili null ako nema polazaka do grada.
+     */
+    public Departure getNextDeparture(City toCity, int time) {
+        Map<City, Departure[]> index = departureIndex;
+        if (index == null) {
+            index = indexDepartures();
+            departureIndex = index;
+        }
+        Departure[] sorted = index.get(toCity);
+        if (sorted == null) {
+            return null;
+        }
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].getDepartureTime() < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return sorted[low == sorted.length ? 0 : low];
     }
 
     /**
@@ -58,6 +124,20 @@ public abstract class Station {
      */
     public City getCity() { return city; }
 
+    /**
+     * Vraća gusti identifikator stanice u kompaktnom grafu.
+     *
+     * @return Identifikator stanice, ili -1 ako nije dodijeljen.
+     */
+    public int getId() { return id; }
+
+    /**
+     * Postavlja gusti identifikator stanice u kompaktnom grafu.
+     *
+     * @param id Identifikator stanice.
+     */
+    public void setId(int id) { this.id = id; }
+
     /**
      * Vraća listu polazaka sa stanice.
      *
@@ -0,0 +1,292 @@
+package main.transport;
+
+import main.model.City;
+import main.model.CompactGraph;
+import main.model.Edge;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ciljno usmjerena A* pretraga ruta sa dopustivim donjim granicama ({@link LandmarkBounds}).
+ * <p>
+ * Ključ oznake je trošak kriterijuma ({@link Criterion#cost}) nad dosadašnjim vremenom,
+ * cijenom i brojem skokova, svakim uvećanim za svoju donju granicu do krajnjeg grada.
+ * Standardni kriterijumi porede leksikografski: prvo po izabranoj veličini, pa po vremenu
+ * (za kriterijum vremena po cijeni). Pošto su granice konzistentne, a trošak neopadajući,
+ * prva oznaka koja stigne u krajnji grad je optimalna ruta, a svaka stanica se obrađuje samo
+ * jednom, sa svojom najboljom oznakom. Naredne rute su sljedeće najbolje oznake u krajnjem gradu,
+ * tj. najbolji dolasci posljednjim polaskom različitim od polaska optimalne rute.
+ * <p>
+ * Iz stanice se razmatraju svi polasci, ne samo prvi sljedeći za svaki grad, jer kasniji
+ * polazak može stići ranije ili biti jeftiniji. U međustanicama se vrijeme računa do
+ * spremnosti za dalje putovanje (dolazak uvećan za minimalno vrijeme transfera), a u
+ * krajnjem gradu do dolaska.
+ * <p>
+ * Kada izmjena reda vožnje poništi granice, nove se računaju u pozadinskoj niti
+ * ({@link Preprocessing}); do tada pretraga koristi nulte granice, koje su takođe
+ * konzistentne, pa su rute jednako dobre po kriterijumu, samo se pretražuje više stanica.
+ * Od ruta jednakog troška (npr. istog broja skokova i trajanja, a različite cijene) tada
+ * može biti vraćena druga.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class AStarSearch implements RoutingEngine {
+    private static final int MAX_ROUTES = 5;
+    private static final int DAY = 1440;
+    private static final int[] NO_BOUNDS = new int[3];
+
+    private final CompactGraph graph;
+    private final CompletableFuture<LandmarkBounds> bounds;
+    private final AtomicReference<CompactGraph> latest;
+
+    /**
+     * Oznaka (label) jedne djelimične rute do stanice.
+     */
+    private static final class Label {
+        final int station;
+        final int arrival;
+        final int ready;
+        final int price;
+        final int hops;
+        final Label parent;
+        final int edge;
+        final long key;
+
+        Label(int station, int arrival, int ready, int price, int hops, Label parent, int edge, long key) {
+            this.station = station;
+            this.arrival = arrival;
+            this.ready = ready;
+            this.price = price;
+            this.hops = hops;
+            this.parent = parent;
+            this.edge = edge;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Kreira A* pretragu i unaprijed računa donje granice nad kompaktnim grafom mreže.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     */
+    public AStarSearch(CompactGraph graph) {
+        this(graph, CompletableFuture.completedFuture(new LandmarkBounds(graph)), new AtomicReference<>(graph));
+    }
+
+    /**
+     * Kreira A* pretragu sa donjim granicama koje su izračunate ili se računaju.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     * @param bounds Donje granice koje važe za graf.
+     * @param latest Najnoviji graf među grafovima nastalim izmjenama istog grafa.
+     */
+    private AStarSearch(CompactGraph graph, CompletableFuture<LandmarkBounds> bounds,
+                        AtomicReference<CompactGraph> latest) {
+        this.graph = graph;
+        this.bounds = bounds;
+        this.latest = latest;
+    }
+
+    /**
+     * Kreira pretragu nad grafom sa izmijenjenim polascima datih stanica. Donje granice
+     * se zadržavaju ako nijedan polazak promijenjenih stanica ne skraćuje vezu niti je
+     * pojeftinjuje u odnosu na statički graf granica (polasci su otkazani, pomjereni ili
+     * poskupljeni); inače se računaju iznova u pozadinskoj niti. Računanje se preskače
+     * ako do njegovog početka stigne novija izmjena, jer ga ona zamjenjuje svojim.
+     *
+     * @param graph Novi graf polazaka.
+     * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+     * @return Pretraga nad novim grafom.
+     */
+    AStarSearch update(CompactGraph graph, int[] changedStations) {
+        latest.set(graph);
+        LandmarkBounds current = Preprocessing.now(bounds);
+        if (current != null && current.admits(graph, changedStations)) {
+            return new AStarSearch(graph, bounds, latest);
+        }
+        CompletableFuture<LandmarkBounds> rebuilt = Preprocessing.inBackground("donje granice A* pretrage",
+                () -> latest.get() == graph ? new LandmarkBounds(graph) : null);
+        return new AStarSearch(graph, rebuilt, latest);
+    }
+
+    /**
+     * Pronalazi do 5 najboljih ruta između dva grada prema zadatom kriterijumu.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @return Lista ruta, od najbolje prema kriterijumu.
+     */
+    @Override
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime) {
+        return findRoutes(startCity, endCity, criterion, startTime, route -> { });
+    }
+
+    /**
+     * Pronalazi do 5 najboljih ruta između dva grada prema zadatom kriterijumu i javlja
+     * svaku čim je pronađena. Rute se nalaze redom od najbolje, pa je prva javljena ruta
+     * već optimalna.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @param listener Prima pronađene rute.
+     * @return Lista ruta, od najbolje prema kriterijumu.
+     */
+    @Override
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime,
+                                  RouteListener listener) {
+        return findRoutes(startCity, endCity, criterion, startTime, listener, null);
+    }
+
+    /**
+     * Pronalazi do 5 najboljih ruta koje prolaze samo kroz date gradove. Izostavljanje
+     * gradova samo uklanja ivice, pa donje granice ostaju dopustive i konzistentne.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @param listener Prima pronađene rute.
+     * @param allowedCities Oznaka po gradu da li ruta smije kroz njega, ili null za sve gradove.
+     * @return Lista ruta, od najbolje prema kriterijumu.
+     */
+    List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime,
+                           RouteListener listener, boolean[] allowedCities) {
+        if (startCity.equals(endCity)) {
+            return Collections.emptyList();
+        }
+        int endBus = endCity.getBusStation().getId();
+        int endTrain = endCity.getTrainStation().getId();
+
+        PriorityQueue<Label> queue = new PriorityQueue<>(Comparator.comparingLong(label -> label.key));
+        boolean[] settled = new boolean[graph.stationCount()];
+        int[][] stationBounds = new int[graph.stationCount()][];
+        LandmarkBounds landmarks = Preprocessing.now(bounds);
+        List<Route> result = new ArrayList<>();
+
+        for (int start : new int[]{startCity.getBusStation().getId(), startCity.getTrainStation().getId()}) {
+            Label label = label(start, startTime, startTime, 0, 0, null, -1, startTime, criterion, endBus, endTrain, landmarks, stationBounds);
+            if (label != null) queue.offer(label);
+        }
+
+        long polled = 0;
+        long relaxed = 0;
+        long pruned = 0;
+        int maxQueueSize = queue.size();
+        while (!queue.isEmpty()) {
+            Label current = queue.poll();
+            if ((++polled & 1023) == 0) RoutingEngine.checkCancelled();
+            int u = current.station;
+            if (u == endBus || u == endTrain) {
+                Route route = toRoute(current, startTime);
+                result.add(route);
+                listener.routeFound(route);
+                if (result.size() >= MAX_ROUTES) break;
+                continue;
+            }
+            if (settled[u]) {
+                pruned++;
+                continue;
+            }
+            settled[u] = true;
+
+            int partner = graph.partner(u);
+            if (!settled[partner]) {
+                int ready = current.ready + CompactGraph.TRANSFER_TIME;
+                Label transferred = label(partner, current.arrival, ready, current.price + CompactGraph.TRANSFER_PRICE,
+                        current.hops + 1, current, -1, startTime, criterion, endBus, endTrain, landmarks, stationBounds);
+                if (transferred != null) queue.offer(transferred);
+                relaxed++;
+            }
+
+            int timeOfDay = current.ready % DAY;
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int v = graph.target(e);
+                if (settled[v] || allowedCities != null && !allowedCities[graph.cityOf(v)]) continue;
+                int wait = Math.floorMod(graph.departureTime(e) - timeOfDay, DAY);
+                int arrival = current.ready + wait + graph.duration(e);
+                int ready = (v == endBus || v == endTrain) ? arrival : arrival + graph.minTransferTime(e);
+                Label next = label(v, arrival, ready, current.price + graph.price(e), current.hops + 1,
+                        current, e, startTime, criterion, endBus, endTrain, landmarks, stationBounds);
+                if (next != null) queue.offer(next);
+                relaxed++;
+            }
+            maxQueueSize = Math.max(maxQueueSize, queue.size());
+        }
+        SearchCounters.report(polled, relaxed, maxQueueSize, pruned);
+        return result;
+    }
+
+    /**
+     * Kreira oznaku i računa njen ključ: trošak kriterijuma nad vremenom, cijenom i
+     * brojem skokova, uvećanim za donje granice do krajnjeg grada.
+     *
+     * @param station Stanica oznake.
+     * @param arrival Vrijeme dolaska u stanicu.
+     * @param ready Vrijeme spremnosti za dalje putovanje.
+     * @param price Cijena do stanice.
+     * @param hops Broj skokova do stanice.
+     * @param parent Prethodna oznaka, ili null za početnu stanicu.
+     * @param edge Ivica kojom je stanica dostignuta, ili -1 za transfer i početnu stanicu.
+     * @param startTime Vrijeme početka u minutama.
+     * @param criterion Kriterijum optimizacije.
+     * @param endBus Autobuska stanica krajnjeg grada.
+     * @param endTrain Železnička stanica krajnjeg grada.
+     * @param landmarks Donje granice, ili null dok se računaju (tada su granice nulte).
+     * @param stationBounds Već izračunate granice po stanici (null ako nisu izračunate).
+     * @return Oznaka, ili null ako krajnji grad nije dostižan iz stanice.
+     */
+    private Label label(int station, int arrival, int ready, int price, int hops, Label parent, int edge,
+                        int startTime, Criterion criterion, int endBus, int endTrain, LandmarkBounds landmarks,
+                        int[][] stationBounds) {
+        int[] bound = stationBounds[station];
+        if (bound == null) {
+            bound = landmarks == null ? NO_BOUNDS : new int[]{
+                    landmarks.bound(LandmarkBounds.TIME, station, endBus, endTrain),
+                    landmarks.bound(LandmarkBounds.PRICE, station, endBus, endTrain),
+                    landmarks.bound(LandmarkBounds.HOPS, station, endBus, endTrain)};
+            stationBounds[station] = bound;
+        }
+        if (bound[LandmarkBounds.TIME] == LandmarkBounds.UNREACHABLE) return null;
+        long key = criterion.cost(saturatedAdd(ready - startTime, bound[LandmarkBounds.TIME]),
+                saturatedAdd(price, bound[LandmarkBounds.PRICE]), saturatedAdd(hops, bound[LandmarkBounds.HOPS]));
+        return new Label(station, arrival, ready, price, hops, parent, edge, key);
+    }
+
+    /**
+     * Sabira vrijednost i granicu, bez prekoračenja opsega.
+     *
+     * @param value Dosadašnja vrijednost.
+     * @param bound Donja granica.
+     * @return Zbir, najviše {@code Integer.MAX_VALUE}.
+     */
+    private static int saturatedAdd(int value, int bound) {
+        return (int) Math.min((long) value + bound, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Rekonstruiše rutu praćenjem roditeljskih oznaka.
+     *
+     * @param label Oznaka u krajnjem gradu.
+     * @param startTime Vrijeme početka u minutama.
+     * @return Ruta do oznake.
+     */
+    private Route toRoute(Label label, int startTime) {
+        List<Edge> edges = new ArrayList<>();
+        for (Label current = label; current.parent != null; current = current.parent) {
+            if (current.edge < 0) {
+                edges.add(graph.toTransferEdge(current.parent.station));
+            } else {
+                edges.add(graph.toEdge(current.edge));
+            }
+        }
+        Collections.reverse(edges);
+        return new Route(edges, label.arrival - startTime, label.price, label.hops, startTime);
+    }
+}
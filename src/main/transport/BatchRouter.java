@@ -0,0 +1,219 @@
+package main.transport;
+
+import main.model.City;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Paketna pretraga ruta za veliki broj parova polazni grad – krajnji grad.
+ * Upiti se dijele na fork-join bazen niti i izvršavaju paralelno nad istom
+ * učitanom mrežom; za svaki upit vraćaju se pronađene rute i trajanje pretrage.
+ * Greška u jednom upitu ne prekida ostale, već se bilježi u njegovom rezultatu.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class BatchRouter {
+    private static final int SEQUENTIAL_THRESHOLD = 4;
+
+    private final Network network;
+    private final ForkJoinPool pool;
+
+    /**
+     * Upit za pretragu ruta između dva grada.
+     */
+    public static final class Query {
+        private final City startCity;
+        private final City endCity;
+        private final Criterion criterion;
+        private final int startTime;
+
+        /**
+         * Kreira upit.
+         *
+         * @param startCity Početni grad.
+         * @param endCity Krajnji grad.
+         * @param criterion Kriterijum optimizacije (npr. {@link StandardCriterion#TIME}).
+         * @param startTime Vrijeme početka u minutama (0-1439).
+         */
+        public Query(City startCity, City endCity, Criterion criterion, int startTime) {
+            this.startCity = Objects.requireNonNull(startCity, "startCity");
+            this.endCity = Objects.requireNonNull(endCity, "endCity");
+            this.criterion = Objects.requireNonNull(criterion, "criterion");
+            this.startTime = startTime;
+        }
+
+        /**
+         * Vraća početni grad.
+         *
+         * @return Početni grad.
+         */
+        public City getStartCity() { return startCity; }
+
+        /**
+         * Vraća krajnji grad.
+         *
+         * @return Krajnji grad.
+         */
+        public City getEndCity() { return endCity; }
+
+        /**
+         * Vraća kriterijum optimizacije.
+         *
+         * @return Kriterijum optimizacije.
+         */
+        public Criterion getCriterion() { return criterion; }
+
+        /**
+         * Vraća vrijeme početka.
+         *
+         * @return Vrijeme početka u minutama.
+         */
+        public int getStartTime() { return startTime; }
+    }
+
+    /**
+     * Rezultat jednog upita.
+     */
+    public static final class Result {
+        private final Query query;
+        private final List<Route> routes;
+        private final long elapsedNanos;
+        private final RuntimeException error;
+
+        /**
+         * Kreira rezultat upita.
+         *
+         * @param query Upit.
+         * @param routes Pronađene rute.
+         * @param elapsedNanos Trajanje pretrage u nanosekundama.
+         * @param error Greška pri pretrazi, ili null ako je pretraga uspjela.
+         */
+        Result(Query query, List<Route> routes, long elapsedNanos, RuntimeException error) {
+            this.query = query;
+            this.routes = routes;
+            this.elapsedNanos = elapsedNanos;
+            this.error = error;
+        }
+
+        /**
+         * Vraća upit na koji se rezultat odnosi.
+         *
+         * @return Upit.
+         */
+        public Query getQuery() { return query; }
+
+        /**
+         * Vraća pronađene rute.
+         *
+         * @return Lista ruta, prazna ako ruta nema ili je pretraga neuspješna.
+         */
+        public List<Route> getRoutes() { return routes; }
+
+        /**
+         * Vraća trajanje pretrage.
+         *
+         * @return Trajanje u nanosekundama.
+         */
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        /**
+         * Vraća grešku nastalu pri pretrazi.
+         *
+         * @return Greška, ili null ako je pretraga uspjela.
+         */
+        public RuntimeException getError() { return error; }
+
+        /**
+         * Provjerava da li je pretraga uspjela.
+         *
+         * @return true ako pretraga nije bacila izuzetak.
+         */
+        public boolean isSuccessful() { return error == null; }
+    }
+
+    /**
+     * Kreira paketnu pretragu koja koristi zajednički fork-join bazen niti.
+     *
+     * @param network Učitana transportna mreža.
+     */
+    public BatchRouter(Network network) {
+        this(network, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Kreira paketnu pretragu koja koristi dati fork-join bazen niti.
+     *
+     * @param network Učitana transportna mreža.
+     * @param pool Bazen niti u kojem se izvršavaju upiti.
+     */
+    public BatchRouter(Network network, ForkJoinPool pool) {
+        this.network = Objects.requireNonNull(network, "network");
+        this.pool = Objects.requireNonNull(pool, "pool");
+    }
+
+    /**
+     * Izvršava sve upite paralelno i čeka da se završe.
+     *
+     * @param queries Lista upita.
+     * @return Rezultati istim redoslijedom kao upiti.
+     */
+    public List<Result> route(List<Query> queries) {
+        Query[] input = queries.toArray(new Query[0]);
+        Result[] output = new Result[input.length];
+        if (input.length > 0) {
+            pool.invoke(new RouteTask(input, output, 0, input.length));
+        }
+        return Arrays.asList(output);
+    }
+
+    /**
+     * Izvršava jedan upit i mjeri trajanje pretrage.
+     *
+     * @param query Upit.
+     * @return Rezultat upita.
+     */
+    private Result route(Query query) {
+        long start = System.nanoTime();
+        try {
+            List<Route> routes = network.findRoutes(query.getStartCity(), query.getEndCity(),
+                    query.getCriterion(), query.getStartTime());
+            return new Result(query, routes, System.nanoTime() - start, null);
+        } catch (RuntimeException e) {
+            return new Result(query, Collections.emptyList(), System.nanoTime() - start, e);
+        }
+    }
+
+    /**
+     * Dijeli opseg upita na polovine dok ne postane dovoljno mali za sekvencijalno izvršavanje.
+     */
+    private final class RouteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Query[] queries;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+
+        RouteTask(Query[] queries, Result[] results, int from, int to) {
+            this.queries = queries;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = route(queries[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RouteTask(queries, results, from, mid), new RouteTask(queries, results, mid, to));
+        }
+    }
+}
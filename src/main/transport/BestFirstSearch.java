@@ -0,0 +1,187 @@
+package main.transport;
+
+import main.model.City;
+import main.model.CompactGraph;
+import main.model.Station;
+
+import java.util.*;
+
+/**
+ * Pretraga ruta po najboljem čvoru nad grafom stanica, sa kaznom za udaljenost
+ * od krajnjeg grada. Pronalazi do 5 različitih ruta i vraća ih sortirane po kriterijumu.
+ * Stanje pretrage čuva se u čvorovima sa roditeljskim pokazivačem i u
+ * primitivnim nizovima indeksiranim identifikatorima gradova i stanica.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class BestFirstSearch implements RoutingEngine {
+    private static final int MAX_ROUTES = 5;
+    private static final int MAX_PATH_VISITS = 10;
+
+    private final CompactGraph graph;
+
+    /**
+     * Kreira pretragu nad kompaktnim grafom mreže.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     */
+    public BestFirstSearch(CompactGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Pronalazi do 5 ruta između dva grada prema zadatom kriterijumu, sa najviše
+     * tri skoka po gradu mreže.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama.
+     * @return Lista ruta, sortirana po kriterijumu.
+     */
+    @Override
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime) {
+        return findRoutes(startCity, endCity, criterion, startTime, route -> { });
+    }
+
+    /**
+     * Pronalazi do 5 ruta između dva grada prema zadatom kriterijumu i javlja svaku čim
+     * je pronađena (redoslijedom pronalaska, ne po kriterijumu).
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama.
+     * @param listener Prima pronađene rute.
+     * @return Lista ruta, sortirana po kriterijumu.
+     */
+    @Override
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime,
+                                  RouteListener listener) {
+        List<Route> result = findRoutes(startCity, endCity, criterion, startTime, graph.cityCount() * 3, listener);
+        result.sort(criterion::compare);
+        return result;
+    }
+
+    /**
+     * Pronalazi do 5 ruta između dva grada prema zadatom kriterijumu. Čvorovi se obrađuju
+     * po prioritetu koji daje kriterijum (vidi {@link Criterion#priority}).
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama.
+     * @param maxHops Najveći broj skokova (ivica) na ruti.
+     * @param listener Prima pronađene rute.
+     * @return Lista pronađenih ruta, nesortirana.
+     */
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime, int maxHops,
+                                  RouteListener listener) {
+        PriorityQueue<RouteNode> queue = new PriorityQueue<>(Comparator.comparingLong(RouteNode::getCost));
+        Set<Long> uniqueRoutes = new HashSet<>();
+        List<Route> result = new ArrayList<>();
+        PathCounter visitedPaths = new PathCounter(1024);
+        boolean[] transferredInCity = new boolean[graph.cityCount()];
+        boolean[] visitedCities = new boolean[graph.cityCount()];
+        visitedCities[startCity.getId()] = true;
+
+        int endCityId = endCity.getId();
+        int endBus = endCity.getBusStation().getId();
+        int endTrain = endCity.getTrainStation().getId();
+        int endRow = endCity.getRow();
+        int endCol = endCity.getColumn();
+
+        queue.offer(new RouteNode(graph.station(startCity.getBusStation().getId()), null, null, startTime,
+                0, 0, 0, 0, 0));
+        queue.offer(new RouteNode(graph.station(startCity.getTrainStation().getId()), null, null, startTime,
+                0, 0, 0, 0, 0));
+        queue.poll();
+        long polled = 0;
+        long relaxed = 0;
+        long pruned = 0;
+        int maxQueueSize = queue.size();
+
+        while (!queue.isEmpty()) {
+            RouteNode current = queue.poll();
+            if ((++polled & 1023) == 0) RoutingEngine.checkCancelled();
+            Station currentStation = current.station;
+            int stationId = currentStation.getId();
+
+            long pathKey = current.pathKey(stationId);
+            if (visitedPaths.get(pathKey) >= MAX_PATH_VISITS) {
+                pruned++;
+                continue;
+            }
+            visitedPaths.increment(pathKey);
+
+            if (stationId == endBus || stationId == endTrain) {
+                if (uniqueRoutes.add(current.routeHash)) {
+                    Route route = new Route(current.toEdges(), current.totalTime, current.totalPrice,
+                            current.hopCount, startTime);
+                    result.add(route);
+                    listener.routeFound(route);
+                    if (uniqueRoutes.size() >= MAX_ROUTES) break;
+                }
+                continue;
+            }
+            if (current.hopCount >= maxHops) continue;
+
+            int currentCity = graph.cityOf(stationId);
+            int firstEdge = graph.firstEdge(stationId);
+            for (int e = firstEdge - 1; e < graph.endEdge(stationId); e++) {
+                relaxed++;
+                boolean transfer = e < firstEdge;
+                int nextId = transfer ? graph.partner(stationId) : graph.target(e);
+                int nextCityId = graph.cityOf(nextId);
+                City nextCity = graph.city(nextCityId);
+                Departure selectedDeparture = null;
+                int nextTime, nextTotalTime, nextPrice;
+
+                if (transfer) {
+                    if (transferredInCity[currentCity]) continue;
+                    transferredInCity[currentCity] = true;
+
+                    nextTime = (current.currentTime + CompactGraph.TRANSFER_TIME) % 1440;
+                    nextTotalTime = current.totalTime + CompactGraph.TRANSFER_TIME;
+                    nextPrice = current.totalPrice + CompactGraph.TRANSFER_PRICE;
+                } else {
+                    selectedDeparture = currentStation.getNextDeparture(nextCity, current.currentTime);
+                    if (selectedDeparture == null) continue;
+                    int departureTime = selectedDeparture.getDepartureTime();
+                    int waitingTime = departureTime >= current.currentTime
+                            ? departureTime - current.currentTime
+                            : (1440 - current.currentTime) + departureTime;
+
+                    int arrivalTime = (departureTime + selectedDeparture.getDuration()) % 1440;
+                    nextTime = (arrivalTime + selectedDeparture.getMinTransferTime()) % 1440;
+                    nextTotalTime = current.totalTime + waitingTime + selectedDeparture.getDuration();
+                    nextPrice = current.totalPrice + selectedDeparture.getPrice();
+                }
+                int nextHops = current.hopCount + 1;
+
+                int distanceToEnd = Math.abs(nextCity.getRow() - endRow) + Math.abs(nextCity.getColumn() - endCol);
+                if (visitedCities[nextCityId] && nextCityId != endCityId && distanceToEnd > 2) {
+                    pruned++;
+                    continue;
+                }
+                if (visitedPaths.get(current.pathKey(nextId)) >= MAX_PATH_VISITS) {
+                    pruned++;
+                    continue;
+                }
+
+                long cost = criterion.priority(nextTotalTime, nextPrice, nextHops, distanceToEnd, transfer);
+
+                queue.offer(new RouteNode(graph.station(nextId), current, selectedDeparture, nextTime, nextPrice,
+                        nextHops, cost, nextHops, nextTotalTime));
+                maxQueueSize = Math.max(maxQueueSize, queue.size());
+
+                if (!transfer) {
+                    visitedCities[nextCityId] = true;
+                }
+            }
+        }
+        SearchCounters.report(polled, relaxed, maxQueueSize, pruned);
+        return result;
+    }
+}
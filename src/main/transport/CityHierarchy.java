@@ -0,0 +1,740 @@
+package main.transport;
+
+import main.model.CompactGraph;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hijerarhija kontrakcije (contraction hierarchy) nad statičkim grafom gradova, koja za par
+ * gradova brzo određuje koridor: gradove na najkraćem statičkom putu između njih, proširene
+ * za nekoliko susjednih gradova.
+ * <p>
+ * Težina veze između dva grada je najmanje trajanje svih polazaka na toj vezi, autobusom ili
+ * vozom. Gradovi se kontrahuju redom po razlici ivica (broj prečica koje bi kontrakcija dodala
+ * umanjen za broj veza koje nestaju) uvećanoj za broj već kontrahovanih susjeda; prečica
+ * se dodaje samo ako lokalna pretraga ne nađe put koji zaobilazi grad i nije duži. Upit je
+ * dvosmjerna pretraga samo naviše po rangu, pa posjećuje mali dio grafa, a pronađeni putevi
+ * se raspakuju preko prečica do gradova kroz koje prolaze.
+ * <p>
+ * Hijerarhija se upisuje u fajl pored binarnog snimka mreže (vidi {@link #pathFor}). Fajl
+ * pamti otisak statičkog grafa iz kojeg je izgrađen, pa se fajl koji ne odgovara snimku odbacuje.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+final class CityHierarchy {
+    private static final int MAGIC = 0x54524348;
+    private static final int FORMAT_VERSION = 1;
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int PRIORITY_OFFSET = 1 << 30;
+    /** Najveći broj gradova koje obrađuje lokalna pretraga pri kontrakciji. */
+    private static final int WITNESS_LIMIT = 64;
+    /** Za koliko koraka se koridor širi na susjedne gradove. */
+    private static final int WIDTH = 4;
+
+    private final int cityCount;
+    private final int edgeCount;
+    private final long fingerprint;
+    private final int originalArcs;
+    private final int[] rank;
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final int[] arcWeight;
+    private final int[] arcFirst;
+    private final int[] arcSecond;
+
+    private final int[] upStart;
+    private final int[] upArc;
+    private final int[] downStart;
+    private final int[] downArc;
+    private final int[] neighborStart;
+    private final int[] neighbor;
+
+    /**
+     * Kreira hijerarhiju od rangova gradova i veza (originalnih, pa prečica) i gradi
+     * indekse za upite.
+     *
+     * @param cityCount Broj gradova.
+     * @param edgeCount Broj ivica kompaktnog grafa iz kojeg je hijerarhija izgrađena.
+     * @param fingerprint Otisak statičkog grafa gradova.
+     * @param originalArcs Broj originalnih veza (prve u nizovima).
+     * @param rank Rang po gradu (redoslijed kontrakcije).
+     * @param arcFrom Polazni grad po vezi.
+     * @param arcTo Ciljni grad po vezi.
+     * @param arcWeight Težina po vezi.
+     * @param arcFirst Prvi dio prečice po vezi, ili -1 za originalnu vezu.
+     * @param arcSecond Drugi dio prečice po vezi, ili -1 za originalnu vezu.
+     */
+    private CityHierarchy(int cityCount, int edgeCount, long fingerprint, int originalArcs, int[] rank,
+                          int[] arcFrom, int[] arcTo, int[] arcWeight, int[] arcFirst, int[] arcSecond) {
+        this.cityCount = cityCount;
+        this.edgeCount = edgeCount;
+        this.fingerprint = fingerprint;
+        this.originalArcs = originalArcs;
+        this.rank = rank;
+        this.arcFrom = arcFrom;
+        this.arcTo = arcTo;
+        this.arcWeight = arcWeight;
+        this.arcFirst = arcFirst;
+        this.arcSecond = arcSecond;
+
+        int arcs = arcFrom.length;
+        upStart = new int[cityCount + 1];
+        downStart = new int[cityCount + 1];
+        neighborStart = new int[cityCount + 1];
+        for (int a = 0; a < arcs; a++) {
+            if (rank[arcFrom[a]] < rank[arcTo[a]]) {
+                upStart[arcFrom[a] + 1]++;
+            } else {
+                downStart[arcTo[a] + 1]++;
+            }
+            if (a < originalArcs) {
+                neighborStart[arcFrom[a] + 1]++;
+                neighborStart[arcTo[a] + 1]++;
+            }
+        }
+        for (int c = 0; c < cityCount; c++) {
+            upStart[c + 1] += upStart[c];
+            downStart[c + 1] += downStart[c];
+            neighborStart[c + 1] += neighborStart[c];
+        }
+        upArc = new int[upStart[cityCount]];
+        downArc = new int[downStart[cityCount]];
+        neighbor = new int[neighborStart[cityCount]];
+        int[] upFill = Arrays.copyOf(upStart, cityCount);
+        int[] downFill = Arrays.copyOf(downStart, cityCount);
+        int[] neighborFill = Arrays.copyOf(neighborStart, cityCount);
+        for (int a = 0; a < arcs; a++) {
+            if (rank[arcFrom[a]] < rank[arcTo[a]]) {
+                upArc[upFill[arcFrom[a]]++] = a;
+            } else {
+                downArc[downFill[arcTo[a]]++] = a;
+            }
+            if (a < originalArcs) {
+                neighbor[neighborFill[arcFrom[a]]++] = arcTo[a];
+                neighbor[neighborFill[arcTo[a]]++] = arcFrom[a];
+            }
+        }
+    }
+
+    /**
+     * Kreira hijerarhiju koja dijeli veze i indekse sa datom, za graf sa drugim brojem ivica
+     * i istim statičkim grafom gradova.
+     *
+     * @param hierarchy Postojeća hijerarhija.
+     * @param edgeCount Broj ivica novog kompaktnog grafa.
+     */
+    private CityHierarchy(CityHierarchy hierarchy, int edgeCount) {
+        this.cityCount = hierarchy.cityCount;
+        this.edgeCount = edgeCount;
+        this.fingerprint = hierarchy.fingerprint;
+        this.originalArcs = hierarchy.originalArcs;
+        this.rank = hierarchy.rank;
+        this.arcFrom = hierarchy.arcFrom;
+        this.arcTo = hierarchy.arcTo;
+        this.arcWeight = hierarchy.arcWeight;
+        this.arcFirst = hierarchy.arcFirst;
+        this.arcSecond = hierarchy.arcSecond;
+        this.upStart = hierarchy.upStart;
+        this.upArc = hierarchy.upArc;
+        this.downStart = hierarchy.downStart;
+        this.downArc = hierarchy.downArc;
+        this.neighborStart = hierarchy.neighborStart;
+        this.neighbor = hierarchy.neighbor;
+    }
+
+    /**
+     * Gradi hijerarhiju nad statičkim grafom gradova kompaktnog grafa.
+     *
+     * @param graph Kompaktni graf mreže.
+     * @return Hijerarhija.
+     */
+    static CityHierarchy build(CompactGraph graph) {
+        int[][] links = links(graph);
+        int originalArcs = links[0].length;
+        Builder builder = new Builder(graph.cityCount(), links[0], links[1], links[2]);
+        int[] rank = builder.contractAll();
+        return new CityHierarchy(graph.cityCount(), graph.edgeCount(), fingerprint(links), originalArcs, rank,
+                Arrays.copyOf(builder.from, builder.count), Arrays.copyOf(builder.to, builder.count),
+                Arrays.copyOf(builder.weight, builder.count), Arrays.copyOf(builder.first, builder.count),
+                Arrays.copyOf(builder.second, builder.count));
+    }
+
+    /**
+     * Vraća putanju fajla hijerarhije koji pripada binarnom snimku mreže.
+     *
+     * @param snapshotPath Putanja do fajla snimka.
+     * @return Putanja do fajla hijerarhije (ime snimka sa nastavkom {@code .ch}).
+     */
+    static Path pathFor(Path snapshotPath) {
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + ".ch");
+    }
+
+    /**
+     * Upisuje hijerarhiju u fajl.
+     *
+     * @param path Putanja do fajla.
+     * @throws IOException Ako dođe do greške pri pisanju.
+     */
+    void writeTo(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(cityCount);
+            out.writeInt(edgeCount);
+            out.writeLong(fingerprint);
+            out.writeInt(originalArcs);
+            out.writeInt(arcFrom.length);
+            for (int[] array : new int[][]{rank, arcFrom, arcTo, arcWeight, arcFirst, arcSecond}) {
+                for (int value : array) {
+                    out.writeInt(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Čita hijerarhiju iz fajla i provjerava da li je izgrađena nad datim grafom.
+     *
+     * @param path Putanja do fajla.
+     * @param graph Kompaktni graf mreže.
+     * @return Hijerarhija.
+     * @throws IOException Ako fajl ne postoji, nije ispravan ili ne odgovara grafu.
+     */
+    static CityHierarchy read(Path path, CompactGraph graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Fajl nije hijerarhija gradova: " + path);
+            }
+            int cityCount = in.readInt();
+            int edgeCount = in.readInt();
+            long fingerprint = in.readLong();
+            if (cityCount != graph.cityCount() || edgeCount != graph.edgeCount()
+                    || fingerprint != fingerprint(links(graph))) {
+                throw new IOException("Hijerarhija gradova ne odgovara snimku mreže: " + path);
+            }
+            int originalArcs = in.readInt();
+            int arcs = in.readInt();
+            int[] rank = readInts(in, cityCount);
+            int[][] arrays = new int[5][];
+            for (int i = 0; i < arrays.length; i++) {
+                arrays[i] = readInts(in, arcs);
+            }
+            return new CityHierarchy(cityCount, edgeCount, fingerprint, originalArcs, rank,
+                    arrays[0], arrays[1], arrays[2], arrays[3], arrays[4]);
+        }
+    }
+
+    /**
+     * Čita niz brojeva iz toka.
+     *
+     * @param in Tok.
+     * @param length Dužina niza.
+     * @return Pročitani niz.
+     * @throws IOException Ako dođe do greške pri čitanju.
+     */
+    private static int[] readInts(DataInputStream in, int length) throws IOException {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Vraća hijerarhiju za graf sa izmijenjenim polascima datih stanica, ako izmjena ne
+     * mijenja statički graf gradova: gradovi promijenjenih stanica imaju iste veze, sa istim
+     * najmanjim trajanjem. Provjeravaju se samo veze tih gradova, pa je posao srazmjeran
+     * izmjeni.
+     *
+     * @param graph Novi graf polazaka.
+     * @param changedStations Identifikatori stanica čiji su polasci promijenjeni, rastuće.
+     * @return Hijerarhija za novi graf, ili null ako se statički graf gradova promijenio.
+     */
+    CityHierarchy update(CompactGraph graph, int[] changedStations) {
+        if (graph.cityCount() != cityCount) return null;
+        int previous = -1;
+        for (int station : changedStations) {
+            int c = graph.cityOf(station);
+            if (c == previous) continue;
+            previous = c;
+            Map<Integer, Integer> weights = new HashMap<>();
+            for (int s = 2 * c; s <= 2 * c + 1; s++) {
+                for (int e = graph.firstEdge(s); e < graph.endEdge(s); e++) {
+                    int v = graph.cityOf(graph.target(e));
+                    if (v != c) weights.merge(v, graph.duration(e), Math::min);
+                }
+            }
+            int first = firstOriginalArc(c);
+            int end = firstOriginalArc(c + 1);
+            if (end - first != weights.size()) return null;
+            for (int a = first; a < end; a++) {
+                Integer weight = weights.get(arcTo[a]);
+                if (weight == null || weight != arcWeight[a]) return null;
+            }
+        }
+        return new CityHierarchy(this, graph.edgeCount());
+    }
+
+    /**
+     * Binarnom pretragom pronalazi prvu originalnu vezu iz grada; originalne veze su
+     * poredane po polaznom gradu.
+     *
+     * @param city Identifikator grada.
+     * @return Indeks prve originalne veze iz grada, ili iz prvog sljedećeg grada koji ih ima.
+     */
+    private int firstOriginalArc(int city) {
+        int low = 0;
+        int high = originalArcs;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (arcFrom[mid] < city) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gradi statički graf gradova: jednu vezu po paru povezanih gradova, sa najmanjim
+     * trajanjem svih polazaka na toj vezi.
+     *
+     * @param graph Kompaktni graf mreže.
+     * @return Nizovi polaznog grada, ciljnog grada i težine po vezi.
+     */
+    private static int[][] links(CompactGraph graph) {
+        int n = graph.cityCount();
+        int[] from = new int[graph.edgeCount()];
+        int[] to = new int[graph.edgeCount()];
+        int[] weight = new int[graph.edgeCount()];
+        int[] owner = new int[n];
+        int[] slot = new int[n];
+        Arrays.fill(owner, -1);
+        int links = 0;
+        for (int c = 0; c < n; c++) {
+            for (int s = 2 * c; s <= 2 * c + 1; s++) {
+                for (int e = graph.firstEdge(s); e < graph.endEdge(s); e++) {
+                    int v = graph.cityOf(graph.target(e));
+                    if (v == c) continue;
+                    if (owner[v] == c) {
+                        weight[slot[v]] = Math.min(weight[slot[v]], graph.duration(e));
+                    } else {
+                        owner[v] = c;
+                        slot[v] = links;
+                        from[links] = c;
+                        to[links] = v;
+                        weight[links] = graph.duration(e);
+                        links++;
+                    }
+                }
+            }
+        }
+        return new int[][]{Arrays.copyOf(from, links), Arrays.copyOf(to, links), Arrays.copyOf(weight, links)};
+    }
+
+    /**
+     * Računa otisak statičkog grafa gradova.
+     *
+     * @param links Nizovi polaznog grada, ciljnog grada i težine po vezi.
+     * @return Otisak.
+     */
+    private static long fingerprint(int[][] links) {
+        long hash = links[0].length;
+        for (int i = 0; i < links[0].length; i++) {
+            hash = hash * 0x9E3779B97F4A7C15L + (((long) links[0][i] << 40) ^ ((long) links[1][i] << 20) ^ links[2][i]);
+        }
+        return hash;
+    }
+
+    /**
+     * Određuje koridor između dva grada: gradove na najkraćim statičkim putevima, raspakovanim
+     * do originalnih veza i proširenim za {@value #WIDTH} koraka na susjedne gradove. U mreži
+     * oblika rešetke skoro svaki put "stepenicama" je skoro najkraći, pa bi koridor svih
+     * skoro najkraćih puteva za udaljene uglove pokrio cijelu mrežu; zato se uzimaju samo
+     * najkraći, a širina koridora ostavlja prostor za zaobilaženje dugih čekanja.
+     *
+     * @param source Identifikator početnog grada.
+     * @param target Identifikator krajnjeg grada.
+     * @return Oznaka po gradu da li je u koridoru, ili null ako krajnji grad nije dostižan
+     *         u statičkom grafu.
+     */
+    boolean[] corridor(int source, int target) {
+        int[] forward = new int[cityCount];
+        int[] backward = new int[cityCount];
+        int[] forwardArc = new int[cityCount];
+        int[] backwardArc = new int[cityCount];
+        int[] visited = new int[cityCount];
+        search(source, upStart, upArc, arcTo, forward, forwardArc, null);
+        int visitedCount = search(target, downStart, downArc, arcFrom, backward, backwardArc, visited);
+
+        long best = INFINITY;
+        for (int i = 0; i < visitedCount; i++) {
+            int v = visited[i];
+            if (forward[v] != INFINITY) best = Math.min(best, (long) forward[v] + backward[v]);
+        }
+        if (best == INFINITY) return null;
+
+        boolean[] inCorridor = new boolean[cityCount];
+        inCorridor[source] = true;
+        inCorridor[target] = true;
+        for (int i = 0; i < visitedCount; i++) {
+            int v = visited[i];
+            if (forward[v] == INFINITY || (long) forward[v] + backward[v] != best) continue;
+            for (int x = v; forwardArc[x] >= 0; x = arcFrom[forwardArc[x]]) {
+                unpack(forwardArc[x], inCorridor);
+            }
+            for (int x = v; backwardArc[x] >= 0; x = arcTo[backwardArc[x]]) {
+                unpack(backwardArc[x], inCorridor);
+            }
+        }
+        widen(inCorridor);
+        return inCorridor;
+    }
+
+    /**
+     * Dijkstrin algoritam samo naviše po rangu, bez uslova zaustavljanja.
+     *
+     * @param source Početni grad.
+     * @param start Početak veza po gradu.
+     * @param arcs Veze po gradu.
+     * @param head Grad do kojeg vodi veza (ciljni za pretragu unaprijed, polazni unazad).
+     * @param distances Izlaz: rastojanje po gradu, {@code Integer.MAX_VALUE} za neposjećene.
+     * @param parentArc Izlaz: veza kojom je grad dostignut, -1 za početni.
+     * @param visited Izlaz: posjećeni gradovi, ili null ako nisu potrebni.
+     * @return Broj posjećenih gradova.
+     */
+    private int search(int source, int[] start, int[] arcs, int[] head, int[] distances,
+                       int[] parentArc, int[] visited) {
+        Arrays.fill(distances, INFINITY);
+        LongHeap heap = new LongHeap(64);
+        distances[source] = 0;
+        parentArc[source] = -1;
+        heap.push(source);
+        int count = 0;
+        while (!heap.isEmpty()) {
+            long top = heap.pop();
+            int u = (int) top;
+            int distance = (int) (top >>> 32);
+            if (distance > distances[u]) continue;
+            if (visited != null) visited[count] = u;
+            count++;
+            for (int i = start[u]; i < start[u + 1]; i++) {
+                int a = arcs[i];
+                int v = head[a];
+                int candidate = distance + arcWeight[a];
+                if (candidate < distances[v]) {
+                    distances[v] = candidate;
+                    parentArc[v] = a;
+                    heap.push(((long) candidate << 32) | v);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Označava gradove kroz koje prolazi veza, raspakujući prečice.
+     *
+     * @param arc Veza.
+     * @param inCorridor Oznake gradova koridora.
+     */
+    private void unpack(int arc, boolean[] inCorridor) {
+        if (arcFirst[arc] < 0) {
+            inCorridor[arcFrom[arc]] = true;
+            inCorridor[arcTo[arc]] = true;
+            return;
+        }
+        unpack(arcFirst[arc], inCorridor);
+        unpack(arcSecond[arc], inCorridor);
+    }
+
+    /**
+     * Proširuje koridor na gradove udaljene najviše {@value #WIDTH} veza (u bilo kojem smjeru).
+     *
+     * @param inCorridor Oznake gradova koridora.
+     */
+    private void widen(boolean[] inCorridor) {
+        int[] frontier = new int[cityCount];
+        int size = 0;
+        for (int c = 0; c < cityCount; c++) {
+            if (inCorridor[c]) frontier[size++] = c;
+        }
+        int[] next = new int[cityCount];
+        for (int step = 0; step < WIDTH && size > 0; step++) {
+            int nextSize = 0;
+            for (int i = 0; i < size; i++) {
+                int c = frontier[i];
+                for (int k = neighborStart[c]; k < neighborStart[c + 1]; k++) {
+                    int v = neighbor[k];
+                    if (!inCorridor[v]) {
+                        inCorridor[v] = true;
+                        next[nextSize++] = v;
+                    }
+                }
+            }
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+            size = nextSize;
+        }
+    }
+
+    /**
+     * Vraća broj gradova.
+     *
+     * @return Broj gradova.
+     */
+    int cityCount() { return cityCount; }
+
+    /**
+     * Vraća broj prečica dodatih pri kontrakciji.
+     *
+     * @return Broj prečica.
+     */
+    int shortcutCount() { return arcFrom.length - originalArcs; }
+
+    /**
+     * Stanje kontrakcije: veze (originalne i prečice) i liste ulaznih i izlaznih veza po
+     * gradu, iz kojih se kontrahovani gradovi ne brišu nego preskaču.
+     */
+    private static final class Builder {
+        private final int cityCount;
+        private int[] from;
+        private int[] to;
+        private int[] weight;
+        private int[] first;
+        private int[] second;
+        private int count;
+        private final int[][] out;
+        private final int[][] in;
+        private final int[] outSize;
+        private final int[] inSize;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbors;
+        private final int[] distances;
+        private final int[] touched;
+        private final LongHeap heap = new LongHeap(64);
+
+        /**
+         * Kreira stanje nad originalnim vezama.
+         *
+         * @param cityCount Broj gradova.
+         * @param from Polazni grad po vezi.
+         * @param to Ciljni grad po vezi.
+         * @param weight Težina po vezi.
+         */
+        Builder(int cityCount, int[] from, int[] to, int[] weight) {
+            this.cityCount = cityCount;
+            int capacity = Math.max(16, 2 * from.length);
+            this.from = Arrays.copyOf(from, capacity);
+            this.to = Arrays.copyOf(to, capacity);
+            this.weight = Arrays.copyOf(weight, capacity);
+            this.first = new int[capacity];
+            this.second = new int[capacity];
+            Arrays.fill(first, -1);
+            Arrays.fill(second, -1);
+            this.count = from.length;
+            out = new int[cityCount][4];
+            in = new int[cityCount][4];
+            outSize = new int[cityCount];
+            inSize = new int[cityCount];
+            contracted = new boolean[cityCount];
+            contractedNeighbors = new int[cityCount];
+            distances = new int[cityCount];
+            touched = new int[cityCount];
+            Arrays.fill(distances, INFINITY);
+            for (int a = 0; a < count; a++) {
+                attach(a);
+            }
+        }
+
+        /**
+         * Kontrahuje sve gradove redom po prioritetu, uz lijeno ažuriranje prioriteta: grad
+         * skinut sa vrha se kontrahuje samo ako mu prioritet nije porastao.
+         *
+         * @return Rang po gradu.
+         */
+        int[] contractAll() {
+            LongHeap queue = new LongHeap(cityCount);
+            for (int c = 0; c < cityCount; c++) {
+                queue.push(((long) (priority(c) + PRIORITY_OFFSET) << 32) | c);
+            }
+            int[] rank = new int[cityCount];
+            int next = 0;
+            while (!queue.isEmpty()) {
+                long top = queue.pop();
+                int c = (int) top;
+                int priority = priority(c) + PRIORITY_OFFSET;
+                if (priority > (int) (top >>> 32)) {
+                    queue.push(((long) priority << 32) | c);
+                    continue;
+                }
+                contract(c, false);
+                contracted[c] = true;
+                rank[c] = next++;
+                for (int i = 0; i < outSize[c]; i++) {
+                    contractedNeighbors[to[out[c][i]]]++;
+                }
+                for (int i = 0; i < inSize[c]; i++) {
+                    contractedNeighbors[from[in[c][i]]]++;
+                }
+            }
+            return rank;
+        }
+
+        /**
+         * Računa prioritet grada: razliku ivica uvećanu za broj kontrahovanih susjeda.
+         *
+         * @param c Grad.
+         * @return Prioritet (manji se kontrahuje ranije).
+         */
+        private int priority(int c) {
+            int degree = 0;
+            for (int i = 0; i < outSize[c]; i++) {
+                if (!contracted[to[out[c][i]]]) degree++;
+            }
+            for (int i = 0; i < inSize[c]; i++) {
+                if (!contracted[from[in[c][i]]]) degree++;
+            }
+            return contract(c, true) - degree + contractedNeighbors[c];
+        }
+
+        /**
+         * Kontrahuje grad: za svaki par nekontrahovanog ulaznog i izlaznog susjeda dodaje
+         * prečicu ako ne postoji put koji zaobilazi grad i nije duži.
+         *
+         * @param c Grad.
+         * @param simulate true ako se prečice samo broje, bez dodavanja.
+         * @return Broj potrebnih prečica.
+         */
+        private int contract(int c, boolean simulate) {
+            int shortcuts = 0;
+            int inCount = inSize[c];
+            int outCount = outSize[c];
+            for (int i = 0; i < inCount; i++) {
+                int incoming = in[c][i];
+                int u = from[incoming];
+                if (contracted[u]) continue;
+                int limit = -1;
+                for (int j = 0; j < outCount; j++) {
+                    int outgoing = out[c][j];
+                    int w = to[outgoing];
+                    if (contracted[w] || w == u) continue;
+                    limit = Math.max(limit, weight[incoming] + weight[outgoing]);
+                }
+                if (limit < 0) continue;
+                int touchedCount = witness(u, c, limit);
+                for (int j = 0; j < outCount; j++) {
+                    int outgoing = out[c][j];
+                    int w = to[outgoing];
+                    if (contracted[w] || w == u) continue;
+                    int via = weight[incoming] + weight[outgoing];
+                    if (distances[w] > via) {
+                        shortcuts++;
+                        if (!simulate) link(u, w, via, incoming, outgoing);
+                    }
+                }
+                for (int k = 0; k < touchedCount; k++) {
+                    distances[touched[k]] = INFINITY;
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Lokalna Dijkstrina pretraga od grada kroz nekontrahovane gradove, bez datog grada,
+         * do rastojanja {@code limit} ili {@value #WITNESS_LIMIT} obrađenih gradova.
+         *
+         * @param source Početni grad.
+         * @param skipped Grad koji se zaobilazi.
+         * @param limit Najveće rastojanje koje se traži.
+         * @return Broj gradova čija su rastojanja postavljena; pozivalac ih vraća na beskonačno.
+         */
+        private int witness(int source, int skipped, int limit) {
+            heap.clear();
+            int touchedCount = 0;
+            distances[source] = 0;
+            touched[touchedCount++] = source;
+            heap.push(source);
+            int settled = 0;
+            while (!heap.isEmpty() && settled < WITNESS_LIMIT) {
+                long top = heap.pop();
+                int u = (int) top;
+                int distance = (int) (top >>> 32);
+                if (distance > distances[u]) continue;
+                if (distance > limit) break;
+                settled++;
+                for (int i = 0; i < outSize[u]; i++) {
+                    int a = out[u][i];
+                    int v = to[a];
+                    if (v == skipped || contracted[v]) continue;
+                    int candidate = distance + weight[a];
+                    if (candidate < distances[v]) {
+                        if (distances[v] == INFINITY) touched[touchedCount++] = v;
+                        distances[v] = candidate;
+                        heap.push(((long) candidate << 32) | v);
+                    }
+                }
+            }
+            return touchedCount;
+        }
+
+        /**
+         * Dodaje prečicu, ili skraćuje postojeću vezu između istih gradova.
+         *
+         * @param u Polazni grad.
+         * @param w Ciljni grad.
+         * @param length Težina prečice.
+         * @param firstArc Veza do kontrahovanog grada.
+         * @param secondArc Veza od kontrahovanog grada.
+         */
+        private void link(int u, int w, int length, int firstArc, int secondArc) {
+            for (int i = 0; i < outSize[u]; i++) {
+                int a = out[u][i];
+                if (to[a] == w) {
+                    if (weight[a] > length) {
+                        weight[a] = length;
+                        first[a] = firstArc;
+                        second[a] = secondArc;
+                    }
+                    return;
+                }
+            }
+            if (count == from.length) {
+                int capacity = 2 * count;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                first = Arrays.copyOf(first, capacity);
+                second = Arrays.copyOf(second, capacity);
+            }
+            from[count] = u;
+            to[count] = w;
+            weight[count] = length;
+            first[count] = firstArc;
+            second[count] = secondArc;
+            attach(count++);
+        }
+
+        /**
+         * Dodaje vezu u liste izlaznih i ulaznih veza njenih gradova.
+         *
+         * @param a Veza.
+         */
+        private void attach(int a) {
+            int u = from[a];
+            int w = to[a];
+            if (outSize[u] == out[u].length) out[u] = Arrays.copyOf(out[u], 2 * outSize[u]);
+            out[u][outSize[u]++] = a;
+            if (inSize[w] == in[w].length) in[w] = Arrays.copyOf(in[w], 2 * inSize[w]);
+            in[w][inSize[w]++] = a;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package main.transport;
+
+import main.model.City;
+import main.model.CompactGraph;
+import main.model.Edge;
+
+import java.util.*;
+
+/**
+ * Pretraga ruta po najranijem dolasku pomoću Connection Scan algoritma (CSA).
+ * Svi polasci mreže čitaju se redom po vremenu polaska, minut po minut dana
+ * (vidi {@link CompactGraph#connection(int, int)}), pa se odgovor dobija jednim
+ * linearnim prolazom kroz polaske.
+ * Pošto se red vožnje ponavlja svakog dana, niz se obilazi dan za danom
+ * sve dok se dolazak u krajnji grad ne može više poboljšati.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class ConnectionScan implements RoutingEngine {
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int DAY = 1440;
+
+    private final CompactGraph graph;
+
+    /**
+     * Kreira CSA pretragu nad kompaktnim grafom mreže.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     */
+    public ConnectionScan(CompactGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Pronalazi rutu sa najranijim dolaskom između dva grada. CSA rješava samo
+     * kriterijum vremena.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije ({@link StandardCriterion#TIME}).
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @return Lista sa jednom rutom, ili prazna lista ako ruta ne postoji.
+     * @throws IllegalArgumentException Ako kriterijum nije podržan.
+     */
+    @Override
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime) {
+        if (!supports(criterion)) {
+            throw new IllegalArgumentException("Nepodržan kriterijum: " + criterion.getName());
+        }
+        return findRoutes(startCity, endCity, startTime);
+    }
+
+    /**
+     * Provjerava da li je kriterijum kriterijum vremena, jedini koji CSA podržava.
+     *
+     * @param criterion Kriterijum optimizacije.
+     * @return true za {@link StandardCriterion#TIME}.
+     */
+    @Override
+    public boolean supports(Criterion criterion) {
+        return criterion == StandardCriterion.TIME;
+    }
+
+    /**
+     * Pronalazi rutu sa najranijim dolaskom između dva grada.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @return Lista sa jednom rutom, ili prazna lista ako ruta ne postoji.
+     */
+    public List<Route> findRoutes(City startCity, City endCity, int startTime) {
+        if (startCity.equals(endCity) || graph.edgeCount() == 0) {
+            return Collections.emptyList();
+        }
+        int startBus = startCity.getBusStation().getId();
+        int startTrain = startCity.getTrainStation().getId();
+        int endBus = endCity.getBusStation().getId();
+        int endTrain = endCity.getTrainStation().getId();
+
+        int n = graph.stationCount();
+        int[] ready = new int[n];
+        int[] arrival = new int[n];
+        int[] readyEdge = new int[n];
+        int[] arrivalEdge = new int[n];
+        boolean[] viaTransfer = new boolean[n];
+        int bestArrival = scan(startBus, startTrain, startTime, endBus, endTrain,
+                ready, arrival, readyEdge, arrivalEdge, viaTransfer);
+
+        if (bestArrival == INFINITY) {
+            return Collections.emptyList();
+        }
+
+        int target = arrival[endBus] <= arrival[endTrain] ? endBus : endTrain;
+        List<Edge> edges = new ArrayList<>();
+        edges.add(graph.toEdge(arrivalEdge[target]));
+        int totalPrice = graph.price(arrivalEdge[target]);
+        int current = graph.source(arrivalEdge[target]);
+        while (true) {
+            if (viaTransfer[current]) {
+                int other = graph.partner(current);
+                edges.add(graph.toTransferEdge(other));
+                totalPrice += CompactGraph.TRANSFER_PRICE;
+                current = other;
+            } else if (readyEdge[current] >= 0) {
+                edges.add(graph.toEdge(readyEdge[current]));
+                totalPrice += graph.price(readyEdge[current]);
+                current = graph.source(readyEdge[current]);
+            } else {
+                break;
+            }
+        }
+        Collections.reverse(edges);
+
+        Route route = new Route(edges, bestArrival - startTime, totalPrice, edges.size(), startTime);
+        return Collections.singletonList(route);
+    }
+
+    /**
+     * Jednim prolazom kroz polaske računa najranije vrijeme dolaska i spremnosti za
+     * dalje putovanje (dolazak uvećan za minimalno vrijeme transfera) za stanice mreže.
+     * Ako je zadat krajnji grad, prolaz staje čim se dolazak u njega ne može poboljšati;
+     * inače se računaju vremena do svih stanica.
+     *
+     * @param startBus Autobuska stanica početnog grada.
+     * @param startTrain Železnička stanica početnog grada.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @param endBus Autobuska stanica krajnjeg grada, ili -1 za pretragu do svih stanica.
+     * @param endTrain Železnička stanica krajnjeg grada, ili -1 za pretragu do svih stanica.
+     * @param ready Izlaz: vrijeme spremnosti po stanici.
+     * @param arrival Izlaz: vrijeme dolaska po stanici.
+     * @param readyEdge Izlaz: polazak koji daje vrijeme spremnosti, ili -1.
+     * @param arrivalEdge Izlaz: polazak koji daje vrijeme dolaska, ili -1.
+     * @param viaTransfer Izlaz: da li je stanica dostignuta transferom iz partnerske stanice.
+     * @return Najranije vrijeme dolaska u krajnji grad, ili {@link Integer#MAX_VALUE}.
+     */
+    int scan(int startBus, int startTrain, int startTime, int endBus, int endTrain,
+             int[] ready, int[] arrival, int[] readyEdge, int[] arrivalEdge, boolean[] viaTransfer) {
+        Arrays.fill(ready, INFINITY);
+        Arrays.fill(arrival, INFINITY);
+        Arrays.fill(readyEdge, -1);
+        Arrays.fill(arrivalEdge, -1);
+        Arrays.fill(viaTransfer, false);
+        ready[startBus] = startTime;
+        ready[startTrain] = startTime;
+        if (graph.edgeCount() == 0) {
+            return INFINITY;
+        }
+        int lastImprovement = startTime;
+        int bestArrival = INFINITY;
+        long scanned = 0;
+        long relaxed = 0;
+
+        for (int departure = startTime; departure < bestArrival && departure <= lastImprovement + DAY; departure++) {
+            int minute = departure % DAY;
+            for (int c = 0, count = graph.connectionCount(minute); c < count; c++) {
+                if ((++scanned & 4095) == 0) RoutingEngine.checkCancelled();
+                int e = graph.connection(minute, c);
+                int from = graph.source(e);
+                if (ready[from] <= departure) {
+                    relaxed++;
+                    int to = graph.target(e);
+                    int arrivalTime = departure + graph.duration(e);
+                    int readyTime = arrivalTime + graph.minTransferTime(e);
+
+                    if (arrivalTime < arrival[to]) {
+                        arrival[to] = arrivalTime;
+                        arrivalEdge[to] = e;
+                        if ((to == endBus || to == endTrain) && arrivalTime < bestArrival) {
+                            bestArrival = arrivalTime;
+                        }
+                    }
+                    if (readyTime < ready[to]) {
+                        ready[to] = readyTime;
+                        readyEdge[to] = e;
+                        viaTransfer[to] = false;
+                        lastImprovement = Math.max(lastImprovement, readyTime);
+
+                        int other = graph.partner(to);
+                        if (readyTime + CompactGraph.TRANSFER_TIME < ready[other]) {
+                            ready[other] = readyTime + CompactGraph.TRANSFER_TIME;
+                            viaTransfer[other] = true;
+                            lastImprovement = Math.max(lastImprovement, ready[other]);
+                        }
+                    }
+                }
+            }
+        }
+        SearchCounters.report(scanned, relaxed, 0, 0);
+        return bestArrival;
+    }
+}
@@ -0,0 +1,206 @@
+package main.transport;
+
+import main.model.City;
+import main.model.CompactGraph;
+import main.util.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A* pretraga ({@link AStarSearch}) ograničena na koridor gradova između početnog i krajnjeg
+ * grada, koji određuje hijerarhija kontrakcije nad statičkim grafom gradova
+ * ({@link CityHierarchy}).
+ * <p>
+ * Za udaljene parove gradova pretraga nad cijelom mrežom obradi veći dio stanica prije nego
+ * što stigne do cilja; ovdje se razmatraju samo stanice gradova u koridoru. Koridor sadrži
+ * najkraći statički put, proširen za susjedne gradove, pa ruta van koridora (npr.
+ * zaobilaznica kojom se izbjegne dugo čekanje) može biti bolja od pronađene: rute su
+ * približne. Ako u koridoru nema rute, pretraga se ponavlja nad cijelom mrežom. Koridor se
+ * određuje po trajanju veza, a najjeftinija ruta često ide van njega, pa se za kriterijum
+ * cijene uvijek traži nad cijelom mrežom.
+ * <p>
+ * Hijerarhija se računa pri kreiranju, a upisuje se i učitava zajedno sa binarnim snimkom
+ * mreže (vidi {@link Network#writeSnapshot} i {@link Network#loadFromSnapshot}). Izmjena
+ * reda vožnje koja ne mijenja statički graf gradova zadržava hijerarhiju; inače se nova
+ * hijerarhija gradi u pozadinskoj niti ({@link Preprocessing}), a do tada se koridor
+ * određuje prethodnom hijerarhijom. Ruta kroz takav koridor je ruta novog grafa, samo
+ * koridor možda više nije najkraći statički put, pa je približnost ista kao i inače.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class CorridorSearch implements RoutingEngine {
+    private static final Logger LOG = Logger.getLogger(CorridorSearch.class);
+
+    private final CompactGraph graph;
+    private final CompletableFuture<CityHierarchy> hierarchy;
+    private final CityHierarchy previous;
+    private final AtomicReference<CompactGraph> latest;
+    private final AStarSearch search;
+
+    /**
+     * Kreira pretragu i gradi hijerarhiju gradova nad datim grafom.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     */
+    public CorridorSearch(CompactGraph graph) {
+        this(graph, build(graph));
+    }
+
+    /**
+     * Kreira pretragu sa već izgrađenom hijerarhijom gradova.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     * @param hierarchy Hijerarhija gradova izgrađena nad grafom.
+     */
+    private CorridorSearch(CompactGraph graph, CityHierarchy hierarchy) {
+        this(graph, CompletableFuture.completedFuture(hierarchy), null, new AtomicReference<>(graph),
+                new AStarSearch(graph));
+    }
+
+    /**
+     * Kreira pretragu od hijerarhije gradova i unutrašnje A* pretrage.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     * @param hierarchy Hijerarhija gradova za graf, izgrađena ili u izgradnji.
+     * @param previous Hijerarhija koja određuje koridor dok se hijerarhija gradi, ili null.
+     * @param latest Najnoviji graf među grafovima nastalim izmjenama istog grafa.
+     * @param search A* pretraga nad istim grafom.
+     */
+    private CorridorSearch(CompactGraph graph, CompletableFuture<CityHierarchy> hierarchy, CityHierarchy previous,
+                           AtomicReference<CompactGraph> latest, AStarSearch search) {
+        this.graph = graph;
+        this.hierarchy = hierarchy;
+        this.previous = previous;
+        this.latest = latest;
+        this.search = search;
+    }
+
+    /**
+     * Kreira pretragu nad grafom sa izmijenjenim polascima datih stanica. Hijerarhija
+     * gradova se zadržava ako izmjena ne mijenja statički graf gradova (vidi
+     * {@link CityHierarchy#update}), a unutrašnja pretraga zadržava donje granice ako i
+     * dalje važe (vidi {@link AStarSearch#update}); inače se računaju iznova u pozadinskoj
+     * niti. Izgradnja se preskače ako do njenog početka stigne novija izmjena.
+     *
+     * @param graph Novi graf polazaka.
+     * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+     * @return Pretraga nad novim grafom.
+     */
+    CorridorSearch update(CompactGraph graph, int[] changedStations) {
+        latest.set(graph);
+        AStarSearch updatedSearch = search.update(graph, changedStations);
+        CityHierarchy built = Preprocessing.now(hierarchy);
+        CityHierarchy kept = built == null ? null : built.update(graph, changedStations);
+        if (kept != null) {
+            return new CorridorSearch(graph, CompletableFuture.completedFuture(kept), null, latest, updatedSearch);
+        }
+        CompletableFuture<CityHierarchy> rebuilt = Preprocessing.inBackground("hijerarhija gradova",
+                () -> latest.get() == graph ? CityHierarchy.build(graph) : null);
+        return new CorridorSearch(graph, rebuilt, current(), latest, updatedSearch);
+    }
+
+    /**
+     * Vraća hijerarhiju koja određuje koridor: hijerarhiju grafa ako je izgrađena, a
+     * inače prethodnu.
+     *
+     * @return Hijerarhija gradova, ili null ako nijedna nije dostupna.
+     */
+    private CityHierarchy current() {
+        CityHierarchy built = Preprocessing.now(hierarchy);
+        return built != null ? built : previous;
+    }
+
+    /**
+     * Gradi hijerarhiju gradova i bilježi trajanje predobrade.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     * @return Hijerarhija gradova.
+     */
+    private static CityHierarchy build(CompactGraph graph) {
+        long start = System.nanoTime();
+        CityHierarchy hierarchy = CityHierarchy.build(graph);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        LOG.info(() -> "Hijerarhija gradova izgrađena: " + hierarchy.cityCount() + " gradova, "
+                + hierarchy.shortcutCount() + " prečica za " + millis + " ms");
+        return hierarchy;
+    }
+
+    /**
+     * Kreira pretragu nad grafom otvorenim iz binarnog snimka. Hijerarhija se učitava iz
+     * fajla pored snimka; ako fajl ne postoji ili ne odgovara snimku, gradi se iznova.
+     *
+     * @param graph Kompaktni graf otvorenog snimka.
+     * @param snapshotPath Putanja do fajla snimka.
+     * @return Pretraga.
+     */
+    static CorridorSearch open(CompactGraph graph, Path snapshotPath) {
+        Path path = CityHierarchy.pathFor(snapshotPath);
+        if (Files.exists(path)) {
+            try {
+                CityHierarchy hierarchy = CityHierarchy.read(path, graph);
+                LOG.info(() -> "Hijerarhija gradova učitana iz " + path);
+                return new CorridorSearch(graph, hierarchy);
+            } catch (IOException e) {
+                LOG.warn("Hijerarhija gradova se ne može učitati, računa se iznova: " + e.getMessage());
+            }
+        }
+        return new CorridorSearch(graph);
+    }
+
+    /**
+     * Upisuje hijerarhiju gradova pored binarnog snimka mreže. Ako se hijerarhija gradi u
+     * pozadini, čeka se da bude izgrađena, jer se uz snimak upisuje samo hijerarhija grafa.
+     *
+     * @param snapshotPath Putanja do fajla snimka.
+     * @throws IOException Ako dođe do greške pri pisanju.
+     */
+    @Override
+    public void writePreprocessing(Path snapshotPath) throws IOException {
+        CityHierarchy built = hierarchy.exceptionally(error -> null).join();
+        (built != null ? built : build(graph)).writeTo(CityHierarchy.pathFor(snapshotPath));
+    }
+
+    /**
+     * Pronalazi do 5 najboljih ruta kroz koridor između dva grada.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @return Lista ruta, od najbolje prema kriterijumu.
+     */
+    @Override
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime) {
+        return findRoutes(startCity, endCity, criterion, startTime, route -> { });
+    }
+
+    /**
+     * Pronalazi do 5 najboljih ruta kroz koridor između dva grada i javlja svaku čim je
+     * pronađena. Ako u koridoru nema rute, ili je kriterijum cijena, traži se nad cijelom mrežom.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @param listener Prima pronađene rute.
+     * @return Lista ruta, od najbolje prema kriterijumu.
+     */
+    @Override
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime,
+                                  RouteListener listener) {
+        CityHierarchy current = current();
+        boolean[] corridor = startCity.equals(endCity) || criterion == StandardCriterion.PRICE || current == null
+                ? null : current.corridor(startCity.getId(), endCity.getId());
+        List<Route> routes = search.findRoutes(startCity, endCity, criterion, startTime, listener, corridor);
+        if (routes.isEmpty() && corridor != null) {
+            routes = search.findRoutes(startCity, endCity, criterion, startTime, listener, null);
+        }
+        return routes;
+    }
+}
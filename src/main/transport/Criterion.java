@@ -0,0 +1,84 @@
+package main.transport;
+
+/**
+ * Kriterijum optimizacije ruta: funkcija troška nad trajanjem, cijenom i brojem skokova
+ * rute, provjera dominacije između dvije (djelimične) rute i prioritet djelimične rute u
+ * pretrazi po najboljem čvoru.
+ * <p>
+ * Trošak mora biti neopadajući po svakom argumentu: ruta koja ni po jednoj veličini nije
+ * lošija nema veći trošak. Pretrage sa donjim granicama ({@link AStarSearch}) tada
+ * dobijaju dopustivu procjenu kao trošak dosadašnjih veličina uvećanih za granice.
+ * Standardni kriterijumi su u {@link StandardCriterion}.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public interface Criterion {
+
+    /**
+     * Vraća ime kriterijuma.
+     *
+     * @return Ime kriterijuma.
+     */
+    String getName();
+
+    /**
+     * Računa trošak rute; manji trošak je bolja ruta.
+     *
+     * @param time Trajanje u minutama.
+     * @param price Cijena.
+     * @param hops Broj skokova (ivica).
+     * @return Trošak.
+     */
+    long cost(int time, int price, int hops);
+
+    /**
+     * Provjerava da li je prva djelimična ruta do iste stanice bar jednako dobra kao
+     * druga za svaki nastavak, pa se druga može odbaciti ({@link Raptor} tako odbacuje
+     * oznake). Podrazumijevano je to Pareto dominacija: prva ruta nije lošija ni po jednoj
+     * veličini. Manji trošak nije dovoljan, jer nastavak može promijeniti poredak (npr.
+     * ranija a skuplja ruta može propustiti polazak koji kasnija uhvati); kriterijum koji
+     * zna da mu trošak ne zavisi od neke veličine može to nadjačati.
+     *
+     * @param timeA Trajanje prve rute.
+     * @param priceA Cijena prve rute.
+     * @param hopsA Broj skokova prve rute.
+     * @param timeB Trajanje druge rute.
+     * @param priceB Cijena druge rute.
+     * @param hopsB Broj skokova druge rute.
+     * @return true ako prva ruta dominira nad drugom.
+     */
+    default boolean dominates(int timeA, int priceA, int hopsA, int timeB, int priceB, int hopsB) {
+        return timeA <= timeB && priceA <= priceB && hopsA <= hopsB;
+    }
+
+    /**
+     * Vraća prioritet djelimične rute u pretrazi po najboljem čvoru ({@link BestFirstSearch});
+     * ruta sa manjim prioritetom se obrađuje prije. Podrazumijevano je to trošak vrijednosti
+     * uvećanih za kaznu udaljenosti od krajnjeg grada i za transfer.
+     *
+     * @param time Trajanje do sada u minutama.
+     * @param price Cijena do sada.
+     * @param hops Broj skokova do sada.
+     * @param distance Manhattan udaljenost grada od krajnjeg grada.
+     * @param transfer Da li je posljednji korak transfer između stanica istog grada.
+     * @return Prioritet.
+     */
+    default long priority(int time, int price, int hops, int distance, boolean transfer) {
+        int penalty = transfer ? StandardCriterion.TRANSFER_PENALTY : 0;
+        return cost(time + distance * StandardCriterion.DISTANCE_TIME + penalty,
+                price + distance * StandardCriterion.DISTANCE_PRICE + penalty, hops + distance);
+    }
+
+    /**
+     * Poredi dvije rute po trošku.
+     *
+     * @param a Prva ruta.
+     * @param b Druga ruta.
+     * @return Negativan broj ako je prva ruta bolja, pozitivan ako je druga, inače 0.
+     */
+    default int compare(Route a, Route b) {
+        return Long.compare(cost(a.getTotalTime(), a.getTotalPrice(), a.getTransferCount()),
+                cost(b.getTotalTime(), b.getTotalPrice(), b.getTransferCount()));
+    }
+}
@@ -0,0 +1,270 @@
+package main.transport;
+
+import main.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Donje granice preostalog vremena, cijene i broja skokova do krajnje stanice,
+ * izračunate unaprijed metodom orijentira (ALT: A*, orijentiri i nejednakost trougla).
+ * <p>
+ * Granice se računaju nad statičkim grafom stanica u kojem je težina veze između dvije
+ * stanice najmanje trajanje, odnosno najmanja cijena, svih polazaka na toj vezi, a
+ * transfer između stanica istog grada košta {@link CompactGraph#TRANSFER_TIME} minuta i
+ * {@link CompactGraph#TRANSFER_PRICE} novčanih jedinica. Stvarna ruta mora čekati polazak i
+ * platiti kartu izabranog polaska, pa je svaka granica dopustiva. Za nekoliko orijentira
+ * izabranih tako da budu što udaljeniji jedan od drugog čuvaju se rastojanja od orijentira
+ * do svake stanice i od svake stanice do orijentira; granica za par stanica je najveća
+ * razlika koju daje nejednakost trougla, pa je i konzistentna.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+final class LandmarkBounds {
+    /** Metrika trajanja putovanja u minutama. */
+    static final int TIME = 0;
+    /** Metrika cijene. */
+    static final int PRICE = 1;
+    /** Metrika broja skokova (ivica) na ruti. */
+    static final int HOPS = 2;
+    /** Granica za stanicu iz koje krajnja stanica nije dostižna. */
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int METRICS = 3;
+    private static final int MAX_LANDMARKS = 8;
+
+    private final int stationCount;
+    private final int landmarkCount;
+    private final int[][] fromLandmark = new int[METRICS][];
+    private final int[][] toLandmark = new int[METRICS][];
+
+    private final int[] linkStart;
+    private final int[] linkTarget;
+    private final int[][] linkWeight = new int[METRICS][];
+    private final int[] reverseStart;
+    private final int[] reverseTarget;
+    private final int[][] reverseWeight = new int[METRICS][];
+
+    /**
+     * Gradi statički graf veza, bira orijentire i računa rastojanja od i do orijentira.
+     *
+     * @param graph Kompaktni graf mreže.
+     */
+    LandmarkBounds(CompactGraph graph) {
+        stationCount = graph.stationCount();
+        int n = stationCount;
+
+        int capacity = graph.edgeCount() + n;
+        int[] targets = new int[capacity];
+        int[] times = new int[capacity];
+        int[] prices = new int[capacity];
+        int[] slot = new int[n];
+        int[] owner = new int[n];
+        Arrays.fill(owner, -1);
+        linkStart = new int[n + 1];
+        int links = 0;
+        for (int u = 0; u < n; u++) {
+            linkStart[u] = links;
+            int partner = graph.partner(u);
+            owner[partner] = u;
+            slot[partner] = links;
+            targets[links] = partner;
+            times[links] = CompactGraph.TRANSFER_TIME;
+            prices[links] = CompactGraph.TRANSFER_PRICE;
+            links++;
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int v = graph.target(e);
+                if (owner[v] == u) {
+                    int link = slot[v];
+                    times[link] = Math.min(times[link], graph.duration(e));
+                    prices[link] = Math.min(prices[link], graph.price(e));
+                } else {
+                    owner[v] = u;
+                    slot[v] = links;
+                    targets[links] = v;
+                    times[links] = graph.duration(e);
+                    prices[links] = graph.price(e);
+                    links++;
+                }
+            }
+        }
+        linkStart[n] = links;
+        linkTarget = Arrays.copyOf(targets, links);
+        linkWeight[TIME] = Arrays.copyOf(times, links);
+        linkWeight[PRICE] = Arrays.copyOf(prices, links);
+        linkWeight[HOPS] = new int[links];
+        Arrays.fill(linkWeight[HOPS], 1);
+
+        reverseStart = new int[n + 1];
+        for (int i = 0; i < links; i++) {
+            reverseStart[linkTarget[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            reverseStart[v + 1] += reverseStart[v];
+        }
+        reverseTarget = new int[links];
+        for (int metric = 0; metric < METRICS; metric++) {
+            reverseWeight[metric] = new int[links];
+        }
+        int[] fill = Arrays.copyOf(reverseStart, n);
+        for (int u = 0; u < n; u++) {
+            for (int i = linkStart[u]; i < linkStart[u + 1]; i++) {
+                int position = fill[linkTarget[i]]++;
+                reverseTarget[position] = u;
+                for (int metric = 0; metric < METRICS; metric++) {
+                    reverseWeight[metric][position] = linkWeight[metric][i];
+                }
+            }
+        }
+
+        landmarkCount = n == 0 ? 0 : Math.min(MAX_LANDMARKS, n);
+        for (int metric = 0; metric < METRICS; metric++) {
+            fromLandmark[metric] = new int[landmarkCount * n];
+            toLandmark[metric] = new int[landmarkCount * n];
+        }
+        selectAndMeasure();
+    }
+
+    /**
+     * Provjerava da li granice važe i za graf sa izmijenjenim polascima datih stanica:
+     * svaki polazak tih stanica mora ići vezom koja postoji u statičkom grafu i ne smije
+     * biti kraći ni jeftiniji od nje. Tada rastojanja u novom statičkom grafu nisu manja
+     * od starih, pa granice ostaju dopustive i konzistentne.
+     *
+     * @param graph Novi graf polazaka sa istim stanicama.
+     * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+     * @return true ako se granice mogu zadržati.
+     */
+    boolean admits(CompactGraph graph, int[] changedStations) {
+        if (graph.stationCount() != stationCount) return false;
+        for (int u : changedStations) {
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int v = graph.target(e);
+                int link = linkStart[u];
+                while (link < linkStart[u + 1] && linkTarget[link] != v) {
+                    link++;
+                }
+                if (link == linkStart[u + 1] || linkWeight[TIME][link] > graph.duration(e)
+                        || linkWeight[PRICE][link] > graph.price(e)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vraća donju granicu date metrike od stanice do bliže od dvije krajnje stanice.
+     *
+     * @param metric Metrika ({@link #TIME}, {@link #PRICE} ili {@link #HOPS}).
+     * @param station Stanica.
+     * @param endBus Autobuska stanica krajnjeg grada.
+     * @param endTrain Železnička stanica krajnjeg grada.
+     * @return Donja granica, ili {@link #UNREACHABLE} ako krajnji grad nije dostižan.
+     */
+    int bound(int metric, int station, int endBus, int endTrain) {
+        return Math.min(bound(metric, station, endBus), bound(metric, station, endTrain));
+    }
+
+    /**
+     * Vraća donju granicu date metrike od stanice do krajnje stanice.
+     *
+     * @param metric Metrika ({@link #TIME}, {@link #PRICE} ili {@link #HOPS}).
+     * @param station Stanica.
+     * @param target Krajnja stanica.
+     * @return Donja granica, ili {@link #UNREACHABLE} ako krajnja stanica nije dostižna.
+     */
+    int bound(int metric, int station, int target) {
+        if (station == target) return 0;
+        int[] from = fromLandmark[metric];
+        int[] to = toLandmark[metric];
+        int best = 0;
+        for (int l = 0, base = 0; l < landmarkCount; l++, base += stationCount) {
+            int landmarkToStation = from[base + station];
+            int landmarkToTarget = from[base + target];
+            if (landmarkToStation != INFINITY && landmarkToTarget != INFINITY) {
+                best = Math.max(best, landmarkToTarget - landmarkToStation);
+            }
+            int stationToLandmark = to[base + station];
+            int targetToLandmark = to[base + target];
+            if (stationToLandmark != INFINITY) {
+                if (targetToLandmark == INFINITY) return UNREACHABLE;
+                best = Math.max(best, stationToLandmark - targetToLandmark);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Bira orijentire (svaki sljedeći je stanica najudaljenija po vremenu od već
+     * izabranih) i računa rastojanja od i do njih za sve metrike.
+     */
+    private void selectAndMeasure() {
+        int n = stationCount;
+        if (landmarkCount == 0) return;
+        int[] nearest = new int[n];
+        int[] distances = new int[n];
+        dijkstra(0, linkStart, linkTarget, linkWeight[TIME], distances);
+        int landmark = farthest(distances);
+        Arrays.fill(nearest, INFINITY);
+        for (int l = 0; l < landmarkCount; l++) {
+            int base = l * n;
+            for (int metric = 0; metric < METRICS; metric++) {
+                dijkstra(landmark, linkStart, linkTarget, linkWeight[metric], distances);
+                System.arraycopy(distances, 0, fromLandmark[metric], base, n);
+                dijkstra(landmark, reverseStart, reverseTarget, reverseWeight[metric], distances);
+                System.arraycopy(distances, 0, toLandmark[metric], base, n);
+            }
+            for (int v = 0; v < n; v++) {
+                nearest[v] = Math.min(nearest[v], fromLandmark[TIME][base + v]);
+            }
+            nearest[landmark] = -1;
+            landmark = farthest(nearest);
+        }
+    }
+
+    /**
+     * Vraća stanicu sa najvećim rastojanjem (nedostižne stanice su najudaljenije).
+     *
+     * @param distances Rastojanja po stanici.
+     * @return Identifikator stanice.
+     */
+    private static int farthest(int[] distances) {
+        int best = 0;
+        for (int v = 1; v < distances.length; v++) {
+            if (distances[v] > distances[best]) best = v;
+        }
+        return best;
+    }
+
+    /**
+     * Dijkstrin algoritam nad grafom veza u CSR obliku.
+     *
+     * @param source Početna stanica.
+     * @param start Početak veza po stanici.
+     * @param target Ciljna stanica po vezi.
+     * @param weight Težina po vezi.
+     * @param distances Izlaz: rastojanje po stanici, {@code Integer.MAX_VALUE} za nedostižne.
+     */
+    private static void dijkstra(int source, int[] start, int[] target, int[] weight, int[] distances) {
+        Arrays.fill(distances, INFINITY);
+        LongHeap heap = new LongHeap(distances.length);
+        distances[source] = 0;
+        heap.push(source);
+        while (!heap.isEmpty()) {
+            long top = heap.pop();
+            int u = (int) top;
+            int distance = (int) (top >>> 32);
+            if (distance > distances[u]) continue;
+            for (int i = start[u]; i < start[u + 1]; i++) {
+                int v = target[i];
+                int candidate = distance + weight[i];
+                if (candidate < distances[v]) {
+                    distances[v] = candidate;
+                    heap.push(((long) candidate << 32) | v);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package main.transport;
+
+import java.util.Arrays;
+
+/**
+ * Binarni min-hip nad vrijednostima tipa long. Pretrage u njega stavljaju ključ u
+ * višim i identifikator stanice u nižim bitovima, pa je najmanja vrijednost ujedno
+ * stanica sa najmanjim ključem.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+final class LongHeap {
+    private long[] values;
+    private int size;
+
+    /**
+     * Kreira prazan hip.
+     *
+     * @param capacity Početni kapacitet.
+     */
+    LongHeap(int capacity) {
+        values = new long[Math.max(4, capacity)];
+    }
+
+    /**
+     * Provjerava da li je hip prazan.
+     *
+     * @return true ako hip nema vrijednosti.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Vraća broj vrijednosti u hipu.
+     *
+     * @return Broj vrijednosti.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Briše sve vrijednosti iz hipa.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Dodaje vrijednost u hip.
+     *
+     * @param value Vrijednost.
+     */
+    void push(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (values[parent] <= value) break;
+            values[i] = values[parent];
+            i = parent;
+        }
+        values[i] = value;
+    }
+
+    /**
+     * Uklanja i vraća najmanju vrijednost.
+     *
+     * @return Najmanja vrijednost u hipu.
+     */
+    long pop() {
+        long top = values[0];
+        long last = values[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && values[child + 1] < values[child]) child++;
+            if (values[child] >= last) break;
+            values[i] = values[child];
+            i = child;
+        }
+        values[i] = last;
+        return top;
+    }
+}
@@ -1,33 +1,49 @@
 package main.transport;
 
 import main.model.*;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import main.util.Logger;
 
-import java.nio.file.Files;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 
 /**
  * Predstavlja transportnu mrežu sa gradovima, stanicama i rutama.
+ * <p>
+ * Učitana mreža je nepromjenljiv {@link NetworkSnapshot}: kompaktni graf i indeksi
+ * polazaka se ne mijenjaju, a svaka pretraga pravi svoje stanje, pa {@link #findRoutes} i
+ * {@link #findParetoRoutes} mogu da se pozivaju istovremeno iz više niti
+ * (vidi {@link BatchRouter}). Ponovno učitavanje gradi novi snimak i tek ga onda atomski
+ * postavlja, pa pretrage ne staju: pretraga koja je već počela završava nad snimkom nad
+ * kojim je počela, a sljedeća vidi novi. Izmjene reda vožnje ({@link #applyDelta}) se
+ * primjenjuju na isti način, bez ponovnog učitavanja cijele mreže.
+ * <p>
+ * Rute traži zamjenljivi algoritam ({@link RoutingEngine}) koji se bira sa
+ * {@link #setEngine}, a rute se porede po objektu kriterijuma ({@link Criterion}).
+ * Rezultati {@link #findRoutes} se keširaju u {@link RouteCache}; keš se briše pri
+ * svakom učitavanju mreže i promjeni algoritma, a nakon izmjene reda vožnje unosi se
+ * zamjenjuju po verziji mreže ({@link #getVersion()}). Svaka izvršena pretraga se mjeri
+ * (brojači algoritma, trajanje, alocirana memorija): mjerenja se upisuju u
+ * {@link RoutingMetrics} i šalju kao JFR događaj {@code main.transport.RouteQuery}.
  *
  * @author Mladen Grbić
  * @version 1.0
  */
 public class Network {
-    private final Map<String, City> cities;
-    private final Map<String, Station> stations;
-    private final Graph graph;
-    private int gridRows;
-    private int gridCols;
+    private static final Logger LOG = Logger.getLogger(Network.class);
+
+    private final Object writeLock = new Object();
+    private volatile NetworkSnapshot snapshot = NetworkSnapshot.empty();
+    private volatile RoutingEngine.Factory engineFactory = StandardEngine.BEST_FIRST;
+    private volatile RouteCache routeCache = new RouteCache();
+    private volatile TravelMatrix travelMatrix;
+    private volatile RoutingMetrics routingMetrics = new RoutingMetrics();
 
     /**
      * Kreira praznu transportnu mrežu.
      */
     public Network() {
-        this.cities = new HashMap<>();
-        this.stations = new HashMap<>();
-        this.graph = new Graph();
     }
 
     /**
@@ -36,7 +52,9 @@ public class Network {
      * @param gridRows Broj redova.
      */
     public void setGridRows(int gridRows) {
-        this.gridRows = gridRows;
+        synchronized (writeLock) {
+            snapshot = snapshot.withGrid(gridRows, snapshot.getGridCols());
+        }
     }
 
     /**
@@ -45,90 +63,216 @@ public class Network {
      * @param gridCols Broj kolona.
      */
     public void setGridCols(int gridCols) {
-        this.gridCols = gridCols;
+        synchronized (writeLock) {
+            snapshot = snapshot.withGrid(snapshot.getGridRows(), gridCols);
+        }
     }
 
     /**
-     * Učitava transportne podatke iz JSON fajla.
+     * Postavlja algoritam koji se koristi za pretragu ruta (npr. {@link StandardEngine#RAPTOR}).
+     * Ako je mreža već učitana, algoritam se odmah kreira nad njenim grafom i postavlja
+     * novim snimkom, pa se algoritmi mogu mijenjati u toku rada.
+     * <p>
+     * Svi algoritmi osim {@link StandardEngine#CORRIDOR} vraćaju optimalne rute za kriterijume
+     * koje podržavaju. {@link StandardEngine#CORRIDOR} pretražuje samo koridor gradova, pa može
+     * vratiti rutu lošiju od optimalne (u mjerenjima na mreži 100×100 oko 20% upita po vremenu,
+     * do 14% duže putovanje); bira se samo kada je brzina važnija od optimalnosti.
      *
-     * @param jsonFilePath Putanja do JSON fajla.
+     * @param engineFactory Pravi algoritam pretrage nad grafom mreže.
      */
-    public void loadFromJson(String jsonFilePath) {
-        try {
-            String jsonString = new String(Files.readAllBytes(Paths.get(jsonFilePath)));
-            JSONObject json = new JSONObject(jsonString);
-
-            JSONArray countryMap = json.getJSONArray("countryMap");
-            this.gridRows = countryMap.length();
-            this.gridCols = countryMap.getJSONArray(0).length();
-            System.out.println("Computed Grid: " + gridRows + "x" + gridCols);
-
-            JSONArray stationsArray = json.getJSONArray("stations");
-            for (int i = 0; i < stationsArray.length(); i++) {
-                JSONObject stationData = stationsArray.getJSONObject(i);
-                String cityName = stationData.getString("city");
-                String busStationName = stationData.getString("busStation");
-                String trainStationName = stationData.getString("trainStation");
-
-                City city = new City(cityName);
-                cities.put(cityName, city);
-                BusStation busStation = new BusStation(busStationName, city);
-                TrainStation trainStation = new TrainStation(trainStationName, city);
-                stations.put(busStationName, busStation);
-                stations.put(trainStationName, trainStation);
-                city.setBusStation(busStation);
-                city.setTrainStation(trainStation);
-
-                Edge transferEdge1 = new Edge(busStation, trainStation, 0, 15, 15, 0, true);
-                Edge transferEdge2 = new Edge(trainStation, busStation, 0, 15, 15, 0, true);
-                graph.addEdge(busStation, transferEdge1);
-                graph.addEdge(trainStation, transferEdge2);
+    public void setEngine(RoutingEngine.Factory engineFactory) {
+        Objects.requireNonNull(engineFactory);
+        synchronized (writeLock) {
+            this.engineFactory = engineFactory;
+            NetworkSnapshot current = snapshot;
+            if (current.isLoaded() && current.getEngineFactory() != engineFactory) {
+                snapshot = current.withEngine(engineFactory);
+                invalidateRouteCache();
             }
+        }
+    }
 
-            JSONArray departuresArray = json.getJSONArray("departures");
-            System.out.println("Number of departures: " + departuresArray.length());
-            for (int i = 0; i < departuresArray.length(); i++) {
-                JSONObject depObj = departuresArray.getJSONObject(i);
-                String fromStationName = depObj.getString("from");
-                String toCityName = depObj.getString("to");
-                String departureTimeStr = depObj.getString("departureTime");
-                int duration = depObj.getInt("duration");
-                int price = depObj.getInt("price");
-                int minTransferTime = depObj.getInt("minTransferTime");
-
-                Station fromStation = stations.get(fromStationName);
-                City toCity = cities.get(toCityName);
-                if (fromStation == null || toCity == null) {
-                    continue;
-                }
-
-                int departureTime = timeToMinutes(departureTimeStr);
-                Departure departure = new Departure(fromStation, toCity, departureTime, duration, price, minTransferTime);
-                fromStation.addDeparture(departure);
-
-                Station toStation = (fromStation instanceof BusStation) ? toCity.getBusStation() : toCity.getTrainStation();
-                Edge edge = new Edge(fromStation, toStation, departureTime, duration, price, minTransferTime, false);
-                graph.addEdge(fromStation, edge);
+    /**
+     * Vraća algoritam koji se koristi za pretragu ruta.
+     *
+     * @return Fabrika algoritma pretrage.
+     */
+    public RoutingEngine.Factory getEngine() {
+        return engineFactory;
+    }
+
+    /**
+     * Postavlja keš rezultata pretrage ruta.
+     *
+     * @param routeCache Keš, ili null da se rute uvijek traže iznova.
+     */
+    public void setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+    }
+
+    /**
+     * Vraća keš rezultata pretrage ruta (npr. za praćenje pogodaka i promašaja).
+     *
+     * @return Keš, ili null ako keširanje nije uključeno.
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Postavlja matricu vremena putovanja koju mreža održava: nakon svake izmjene reda
+     * vožnje ({@link #applyDelta}) matrica se osvježava u pozadinskoj niti, a ponovno
+     * učitavanje mreže je uklanja, jer više ne odgovara mreži.
+     *
+     * @param travelMatrix Matrica izračunata nad tekućim grafom mreže, ili null.
+     * @throws IllegalArgumentException Ako matrica nije izračunata nad tekućim grafom.
+     */
+    public void setTravelMatrix(TravelMatrix travelMatrix) {
+        synchronized (writeLock) {
+            if (travelMatrix != null && travelMatrix.getGraph() != snapshot.getGraph().getCompactGraph()) {
+                throw new IllegalArgumentException("Matrica nije izračunata nad tekućim grafom mreže");
             }
+            this.travelMatrix = travelMatrix;
+        }
+    }
+
+    /**
+     * Vraća matricu vremena putovanja koju mreža održava.
+     *
+     * @return Matrica, ili null ako nije postavljena.
+     */
+    public TravelMatrix getTravelMatrix() {
+        return travelMatrix;
+    }
 
-            System.out.println("Cities loaded: " + cities.size());
-            System.out.println("Stations loaded: " + stations.size());
+    /**
+     * Postavlja registar mjerenja pretraga.
+     *
+     * @param routingMetrics Registar, ili null da se mjerenja ne upisuju (JFR događaj se i dalje šalje).
+     */
+    public void setRoutingMetrics(RoutingMetrics routingMetrics) {
+        this.routingMetrics = routingMetrics;
+    }
+
+    /**
+     * Vraća registar mjerenja pretraga (histogrami i najsporije pretrage).
+     *
+     * @return Registar, ili null ako mjerenja nisu uključena.
+     */
+    public RoutingMetrics getRoutingMetrics() {
+        return routingMetrics;
+    }
+
+    /**
+     * Učitava transportne podatke iz JSON fajla (vidi {@link NetworkSnapshot#fromJson}) i
+     * postavlja ih kao tekuću mrežu. Dok se novi snimak gradi, pretrage rade nad starim.
+     * Ako učitavanje ne uspije, greška se bilježi, a tekuća mreža ostaje nepromijenjena.
+     *
+     * @param jsonFilePath Putanja do JSON fajla.
+     */
+    public void loadFromJson(String jsonFilePath) {
+        try {
+            setSnapshot(NetworkSnapshot.fromJson(jsonFilePath, engineFactory));
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("Greška pri učitavanju mreže iz " + jsonFilePath, e);
         }
     }
 
     /**
-     * Konvertuje vrijeme u formatu "HH:mm" u minute.
+     * Upisuje učitanu mrežu u binarni snimak (gradovi, stanice, polasci sortirani po
+     * vremenu i podaci o transferima), koji se kasnije otvara sa {@link #loadFromSnapshot(String)}.
+     * Ako algoritam pretrage ima predobradu koja se čuva (npr. {@link StandardEngine#CORRIDOR}),
+     * ona se upisuje u fajl pored snimka.
      *
-     * @param time Vrijeme u formatu "HH:mm".
-     * @return Vrijeme u minutama.
+     * @param snapshotPath Putanja do fajla snimka.
+     * @throws IOException Ako dođe do greške pri pisanju.
+     * @throws IllegalStateException Ako mreža nije učitana.
      */
-    private int timeToMinutes(String time) {
-        String[] parts = time.split(":");
-        int hours = Integer.parseInt(parts[0]);
-        int minutes = Integer.parseInt(parts[1]);
-        return hours * 60 + minutes;
+    public void writeSnapshot(String snapshotPath) throws IOException {
+        NetworkSnapshot snapshot = this.snapshot;
+        CompactGraph compact = snapshot.getGraph().getCompactGraph();
+        if (compact == null) {
+            throw new IllegalStateException("Mreža nije učitana");
+        }
+        Path path = Paths.get(snapshotPath);
+        compact.writeTo(path);
+        snapshot.getRoutingEngine().writePreprocessing(path);
+    }
+
+    /**
+     * Učitava mrežu iz binarnog snimka (vidi {@link NetworkSnapshot#fromFile}) i postavlja
+     * je kao tekuću mrežu.
+     *
+     * @param snapshotPath Putanja do fajla snimka.
+     * @throws IOException Ako fajl ne postoji ili nije ispravan snimak.
+     */
+    public void loadFromSnapshot(String snapshotPath) throws IOException {
+        setSnapshot(NetworkSnapshot.fromFile(snapshotPath, engineFactory));
+    }
+
+    /**
+     * Atomski postavlja novi snimak mreže, briše keš ruta i uklanja matricu vremena
+     * putovanja. Snimak se može izgraditi u bilo kojoj niti; ako je u međuvremenu
+     * promijenjen algoritam pretrage, snimak se prilagođava tekućem algoritmu.
+     *
+     * @param next Novi snimak mreže.
+     */
+    public void setSnapshot(NetworkSnapshot next) {
+        Objects.requireNonNull(next);
+        synchronized (writeLock) {
+            snapshot = next.isLoaded() ? next.withEngine(engineFactory) : next;
+            travelMatrix = null;
+            invalidateRouteCache();
+        }
+    }
+
+    /**
+     * Vraća tekući snimak mreže. Pozivalac koji čita više podataka mreže treba da ih čita
+     * iz jednog snimka, da ne pomiješa podatke prije i poslije ponovnog učitavanja.
+     *
+     * @return Tekući snimak.
+     */
+    public NetworkSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Primjenjuje izmjenu reda vožnje na učitanu mrežu i atomski postavlja novi snimak sa
+     * novom verzijom. Ako izmjena nije ispravna, mreža ostaje nepromijenjena. Postavljena
+     * matrica vremena putovanja ({@link #setTravelMatrix}) osvježava se u pozadinskoj niti
+     * (vidi {@link TravelMatrix#refresh}).
+     *
+     * @param delta Izmjena reda vožnje.
+     * @throws IllegalStateException Ako mreža nije učitana.
+     * @throws IllegalArgumentException Ako stanica, grad ili polazak iz izmjene ne postoje.
+     */
+    public void applyDelta(TimetableDelta delta) {
+        Objects.requireNonNull(delta);
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            NetworkSnapshot current = snapshot;
+            NetworkSnapshot next = current.apply(delta);
+            snapshot = next;
+            TravelMatrix matrix = travelMatrix;
+            if (matrix != null) {
+                CompactGraph updated = next.getGraph().getCompactGraph();
+                int[] changed = current.changedStations(delta);
+                Preprocessing.inBackground("matrica vremena putovanja", () -> matrix.refresh(updated, changed));
+            }
+            long micros = (System.nanoTime() - start) / 1_000;
+            LOG.info(() -> "Primijenjeno izmjena reda vožnje: " + delta.size() + " za " + micros
+                    + " us, verzija " + next.getVersion());
+        }
+    }
+
+    /**
+     * Vraća verziju podataka tekuće mreže. Verzija raste sa svakim učitavanjem i izmjenom
+     * reda vožnje, pa pozivalac koji kešira rezultate može da prepozna zastarjele unose.
+     *
+     * @return Verzija, 0 ako mreža nije učitana.
+     */
+    public long getVersion() {
+        return snapshot.getVersion();
     }
 
     /**
@@ -140,324 +284,207 @@ public class Network {
      * @return Vrijeme čekanja u minutama, ili -1 ako nema polaska.
      */
     public int getWaitingTime(int currentTime, Station fromStation, City toCity) {
-        List<Departure> departures = fromStation.getDepartures();
-        int minWait = Integer.MAX_VALUE;
-
-        for (Departure departure : departures) {
-            if (departure.getToCity().equals(toCity)) {
-                int departureTime = departure.getDepartureTime();
-                int wait = departureTime >= currentTime
-                        ? departureTime - currentTime
-                        : (1440 - currentTime) + departureTime;
-
-                if (wait < minWait) {
-                    minWait = wait;
-                }
-            }
-        }
+        Departure departure = fromStation.getNextDeparture(toCity, currentTime);
+        return departure == null ? -1 : waitingTime(currentTime, departure);
+    }
 
-        return minWait == Integer.MAX_VALUE ? -1 : minWait;
+    /**
+     * Računa vrijeme čekanja od datog trenutka do polaska, uz prelazak u naredni dan.
+     *
+     * @param currentTime Trenutno vrijeme u minutama.
+     * @param departure Polazak.
+     * @return Vrijeme čekanja u minutama.
+     */
+    private static int waitingTime(int currentTime, Departure departure) {
+        int departureTime = departure.getDepartureTime();
+        return departureTime >= currentTime
+                ? departureTime - currentTime
+                : (1440 - currentTime) + departureTime;
     }
 
     /**
-     * Pronalazi do 5 optimalnih ruta između dva grada prema zadatom kriterijumu.
+     * Pronalazi do 5 optimalnih ruta između dva grada prema zadatom kriterijumu,
+     * izabranim algoritmom ({@link #setEngine}). Kriterijume koje algoritam ne podržava
+     * (npr. cijenu za {@link StandardEngine#CONNECTION_SCAN}) rješava pretraga po
+     * najboljem čvoru. Ponovljeni upit se vraća iz keša ({@link #getRouteCache()}),
+     * kao nepromjenljiva lista. Gradovi iz ranije učitane mreže zamjenjuju se istoimenim
+     * gradovima tekuće mreže.
      *
      * @param startCity Početni grad.
      * @param endCity Krajnji grad.
-     * @param criterion Kriterijum optimizacije ("time", "price", "transfers").
+     * @param criterion Kriterijum optimizacije (npr. {@link StandardCriterion#TIME}).
      * @param startTime Vrijeme početka u minutama.
      * @return Lista ruta, sortirana po kriterijumu.
      */
-    public List<Route> findRoutes(City startCity, City endCity, String criterion, int startTime) {
-        PriorityQueue<RouteNode> queue = new PriorityQueue<>(Comparator.comparingInt(RouteNode::getCost));
-        Set<String> uniqueRoutes = new HashSet<>();
-        List<Route> result = new ArrayList<>();
-        Map<String, Integer> visitedPaths = new HashMap<>();
-        Map<String, Integer> cityTransferCount = new HashMap<>();
-        Set<Station> endStations = new HashSet<>(Arrays.asList(endCity.getBusStation(), endCity.getTrainStation()));
-
-        Set<String> visitedCities = new HashSet<>();
-        visitedCities.add(startCity.getName());
-
-        queue.offer(new RouteNode(startCity.getBusStation(), new ArrayList<>(), startTime, 0, 0, 0, 0, 0));
-        queue.offer(new RouteNode(startCity.getTrainStation(), new ArrayList<>(), startTime, 0, 0, 0, 0, 0));
-
-        RouteNode current = queue.poll();
-        Station currentStation;
-        int currentTime;
-        int totalTime;
-        int currentPrice;
-        while (!queue.isEmpty()) {
-            current = queue.poll();
-            currentStation = current.station;
-            currentTime = current.currentTime;
-            totalTime = current.totalTime;
-            currentPrice = current.totalPrice;
-            int currentHops = current.hopCount;
-            List<Edge> currentEdges = new ArrayList<>(current.edges);
-            String currentCityName = currentStation.getCity().getName();
-
-            String pathKey = createPathKey(currentEdges, currentStation);
-            int visitCount = visitedPaths.getOrDefault(pathKey, 0);
-            if (visitCount >= 10) continue;
-            visitedPaths.put(pathKey, visitCount + 1);
-
-            if (endStations.contains(currentStation)) {
-                String routeKey = createRouteKey(currentEdges);
-                if (!uniqueRoutes.contains(routeKey)) {
-                    uniqueRoutes.add(routeKey);
-                    Route route = new Route(currentEdges, totalTime, currentPrice, currentHops, startTime);
-                    result.add(route);
-                    if (uniqueRoutes.size() >= 5) break;
-                }
-                continue;
-            }
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime) {
+        return findRoutes(startCity, endCity, criterion, startTime, null);
+    }
 
-            int maxHops = gridRows * gridCols * 3;
-            if (currentHops >= maxHops) continue;
-
-            List<Edge> edges = graph.getEdges(currentStation);
-            for (Edge edge : edges) {
-                Station nextStation = edge.getTo();
-                String nextCityName = nextStation.getCity().getName();
-                int nextTime, nextTotalTime, nextPrice, nextHops;
-
-                if (edge.isTransfer()) {
-                    int transferCount = cityTransferCount.getOrDefault(currentCityName, 0);
-                    if (transferCount >= 1) continue;
-                    cityTransferCount.put(currentCityName, transferCount + 1);
-
-                    nextTime = (currentTime + edge.getDuration()) % 1440;
-                    nextTotalTime = totalTime + edge.getDuration();
-                    nextPrice = currentPrice + edge.getPrice();
-                    nextHops = currentHops + 1;
-                } else {
-                    City toCity = nextStation.getCity();
-                    int waitingTime = getWaitingTime(currentTime, currentStation, toCity);
-                    if (waitingTime == -1) continue;
-
-                    int departureTime = (currentTime + waitingTime) % 1440;
-                    Departure selectedDeparture = null;
-                    int minTimeDiff = Integer.MAX_VALUE;
-                    for (Departure dep : currentStation.getDepartures()) {
-                        if (dep.getToCity().equals(toCity)) {
-                            int depTime = dep.getDepartureTime();
-                            int timeDiff = depTime >= departureTime ? depTime - departureTime : (1440 - departureTime) + depTime;
-                            if (timeDiff < minTimeDiff) {
-                                minTimeDiff = timeDiff;
-                                selectedDeparture = dep;
-                            }
-                        }
-                    }
-                    if (selectedDeparture == null) continue;
-
-                    int arrivalTime = (selectedDeparture.getDepartureTime() + selectedDeparture.getDuration()) % 1440;
-                    nextTime = (arrivalTime + selectedDeparture.getMinTransferTime()) % 1440;
-                    nextTotalTime = totalTime + waitingTime + selectedDeparture.getDuration();
-                    nextPrice = currentPrice + selectedDeparture.getPrice();
-                    nextHops = currentHops + 1;
-                    edge = new Edge(currentStation, nextStation, selectedDeparture.getDepartureTime(),
-                            selectedDeparture.getDuration(), selectedDeparture.getPrice(),
-                            selectedDeparture.getMinTransferTime(), false);
-                }
-
-                int nextRow = Integer.parseInt(nextCityName.split("_")[1]);
-                int nextCol = Integer.parseInt(nextCityName.split("_")[2]);
-                int endRow = Integer.parseInt(endCity.getName().split("_")[1]);
-                int endCol = Integer.parseInt(endCity.getName().split("_")[2]);
-                int distanceToEnd = Math.abs(nextRow - endRow) + Math.abs(nextCol - endCol);
-
-                if (visitedCities.contains(nextCityName) && !nextCityName.equals(endCity.getName()) && distanceToEnd > 2) {
-                    continue;
-                }
-
-                String nextPathKey = createPathKey(currentEdges, nextStation);
-                int nextVisitCount = visitedPaths.getOrDefault(nextPathKey, 0);
-                if (nextVisitCount >= 10) continue;
-
-                int distancePenalty = Math.abs(nextRow - endRow) + Math.abs(nextCol - endCol);
-                int transferPenalty = edge.isTransfer() ? 100 : 0;
-
-                int cost = switch (criterion) {
-                    case "time" -> nextTotalTime + distancePenalty * 10 + transferPenalty;
-                    case "price" -> nextPrice + distancePenalty * 150 + transferPenalty;
-                    case "transfers" -> nextHops * 1000 + distancePenalty * 10 + transferPenalty * 1000;
-                    default -> throw new IllegalArgumentException("Nepoznat kriterijum: " + criterion);
-                };
-
-                List<Edge> newEdges = new ArrayList<>(currentEdges);
-                newEdges.add(edge);
-                RouteNode newNode = new RouteNode(nextStation, newEdges, nextTime, nextPrice,
-                        nextHops, cost, nextHops, nextTotalTime);
-                queue.offer(newNode);
-
-                if (!edge.isTransfer()) {
-                    visitedCities.add(nextCityName);
-                }
-            }
+    /**
+     * Pronalazi do 5 optimalnih ruta kao {@link #findRoutes(City, City, Criterion, int)} i
+     * javlja svaku rutu čim je algoritam pronađe, da se najbolja dosad pronađena ruta može
+     * prikazati prije kraja pretrage. Rezultat iz keša se ne javlja, već samo vraća.
+     * Pretraga se prekida prekidom niti koja je izvršava i tada baca
+     * {@link java.util.concurrent.CancellationException}.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije (npr. {@link StandardCriterion#TIME}).
+     * @param startTime Vrijeme početka u minutama.
+     * @param listener Prima pronađene rute iz niti pretrage, ili null.
+     * @return Lista ruta, sortirana po kriterijumu.
+     */
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime,
+                                  RouteListener listener) {
+        NetworkSnapshot snapshot = this.snapshot;
+        RoutingEngine engine = snapshot.getRoutingEngine();
+        RoutingEngine fallback = snapshot.getBestFirstSearch();
+        if (engine == null || fallback == null) {
+            return Collections.emptyList();
+        }
+        City start = snapshot.resolve(startCity);
+        City end = snapshot.resolve(endCity);
+        if (start == null || end == null) {
+            return Collections.emptyList();
+        }
+        RoutingEngine selected = engine.supports(criterion) ? engine : fallback;
+        RouteCache routeCache = this.routeCache;
+        if (routeCache == null) {
+            return search(selected, start, end, criterion, startTime, listener);
         }
+        return routeCache.getOrCompute(start, end, criterion, selected, startTime, snapshot.getVersion(),
+                () -> search(selected, start, end, criterion, startTime, listener));
+    }
 
-        while (result.size() < 5 && !queue.isEmpty()) {
-            current = queue.poll();
-            currentStation = current.station;
-            totalTime = current.totalTime;
-            currentPrice = current.totalPrice;
-            int currentHops = current.hopCount;
-            List<Edge> currentEdges = new ArrayList<>(current.edges);
-
-            String pathKey = createPathKey(currentEdges, currentStation);
-            int visitCount = visitedPaths.getOrDefault(pathKey, 0);
-            if (visitCount >= 10) continue;
-            visitedPaths.put(pathKey, visitCount + 1);
-
-            if (endStations.contains(currentStation)) {
-                String routeKey = createRouteKey(currentEdges);
-                if (!uniqueRoutes.contains(routeKey)) {
-                    uniqueRoutes.add(routeKey);
-                    Route route = new Route(currentEdges, totalTime, currentPrice, currentHops, startTime);
-                    result.add(route);
-                }
-            } else {
-                List<Edge> edges = graph.getEdges(currentStation);
-                for (Edge edge : edges) {
-                    Station nextStation = edge.getTo();
-                    String nextCityName = nextStation.getCity().getName();
-                    int nextTime, nextTotalTime, nextPrice, nextHops;
-
-                    if (edge.isTransfer()) {
-                        int transferCount = cityTransferCount.getOrDefault(currentStation.getCity().getName(), 0);
-                        if (transferCount >= 1) continue;
-                        cityTransferCount.put(currentStation.getCity().getName(), transferCount + 1);
-
-                        nextTime = (current.currentTime + edge.getDuration()) % 1440;
-                        nextTotalTime = totalTime + edge.getDuration();
-                        nextPrice = currentPrice + edge.getPrice();
-                        nextHops = currentHops + 1;
-                    } else {
-                        City toCity = nextStation.getCity();
-                        int waitingTime = getWaitingTime(current.currentTime, currentStation, toCity);
-                        if (waitingTime == -1) continue;
-
-                        int departureTime = (current.currentTime + waitingTime) % 1440;
-                        Departure selectedDeparture = null;
-                        int minTimeDiff = Integer.MAX_VALUE;
-                        for (Departure dep : currentStation.getDepartures()) {
-                            if (dep.getToCity().equals(toCity)) {
-                                int depTime = dep.getDepartureTime();
-                                int timeDiff = depTime >= departureTime ? depTime - departureTime : (1440 - departureTime) + depTime;
-                                if (timeDiff < minTimeDiff) {
-                                    minTimeDiff = timeDiff;
-                                    selectedDeparture = dep;
-                                }
-                            }
-                        }
-                        if (selectedDeparture == null) continue;
-
-                        int arrivalTime = (selectedDeparture.getDepartureTime() + selectedDeparture.getDuration()) % 1440;
-                        nextTime = (arrivalTime + selectedDeparture.getMinTransferTime()) % 1440;
-                        nextTotalTime = totalTime + waitingTime + selectedDeparture.getDuration();
-                        nextPrice = currentPrice + selectedDeparture.getPrice();
-                        nextHops = currentHops + 1;
-                        edge = new Edge(currentStation, nextStation, selectedDeparture.getDepartureTime(),
-                                selectedDeparture.getDuration(), selectedDeparture.getPrice(),
-                                selectedDeparture.getMinTransferTime(), false);
-                    }
-
-                    int nextRow = Integer.parseInt(nextCityName.split("_")[1]);
-                    int nextCol = Integer.parseInt(nextCityName.split("_")[2]);
-                    int endRow = Integer.parseInt(endCity.getName().split("_")[1]);
-                    int endCol = Integer.parseInt(endCity.getName().split("_")[2]);
-                    int distanceToEnd = Math.abs(nextRow - endRow) + Math.abs(nextCol - endCol);
-
-                    if (visitedCities.contains(nextCityName) && !nextCityName.equals(endCity.getName()) && distanceToEnd > 2) {
-                        continue;
-                    }
-
-                    String nextPathKey = createPathKey(currentEdges, nextStation);
-                    int nextVisitCount = visitedPaths.getOrDefault(nextPathKey, 0);
-                    if (nextVisitCount >= 10) continue;
-
-                    int distancePenalty = Math.abs(nextRow - endRow) + Math.abs(nextCol - endCol);
-                    int transferPenalty = edge.isTransfer() ? 100 : 0;
-
-                    int cost = switch (criterion) {
-                        case "time" -> nextTotalTime + distancePenalty * 10 + transferPenalty;
-                        case "price" -> nextPrice + distancePenalty * 150 + transferPenalty;
-                        case "transfers" -> nextHops * 1000 + distancePenalty * 10 + transferPenalty * 1000;
-                        default -> throw new IllegalArgumentException("Nepoznat kriterijum: " + criterion);
-                    };
-
-                    List<Edge> newEdges = new ArrayList<>(currentEdges);
-                    newEdges.add(edge);
-                    RouteNode newNode = new RouteNode(nextStation, newEdges, nextTime, nextPrice,
-                            nextHops, cost, nextHops, nextTotalTime);
-                    queue.offer(newNode);
-
-                    if (!edge.isTransfer()) {
-                        visitedCities.add(nextCityName);
-                    }
-                }
-            }
+    /**
+     * Pronalazi rute datim algoritmom, bez keša, i bilježi mjerenja pretrage.
+     *
+     * @param engine Algoritam pretrage.
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama.
+     * @param listener Prima pronađene rute, ili null.
+     * @return Lista ruta, sortirana po kriterijumu.
+     */
+    private List<Route> search(RoutingEngine engine, City startCity, City endCity, Criterion criterion, int startTime,
+                               RouteListener listener) {
+        RoutingMetrics routingMetrics = this.routingMetrics;
+        RouteQueryEvent event = new RouteQueryEvent();
+        if (routingMetrics == null && !event.isEnabled()) {
+            List<Route> result = run(engine, startCity, endCity, criterion, startTime, listener);
+            LOG.debug(() -> "Pronađeno ruta: " + result.size());
+            return result;
         }
 
-        result.sort((r1, r2) -> {
-            int primary = switch (criterion) {
-                case "time" -> Integer.compare(r1.getTotalTime(), r2.getTotalTime());
-                case "price" -> Integer.compare(r1.getTotalPrice(), r2.getTotalPrice());
-                case "transfers" -> Integer.compare(r1.getTransferCount(), r2.getTransferCount());
-                default -> 0;
-            };
-            if (primary == 0 && "transfers".equals(criterion)) {
-                return Integer.compare(r1.getTotalTime(), r2.getTotalTime());
-            }
-            return primary;
-        });
+        event.begin();
+        long allocatedBefore = SearchCounters.allocatedBytes();
+        long started = System.nanoTime();
+        SearchCounters counters = SearchCounters.begin();
+        List<Route> result;
+        try {
+            result = run(engine, startCity, endCity, criterion, startTime, listener);
+        } finally {
+            SearchCounters.end();
+        }
+        long wallTime = System.nanoTime() - started;
+        long allocated = allocatedBefore < 0 ? -1 : SearchCounters.allocatedBytes() - allocatedBefore;
+        event.end();
+
+        QueryStatistics statistics = new QueryStatistics(startCity.getName(), endCity.getName(), criterion.getName(),
+                engine.getClass().getSimpleName(), startTime, result.size(), counters, wallTime, allocated);
+        if (routingMetrics != null) {
+            routingMetrics.record(statistics);
+        }
+        if (event.shouldCommit()) {
+            event.fill(statistics);
+            event.commit();
+        }
+        LOG.debug(statistics::toString);
+        return result;
+    }
 
-        System.out.println("Pronađeno ruta: " + result.size());
-        return result.subList(0, Math.min(result.size(), 5));
+    /**
+     * Pokreće pretragu algoritmom, sa primaocem pronađenih ruta ako je zadat.
+     *
+     * @param engine Algoritam pretrage.
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama.
+     * @param listener Prima pronađene rute, ili null.
+     * @return Lista ruta, sortirana po kriterijumu.
+     */
+    private static List<Route> run(RoutingEngine engine, City startCity, City endCity, Criterion criterion,
+                                   int startTime, RouteListener listener) {
+        return listener == null
+                ? engine.findRoutes(startCity, endCity, criterion, startTime)
+                : engine.findRoutes(startCity, endCity, criterion, startTime, listener);
     }
 
     /**
-     * Kreira ključ za rutu na osnovu ivica.
+     * Pronalazi Pareto-optimalne rute po vremenu dolaska i broju presjedanja,
+     * a opciono i po cijeni, jednim izvršavanjem RAPTOR pretrage.
      *
-     * @param edges Lista ivica u ruti.
-     * @return Ključ rute.
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param startTime Vrijeme početka u minutama.
+     * @param includePrice Da li je cijena treći kriterijum.
+     * @return Pareto skup ruta, sortiran po vremenu dolaska.
      */
-    private String createRouteKey(List<Edge> edges) {
-        StringBuilder key = new StringBuilder();
-        for (Edge edge : edges) {
-            key.append(edge.getFrom().getName()).append("->").append(edge.getTo().getName()).append(";");
+    public List<Route> findParetoRoutes(City startCity, City endCity, int startTime, boolean includePrice) {
+        NetworkSnapshot snapshot = this.snapshot;
+        Raptor raptor = snapshot.getRaptor();
+        City start = snapshot.resolve(startCity);
+        City end = snapshot.resolve(endCity);
+        if (raptor == null || start == null || end == null) {
+            return Collections.emptyList();
         }
-        return key.toString();
+        int maxRounds = Math.max(1, 2 * (snapshot.getGridRows() + snapshot.getGridCols()));
+        return raptor.findParetoRoutes(start, end, startTime, includePrice, maxRounds);
     }
 
     /**
-     * Kreira ključ za put na osnovu ivica i krajnje stanice.
+     * Računa najranije dolaske između dva grada za sve polaske tokom dana, jednim
+     * prolazom kroz polaske, umjesto po jedne pretrage za svako vrijeme polaska.
+     * Putovanja sa granice pokazuju i kada se može krenuti kasnije a stići u isto vrijeme.
      *
-     * @param edges Lista ivica.
-     * @param endStation Krajnja stanica.
-     * @return Ključ puta.
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @return Pareto granica (polazak, dolazak), sortirana po vremenu polaska.
+     */
+    public List<ProfileSearch.Journey> findProfile(City startCity, City endCity) {
+        NetworkSnapshot snapshot = this.snapshot;
+        ProfileSearch profileSearch = snapshot.getProfileSearch();
+        City start = snapshot.resolve(startCity);
+        City end = snapshot.resolve(endCity);
+        if (profileSearch == null || start == null || end == null) {
+            return Collections.emptyList();
+        }
+        return profileSearch.findProfile(start, end);
+    }
+
+    /**
+     * Briše keš rezultata pretrage, ako je keširanje uključeno.
      */
-    private String createPathKey(List<Edge> edges, Station endStation) {
-        StringBuilder key = new StringBuilder();
-        for (Edge edge : edges) {
-            key.append(edge.getFrom().getName()).append("->").append(edge.getTo().getName()).append(";");
+    private void invalidateRouteCache() {
+        RouteCache routeCache = this.routeCache;
+        if (routeCache != null) {
+            routeCache.invalidateAll();
         }
-        key.append(endStation.getName());
-        return key.toString();
     }
 
     /**
-     * Vraća mapu gradova u mreži.
+     * Vraća mapu gradova tekuće mreže.
      *
-     * @return Mapa gradova.
+     * @return Nepromjenljiva mapa gradova.
      */
-    public Map<String, City> getCities() { return cities; }
+    public Map<String, City> getCities() { return snapshot.getCities(); }
 
     /**
-     * Vraća graf mreže.
+     * Vraća graf tekuće mreže.
      *
      * @return Graf stanica i veza.
      */
-    public Graph getGraph() { return graph; }
+    public Graph getGraph() { return snapshot.getGraph(); }
 }
\ No newline at end of file
@@ -0,0 +1,504 @@
+package main.transport;
+
+import main.model.*;
+import main.util.Logger;
+import main.util.TimetableReader;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nepromjenljivo stanje jedne učitane mreže: gradovi, stanice, zamrznuti graf, dimenzije
+ * mreže i pretrage izgrađene nad njenim kompaktnim grafom.
+ * <p>
+ * Snimak se gradi u cjelosti prije nego što ga iko vidi (npr. u pozadinskoj niti), a
+ * nakon toga se ne mijenja: izmjena (drugi algoritam, druge dimenzije) pravi novi snimak
+ * koji dijeli podatke sa starim. {@link Network} drži tekući snimak u jednoj
+ * {@code volatile} referenci i mijenja ga atomski, pa pretraga koja je počela nad
+ * starim snimkom završava nad njim, bez zaključavanja i bez mješanja starih i novih podataka.
+ * <p>
+ * Svaki snimak sa novim podacima (učitavanje ili izmjena reda vožnje, vidi
+ * {@link #apply(TimetableDelta)}) dobija novu, rastuću verziju, pa keš može da prepozna
+ * rezultate izračunate nad starim podacima.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class NetworkSnapshot {
+    private static final Logger LOG = Logger.getLogger(NetworkSnapshot.class);
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final NetworkSnapshot EMPTY = new NetworkSnapshot(0, Collections.emptyMap(),
+            Collections.emptyMap(), new Graph(), 0, 0, StandardEngine.BEST_FIRST, null, null, null, null);
+
+    private final long version;
+    private final Map<String, City> cities;
+    private final Map<String, Station> stations;
+    private final Graph graph;
+    private final int gridRows;
+    private final int gridCols;
+    private final RoutingEngine.Factory engineFactory;
+    private final RoutingEngine routingEngine;
+    private final Raptor raptor;
+    private final BestFirstSearch bestFirstSearch;
+    private final ProfileSearch profileSearch;
+
+    /**
+     * Kreira snimak od već izgrađenih dijelova.
+     *
+     * @param version Verzija podataka snimka.
+     * @param cities Gradovi po imenu (nepromjenljiva mapa).
+     * @param stations Stanice po imenu (nepromjenljiva mapa).
+     * @param graph Zamrznuti graf mreže.
+     * @param gridRows Broj redova mreže.
+     * @param gridCols Broj kolona mreže.
+     * @param engineFactory Fabrika algoritma pretrage.
+     * @param routingEngine Algoritam pretrage, ili null za praznu mrežu.
+     * @param raptor RAPTOR pretraga, ili null za praznu mrežu.
+     * @param bestFirstSearch Pretraga po najboljem čvoru, ili null za praznu mrežu.
+     * @param profileSearch Pretraga profila, ili null za praznu mrežu.
+     */
+    private NetworkSnapshot(long version, Map<String, City> cities, Map<String, Station> stations, Graph graph,
+                            int gridRows, int gridCols, RoutingEngine.Factory engineFactory,
+                            RoutingEngine routingEngine, Raptor raptor, BestFirstSearch bestFirstSearch,
+                            ProfileSearch profileSearch) {
+        this.version = version;
+        this.cities = cities;
+        this.stations = stations;
+        this.graph = graph;
+        this.gridRows = gridRows;
+        this.gridCols = gridCols;
+        this.engineFactory = engineFactory;
+        this.routingEngine = routingEngine;
+        this.raptor = raptor;
+        this.bestFirstSearch = bestFirstSearch;
+        this.profileSearch = profileSearch;
+    }
+
+    /**
+     * Kreira snimak nad zamrznutim grafom i gradi pretrage nad njegovim kompaktnim grafom.
+     *
+     * @param cities Gradovi po imenu.
+     * @param stations Stanice po imenu.
+     * @param graph Zamrznuti graf mreže.
+     * @param gridRows Broj redova mreže.
+     * @param gridCols Broj kolona mreže.
+     * @param engineFactory Fabrika algoritma pretrage.
+     * @param routingEngine Algoritam pretrage napravljen fabrikom nad kompaktnim grafom.
+     * @return Novi snimak.
+     */
+    private static NetworkSnapshot create(Map<String, City> cities, Map<String, Station> stations, Graph graph,
+                                          int gridRows, int gridCols, RoutingEngine.Factory engineFactory,
+                                          RoutingEngine routingEngine) {
+        CompactGraph compact = graph.getCompactGraph();
+        return new NetworkSnapshot(VERSIONS.incrementAndGet(), Collections.unmodifiableMap(cities),
+                Collections.unmodifiableMap(stations),
+                graph, gridRows, gridCols, engineFactory, routingEngine, new Raptor(compact),
+                new BestFirstSearch(compact), new ProfileSearch(compact));
+    }
+
+    /**
+     * Vraća prazan snimak (mreža nije učitana).
+     *
+     * @return Prazan snimak.
+     */
+    public static NetworkSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Gradi snimak iz JSON fajla. Fajl se čita kao tok zapisa (vidi {@link TimetableReader}),
+     * pa se gradovi, stanice i polasci kreiraju odmah pri čitanju, bez učitavanja cijelog
+     * JSON teksta u memoriju.
+     *
+     * @param jsonFilePath Putanja do JSON fajla.
+     * @param engineFactory Fabrika algoritma pretrage.
+     * @return Novi snimak.
+     * @throws IOException Ako dođe do greške pri čitanju fajla.
+     */
+    public static NetworkSnapshot fromJson(String jsonFilePath, RoutingEngine.Factory engineFactory)
+            throws IOException {
+        Map<String, City> cities = new HashMap<>();
+        Map<String, Station> stations = new HashMap<>();
+        Graph graph = new Graph();
+        List<Station> stationsById = new ArrayList<>();
+        int[] grid = new int[2];
+        int[] departureCount = new int[1];
+
+        TimetableReader.read(jsonFilePath, new TimetableReader.Handler() {
+            @Override
+            public void grid(int rows, int cols) {
+                grid[0] = rows;
+                grid[1] = cols;
+                LOG.info(() -> "Computed Grid: " + rows + "x" + cols);
+            }
+
+            @Override
+            public void station(String cityName, String busStationName, String trainStationName) {
+                City city = new City(cityName);
+                cities.put(cityName, city);
+                BusStation busStation = new BusStation(busStationName, city);
+                TrainStation trainStation = new TrainStation(trainStationName, city);
+                stations.put(busStationName, busStation);
+                stations.put(trainStationName, trainStation);
+                city.setBusStation(busStation);
+                city.setTrainStation(trainStation);
+                city.setId(stationsById.size() / 2);
+                busStation.setId(stationsById.size());
+                trainStation.setId(stationsById.size() + 1);
+                stationsById.add(busStation);
+                stationsById.add(trainStation);
+
+                Edge transferEdge1 = new Edge(busStation, trainStation, 0, 15, 15, 0, true);
+                Edge transferEdge2 = new Edge(trainStation, busStation, 0, 15, 15, 0, true);
+                graph.addEdge(busStation, transferEdge1);
+                graph.addEdge(trainStation, transferEdge2);
+            }
+
+            @Override
+            public void departure(String fromStationName, String toCityName, int departureTime,
+                                  int duration, int price, int minTransferTime) {
+                departureCount[0]++;
+                Station fromStation = stations.get(fromStationName);
+                City toCity = cities.get(toCityName);
+                if (fromStation == null || toCity == null) {
+                    return;
+                }
+
+                Departure departure = new Departure(fromStation, toCity, departureTime, duration, price, minTransferTime);
+                fromStation.addDeparture(departure);
+
+                Station toStation = (fromStation instanceof BusStation) ? toCity.getBusStation() : toCity.getTrainStation();
+                Edge edge = new Edge(fromStation, toStation, departureTime, duration, price, minTransferTime, false);
+                graph.addEdge(fromStation, edge);
+            }
+        });
+
+        graph.freeze(stationsById.toArray(new Station[0]));
+        for (Station station : stationsById) {
+            station.buildDepartureIndex();
+        }
+        LOG.info(() -> "Number of departures: " + departureCount[0]);
+        LOG.info(() -> "Cities loaded: " + cities.size());
+        LOG.info(() -> "Stations loaded: " + stations.size());
+        return create(cities, stations, graph, grid[0], grid[1], engineFactory,
+                engineFactory.create(graph.getCompactGraph()));
+    }
+
+    /**
+     * Gradi snimak iz binarnog snimka kompaktnog grafa. Fajl se mapira u memoriju
+     * ({@link java.nio.MappedByteBuffer}), pa pretrage čitaju direktno mapirane stranice
+     * fajla, bez parsiranja. Predobrada algoritma upisana uz snimak se učitava umjesto da se
+     * računa (vidi {@link RoutingEngine.Factory#open}).
+     *
+     * @param snapshotPath Putanja do fajla snimka.
+     * @param engineFactory Fabrika algoritma pretrage.
+     * @return Novi snimak.
+     * @throws IOException Ako fajl ne postoji ili nije ispravan snimak.
+     */
+    public static NetworkSnapshot fromFile(String snapshotPath, RoutingEngine.Factory engineFactory)
+            throws IOException {
+        CompactGraph compact = CompactGraph.open(Paths.get(snapshotPath));
+        Map<String, City> cities = new HashMap<>();
+        Map<String, Station> stations = new HashMap<>();
+        Graph graph = new Graph();
+        graph.load(compact);
+
+        int gridRows = 0;
+        int gridCols = 0;
+        for (int c = 0; c < compact.cityCount(); c++) {
+            City city = compact.city(c);
+            cities.put(city.getName(), city);
+            gridRows = Math.max(gridRows, city.getRow() + 1);
+            gridCols = Math.max(gridCols, city.getColumn() + 1);
+        }
+        for (int s = 0; s < compact.stationCount(); s++) {
+            Station station = compact.station(s);
+            stations.put(station.getName(), station);
+            for (int e = compact.firstEdge(s); e < compact.endEdge(s); e++) {
+                station.addDeparture(new Departure(station, compact.city(compact.cityOf(compact.target(e))),
+                        compact.departureTime(e), compact.duration(e), compact.price(e), compact.minTransferTime(e)));
+            }
+            station.buildDepartureIndex();
+        }
+        LOG.info(() -> "Cities loaded: " + cities.size());
+        LOG.info(() -> "Stations loaded: " + stations.size());
+        return create(cities, stations, graph, gridRows, gridCols, engineFactory,
+                engineFactory.open(compact, Paths.get(snapshotPath)));
+    }
+
+    /**
+     * Vraća snimak sa istim podacima i algoritmom pretrage koji pravi data fabrika.
+     *
+     * @param engineFactory Fabrika algoritma pretrage.
+     * @return Novi snimak, ili ovaj ako je fabrika ista.
+     */
+    public NetworkSnapshot withEngine(RoutingEngine.Factory engineFactory) {
+        Objects.requireNonNull(engineFactory);
+        if (engineFactory == this.engineFactory) {
+            return this;
+        }
+        CompactGraph compact = graph.getCompactGraph();
+        return new NetworkSnapshot(version, cities, stations, graph, gridRows, gridCols, engineFactory,
+                compact == null ? null : engineFactory.create(compact), raptor, bestFirstSearch, profileSearch);
+    }
+
+    /**
+     * Vraća snimak sa istim podacima i datim dimenzijama mreže.
+     *
+     * @param gridRows Broj redova.
+     * @param gridCols Broj kolona.
+     * @return Novi snimak.
+     */
+    public NetworkSnapshot withGrid(int gridRows, int gridCols) {
+        return new NetworkSnapshot(version, cities, stations, graph, gridRows, gridCols, engineFactory,
+                routingEngine, raptor, bestFirstSearch, profileSearch);
+    }
+
+    /**
+     * Vraća snimak sa primijenjenom izmjenom reda vožnje i novom verzijom. Ovaj snimak se
+     * ne mijenja.
+     * <p>
+     * Posao je srazmjeran izmjeni: samo promijenjene stanice dobijaju nove objekte (sa novom
+     * listom polazaka i indeksom polazaka po gradu), a kompaktni graf ih postavlja umjesto
+     * starih i kopira samo stranice nizova i minute redoslijeda polazaka koje se mijenjaju
+     * (vidi {@link CompactGraph#withDepartures}). Ostale stanice, gradovi i mape po imenu se
+     * dijele sa ovim snimkom i ne mijenjaju se: grad i mapa stanica i dalje upućuju na
+     * stanice iz učitavanja, a tekuću stanicu snimka daje graf po identifikatoru stanice
+     * (vidi {@link CompactGraph#station(int)}), koji se ne mijenja. Pretrage se prave nad
+     * novim grafom bez ponovne predobrade, a algoritam pretrage zadržava predobradu koja i
+     * dalje važi (vidi {@link RoutingEngine.Factory#update}). Ako izmjena ne uspije, ovaj
+     * snimak ostaje kakav je bio.
+     *
+     * @param delta Izmjena reda vožnje.
+     * @return Novi snimak.
+     * @throws IllegalStateException Ako mreža nije učitana.
+     * @throws IllegalArgumentException Ako stanica, grad ili polazak iz izmjene ne postoje,
+     *                                  ili polazak nije jednoznačno određen.
+     */
+    public NetworkSnapshot apply(TimetableDelta delta) {
+        CompactGraph compact = graph.getCompactGraph();
+        if (compact == null) {
+            throw new IllegalStateException("Mreža nije učitana");
+        }
+        Map<Integer, List<Departure>> changed = new TreeMap<>();
+        for (TimetableDelta.Change change : delta.getChanges()) {
+            Station station = compact.station(stationId(change.getStation()));
+            List<Departure> departures = changed.computeIfAbsent(station.getId(),
+                    id -> new ArrayList<>(station.getDepartures()));
+            applyChange(departures, station, change);
+        }
+
+        Station[] replaced = new Station[changed.size()];
+        int[] changedStations = new int[changed.size()];
+        int i = 0;
+        for (Map.Entry<Integer, List<Departure>> entry : changed.entrySet()) {
+            Station old = compact.station(entry.getKey());
+            City city = old.getCity();
+            Station copy = old instanceof BusStation
+                    ? new BusStation(old.getName(), city)
+                    : new TrainStation(old.getName(), city);
+            copy.setId(old.getId());
+            for (Departure departure : entry.getValue()) {
+                copy.addDeparture(new Departure(copy, departure.getToCity(), departure.getDepartureTime(),
+                        departure.getDuration(), departure.getPrice(), departure.getMinTransferTime()));
+            }
+            copy.sortDepartures();
+            copy.buildDepartureIndex();
+            replaced[i] = copy;
+            changedStations[i++] = copy.getId();
+        }
+
+        CompactGraph updated = compact.withDepartures(replaced);
+        Graph updatedGraph = new Graph();
+        updatedGraph.load(updated);
+        return new NetworkSnapshot(VERSIONS.incrementAndGet(), cities, stations, updatedGraph, gridRows, gridCols,
+                engineFactory, engineFactory.update(routingEngine, updated, changedStations),
+                raptor.update(updated), new BestFirstSearch(updated), new ProfileSearch(updated));
+    }
+
+    /**
+     * Vraća identifikatore stanica čije polaske izmjena mijenja.
+     *
+     * @param delta Izmjena reda vožnje.
+     * @return Identifikatori stanica, rastuće i bez ponavljanja.
+     * @throws IllegalArgumentException Ako stanica iz izmjene ne postoji.
+     */
+    int[] changedStations(TimetableDelta delta) {
+        return delta.getChanges().stream()
+                .mapToInt(change -> stationId(change.getStation()))
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * Vraća identifikator stanice sa datim imenom.
+     *
+     * @param name Ime stanice.
+     * @return Identifikator stanice.
+     * @throws IllegalArgumentException Ako stanica ne postoji.
+     */
+    private int stationId(String name) {
+        Station station = stations.get(name);
+        if (station == null) {
+            throw new IllegalArgumentException("Nepoznata stanica: " + name);
+        }
+        return station.getId();
+    }
+
+    /**
+     * Primjenjuje jednu izmjenu na listu polazaka stanice.
+     *
+     * @param departures Polasci stanice (mijenjaju se).
+     * @param station Polazna stanica.
+     * @param change Izmjena.
+     * @throws IllegalArgumentException Ako grad ili polazak ne postoje, ili polazak nije jednoznačan.
+     */
+    private void applyChange(List<Departure> departures, Station station, TimetableDelta.Change change) {
+        if (change.getOperation() == TimetableDelta.Operation.ADD) {
+            City toCity = cities.get(change.getToCity());
+            if (toCity == null) {
+                throw new IllegalArgumentException("Nepoznat grad: " + change.getToCity());
+            }
+            departures.add(new Departure(station, toCity, change.getDepartureTime(), change.getDuration(),
+                    change.getPrice(), change.getMinTransferTime()));
+            return;
+        }
+
+        int found = -1;
+        for (int k = 0; k < departures.size(); k++) {
+            if (change.matches(departures.get(k))) {
+                if (found >= 0) {
+                    throw new IllegalArgumentException("Polazak nije jednoznačan, navedite grad: " + change);
+                }
+                found = k;
+            }
+        }
+        if (found < 0) {
+            throw new IllegalArgumentException("Polazak ne postoji: " + change);
+        }
+        Departure old = departures.get(found);
+        if (change.getOperation() == TimetableDelta.Operation.REMOVE) {
+            departures.remove(found);
+            return;
+        }
+        departures.set(found, new Departure(station, old.getToCity(),
+                valueOr(change.getNewDepartureTime(), old.getDepartureTime()),
+                valueOr(change.getDuration(), old.getDuration()),
+                valueOr(change.getPrice(), old.getPrice()),
+                valueOr(change.getMinTransferTime(), old.getMinTransferTime())));
+    }
+
+    /**
+     * Vraća novu vrijednost polja izmjene, ili staru ako se polje ne mijenja.
+     *
+     * @param value Vrijednost iz izmjene.
+     * @param old Stara vrijednost.
+     * @return Vrijednost polja nakon izmjene.
+     */
+    private static int valueOr(int value, int old) {
+        return value == TimetableDelta.UNCHANGED ? old : value;
+    }
+
+    /**
+     * Vraća verziju podataka snimka. Verzija raste sa svakim učitavanjem i izmjenom reda
+     * vožnje, a ne mijenja se pri promjeni algoritma ili dimenzija mreže.
+     *
+     * @return Verzija, 0 za prazan snimak.
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * Provjerava da li snimak sadrži učitanu mrežu.
+     *
+     * @return true ako je graf zamrznut i pretrage izgrađene.
+     */
+    public boolean isLoaded() {
+        return routingEngine != null;
+    }
+
+    /**
+     * Vraća grad ovog snimka sa istim imenom kao dati grad, npr. grad izabran prije
+     * ponovnog učitavanja mreže.
+     *
+     * @param city Grad iz ovog ili nekog ranijeg snimka.
+     * @return Grad ovog snimka, ili null ako takvog grada nema.
+     */
+    public City resolve(City city) {
+        return cities.get(city.getName());
+    }
+
+    /**
+     * Vraća gradove mreže po imenu.
+     *
+     * @return Nepromjenljiva mapa gradova.
+     */
+    public Map<String, City> getCities() { return cities; }
+
+    /**
+     * Vraća stanice mreže po imenu, kakve su bile pri učitavanju. Izmjene reda vožnje
+     * ne mijenjaju mapu; stanicu sa tekućim polascima daje graf po identifikatoru
+     * stanice (vidi {@link CompactGraph#station(int)}).
+     *
+     * @return Nepromjenljiva mapa stanica.
+     */
+    public Map<String, Station> getStations() { return stations; }
+
+    /**
+     * Vraća zamrznuti graf mreže.
+     *
+     * @return Graf stanica i veza.
+     */
+    public Graph getGraph() { return graph; }
+
+    /**
+     * Vraća broj redova mreže.
+     *
+     * @return Broj redova.
+     */
+    public int getGridRows() { return gridRows; }
+
+    /**
+     * Vraća broj kolona mreže.
+     *
+     * @return Broj kolona.
+     */
+    public int getGridCols() { return gridCols; }
+
+    /**
+     * Vraća fabriku algoritma pretrage ovog snimka.
+     *
+     * @return Fabrika algoritma.
+     */
+    public RoutingEngine.Factory getEngineFactory() { return engineFactory; }
+
+    /**
+     * Vraća algoritam pretrage ruta.
+     *
+     * @return Algoritam, ili null za praznu mrežu.
+     */
+    RoutingEngine getRoutingEngine() { return routingEngine; }
+
+    /**
+     * Vraća RAPTOR pretragu.
+     *
+     * @return Pretraga, ili null za praznu mrežu.
+     */
+    Raptor getRaptor() { return raptor; }
+
+    /**
+     * Vraća pretragu po najboljem čvoru.
+     *
+     * @return Pretraga, ili null za praznu mrežu.
+     */
+    BestFirstSearch getBestFirstSearch() { return bestFirstSearch; }
+
+    /**
+     * Vraća pretragu profila.
+     *
+     * @return Pretraga, ili null za praznu mrežu.
+     */
+    ProfileSearch getProfileSearch() { return profileSearch; }
+}
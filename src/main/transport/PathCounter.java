@@ -0,0 +1,95 @@
+package main.transport;
+
+/**
+ * Brojač posjeta puteva u pretrazi ruta, indeksiran cjelobrojnim ključem puta.
+ * Koristi otvoreno adresiranje nad primitivnim nizovima, pa brojanje ne
+ * pravi objekte po posjeti.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+final class PathCounter {
+    private long[] keys;
+    private int[] counts;
+    private int size;
+
+    /**
+     * Kreira prazan brojač.
+     *
+     * @param expectedSize Očekivani broj različitih ključeva.
+     */
+    PathCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * Vraća broj posjeta puta.
+     *
+     * @param key Ključ puta.
+     * @return Broj posjeta, ili 0 ako put nije posjećen.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); counts[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Povećava broj posjeta puta za jedan.
+     *
+     * @param key Ključ puta.
+     */
+    void increment(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (counts[slot] != 0) {
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Udvostručuje kapacitet i ponovo raspoređuje ključeve.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] == 0) continue;
+            int slot = slot(oldKeys[i], mask);
+            while (counts[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    /**
+     * Vraća početnu poziciju ključa u tabeli.
+     *
+     * @param key Ključ puta.
+     * @param mask Maska veličine tabele.
+     * @return Pozicija u tabeli.
+     */
+    private static int slot(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
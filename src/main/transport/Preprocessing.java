@@ -0,0 +1,68 @@
+package main.transport;
+
+import main.util.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Predobrada koja se nakon izmjene reda vožnje računa u pozadinskoj niti, da izmjena ne
+ * drži mrežu zaključanom dok se skupa predobrada ne završi. Pretrage do tada rade bez nje
+ * (sporije, ali tačno), a zatim je koriste. Sve predobrade izvršava jedna zajednička nit,
+ * redom kojim su pokrenute.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+final class Preprocessing {
+    private static final Logger LOG = Logger.getLogger(Preprocessing.class);
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "route-preprocessing");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Privatni konstruktor; klasa ima samo statičke metode.
+     */
+    private Preprocessing() {
+    }
+
+    /**
+     * Pokreće predobradu u pozadinskoj niti.
+     *
+     * @param name Opis predobrade za dnevnik.
+     * @param task Računa predobradu; može vratiti null ako predobrada više nije potrebna.
+     * @param <T> Tip predobrade.
+     * @return Buduća predobrada.
+     */
+    static <T> CompletableFuture<T> inBackground(String name, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            long started = System.nanoTime();
+            try {
+                T result = task.get();
+                if (result != null) {
+                    LOG.info(() -> "Predobrada završena (" + name + ") za "
+                            + (System.nanoTime() - started) / 1_000_000 + " ms");
+                }
+                return result;
+            } catch (RuntimeException e) {
+                LOG.error("Greška pri predobradi (" + name + ")", e);
+                throw e;
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Vraća predobradu ako je izračunata.
+     *
+     * @param future Buduća predobrada.
+     * @param <T> Tip predobrade.
+     * @return Predobrada, ili null ako još nije izračunata, nije uspjela ili nije potrebna.
+     */
+    static <T> T now(CompletableFuture<T> future) {
+        return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+}
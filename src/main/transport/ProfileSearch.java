@@ -0,0 +1,254 @@
+package main.transport;
+
+import main.model.City;
+import main.model.CompactGraph;
+import main.model.Edge;
+
+import java.util.*;
+
+/**
+ * Profilna pretraga: za par gradova računa najranije dolaske za svako vrijeme polaska
+ * tokom dana, jednim prolazom kroz polaske (profilni Connection Scan).
+ * <p>
+ * Polasci se obilaze od najkasnijeg ka najranijem. Za svaku stanicu čuva se profil:
+ * lista parova (vrijeme polaska iz stanice, vrijeme dolaska u krajnji grad) u kojoj
+ * kasniji polazak uvijek stiže kasnije, pa se najraniji dolazak za dato vrijeme
+ * spremnosti dobija binarnom pretragom. Dolazak polaskom u krajnji grad je njegov
+ * dolazak; inače je to najbolji dolazak iz profila ciljne stanice nakon minimalnog
+ * vremena transfera, ili iz profila partnerske stanice nakon transfera.
+ * <p>
+ * Pošto se red vožnje ponavlja svakog dana, polasci se obilaze za onoliko dana koliko
+ * može trajati najbolje putovanje započeto prvog dana: najraniji dolazak za polazak u
+ * ponoć (CSA) uvećan za jedan dan ograničava dolaske za sve polaske tog dana.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class ProfileSearch {
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int DAY = 1440;
+
+    private final CompactGraph graph;
+    private final ConnectionScan connectionScan;
+
+    /**
+     * Jedna tačka profila: polazak iz stanice i najraniji dolazak u krajnji grad.
+     */
+    private static final class Entry {
+        final int departure;
+        final int arrival;
+        final int edge;
+        final Entry next;
+        final boolean viaTransfer;
+
+        Entry(int departure, int arrival, int edge, Entry next, boolean viaTransfer) {
+            this.departure = departure;
+            this.arrival = arrival;
+            this.edge = edge;
+            this.next = next;
+            this.viaTransfer = viaTransfer;
+        }
+    }
+
+    /**
+     * Putovanje sa Pareto granice: nijedno drugo ne polazi kasnije, a stiže ranije ili
+     * u isto vrijeme.
+     */
+    public final class Journey {
+        private final Entry entry;
+
+        /**
+         * Konstruktor za putovanje.
+         *
+         * @param entry Tačka profila početne stanice.
+         */
+        private Journey(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * Vraća vrijeme polaska iz početnog grada.
+         *
+         * @return Vrijeme polaska u minutama (0-1439).
+         */
+        public int getDepartureTime() {
+            return entry.departure;
+        }
+
+        /**
+         * Vraća vrijeme dolaska u krajnji grad, računato od ponoći dana polaska.
+         *
+         * @return Vrijeme dolaska u minutama (može biti veće od 1440).
+         */
+        public int getArrivalTime() {
+            return entry.arrival;
+        }
+
+        /**
+         * Vraća trajanje putovanja od polaska do dolaska.
+         *
+         * @return Trajanje u minutama.
+         */
+        public int getDuration() {
+            return entry.arrival - entry.departure;
+        }
+
+        /**
+         * Rekonstruiše rutu ovog putovanja.
+         *
+         * @return Ruta koja počinje vremenom polaska putovanja.
+         */
+        public Route toRoute() {
+            List<Edge> edges = new ArrayList<>();
+            int price = 0;
+            for (Entry current = entry; current != null; current = current.next) {
+                edges.add(graph.toEdge(current.edge));
+                price += graph.price(current.edge);
+                if (current.viaTransfer) {
+                    edges.add(graph.toTransferEdge(graph.target(current.edge)));
+                    price += CompactGraph.TRANSFER_PRICE;
+                }
+            }
+            return new Route(edges, getDuration(), price, edges.size(), entry.departure);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%02d:%02d -> +%dh%02dm", entry.departure / 60, entry.departure % 60,
+                    getDuration() / 60, getDuration() % 60);
+        }
+    }
+
+    /**
+     * Kreira profilnu pretragu nad kompaktnim grafom mreže.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     */
+    public ProfileSearch(CompactGraph graph) {
+        this.graph = graph;
+        this.connectionScan = new ConnectionScan(graph);
+    }
+
+    /**
+     * Računa Pareto granicu (vrijeme polaska, vrijeme dolaska) između dva grada za sve
+     * polaske tokom jednog dana. Za polazak u trenutku t najraniji dolazak ima prvo
+     * putovanje sa granice koje ne polazi prije t.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @return Putovanja sortirana po vremenu polaska; i dolasci su tada rastući.
+     */
+    public List<Journey> findProfile(City startCity, City endCity) {
+        if (startCity.equals(endCity) || graph.edgeCount() == 0) {
+            return Collections.emptyList();
+        }
+        int startBus = startCity.getBusStation().getId();
+        int startTrain = startCity.getTrainStation().getId();
+        int endBus = endCity.getBusStation().getId();
+        int endTrain = endCity.getTrainStation().getId();
+
+        int n = graph.stationCount();
+        int firstArrival = connectionScan.scan(startBus, startTrain, 0, endBus, endTrain,
+                new int[n], new int[n], new int[n], new int[n], new boolean[n]);
+        if (firstArrival == INFINITY) {
+            return Collections.emptyList();
+        }
+        int limit = firstArrival + DAY;
+
+        List<List<Entry>> profiles = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            profiles.add(new ArrayList<>());
+        }
+
+        for (int departure = limit; departure >= 0; departure--) {
+            int minute = departure % DAY;
+            for (int i = graph.connectionCount(minute) - 1; i >= 0; i--) {
+                int e = graph.connection(minute, i);
+                int from = graph.source(e);
+                if (from == endBus || from == endTrain) continue;
+
+                int to = graph.target(e);
+                int arrival = departure + graph.duration(e);
+                Entry next = null;
+                boolean viaTransfer = false;
+                if (to != endBus && to != endTrain) {
+                    int ready = arrival + graph.minTransferTime(e);
+                    Entry direct = earliest(profiles.get(to), ready);
+                    Entry transferred = earliest(profiles.get(graph.partner(to)), ready + CompactGraph.TRANSFER_TIME);
+                    if (transferred != null && (direct == null || transferred.arrival < direct.arrival)) {
+                        next = transferred;
+                        viaTransfer = true;
+                    } else {
+                        next = direct;
+                    }
+                    if (next == null) continue;
+                    arrival = next.arrival;
+                }
+                insert(profiles.get(from), new Entry(departure, arrival, e, next, viaTransfer));
+            }
+        }
+
+        List<Entry> candidates = new ArrayList<>();
+        for (int start : new int[]{startBus, startTrain}) {
+            for (Entry entry : profiles.get(start)) {
+                if (entry.departure < DAY) candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingInt((Entry entry) -> entry.departure)
+                .thenComparingInt(entry -> entry.arrival));
+        Deque<Journey> frontier = new ArrayDeque<>();
+        int bestLaterArrival = INFINITY;
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            Entry entry = candidates.get(i);
+            if (entry.arrival < bestLaterArrival) {
+                if (!frontier.isEmpty() && frontier.peekFirst().getDepartureTime() == entry.departure) {
+                    frontier.pollFirst();
+                }
+                frontier.addFirst(new Journey(entry));
+                bestLaterArrival = entry.arrival;
+            }
+        }
+        return new ArrayList<>(frontier);
+    }
+
+    /**
+     * Vraća tačku profila sa najranijim dolaskom među polascima u ili nakon datog vremena.
+     * Profil je sortiran od najkasnijeg polaska, a kasniji polazak stiže kasnije.
+     *
+     * @param profile Profil stanice.
+     * @param time Vrijeme spremnosti u minutama.
+     * @return Tačka profila, ili null ako nema polaska nakon datog vremena.
+     */
+    private static Entry earliest(List<Entry> profile, int time) {
+        int low = 0;
+        int high = profile.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (profile.get(mid).departure >= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low == 0 ? null : profile.get(low - 1);
+    }
+
+    /**
+     * Dodaje tačku na kraj profila ako nije dominirana. Tačke stižu po nerastućem
+     * vremenu polaska, pa je dovoljno porediti je sa posljednjom.
+     *
+     * @param profile Profil stanice.
+     * @param entry Nova tačka.
+     */
+    private static void insert(List<Entry> profile, Entry entry) {
+        if (!profile.isEmpty()) {
+            Entry last = profile.get(profile.size() - 1);
+            if (entry.arrival >= last.arrival) return;
+            if (entry.departure == last.departure) {
+                profile.set(profile.size() - 1, entry);
+                return;
+            }
+        }
+        profile.add(entry);
+    }
+}
@@ -0,0 +1,167 @@
+package main.transport;
+
+/**
+ * Mjerenja jedne pretrage ruta: relacija i kriterijum upita, brojači algoritma
+ * ({@link SearchCounters}), trajanje i alocirana memorija.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class QueryStatistics {
+    private final String startCity;
+    private final String endCity;
+    private final String criterion;
+    private final String engine;
+    private final int startTime;
+    private final int routeCount;
+    private final long nodesPolled;
+    private final long edgesRelaxed;
+    private final int maxQueueSize;
+    private final long prunedPaths;
+    private final long wallTimeNanos;
+    private final long allocatedBytes;
+
+    /**
+     * Konstruktor za mjerenja pretrage.
+     *
+     * @param startCity Ime početnog grada.
+     * @param endCity Ime krajnjeg grada.
+     * @param criterion Ime kriterijuma.
+     * @param engine Ime algoritma pretrage.
+     * @param startTime Vrijeme početka u minutama.
+     * @param routeCount Broj pronađenih ruta.
+     * @param counters Brojači pretrage.
+     * @param wallTimeNanos Trajanje pretrage u nanosekundama.
+     * @param allocatedBytes Alocirani bajtovi, ili -1 ako nisu izmjereni.
+     */
+    QueryStatistics(String startCity, String endCity, String criterion, String engine, int startTime,
+                    int routeCount, SearchCounters counters, long wallTimeNanos, long allocatedBytes) {
+        this.startCity = startCity;
+        this.endCity = endCity;
+        this.criterion = criterion;
+        this.engine = engine;
+        this.startTime = startTime;
+        this.routeCount = routeCount;
+        this.nodesPolled = counters.getNodesPolled();
+        this.edgesRelaxed = counters.getEdgesRelaxed();
+        this.maxQueueSize = counters.getMaxQueueSize();
+        this.prunedPaths = counters.getPrunedPaths();
+        this.wallTimeNanos = wallTimeNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Vraća ime početnog grada.
+     *
+     * @return Ime grada.
+     */
+    public String getStartCity() {
+        return startCity;
+    }
+
+    /**
+     * Vraća ime krajnjeg grada.
+     *
+     * @return Ime grada.
+     */
+    public String getEndCity() {
+        return endCity;
+    }
+
+    /**
+     * Vraća ime kriterijuma optimizacije.
+     *
+     * @return Ime kriterijuma.
+     */
+    public String getCriterion() {
+        return criterion;
+    }
+
+    /**
+     * Vraća ime algoritma pretrage.
+     *
+     * @return Ime algoritma.
+     */
+    public String getEngine() {
+        return engine;
+    }
+
+    /**
+     * Vraća vrijeme početka.
+     *
+     * @return Vrijeme početka u minutama.
+     */
+    public int getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Vraća broj pronađenih ruta.
+     *
+     * @return Broj ruta.
+     */
+    public int getRouteCount() {
+        return routeCount;
+    }
+
+    /**
+     * Vraća broj čvorova (oznaka, polazaka) uzetih na obradu.
+     *
+     * @return Broj čvorova.
+     */
+    public long getNodesPolled() {
+        return nodesPolled;
+    }
+
+    /**
+     * Vraća broj razmotrenih ivica.
+     *
+     * @return Broj ivica.
+     */
+    public long getEdgesRelaxed() {
+        return edgesRelaxed;
+    }
+
+    /**
+     * Vraća najveću veličinu reda čekanja tokom pretrage.
+     *
+     * @return Veličina reda.
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Vraća broj odbačenih djelimičnih ruta.
+     *
+     * @return Broj odbačenih ruta.
+     */
+    public long getPrunedPaths() {
+        return prunedPaths;
+    }
+
+    /**
+     * Vraća trajanje pretrage.
+     *
+     * @return Trajanje u nanosekundama.
+     */
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    /**
+     * Vraća broj bajtova alociranih tokom pretrage.
+     *
+     * @return Broj bajtova, ili -1 ako JVM ne podržava mjerenje.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s -> %s (%s, %s, %02d:%02d): %.3f ms, ruta %d, čvorova %d, ivica %d, red %d, odbačeno %d, alocirano %d B",
+                startCity, endCity, criterion, engine, startTime / 60, startTime % 60, wallTimeNanos / 1e6,
+                routeCount, nodesPolled, edgesRelaxed, maxQueueSize, prunedPaths, allocatedBytes);
+    }
+}
@@ -0,0 +1,322 @@
+package main.transport;
+
+import main.model.City;
+import main.model.CompactGraph;
+import main.model.Edge;
+
+import java.util.*;
+
+/**
+ * Višekriterijumska pretraga ruta zasnovana na RAPTOR algoritmu (pretraga po rundama).
+ * U rundi k obilaze se polasci sa stanica koje su poboljšane u rundi k-1, pa jedno
+ * izvršavanje daje Pareto skup ruta po vremenu dolaska i broju presjedanja,
+ * a po potrebi i po cijeni.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class Raptor implements RoutingEngine {
+    private static final int DAY = 1440;
+    private static final int MAX_ROUTES = 5;
+
+    private final CompactGraph graph;
+    private final int defaultRounds;
+
+    /**
+     * Oznaka (label) jedne djelimične rute do stanice.
+     */
+    private static final class Label {
+        final int station;
+        final int arrival;
+        final int ready;
+        final int price;
+        final int hops;
+        final Label parent;
+        final int edge;
+        boolean dominated;
+
+        Label(int station, int arrival, int ready, int price, int hops, Label parent, int edge) {
+            this.station = station;
+            this.arrival = arrival;
+            this.ready = ready;
+            this.price = price;
+            this.hops = hops;
+            this.parent = parent;
+            this.edge = edge;
+        }
+    }
+
+    /**
+     * Kreira RAPTOR pretragu nad kompaktnim grafom mreže.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     */
+    public Raptor(CompactGraph graph) {
+        this.graph = graph;
+        int rows = 0;
+        int cols = 0;
+        for (int c = 0; c < graph.cityCount(); c++) {
+            rows = Math.max(rows, graph.city(c).getRow() + 1);
+            cols = Math.max(cols, graph.city(c).getColumn() + 1);
+        }
+        this.defaultRounds = Math.max(1, 2 * (rows + cols));
+    }
+
+    /**
+     * Kreira pretragu sa već izračunatim brojem rundi.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     * @param defaultRounds Najveći broj rundi.
+     */
+    private Raptor(CompactGraph graph, int defaultRounds) {
+        this.graph = graph;
+        this.defaultRounds = defaultRounds;
+    }
+
+    /**
+     * Vraća pretragu nad grafom nastalim izmjenom reda vožnje. Izmjena ne mijenja gradove,
+     * pa se broj rundi ne računa ponovo.
+     *
+     * @param updated Novi graf polazaka.
+     * @return Pretraga nad novim grafom.
+     */
+    Raptor update(CompactGraph updated) {
+        return new Raptor(updated, defaultRounds);
+    }
+
+    /**
+     * Pronalazi do 5 ruta između dva grada: rute koje nisu dominirane po kriterijumu
+     * (podrazumijevano Pareto skup po vremenu dolaska, broju presjedanja i cijeni),
+     * sortirane po kriterijumu. Najveći broj rundi je dvostruki
+     * zbir broja redova i kolona mreže.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @return Lista ruta, od najbolje prema kriterijumu.
+     */
+    @Override
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime) {
+        List<Route> result = new ArrayList<>(findParetoRoutes(startCity, endCity, startTime, true, defaultRounds,
+                criterion));
+        result.sort(criterion::compare);
+        return result.subList(0, Math.min(result.size(), MAX_ROUTES));
+    }
+
+    /**
+     * Pronalazi Pareto-optimalne rute između dva grada. Ruta je u skupu ako nijedna
+     * druga ruta nije istovremeno bar jednako dobra po vremenu dolaska, broju
+     * presjedanja i (ako je uključena) cijeni.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @param includePrice Da li je cijena treći kriterijum.
+     * @param maxRounds Najveći broj polazaka (vožnji) na ruti.
+     * @return Pareto skup ruta, sortiran po vremenu dolaska.
+     */
+    public List<Route> findParetoRoutes(City startCity, City endCity, int startTime, boolean includePrice, int maxRounds) {
+        return findParetoRoutes(startCity, endCity, startTime, includePrice, maxRounds, StandardCriterion.TIME);
+    }
+
+    /**
+     * Pronalazi rute između dva grada koje nisu dominirane po datom kriterijumu (vidi
+     * {@link Criterion#dominates}); za podrazumijevanu dominaciju to je Pareto skup.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @param includePrice Da li je cijena treći kriterijum.
+     * @param maxRounds Najveći broj polazaka (vožnji) na ruti.
+     * @param criterion Kriterijum koji određuje dominaciju između oznaka.
+     * @return Nedominirane rute, sortirane po vremenu dolaska.
+     */
+    private List<Route> findParetoRoutes(City startCity, City endCity, int startTime, boolean includePrice,
+                                         int maxRounds, Criterion criterion) {
+        if (startCity.equals(endCity)) {
+            return Collections.emptyList();
+        }
+        int startBus = startCity.getBusStation().getId();
+        int startTrain = startCity.getTrainStation().getId();
+        int endBus = endCity.getBusStation().getId();
+        int endTrain = endCity.getTrainStation().getId();
+        int n = graph.stationCount();
+
+        List<List<Label>> bags = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            bags.add(new ArrayList<>());
+        }
+        List<Label> targetBag = new ArrayList<>();
+
+        List<Label> frontier = new ArrayList<>();
+        for (int start : new int[]{startBus, startTrain}) {
+            Label label = new Label(start, startTime, startTime, 0, 0, null, -1);
+            bags.get(start).add(label);
+            frontier.add(label);
+        }
+
+        long polled = 0;
+        long relaxed = 0;
+        long pruned = 0;
+        int maxFrontier = frontier.size();
+        for (int round = 1; round <= maxRounds && !frontier.isEmpty(); round++) {
+            List<Label> next = new ArrayList<>();
+            for (Label label : frontier) {
+                if (label.dominated) {
+                    pruned++;
+                    continue;
+                }
+                if ((++polled & 255) == 0) RoutingEngine.checkCancelled();
+                for (int e = graph.firstEdge(label.station); e < graph.endEdge(label.station); e++) {
+                    relaxed++;
+                    int to = graph.target(e);
+                    int wait = Math.floorMod(graph.departureTime(e) - label.ready, DAY);
+                    int arrival = label.ready + wait + graph.duration(e);
+                    int ready = arrival + graph.minTransferTime(e);
+                    int price = label.price + graph.price(e);
+                    int hops = label.hops + 1;
+
+                    if (to == endBus || to == endTrain) {
+                        insertTarget(targetBag, new Label(to, arrival, ready, price, hops, label, e), criterion, includePrice);
+                        continue;
+                    }
+                    if (prunedByTarget(targetBag, arrival, price, hops, criterion, includePrice)) {
+                        pruned++;
+                        continue;
+                    }
+
+                    Label reached = new Label(to, arrival, ready, price, hops, label, e);
+                    if (!insert(bags.get(to), reached, criterion, includePrice)) {
+                        pruned++;
+                        continue;
+                    }
+                    next.add(reached);
+
+                    int other = graph.partner(to);
+                    int transferReady = ready + CompactGraph.TRANSFER_TIME;
+                    Label transferred = new Label(other, transferReady, transferReady,
+                            price + CompactGraph.TRANSFER_PRICE, hops + 1, reached, -1);
+                    if (!prunedByTarget(targetBag, transferred.ready, transferred.price, transferred.hops, criterion,
+                            includePrice) && insert(bags.get(other), transferred, criterion, includePrice)) {
+                        next.add(transferred);
+                    }
+                }
+            }
+            frontier = next;
+            maxFrontier = Math.max(maxFrontier, frontier.size());
+        }
+        SearchCounters.report(polled, relaxed, maxFrontier, pruned);
+
+        targetBag.sort(Comparator.comparingInt((Label l) -> l.arrival).thenComparingInt(l -> l.hops));
+        List<Route> result = new ArrayList<>(targetBag.size());
+        for (Label label : targetBag) {
+            result.add(toRoute(label, startTime));
+        }
+        return result;
+    }
+
+    /**
+     * Dodaje oznaku u skup oznaka stanice ako nije dominirana, uklanjajući oznake koje ona dominira.
+     *
+     * @param bag Skup oznaka stanice.
+     * @param label Nova oznaka.
+     * @param criterion Kriterijum koji određuje dominaciju.
+     * @param includePrice Da li se cijena poredi.
+     * @return true ako je oznaka dodata, inače false.
+     */
+    private boolean insert(List<Label> bag, Label label, Criterion criterion, boolean includePrice) {
+        for (Label existing : bag) {
+            if (dominates(criterion, includePrice, existing.ready, existing.price, existing.hops,
+                    label.ready, label.price, label.hops)) {
+                return false;
+            }
+        }
+        bag.removeIf(existing -> {
+            boolean dominated = dominates(criterion, includePrice, label.ready, label.price, label.hops,
+                    existing.ready, existing.price, existing.hops);
+            if (dominated) existing.dominated = true;
+            return dominated;
+        });
+        bag.add(label);
+        return true;
+    }
+
+    /**
+     * Dodaje oznaku u skup ruta do krajnjeg grada, poredeći vrijeme dolaska.
+     *
+     * @param targetBag Skup oznaka krajnjeg grada.
+     * @param label Nova oznaka.
+     * @param criterion Kriterijum koji određuje dominaciju.
+     * @param includePrice Da li se cijena poredi.
+     */
+    private void insertTarget(List<Label> targetBag, Label label, Criterion criterion, boolean includePrice) {
+        if (prunedByTarget(targetBag, label.arrival, label.price, label.hops, criterion, includePrice)) return;
+        targetBag.removeIf(existing -> dominates(criterion, includePrice, label.arrival, label.price, label.hops,
+                existing.arrival, existing.price, existing.hops));
+        targetBag.add(label);
+    }
+
+    /**
+     * Provjerava da li je djelimična ruta već dominirana nekom rutom do krajnjeg grada.
+     * Nastavak rute može samo kasnije stići, biti skuplji i imati više skokova.
+     *
+     * @param targetBag Skup oznaka krajnjeg grada.
+     * @param arrival Vrijeme dolaska djelimične rute.
+     * @param price Cijena djelimične rute.
+     * @param hops Broj skokova djelimične rute.
+     * @param criterion Kriterijum koji određuje dominaciju.
+     * @param includePrice Da li se cijena poredi.
+     * @return true ako ruta može biti odbačena.
+     */
+    private boolean prunedByTarget(List<Label> targetBag, int arrival, int price, int hops, Criterion criterion,
+                                   boolean includePrice) {
+        for (Label target : targetBag) {
+            if (dominates(criterion, includePrice, target.arrival, target.price, target.hops, arrival, price, hops)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Provjerava da li prva oznaka dominira nad drugom po kriterijumu (vidi
+     * {@link Criterion#dominates}). Ako cijena nije kriterijum, cijene se ne porede.
+     *
+     * @param criterion Kriterijum koji određuje dominaciju.
+     * @param includePrice Da li se cijena poredi.
+     * @param timeA Vrijeme prve oznake.
+     * @param priceA Cijena prve oznake.
+     * @param hopsA Broj skokova prve oznake.
+     * @param timeB Vrijeme druge oznake.
+     * @param priceB Cijena druge oznake.
+     * @param hopsB Broj skokova druge oznake.
+     * @return true ako prva oznaka dominira nad drugom.
+     */
+    private static boolean dominates(Criterion criterion, boolean includePrice, int timeA, int priceA, int hopsA,
+                                     int timeB, int priceB, int hopsB) {
+        return includePrice
+                ? criterion.dominates(timeA, priceA, hopsA, timeB, priceB, hopsB)
+                : criterion.dominates(timeA, 0, hopsA, timeB, 0, hopsB);
+    }
+
+    /**
+     * Rekonstruiše rutu praćenjem roditeljskih oznaka.
+     *
+     * @param label Oznaka u krajnjem gradu.
+     * @param startTime Vrijeme početka u minutama.
+     * @return Ruta do oznake.
+     */
+    private Route toRoute(Label label, int startTime) {
+        List<Edge> edges = new ArrayList<>();
+        for (Label current = label; current.parent != null; current = current.parent) {
+            if (current.edge < 0) {
+                edges.add(graph.toTransferEdge(current.parent.station));
+            } else {
+                edges.add(graph.toEdge(current.edge));
+            }
+        }
+        Collections.reverse(edges);
+        return new Route(edges, label.arrival - startTime, label.price, label.hops, startTime);
+    }
+}
@@ -0,0 +1,508 @@
+package main.transport;
+
+import main.model.City;
+import main.model.Edge;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Ograničen keš rezultata pretrage ruta, koji se koristi ispred {@link Network#findRoutes}.
+ * <p>
+ * Ključ je (početni grad, krajnji grad, kriterijum, algoritam, vremenska korpa polaska).
+ * Korpa je polazni prozor: svi upiti iz istih {@code bucketMinutes} minuta dijele jedan unos.
+ * Unos pamti vrijeme polaska za koje je izračunat i koliko minuta kasnije je i dalje moguće
+ * stići na prvi polazak svake njegove rute. Kasniji upit iz istog prozora, unutar te
+ * rezerve, dobija iste rute pomjerene na svoje vrijeme polaska: čekanje na prvi polazak je
+ * kraće, a sve ostalo je isto. Pošto se vrijeme svih ruta skraćuje za isti broj minuta,
+ * redoslijed po standardnim kriterijumima ostaje isti; tačni algoritmi bi tada vratili iste
+ * rute, a heuristički (npr. {@link StandardEngine#BEST_FIRST}) mogu vratiti drugačiji, ali
+ * jednako izvodiv izbor. Raniji upit, ili upit poslije prvog
+ * polaska neke rute, pokreće pretragu, a njen rezultat zamjenjuje unos prozora.
+ * Unos pamti i verziju mreže (vidi {@link NetworkSnapshot#getVersion()}) nad kojom je
+ * izračunat: nakon izmjene reda vožnje stari unosi se ne vraćaju i zamjenjuju se novim
+ * pri sljedećem upitu, bez brisanja cijelog keša.
+ * <p>
+ * Težina unosa je broj ivica u svim njegovim rutama. Izbacivanje radi po W-TinyLFU
+ * principu: novi unosi ulaze u mali LRU prozor (1% težine), a kandidat koji izlazi iz
+ * prozora ulazi u glavni LRU dio samo ako je prema skici frekvencija traženiji od unosa
+ * koji bi izbacio. Tako jednokratni upiti ne istiskuju popularne parove gradova.
+ * <p>
+ * Čitanja su bez zaključavanja ({@link ConcurrentHashMap}); redoslijed korišćenja i skica
+ * frekvencija ažuriraju se samo ako brava nije zauzeta, pa istovremena čitanja ne čekaju.
+ * {@link #invalidateAll()} briše keš i odbacuje rezultate pretraga započetih prije poziva.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class RouteCache {
+    /** Podrazumijevana najveća težina keša (ukupan broj ivica u keširanim rutama). */
+    public static final long DEFAULT_MAX_WEIGHT = 200_000;
+    /** Podrazumijevana širina vremenske korpe u minutama. */
+    public static final int DEFAULT_BUCKET_MINUTES = 15;
+
+    private final long maxWeight;
+    private final long windowMaxWeight;
+    private final int bucketMinutes;
+    private final ConcurrentHashMap<Key, Entry> data = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long windowWeight;
+    private long mainWeight;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Kreira keš sa podrazumijevanom težinom i širinom vremenske korpe.
+     */
+    public RouteCache() {
+        this(DEFAULT_MAX_WEIGHT, DEFAULT_BUCKET_MINUTES);
+    }
+
+    /**
+     * Kreira keš.
+     *
+     * @param maxWeight Najveća ukupna težina unosa (broj ivica u keširanim rutama).
+     * @param bucketMinutes Širina vremenske korpe u minutama.
+     * @throws IllegalArgumentException Ako težina ili širina korpe nisu pozitivne.
+     */
+    public RouteCache(long maxWeight, int bucketMinutes) {
+        if (maxWeight <= 0 || bucketMinutes <= 0) {
+            throw new IllegalArgumentException("Težina keša i širina korpe moraju biti pozitivne");
+        }
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = Math.max(1, maxWeight / 100);
+        this.bucketMinutes = bucketMinutes;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 22, Math.max(64, maxWeight / 4)));
+    }
+
+    /**
+     * Vraća keširane rute za upit, ili ih izračunava datom pretragom i kešira.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param engine Algoritam pretrage.
+     * @param startTime Vrijeme početka u minutama.
+     * @param version Verzija mreže nad kojom se pretražuje.
+     * @param search Pretraga koja se izvršava ako rezultat nije u kešu.
+     * @return Nepromjenljiva lista ruta.
+     */
+    public List<Route> getOrCompute(City startCity, City endCity, Criterion criterion, RoutingEngine engine,
+                                    int startTime, long version, Supplier<List<Route>> search) {
+        Key key = new Key(startCity.getId(), endCity.getId(), criterion, engine.getClass(),
+                Math.floorDiv(startTime, bucketMinutes));
+        Entry entry = data.get(key);
+        int delay = entry == null ? -1 : startTime - entry.startTime;
+        if (entry != null && entry.version == version && delay >= 0 && delay <= entry.slack) {
+            hits.increment();
+            if (policyLock.tryLock()) {
+                try {
+                    sketch.increment(key.hashCode());
+                    if (window.get(key) == null) main.get(key);
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+            return delay == 0 ? entry.routes : entry.shift(delay);
+        }
+        misses.increment();
+        long startGeneration = generation.get();
+        List<Route> routes = List.copyOf(search.get());
+        put(key, new Entry(routes, startTime, version), startGeneration);
+        return routes;
+    }
+
+    /**
+     * Briše sve unose. Rezultati pretraga koje su započele prije poziva se ne keširaju.
+     */
+    public void invalidateAll() {
+        policyLock.lock();
+        try {
+            generation.incrementAndGet();
+            data.clear();
+            window.clear();
+            main.clear();
+            windowWeight = 0;
+            mainWeight = 0;
+            sketch.clear();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Vraća broj upita odgovorenih iz keša.
+     *
+     * @return Broj pogodaka.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Vraća broj upita za koje je pokrenuta pretraga.
+     *
+     * @return Broj promašaja.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Vraća udio upita odgovorenih iz keša.
+     *
+     * @return Udio pogodaka između 0 i 1, ili 0 ako nije bilo upita.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Vraća broj unosa izbačenih zbog ograničenja težine.
+     *
+     * @return Broj izbačenih unosa.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Vraća broj unosa u kešu.
+     *
+     * @return Broj unosa.
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Vraća ukupnu težinu unosa u kešu.
+     *
+     * @return Težina (broj ivica u keširanim rutama).
+     */
+    public long getWeight() {
+        policyLock.lock();
+        try {
+            return windowWeight + mainWeight;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Dodaje unos u prozor i, ako je prozor pun, premješta njegove najstarije unose u
+     * glavni dio ili ih izbacuje. Unos izračunat nad starijom verzijom mreže ne zamjenjuje
+     * noviji unos.
+     *
+     * @param key Ključ.
+     * @param entry Unos.
+     * @param startGeneration Generacija keša u trenutku kada je pretraga započela.
+     */
+    private void put(Key key, Entry entry, long startGeneration) {
+        if (entry.weight > maxWeight) return;
+        policyLock.lock();
+        try {
+            if (generation.get() != startGeneration) return;
+            Entry existing = data.get(key);
+            if (existing != null && existing.version > entry.version) return;
+            sketch.increment(key.hashCode());
+            remove(key);
+            data.put(key, entry);
+            window.put(key, entry);
+            windowWeight += entry.weight;
+            while (windowWeight > windowMaxWeight && !window.isEmpty()) {
+                Map.Entry<Key, Entry> eldest = window.entrySet().iterator().next();
+                window.remove(eldest.getKey());
+                windowWeight -= eldest.getValue().weight;
+                admit(eldest.getKey(), eldest.getValue());
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Prima kandidata iz prozora u glavni dio ako je traženiji od unosa koje bi
+     * istisnuo i ako njihovo izbacivanje oslobađa dovoljno mjesta; u suprotnom izbacuje
+     * kandidata, pa glavni dio nikad ne prelazi svoju težinu.
+     *
+     * @param key Ključ kandidata.
+     * @param candidate Kandidat.
+     */
+    private void admit(Key key, Entry candidate) {
+        long mainMaxWeight = maxWeight - windowMaxWeight;
+        if (mainWeight + candidate.weight > mainMaxWeight) {
+            Iterator<Map.Entry<Key, Entry>> victims = main.entrySet().iterator();
+            int candidateFrequency = sketch.frequency(key.hashCode());
+            long freed = 0;
+            List<Key> evicted = new ArrayList<>();
+            while (mainWeight - freed + candidate.weight > mainMaxWeight && victims.hasNext()) {
+                Map.Entry<Key, Entry> victim = victims.next();
+                if (sketch.frequency(victim.getKey().hashCode()) >= candidateFrequency) {
+                    evict(key, candidate);
+                    return;
+                }
+                freed += victim.getValue().weight;
+                evicted.add(victim.getKey());
+            }
+            if (mainWeight - freed + candidate.weight > mainMaxWeight) {
+                evict(key, candidate);
+                return;
+            }
+            for (Key victim : evicted) {
+                evict(victim, main.remove(victim));
+            }
+            mainWeight -= freed;
+        }
+        main.put(key, candidate);
+        mainWeight += candidate.weight;
+    }
+
+    /**
+     * Uklanja postojeći unos za ključ iz prozora ili glavnog dijela.
+     *
+     * @param key Ključ.
+     */
+    private void remove(Key key) {
+        Entry old = window.remove(key);
+        if (old != null) {
+            windowWeight -= old.weight;
+            return;
+        }
+        old = main.remove(key);
+        if (old != null) {
+            mainWeight -= old.weight;
+        }
+    }
+
+    /**
+     * Izbacuje unos iz keša.
+     *
+     * @param key Ključ.
+     * @param entry Unos.
+     */
+    private void evict(Key key, Entry entry) {
+        data.remove(key, entry);
+        evictions.increment();
+    }
+
+    /**
+     * Ključ keša.
+     */
+    private static final class Key {
+        private final int startCity;
+        private final int endCity;
+        private final Criterion criterion;
+        private final Class<?> engine;
+        private final int bucket;
+        private final int hash;
+
+        /**
+         * Konstruktor za ključ.
+         *
+         * @param startCity Identifikator početnog grada.
+         * @param endCity Identifikator krajnjeg grada.
+         * @param criterion Kriterijum optimizacije.
+         * @param engine Klasa algoritma pretrage.
+         * @param bucket Vremenska korpa polaska.
+         */
+        Key(int startCity, int endCity, Criterion criterion, Class<?> engine, int bucket) {
+            this.startCity = startCity;
+            this.endCity = endCity;
+            this.criterion = criterion;
+            this.engine = engine;
+            this.bucket = bucket;
+            this.hash = Objects.hash(startCity, endCity, criterion, engine, bucket);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return startCity == other.startCity && endCity == other.endCity && bucket == other.bucket
+                    && engine == other.engine && Objects.equals(criterion, other.criterion);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Unos keša: rute, vrijeme početka i verzija mreže za koje su izračunate, težina i
+     * rezerva do prvog polaska.
+     */
+    private static final class Entry {
+        private final List<Route> routes;
+        private final int startTime;
+        private final long version;
+        private final long weight;
+        private final int slack;
+
+        /**
+         * Konstruktor za unos.
+         *
+         * @param routes Rute.
+         * @param startTime Vrijeme početka u minutama.
+         * @param version Verzija mreže.
+         */
+        Entry(List<Route> routes, int startTime, long version) {
+            this.routes = routes;
+            this.startTime = startTime;
+            this.version = version;
+            long edges = 1;
+            for (Route route : routes) {
+                edges += route.getEdges().size();
+            }
+            this.weight = edges;
+            int minSlack = Integer.MAX_VALUE;
+            for (Route route : routes) {
+                minSlack = Math.min(minSlack, firstWait(route));
+            }
+            this.slack = minSlack;
+        }
+
+        /**
+         * Vraća rute pomjerene na kasnije vrijeme polaska. Poziva se samo za pomak unutar
+         * rezerve, pa se na prvi polazak svake rute i dalje stiže.
+         *
+         * @param delay Pomak vremena polaska u minutama.
+         * @return Nepromjenljiva lista pomjerenih ruta.
+         */
+        List<Route> shift(int delay) {
+            List<Route> shifted = new ArrayList<>(routes.size());
+            for (Route route : routes) {
+                int totalTime = firstWait(route) == Integer.MAX_VALUE
+                        ? route.getTotalTime() : route.getTotalTime() - delay;
+                shifted.add(new Route(route.getEdges(), totalTime, route.getTotalPrice(), route.getTransferCount(),
+                        route.getStartTime() + delay));
+            }
+            return List.copyOf(shifted);
+        }
+
+        /**
+         * Računa čekanje na prvi polazak rute iz reda vožnje, računajući i transfere prije njega.
+         *
+         * @param route Ruta.
+         * @return Čekanje u minutama, ili {@link Integer#MAX_VALUE} ako ruta nema polazaka.
+         */
+        private static int firstWait(Route route) {
+            int time = route.getStartTime();
+            for (Edge edge : route.getEdges()) {
+                if (edge.isTransfer()) {
+                    time += edge.getDuration();
+                } else {
+                    return Math.floorMod(edge.getDepartureTime() - time, 1440);
+                }
+            }
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Count-min skica sa 4-bitnim brojačima za procjenu koliko je često ključ tražen.
+     * Kada broj povećanja dostigne desetostruku veličinu tabele, svi brojači se
+     * prepolovljavaju, pa skica zaboravlja stare upite.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        /**
+         * Konstruktor za skicu.
+         *
+         * @param counters Približan broj brojača po redu.
+         */
+        FrequencySketch(int counters) {
+            int words = Integer.highestOneBit(Math.max(16, counters / 16) - 1) << 1;
+            this.table = new long[words];
+            this.sampleSize = 10 * words * 16 / SEEDS.length;
+        }
+
+        /**
+         * Povećava brojače ključa.
+         *
+         * @param hash Heš ključa.
+         */
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(hash, i);
+                int shift = shift(hash, i);
+                if (((table[index] >>> shift) & 0xF) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        /**
+         * Procjenjuje frekvenciju ključa kao najmanji od njegovih brojača.
+         *
+         * @param hash Heš ključa.
+         * @return Procijenjena frekvencija (0-15).
+         */
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, (int) ((table[index(hash, i)] >>> shift(hash, i)) & 0xF));
+            }
+            return frequency;
+        }
+
+        /**
+         * Briše sve brojače.
+         */
+        void clear() {
+            Arrays.fill(table, 0);
+            additions = 0;
+        }
+
+        /**
+         * Računa indeks riječi tabele za ključ i red skice.
+         *
+         * @param hash Heš ključa.
+         * @param row Red skice.
+         * @return Indeks riječi.
+         */
+        private int index(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            return (int) (h >>> 40) & (table.length - 1);
+        }
+
+        /**
+         * Računa pomak brojača unutar riječi za ključ i red skice.
+         *
+         * @param hash Heš ključa.
+         * @param row Red skice.
+         * @return Pomak u bitovima.
+         */
+        private int shift(int hash, int row) {
+            long h = (hash ^ SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+            return (int) (h >>> 60) << 2;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package main.transport;
+
+/**
+ * Prima rute koje pretraga pronađe prije nego što završi, npr. da korisnički interfejs
+ * prikaže najbolju dosad pronađenu rutu dok pretraga traje. Poziva se iz niti koja
+ * izvršava pretragu.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface RouteListener {
+
+    /**
+     * Obavještava o upravo pronađenoj ruti.
+     *
+     * @param route Pronađena ruta.
+     */
+    void routeFound(Route route);
+}
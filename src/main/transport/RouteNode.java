@@ -1,31 +1,41 @@
 package main.transport;
 
+import main.model.CompactGraph;
 import main.model.Edge;
 import main.model.Station;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Predstavlja čvor u pretrazi ruta sa informacijama o stanici i parametrima rute.
+ * Čvor ne kopira listu ivica, već pamti roditeljski čvor i posljednju dionicu;
+ * lista ivica se pravi tek za rute koje pretraga vrati.
  *
  * @author Mladen Grbić
  * @version 1.0
  */
 public class RouteNode {
-    Station station;
-    List<Edge> edges;
-    int currentTime;
-    int totalPrice;
-    int transferCount;
-    int cost;
-    int hopCount;
-    int totalTime;
+    private static final long ROOT_HASH = 0x2545F4914F6CDD1DL;
+
+    final Station station;
+    final RouteNode parent;
+    final Departure departure;
+    final long routeHash;
+    final int currentTime;
+    final int totalPrice;
+    final int transferCount;
+    final long cost;
+    final int hopCount;
+    final int totalTime;
 
     /**
      * Konstruktor za kreiranje čvora u pretrazi ruta.
      *
      * @param station Trenutna stanica.
-     * @param edges Lista ivica do trenutne stanice.
+     * @param parent Prethodni čvor na ruti, ili null za početni čvor.
+     * @param departure Polazak kojim se stiglo do stanice, ili null za transfer i početni čvor.
      * @param currentTime Trenutno vrijeme u minutama (0-1439).
      * @param totalPrice Ukupna cijena rute.
      * @param transferCount Broj transfera na ruti.
@@ -33,10 +43,14 @@ public class RouteNode {
      * @param hopCount Broj skokova (ivica) u ruti.
      * @param totalTime Ukupno vrijeme putovanja u minutama.
      */
-    RouteNode(Station station, List<Edge> edges, int currentTime, int totalPrice,
-              int transferCount, int cost, int hopCount, int totalTime) {
+    RouteNode(Station station, RouteNode parent, Departure departure, int currentTime, int totalPrice,
+              int transferCount, long cost, int hopCount, int totalTime) {
         this.station = station;
-        this.edges = edges;
+        this.parent = parent;
+        this.departure = departure;
+        this.routeHash = parent == null
+                ? ROOT_HASH
+                : mix(mix(parent.routeHash, parent.station.getId()), station.getId());
         this.currentTime = currentTime;
         this.totalPrice = totalPrice;
         this.transferCount = transferCount;
@@ -45,12 +59,56 @@ public class RouteNode {
         this.totalTime = totalTime;
     }
 
+    /**
+     * Vraća ključ puta: niz ivica do ovog čvora završen datom stanicom.
+     * Dva puta sa istim nizom stanica imaju isti ključ.
+     *
+     * @param endStationId Identifikator krajnje stanice puta.
+     * @return Ključ puta.
+     */
+    long pathKey(int endStationId) {
+        return mix(routeHash, endStationId);
+    }
+
+    /**
+     * Rekonstruiše listu ivica od početnog čvora do ovog čvora.
+     *
+     * @return Lista ivica rute.
+     */
+    List<Edge> toEdges() {
+        List<Edge> edges = new ArrayList<>(hopCount);
+        for (RouteNode node = this; node.parent != null; node = node.parent) {
+            Departure d = node.departure;
+            if (d == null) {
+                edges.add(new Edge(node.parent.station, node.station, 0, CompactGraph.TRANSFER_TIME,
+                        CompactGraph.TRANSFER_PRICE, 0, true));
+            } else {
+                edges.add(new Edge(node.parent.station, node.station, d.getDepartureTime(), d.getDuration(),
+                        d.getPrice(), d.getMinTransferTime(), false));
+            }
+        }
+        Collections.reverse(edges);
+        return edges;
+    }
+
+    /**
+     * Miješa identifikator stanice u heš puta.
+     *
+     * @param hash Dosadašnji heš.
+     * @param value Identifikator stanice.
+     * @return Novi heš.
+     */
+    private static long mix(long hash, int value) {
+        long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 31);
+    }
+
     /**
      * Vraća trošak čvora prema kriterijumu pretrage.
      *
      * @return Trošak čvora.
      */
-    int getCost() {
+    long getCost() {
         return cost;
     }
 
@@ -60,4 +118,4 @@ public class RouteNode {
      * @return Trenutna stanica.
      */
     public Station getStation() { return station; }
-}
\ No newline at end of file
+}
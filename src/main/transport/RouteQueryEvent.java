@@ -0,0 +1,77 @@
+package main.transport;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR događaj jedne pretrage ruta, sa istim mjerenjima kao {@link QueryStatistics}.
+ * Trajanje događaja je trajanje pretrage. Snima se kada je snimanje uključeno, npr.
+ * {@code -XX:StartFlightRecording} ili {@code jcmd <pid> JFR.start}; isključen događaj
+ * se ne popunjava.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+@Name("main.transport.RouteQuery")
+@Label("Route Query")
+@Category({"Transport Route Planner", "Routing"})
+@Description("Jedna pretraga ruta između dva grada")
+final class RouteQueryEvent extends Event {
+    @Label("Start City")
+    String startCity;
+
+    @Label("End City")
+    String endCity;
+
+    @Label("Criterion")
+    String criterion;
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Departure Time")
+    @Description("Vrijeme početka upita u minutama od ponoći")
+    int departureTime;
+
+    @Label("Routes Found")
+    int routeCount;
+
+    @Label("Nodes Polled")
+    long nodesPolled;
+
+    @Label("Edges Relaxed")
+    long edgesRelaxed;
+
+    @Label("Max Queue Size")
+    int maxQueueSize;
+
+    @Label("Pruned Paths")
+    long prunedPaths;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    /**
+     * Popunjava događaj mjerenjima pretrage.
+     *
+     * @param statistics Mjerenja pretrage.
+     */
+    void fill(QueryStatistics statistics) {
+        startCity = statistics.getStartCity();
+        endCity = statistics.getEndCity();
+        criterion = statistics.getCriterion();
+        engine = statistics.getEngine();
+        departureTime = statistics.getStartTime();
+        routeCount = statistics.getRouteCount();
+        nodesPolled = statistics.getNodesPolled();
+        edgesRelaxed = statistics.getEdgesRelaxed();
+        maxQueueSize = statistics.getMaxQueueSize();
+        prunedPaths = statistics.getPrunedPaths();
+        allocatedBytes = statistics.getAllocatedBytes();
+    }
+}
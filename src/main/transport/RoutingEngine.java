@@ -0,0 +1,132 @@
+package main.transport;
+
+import main.model.City;
+import main.model.CompactGraph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Algoritam pretrage ruta nad jednom učitanom mrežom. {@link Network} pravi instancu
+ * algoritma pomoću {@link Factory} pri svakom učitavanju mreže i pri promjeni algoritma
+ * ({@link Network#setEngine}), pa se algoritmi mogu mijenjati u toku rada i porediti nad
+ * istom mrežom. Instanca ne mijenja svoje stanje između pretraga i može se istovremeno
+ * koristiti iz više niti.
+ * <p>
+ * Pretraga se prekida prekidom niti koja je izvršava ({@link Thread#interrupt()}):
+ * algoritmi povremeno pozivaju {@link #checkCancelled()} i tada bacaju
+ * {@link CancellationException}.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public interface RoutingEngine {
+
+    /**
+     * Pravi algoritam pretrage za kompaktni graf učitane mreže.
+     */
+    @FunctionalInterface
+    interface Factory {
+
+        /**
+         * Kreira algoritam pretrage nad datim grafom.
+         *
+         * @param graph Zamrznuti graf polazaka.
+         * @return Algoritam pretrage.
+         */
+        RoutingEngine create(CompactGraph graph);
+
+        /**
+         * Kreira algoritam nad grafom koji se od grafa prethodnog algoritma razlikuje samo
+         * u polascima datih stanica (izmjena reda vožnje). Algoritam sa skupom predobradom
+         * ovo nadjačava da zadrži predobradu koja i dalje važi; podrazumijevano se
+         * algoritam kreira iznova.
+         *
+         * @param previous Algoritam nad prethodnim grafom.
+         * @param graph Novi graf polazaka.
+         * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+         * @return Algoritam pretrage nad novim grafom.
+         */
+        default RoutingEngine update(RoutingEngine previous, CompactGraph graph, int[] changedStations) {
+            return create(graph);
+        }
+
+        /**
+         * Kreira algoritam nad grafom otvorenim iz binarnog snimka mreže. Algoritam čija se
+         * predobrada čuva uz snimak (vidi {@link RoutingEngine#writePreprocessing}) ovo
+         * nadjačava da je učita umjesto da je računa; podrazumijevano se algoritam kreira iznova.
+         *
+         * @param graph Kompaktni graf otvorenog snimka.
+         * @param snapshotPath Putanja do fajla snimka.
+         * @return Algoritam pretrage.
+         */
+        default RoutingEngine open(CompactGraph graph, Path snapshotPath) {
+            return create(graph);
+        }
+    }
+
+    /**
+     * Pronalazi do 5 ruta između dva grada, sortiranih po kriterijumu.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @return Lista ruta, od najbolje prema kriterijumu.
+     */
+    List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime);
+
+    /**
+     * Pronalazi do 5 ruta između dva grada i javlja svaku rutu čim je pronađena.
+     * Podrazumijevano javlja rute tek nakon pretrage; algoritmi koji rute nalaze jednu po
+     * jednu ovo nadjačavaju.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije.
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @param listener Prima pronađene rute, redoslijedom kojim su pronađene.
+     * @return Lista ruta, od najbolje prema kriterijumu.
+     */
+    default List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime,
+                                   RouteListener listener) {
+        List<Route> result = findRoutes(startCity, endCity, criterion, startTime);
+        result.forEach(listener::routeFound);
+        return result;
+    }
+
+    /**
+     * Provjerava da li algoritam podržava dati kriterijum. Za nepodržane kriterijume
+     * {@link Network} koristi pretragu po najboljem čvoru.
+     *
+     * @param criterion Kriterijum optimizacije.
+     * @return true ako algoritam može da traži rute po kriterijumu.
+     */
+    default boolean supports(Criterion criterion) {
+        return true;
+    }
+
+    /**
+     * Upisuje predobradu algoritma pored binarnog snimka mreže, da bi se pri otvaranju
+     * snimka učitala (vidi {@link Factory#open}). Podrazumijevano algoritam nema predobradu
+     * koja se čuva, pa se ništa ne upisuje.
+     *
+     * @param snapshotPath Putanja do fajla snimka.
+     * @throws IOException Ako dođe do greške pri pisanju.
+     */
+    default void writePreprocessing(Path snapshotPath) throws IOException {
+    }
+
+    /**
+     * Prekida pretragu ako je nit koja je izvršava prekinuta.
+     *
+     * @throws CancellationException Ako je nit prekinuta.
+     */
+    static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Pretraga je prekinuta");
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package main.transport;
+
+import main.util.QuantileSketch;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Registar mjerenja pretraga ruta: histogram za svako mjerenje ({@link Metric}) i
+ * najsporije pretrage sa relacijom i kriterijumom, da se vidi koji parovi gradova
+ * su skupi. Histogrami su skice percentila sa relativnom greškom od 1%
+ * ({@link QuantileSketch}), pa memorija ne raste sa brojem pretraga.
+ * <p>
+ * {@link Network} upisuje svaku izvršenu pretragu (rezultati iz keša nisu pretrage);
+ * registar se može dijeliti između niti.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class RoutingMetrics {
+    private static final double ACCURACY = 0.01;
+    private static final int DEFAULT_SLOWEST = 20;
+
+    /**
+     * Mjerenje pretrage za koje se vodi histogram.
+     */
+    public enum Metric {
+        /** Trajanje pretrage u mikrosekundama. */
+        WALL_TIME_MICROS(statistics -> statistics.getWallTimeNanos() / 1000),
+        /** Broj čvorova uzetih na obradu. */
+        NODES_POLLED(QueryStatistics::getNodesPolled),
+        /** Broj razmotrenih ivica. */
+        EDGES_RELAXED(QueryStatistics::getEdgesRelaxed),
+        /** Najveća veličina reda čekanja. */
+        MAX_QUEUE_SIZE(QueryStatistics::getMaxQueueSize),
+        /** Broj odbačenih djelimičnih ruta. */
+        PRUNED_PATHS(QueryStatistics::getPrunedPaths),
+        /** Broj alociranih bajtova (ako ih JVM mjeri). */
+        ALLOCATED_BYTES(QueryStatistics::getAllocatedBytes);
+
+        private final ToLongFunction<QueryStatistics> value;
+
+        /**
+         * Konstruktor za mjerenje.
+         *
+         * @param value Čita vrijednost mjerenja iz statistike pretrage.
+         */
+        Metric(ToLongFunction<QueryStatistics> value) {
+            this.value = value;
+        }
+    }
+
+    private final int slowestLimit;
+    private final EnumMap<Metric, QuantileSketch> histograms = new EnumMap<>(Metric.class);
+    private final PriorityQueue<QueryStatistics> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(QueryStatistics::getWallTimeNanos));
+    private long queryCount;
+
+    /**
+     * Kreira registar koji pamti 20 najsporijih pretraga.
+     */
+    public RoutingMetrics() {
+        this(DEFAULT_SLOWEST);
+    }
+
+    /**
+     * Kreira registar.
+     *
+     * @param slowestLimit Broj najsporijih pretraga koje se pamte.
+     * @throws IllegalArgumentException Ako je broj negativan.
+     */
+    public RoutingMetrics(int slowestLimit) {
+        if (slowestLimit < 0) {
+            throw new IllegalArgumentException("Broj pretraga ne može biti negativan: " + slowestLimit);
+        }
+        this.slowestLimit = slowestLimit;
+        reset();
+    }
+
+    /**
+     * Upisuje mjerenja jedne pretrage.
+     *
+     * @param statistics Mjerenja pretrage.
+     */
+    public synchronized void record(QueryStatistics statistics) {
+        queryCount++;
+        for (Metric metric : Metric.values()) {
+            long value = metric.value.applyAsLong(statistics);
+            if (value >= 0) {
+                histograms.get(metric).add(value);
+            }
+        }
+        if (slowestLimit > 0) {
+            slowest.offer(statistics);
+            if (slowest.size() > slowestLimit) {
+                slowest.poll();
+            }
+        }
+    }
+
+    /**
+     * Vraća broj upisanih pretraga.
+     *
+     * @return Broj pretraga.
+     */
+    public synchronized long getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * Procjenjuje percentil mjerenja preko svih upisanih pretraga.
+     *
+     * @param metric Mjerenje.
+     * @param quantile Percentil kao udio između 0 i 1 (npr. 0.99 za 99. percentil).
+     * @return Procjena vrijednosti, ili 0 ako nema pretraga.
+     * @throws IllegalArgumentException Ako percentil nije između 0 i 1.
+     */
+    public synchronized long getQuantile(Metric metric, double quantile) {
+        return histograms.get(metric).quantile(quantile);
+    }
+
+    /**
+     * Vraća najsporije upisane pretrage.
+     *
+     * @return Pretrage, od najsporije.
+     */
+    public synchronized List<QueryStatistics> getSlowestQueries() {
+        List<QueryStatistics> result = new ArrayList<>(slowest);
+        result.sort(Comparator.comparingLong(QueryStatistics::getWallTimeNanos).reversed());
+        return result;
+    }
+
+    /**
+     * Briše sva upisana mjerenja.
+     */
+    public synchronized void reset() {
+        queryCount = 0;
+        for (Metric metric : Metric.values()) {
+            histograms.put(metric, new QuantileSketch(ACCURACY));
+        }
+        slowest.clear();
+    }
+
+    /**
+     * Vraća pregled medijana, 99. percentila i maksimuma za svako mjerenje.
+     *
+     * @return Pregled mjerenja.
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("Pretraga: ").append(queryCount);
+        for (Metric metric : Metric.values()) {
+            QuantileSketch histogram = histograms.get(metric);
+            builder.append(String.format("%n%-16s p50 %d, p99 %d, max %d", metric,
+                    histogram.quantile(0.5), histogram.quantile(0.99), histogram.quantile(1)));
+        }
+        return builder.toString();
+    }
+}
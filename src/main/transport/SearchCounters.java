@@ -0,0 +1,117 @@
+package main.transport;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Brojači jedne pretrage ruta: obrađeni čvorovi, relaksirane ivice, najveća veličina
+ * reda i odbačene djelimične rute.
+ * <p>
+ * {@link Network} otvara brojače prije pretrage u niti koja je izvršava, a algoritam
+ * pretrage na kraju prijavljuje svoje vrijednosti sa {@link #report}. Algoritmi broje u
+ * lokalnim promjenljivim i prijavljuju ih jednom po pretrazi, pa brojanje ne usporava
+ * unutrašnje petlje; prijava izvan otvorenih brojača se zanemaruje.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class SearchCounters {
+    private static final ThreadLocal<SearchCounters> ACTIVE = new ThreadLocal<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private long nodesPolled;
+    private long edgesRelaxed;
+    private int maxQueueSize;
+    private long prunedPaths;
+
+    /**
+     * Konstruktor za prazne brojače.
+     */
+    private SearchCounters() {
+    }
+
+    /**
+     * Otvara nove brojače za pretragu u trenutnoj niti.
+     *
+     * @return Brojači pretrage.
+     */
+    static SearchCounters begin() {
+        SearchCounters counters = new SearchCounters();
+        ACTIVE.set(counters);
+        return counters;
+    }
+
+    /**
+     * Zatvara brojače trenutne niti.
+     */
+    static void end() {
+        ACTIVE.remove();
+    }
+
+    /**
+     * Prijavljuje vrijednosti pretrage u brojače trenutne niti. Više prijava u istoj
+     * pretrazi se sabira (za veličinu reda uzima se najveća).
+     *
+     * @param nodesPolled Broj čvorova (oznaka, polazaka) uzetih na obradu.
+     * @param edgesRelaxed Broj razmotrenih ivica.
+     * @param maxQueueSize Najveća veličina reda čekanja.
+     * @param prunedPaths Broj odbačenih djelimičnih ruta.
+     */
+    public static void report(long nodesPolled, long edgesRelaxed, int maxQueueSize, long prunedPaths) {
+        SearchCounters counters = ACTIVE.get();
+        if (counters == null) return;
+        counters.nodesPolled += nodesPolled;
+        counters.edgesRelaxed += edgesRelaxed;
+        counters.maxQueueSize = Math.max(counters.maxQueueSize, maxQueueSize);
+        counters.prunedPaths += prunedPaths;
+    }
+
+    /**
+     * Vraća broj bajtova koje je trenutna nit alocirala od svog pokretanja.
+     *
+     * @return Broj bajtova, ili -1 ako JVM ne podržava mjerenje alokacija po niti.
+     */
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Vraća broj čvorova uzetih na obradu.
+     *
+     * @return Broj čvorova.
+     */
+    long getNodesPolled() {
+        return nodesPolled;
+    }
+
+    /**
+     * Vraća broj razmotrenih ivica.
+     *
+     * @return Broj ivica.
+     */
+    long getEdgesRelaxed() {
+        return edgesRelaxed;
+    }
+
+    /**
+     * Vraća najveću veličinu reda čekanja.
+     *
+     * @return Veličina reda.
+     */
+    int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Vraća broj odbačenih djelimičnih ruta.
+     *
+     * @return Broj odbačenih ruta.
+     */
+    long getPrunedPaths() {
+        return prunedPaths;
+    }
+}
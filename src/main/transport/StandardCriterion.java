@@ -0,0 +1,102 @@
+package main.transport;
+
+/**
+ * Standardni kriterijumi optimizacije. Svaki poredi rute leksikografski: prvo po glavnoj
+ * veličini, pa po sporednoj (vrijeme, odnosno cijena za kriterijum vremena).
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public enum StandardCriterion implements Criterion {
+    /** Najkraće trajanje, pa najniža cijena. */
+    TIME("time") {
+        @Override
+        public long cost(int time, int price, int hops) {
+            return pack(time, price);
+        }
+
+        @Override
+        public long priority(int time, int price, int hops, int distance, boolean transfer) {
+            return time + distance * DISTANCE_TIME + (transfer ? TRANSFER_PENALTY : 0);
+        }
+    },
+    /** Najniža cijena, pa najkraće trajanje. */
+    PRICE("price") {
+        @Override
+        public long cost(int time, int price, int hops) {
+            return pack(price, time);
+        }
+
+        @Override
+        public long priority(int time, int price, int hops, int distance, boolean transfer) {
+            return price + distance * DISTANCE_PRICE + (transfer ? TRANSFER_PENALTY : 0);
+        }
+    },
+    /** Najmanji broj skokova, pa najkraće trajanje. */
+    TRANSFERS("transfers") {
+        @Override
+        public long cost(int time, int price, int hops) {
+            return pack(hops, time);
+        }
+
+        @Override
+        public long priority(int time, int price, int hops, int distance, boolean transfer) {
+            return (long) hops * HOP_WEIGHT + distance * DISTANCE_TIME + (transfer ? TRANSFER_PENALTY * HOP_WEIGHT : 0);
+        }
+    };
+
+    /** Kazna vremena po koraku udaljenosti od krajnjeg grada u pretrazi po najboljem čvoru. */
+    static final int DISTANCE_TIME = 10;
+    /** Kazna cijene po koraku udaljenosti od krajnjeg grada u pretrazi po najboljem čvoru. */
+    static final int DISTANCE_PRICE = 150;
+    /** Kazna za transfer između stanica istog grada u pretrazi po najboljem čvoru. */
+    static final int TRANSFER_PENALTY = 100;
+    /** Težina jednog skoka za kriterijum presjedanja u pretrazi po najboljem čvoru. */
+    static final int HOP_WEIGHT = 1000;
+
+    private final String name;
+
+    /**
+     * Konstruktor za kriterijum.
+     *
+     * @param name Ime kriterijuma.
+     */
+    StandardCriterion(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Vraća ime kriterijuma ("time", "price", "transfers").
+     *
+     * @return Ime kriterijuma.
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Vraća standardni kriterijum sa datim imenom.
+     *
+     * @param name Ime kriterijuma ("time", "price", "transfers").
+     * @return Kriterijum.
+     * @throws IllegalArgumentException Ako kriterijum nije podržan.
+     */
+    public static StandardCriterion fromName(String name) {
+        for (StandardCriterion criterion : values()) {
+            if (criterion.name.equals(name)) return criterion;
+        }
+        throw new IllegalArgumentException("Nepoznat kriterijum: " + name);
+    }
+
+    /**
+     * Spaja glavnu i sporednu vrijednost u jedan trošak.
+     *
+     * @param primary Glavna vrijednost (nenegativna).
+     * @param secondary Sporedna vrijednost (nenegativna).
+     * @return Trošak koji se poredi leksikografski.
+     */
+    private static long pack(int primary, int secondary) {
+        return ((long) primary << 32) | (secondary & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,128 @@
+package main.transport;
+
+import main.model.CompactGraph;
+
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * Algoritmi pretrage ruta koji dolaze uz aplikaciju.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public enum StandardEngine implements RoutingEngine.Factory {
+    /** Pretraga po najboljem čvoru nad grafom stanica, sa kaznom za udaljenost od krajnjeg grada (podrazumijevana). */
+    BEST_FIRST(BestFirstSearch::new),
+    /** Connection Scan algoritam nad sortiranim nizom svih polazaka; podržava samo kriterijum vremena. */
+    CONNECTION_SCAN(ConnectionScan::new),
+    /** RAPTOR pretraga po rundama; rute se biraju iz Pareto skupa po vremenu, presjedanjima i cijeni. */
+    RAPTOR(Raptor::new) {
+        /**
+         * Zadržava broj rundi prethodne pretrage; izmjena reda vožnje ne mijenja gradove.
+         *
+         * @param previous Algoritam nad prethodnim grafom.
+         * @param graph Novi graf polazaka.
+         * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+         * @return Algoritam pretrage nad novim grafom.
+         */
+        @Override
+        public RoutingEngine update(RoutingEngine previous, CompactGraph graph, int[] changedStations) {
+            return previous instanceof Raptor raptor
+                    ? raptor.update(graph)
+                    : create(graph);
+        }
+    },
+    /**
+     * Ciljno usmjerena A* pretraga sa donjim granicama izračunatim pri kreiranju; uključuje se
+     * sa {@link Network#setEngine}.
+     */
+    A_STAR(AStarSearch::new) {
+        /**
+         * Zadržava donje granice prethodne pretrage ako i dalje važe za novi graf.
+         *
+         * @param previous Algoritam nad prethodnim grafom.
+         * @param graph Novi graf polazaka.
+         * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+         * @return Algoritam pretrage nad novim grafom.
+         */
+        @Override
+        public RoutingEngine update(RoutingEngine previous, CompactGraph graph, int[] changedStations) {
+            return previous instanceof AStarSearch search
+                    ? search.update(graph, changedStations)
+                    : create(graph);
+        }
+    },
+    /** Dijkstrin algoritam nad vremenski proširenim grafom događaja; podržava samo kriterijum vremena. */
+    TIME_EXPANDED(TimeExpandedSearch::new) {
+        /**
+         * Mijenja samo lukove vremenski proširenog grafa za promijenjene stanice.
+         *
+         * @param previous Algoritam nad prethodnim grafom.
+         * @param graph Novi graf polazaka.
+         * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+         * @return Algoritam pretrage nad novim grafom.
+         */
+        @Override
+        public RoutingEngine update(RoutingEngine previous, CompactGraph graph, int[] changedStations) {
+            return previous instanceof TimeExpandedSearch search
+                    ? search.update(graph, changedStations)
+                    : create(graph);
+        }
+    },
+    /**
+     * A* pretraga ograničena na koridor gradova iz hijerarhije kontrakcije. Rute su približne:
+     * ruta van koridora može biti bolja od pronađene (vidi {@link Network#setEngine}).
+     */
+    CORRIDOR(CorridorSearch::new) {
+        /**
+         * Učitava hijerarhiju gradova upisanu pored snimka, ako postoji i odgovara grafu.
+         *
+         * @param graph Kompaktni graf otvorenog snimka.
+         * @param snapshotPath Putanja do fajla snimka.
+         * @return Algoritam pretrage.
+         */
+        @Override
+        public RoutingEngine open(CompactGraph graph, Path snapshotPath) {
+            return CorridorSearch.open(graph, snapshotPath);
+        }
+
+        /**
+         * Zadržava hijerarhiju gradova i donje granice prethodne pretrage ako i dalje važe
+         * za novi graf.
+         *
+         * @param previous Algoritam nad prethodnim grafom.
+         * @param graph Novi graf polazaka.
+         * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+         * @return Algoritam pretrage nad novim grafom.
+         */
+        @Override
+        public RoutingEngine update(RoutingEngine previous, CompactGraph graph, int[] changedStations) {
+            return previous instanceof CorridorSearch search
+                    ? search.update(graph, changedStations)
+                    : create(graph);
+        }
+    };
+
+    private final Function<CompactGraph, RoutingEngine> constructor;
+
+    /**
+     * Konstruktor za algoritam.
+     *
+     * @param constructor Pravi instancu algoritma nad grafom.
+     */
+    StandardEngine(Function<CompactGraph, RoutingEngine> constructor) {
+        this.constructor = constructor;
+    }
+
+    /**
+     * Kreira algoritam pretrage nad datim grafom.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     * @return Algoritam pretrage.
+     */
+    @Override
+    public RoutingEngine create(CompactGraph graph) {
+        return constructor.apply(graph);
+    }
+}
@@ -0,0 +1,421 @@
+package main.transport;
+
+import main.model.CompactGraph;
+import main.util.PagedArray;
+import main.util.PagedIntArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Vremenski prošireni graf reda vožnje: čvorovi su događaji (polasci i dolasci), a
+ * težina svakog luka je broj minuta između njegova dva događaja, pa običan Dijkstrin
+ * algoritam nad cjelobrojnim identifikatorima čvorova daje tačne najranije dolaske.
+ * <p>
+ * Polazak (ivica {@code e} kompaktnog grafa) je čvor {@code 2e}, a dolazak tog polaska
+ * je čvor {@code 2e + 1}, pa čvorovi zadržavaju identifikatore kada izmjena reda vožnje
+ * doda nove ivice (vidi {@link CompactGraph#edgeLimit()}); identifikatori ivica koje ne
+ * pripadaju grafu su čvorovi bez lukova. Lukovi su:
+ * <ul>
+ *   <li>vožnja: polazak {@code e} → dolazak {@code e}, težina je trajanje vožnje;</li>
+ *   <li>čekanje: polazak → sljedeći polazak iste stanice; polasci stanice su poredani po
+ *       vremenu u krug, pa posljednji polazak vodi na prvi polazak narednog dana;</li>
+ *   <li>nastavak: dolazak → prvi polazak iste stanice nakon minimalnog vremena transfera
+ *       polaska kojim se stiglo;</li>
+ *   <li>transfer: dolazak → prvi polazak partnerske stanice nakon minimalnog vremena
+ *       transfera i {@link CompactGraph#TRANSFER_TIME} minuta prelaska.</li>
+ * </ul>
+ * Red vožnje se ponavlja svakog dana, pa graf ima jedan dan događaja, a čekanje preko
+ * ponoći je luk čekanja. Svaki čvor ima najviše dva luka, pa čvor {@code v} ima mjesta za
+ * lukove {@code 2v} i {@code 2v + 1} u paralelnim cjelobrojnim nizovima podijeljenim na
+ * stranice; izmjena reda vožnje ({@link #update}) zato kopira samo stranice sa lukovima
+ * koje mijenja.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class TimeExpandedGraph {
+    private static final int DAY = 1440;
+    private static final int MISSING = -1;
+
+    private final CompactGraph graph;
+    private final int edgeLimit;
+    private final PagedIntArray arcTarget;
+    private final PagedIntArray arcWeight;
+    private final PagedArray<int[]> incoming;
+    private final int arcCount;
+
+    /**
+     * Gradi vremenski prošireni graf iz kompaktnog grafa mreže.
+     *
+     * @param graph Zamrznuti graf polazaka (polasci stanice sortirani po vremenu polaska).
+     */
+    public TimeExpandedGraph(CompactGraph graph) {
+        this.graph = graph;
+        this.edgeLimit = graph.edgeLimit();
+        int n = graph.stationCount();
+        int[] targets = new int[4 * edgeLimit];
+        int[] weights = new int[4 * edgeLimit];
+        Arrays.fill(targets, MISSING);
+        int[] counts = new int[n];
+        int[] nodeTargets = new int[2];
+        int[] nodeWeights = new int[2];
+        int arcs = 0;
+
+        for (int s = 0; s < n; s++) {
+            for (int e = graph.firstEdge(s); e < graph.endEdge(s); e++) {
+                counts[graph.target(e)]++;
+                for (int node = 2 * e; node <= 2 * e + 1; node++) {
+                    int count = arcsOf(graph, node, nodeTargets, nodeWeights);
+                    System.arraycopy(nodeTargets, 0, targets, 2 * node, count);
+                    System.arraycopy(nodeWeights, 0, weights, 2 * node, count);
+                    arcs += count;
+                }
+            }
+        }
+        int[][] lists = new int[n][];
+        for (int s = 0; s < n; s++) {
+            lists[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (int s = 0; s < n; s++) {
+            for (int e = graph.firstEdge(s); e < graph.endEdge(s); e++) {
+                int t = graph.target(e);
+                lists[t][counts[t]++] = e;
+            }
+        }
+        this.arcTarget = PagedIntArray.of(targets);
+        this.arcWeight = PagedIntArray.of(weights);
+        this.incoming = PagedArray.of(lists);
+        this.arcCount = arcs;
+    }
+
+    /**
+     * Konstruktor za graf nastao izmjenom postojećeg.
+     *
+     * @param graph Kompaktni graf.
+     * @param arcTarget Krajnji čvorovi lukova, dva mjesta po čvoru.
+     * @param arcWeight Težine lukova, dva mjesta po čvoru.
+     * @param incoming Polasci koji stižu u stanicu, po stanici.
+     * @param arcCount Broj lukova.
+     */
+    private TimeExpandedGraph(CompactGraph graph, PagedIntArray arcTarget, PagedIntArray arcWeight,
+                              PagedArray<int[]> incoming, int arcCount) {
+        this.graph = graph;
+        this.edgeLimit = graph.edgeLimit();
+        this.arcTarget = arcTarget;
+        this.arcWeight = arcWeight;
+        this.incoming = incoming;
+        this.arcCount = arcCount;
+    }
+
+    /**
+     * Vraća graf za kompaktni graf nastao iz ovog izmjenom polazaka datih stanica
+     * ({@link CompactGraph#withDepartures}). Ovaj graf se ne mijenja.
+     * <p>
+     * Lukovi polaska zavise samo od polazaka njegove stanice, a lukovi dolaska od polazaka
+     * stanice dolaska i njene partnerske stanice. Zato se ponovo računaju samo lukovi
+     * polazaka promijenjenih stanica i dolazaka u te stanice i njihove partnere, a uklonjeni
+     * polasci ostaju bez lukova. Ako kompaktni graf nije zadržao identifikatore ivica
+     * (polasci su prepisani u nove osnovne nizove), graf se gradi iznova.
+     *
+     * @param updated Kompaktni graf nakon izmjene.
+     * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+     * @return Vremenski prošireni graf za izmijenjeni kompaktni graf.
+     */
+    public TimeExpandedGraph update(CompactGraph updated, int[] changedStations) {
+        if (!updated.sharesEdgeIds(graph)) {
+            return new TimeExpandedGraph(updated);
+        }
+        int limit = updated.edgeLimit();
+        PagedIntArray.Editor targets = arcTarget.edit();
+        PagedIntArray.Editor weights = arcWeight.edit();
+        targets.grow(4 * limit);
+        weights.grow(4 * limit);
+        for (int slot = 4 * edgeLimit; slot < 4 * limit; slot++) {
+            targets.set(slot, MISSING);
+        }
+
+        Map<Integer, List<Integer>> added = new TreeMap<>();
+        int arcs = arcCount;
+        for (int s : changedStations) {
+            for (int e = graph.firstEdge(s); e < graph.endEdge(s); e++) {
+                if (isLive(updated, e)) continue;
+                added.computeIfAbsent(graph.target(e), t -> new ArrayList<>());
+                arcs -= clear(targets, 2 * e) + clear(targets, 2 * e + 1);
+            }
+            for (int e = updated.firstEdge(s); e < updated.endEdge(s); e++) {
+                if (!isLive(graph, e)) {
+                    added.computeIfAbsent(updated.target(e), t -> new ArrayList<>()).add(e);
+                }
+            }
+        }
+        int[] touched = new int[added.size()];
+        int[][] lists = new int[added.size()][];
+        int i = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : added.entrySet()) {
+            int[] kept = Arrays.stream(incoming.get(entry.getKey())).filter(e -> isLive(updated, e)).toArray();
+            int[] list = Arrays.copyOf(kept, kept.length + entry.getValue().size());
+            for (int k = 0; k < entry.getValue().size(); k++) {
+                list[kept.length + k] = entry.getValue().get(k);
+            }
+            touched[i] = entry.getKey();
+            lists[i++] = list;
+        }
+        PagedArray<int[]> updatedIncoming = incoming.with(touched, lists);
+
+        int[] nodeTargets = new int[2];
+        int[] nodeWeights = new int[2];
+        for (int s : changedStations) {
+            for (int e = updated.firstEdge(s); e < updated.endEdge(s); e++) {
+                arcs += write(updated, 2 * e, targets, weights, nodeTargets, nodeWeights);
+                arcs += write(updated, 2 * e + 1, targets, weights, nodeTargets, nodeWeights);
+            }
+            for (int station : new int[]{s, updated.partner(s)}) {
+                for (int e : updatedIncoming.get(station)) {
+                    arcs += write(updated, 2 * e + 1, targets, weights, nodeTargets, nodeWeights);
+                }
+            }
+        }
+        return new TimeExpandedGraph(updated, targets.build(), weights.build(), updatedIncoming, arcs);
+    }
+
+    /**
+     * Provjerava da li ivica pripada grafu, tj. da li je u opsegu svoje polazne stanice.
+     *
+     * @param graph Kompaktni graf.
+     * @param edge Identifikator ivice.
+     * @return true ako ivica pripada grafu.
+     */
+    private static boolean isLive(CompactGraph graph, int edge) {
+        if (edge >= graph.edgeLimit()) return false;
+        int station = graph.source(edge);
+        return edge >= graph.firstEdge(station) && edge < graph.endEdge(station);
+    }
+
+    /**
+     * Uklanja lukove čvora.
+     *
+     * @param targets Krajnji čvorovi lukova koji se mijenjaju.
+     * @param node Čvor.
+     * @return Broj uklonjenih lukova.
+     */
+    private static int clear(PagedIntArray.Editor targets, int node) {
+        int removed = 0;
+        for (int slot = 2 * node; slot <= 2 * node + 1; slot++) {
+            if (targets.get(slot) != MISSING) {
+                targets.set(slot, MISSING);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Ponovo računa lukove čvora.
+     *
+     * @param graph Kompaktni graf.
+     * @param node Čvor.
+     * @param targets Krajnji čvorovi lukova koji se mijenjaju.
+     * @param weights Težine lukova koje se mijenjaju.
+     * @param nodeTargets Pomoćni niz za krajnje čvorove (dužine 2).
+     * @param nodeWeights Pomoćni niz za težine (dužine 2).
+     * @return Promjena broja lukova.
+     */
+    private static int write(CompactGraph graph, int node, PagedIntArray.Editor targets, PagedIntArray.Editor weights,
+                             int[] nodeTargets, int[] nodeWeights) {
+        int change = -clear(targets, node);
+        int count = arcsOf(graph, node, nodeTargets, nodeWeights);
+        for (int k = 0; k < count; k++) {
+            targets.set(2 * node + k, nodeTargets[k]);
+            weights.set(2 * node + k, nodeWeights[k]);
+        }
+        return change + count;
+    }
+
+    /**
+     * Računa lukove čvora ivice koja pripada grafu.
+     *
+     * @param graph Kompaktni graf.
+     * @param node Čvor.
+     * @param targets Niz za krajnje čvorove lukova (dužine 2).
+     * @param weights Niz za težine lukova (dužine 2).
+     * @return Broj lukova (0-2).
+     */
+    private static int arcsOf(CompactGraph graph, int node, int[] targets, int[] weights) {
+        int e = node >> 1;
+        int arcs = 0;
+        if ((node & 1) == 0) {
+            int station = graph.source(e);
+            int first = graph.firstEdge(station);
+            int end = graph.endEdge(station);
+            if (end - first > 1) {
+                int next = e + 1 < end ? e + 1 : first;
+                targets[arcs] = 2 * next;
+                weights[arcs] = graph.departureTime(next) - graph.departureTime(e) + (next == first ? DAY : 0);
+                arcs++;
+            }
+            targets[arcs] = 2 * e + 1;
+            weights[arcs] = graph.duration(e);
+            return arcs + 1;
+        }
+        int station = graph.target(e);
+        int arrival = graph.departureTime(e) + graph.duration(e);
+        int ready = graph.minTransferTime(e);
+        int continued = firstDepartureEdge(graph, station, arrival + ready);
+        if (continued >= 0) {
+            targets[arcs] = 2 * continued;
+            weights[arcs] = ready + Math.floorMod(graph.departureTime(continued) - arrival - ready, DAY);
+            arcs++;
+        }
+        int transferReady = ready + CompactGraph.TRANSFER_TIME;
+        int transferred = firstDepartureEdge(graph, graph.partner(station), arrival + transferReady);
+        if (transferred >= 0) {
+            targets[arcs] = 2 * transferred;
+            weights[arcs] = transferReady + Math.floorMod(graph.departureTime(transferred) - arrival - transferReady, DAY);
+            arcs++;
+        }
+        return arcs;
+    }
+
+    /**
+     * Vraća kompaktni graf iz kojeg je graf izgrađen.
+     *
+     * @return Kompaktni graf mreže.
+     */
+    public CompactGraph getCompactGraph() {
+        return graph;
+    }
+
+    /**
+     * Vraća broj čvorova (događaja).
+     *
+     * @return Dvostruki broj identifikatora ivica.
+     */
+    public int nodeCount() {
+        return 2 * edgeLimit;
+    }
+
+    /**
+     * Vraća broj lukova.
+     *
+     * @return Broj lukova.
+     */
+    public int arcCount() {
+        return arcCount;
+    }
+
+    /**
+     * Vraća indeks prvog luka čvora.
+     *
+     * @param node Čvor.
+     * @return Indeks prvog luka.
+     */
+    public int firstArc(int node) {
+        return 2 * node;
+    }
+
+    /**
+     * Vraća indeks iza posljednjeg luka čvora.
+     *
+     * @param node Čvor.
+     * @return Indeks iza posljednjeg luka.
+     */
+    public int endArc(int node) {
+        if (arcTarget.get(2 * node) == MISSING) return 2 * node;
+        return arcTarget.get(2 * node + 1) == MISSING ? 2 * node + 1 : 2 * node + 2;
+    }
+
+    /**
+     * Vraća krajnji čvor luka.
+     *
+     * @param arc Luk.
+     * @return Čvor.
+     */
+    public int arcTarget(int arc) {
+        return arcTarget.get(arc);
+    }
+
+    /**
+     * Vraća težinu luka.
+     *
+     * @param arc Luk.
+     * @return Broj minuta između događaja luka.
+     */
+    public int arcWeight(int arc) {
+        return arcWeight.get(arc);
+    }
+
+    /**
+     * Provjerava da li je čvor dolazak.
+     *
+     * @param node Čvor.
+     * @return true za dolazak, false za polazak.
+     */
+    public boolean isArrival(int node) {
+        return (node & 1) == 1;
+    }
+
+    /**
+     * Vraća polazak (ivicu kompaktnog grafa) kojem događaj pripada.
+     *
+     * @param node Čvor.
+     * @return Identifikator ivice.
+     */
+    public int edgeOf(int node) {
+        return node >> 1;
+    }
+
+    /**
+     * Vraća stanicu u kojoj se događaj dešava.
+     *
+     * @param node Čvor.
+     * @return Identifikator stanice.
+     */
+    public int stationOf(int node) {
+        return isArrival(node) ? graph.target(node >> 1) : graph.source(node >> 1);
+    }
+
+    /**
+     * Vraća prvi polazak iz stanice u ili nakon datog vremena, uz prelazak u naredni dan
+     * ako tog dana više nema polazaka.
+     *
+     * @param station Stanica.
+     * @param time Vrijeme u minutama (može biti veće od 1440).
+     * @return Čvor polaska, ili -1 ako stanica nema polazaka.
+     */
+    public int firstDeparture(int station, int time) {
+        int edge = firstDepartureEdge(graph, station, time);
+        return edge < 0 ? -1 : 2 * edge;
+    }
+
+    /**
+     * Vraća prvi polazak iz stanice u ili nakon datog vremena, uz prelazak u naredni dan
+     * ako tog dana više nema polazaka.
+     *
+     * @param graph Kompaktni graf.
+     * @param station Stanica.
+     * @param time Vrijeme u minutama (može biti veće od 1440).
+     * @return Identifikator ivice, ili -1 ako stanica nema polazaka.
+     */
+    private static int firstDepartureEdge(CompactGraph graph, int station, int time) {
+        int first = graph.firstEdge(station);
+        int end = graph.endEdge(station);
+        if (first == end) return -1;
+        int timeOfDay = Math.floorMod(time, DAY);
+        int low = first;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (graph.departureTime(mid) < timeOfDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < end ? low : first;
+    }
+}
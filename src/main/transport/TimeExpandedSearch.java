@@ -0,0 +1,180 @@
+package main.transport;
+
+import main.model.City;
+import main.model.CompactGraph;
+import main.model.Edge;
+
+import java.util.*;
+
+/**
+ * Pretraga najranijeg dolaska Dijkstrinim algoritmom nad vremenski proširenim grafom
+ * ({@link TimeExpandedGraph}). Rastojanje čvora je broj minuta od vremena početka do
+ * događaja, pa je prvi dolazak u krajnji grad uzet iz reda najraniji dolazak. Podržava
+ * samo kriterijum vremena i vraća jednu rutu, kao {@link ConnectionScan}.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class TimeExpandedSearch implements RoutingEngine {
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final CompactGraph graph;
+    private final TimeExpandedGraph expanded;
+
+    /**
+     * Gradi vremenski prošireni graf i kreira pretragu nad njim.
+     *
+     * @param graph Zamrznuti graf polazaka.
+     */
+    public TimeExpandedSearch(CompactGraph graph) {
+        this(new TimeExpandedGraph(graph));
+    }
+
+    /**
+     * Kreira pretragu nad već izgrađenim vremenski proširenim grafom.
+     *
+     * @param expanded Vremenski prošireni graf.
+     */
+    private TimeExpandedSearch(TimeExpandedGraph expanded) {
+        this.graph = expanded.getCompactGraph();
+        this.expanded = expanded;
+    }
+
+    /**
+     * Vraća pretragu nad grafom nastalim izmjenom polazaka datih stanica; vremenski
+     * prošireni graf se ne gradi iznova, već mu se mijenjaju samo lukovi tih stanica
+     * (vidi {@link TimeExpandedGraph#update}).
+     *
+     * @param updated Novi graf polazaka.
+     * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+     * @return Pretraga nad novim grafom.
+     */
+    TimeExpandedSearch update(CompactGraph updated, int[] changedStations) {
+        return new TimeExpandedSearch(expanded.update(updated, changedStations));
+    }
+
+    /**
+     * Pronalazi rutu sa najranijim dolaskom između dva grada.
+     *
+     * @param startCity Početni grad.
+     * @param endCity Krajnji grad.
+     * @param criterion Kriterijum optimizacije ({@link StandardCriterion#TIME}).
+     * @param startTime Vrijeme početka u minutama (0-1439).
+     * @return Lista sa jednom rutom, ili prazna lista ako ruta ne postoji.
+     * @throws IllegalArgumentException Ako kriterijum nije podržan.
+     */
+    @Override
+    public List<Route> findRoutes(City startCity, City endCity, Criterion criterion, int startTime) {
+        if (!supports(criterion)) {
+            throw new IllegalArgumentException("Nepodržan kriterijum: " + criterion.getName());
+        }
+        if (startCity.equals(endCity) || expanded.nodeCount() == 0) {
+            return Collections.emptyList();
+        }
+        int endBus = endCity.getBusStation().getId();
+        int endTrain = endCity.getTrainStation().getId();
+
+        int n = expanded.nodeCount();
+        int[] distance = new int[n];
+        int[] parent = new int[n];
+        Arrays.fill(distance, INFINITY);
+        LongHeap heap = new LongHeap(64);
+        for (int start : new int[]{startCity.getBusStation().getId(), startCity.getTrainStation().getId()}) {
+            int node = expanded.firstDeparture(start, startTime);
+            if (node < 0) continue;
+            int wait = Math.floorMod(graph.departureTime(expanded.edgeOf(node)) - startTime, 1440);
+            if (wait < distance[node]) {
+                distance[node] = wait;
+                parent[node] = -1;
+                heap.push(((long) wait << 32) | node);
+            }
+        }
+
+        long polled = 0;
+        long relaxed = 0;
+        long stale = 0;
+        int maxQueueSize = heap.size();
+        int target = -1;
+        while (!heap.isEmpty()) {
+            long top = heap.pop();
+            int u = (int) top;
+            int d = (int) (top >>> 32);
+            if (d > distance[u]) {
+                stale++;
+                continue;
+            }
+            if ((++polled & 1023) == 0) RoutingEngine.checkCancelled();
+            if (expanded.isArrival(u)) {
+                int station = expanded.stationOf(u);
+                if (station == endBus || station == endTrain) {
+                    target = u;
+                    break;
+                }
+            }
+            for (int arc = expanded.firstArc(u); arc < expanded.endArc(u); arc++) {
+                relaxed++;
+                int v = expanded.arcTarget(arc);
+                int candidate = d + expanded.arcWeight(arc);
+                if (candidate < distance[v]) {
+                    distance[v] = candidate;
+                    parent[v] = u;
+                    heap.push(((long) candidate << 32) | v);
+                }
+            }
+            maxQueueSize = Math.max(maxQueueSize, heap.size());
+        }
+        SearchCounters.report(polled, relaxed, maxQueueSize, stale);
+        if (target < 0) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(toRoute(target, parent, distance[target], startTime));
+    }
+
+    /**
+     * Provjerava da li je kriterijum kriterijum vremena, jedini koji pretraga podržava.
+     *
+     * @param criterion Kriterijum optimizacije.
+     * @return true za {@link StandardCriterion#TIME}.
+     */
+    @Override
+    public boolean supports(Criterion criterion) {
+        return criterion == StandardCriterion.TIME;
+    }
+
+    /**
+     * Vraća vremenski prošireni graf nad kojim pretraga radi.
+     *
+     * @return Vremenski prošireni graf.
+     */
+    public TimeExpandedGraph getTimeExpandedGraph() {
+        return expanded;
+    }
+
+    /**
+     * Rekonstruiše rutu praćenjem roditeljskih čvorova: luk vožnje je ivica rute, a luk
+     * iz dolaska u polazak partnerske stanice je transfer.
+     *
+     * @param target Čvor dolaska u krajnji grad.
+     * @param parent Roditeljski čvor po čvoru (-1 za početni polazak).
+     * @param duration Trajanje putovanja u minutama.
+     * @param startTime Vrijeme početka u minutama.
+     * @return Ruta do dolaska.
+     */
+    private Route toRoute(int target, int[] parent, int duration, int startTime) {
+        List<Edge> edges = new ArrayList<>();
+        int price = 0;
+        for (int node = target; parent[node] >= 0 || expanded.isArrival(node); node = parent[node]) {
+            int previous = parent[node];
+            if (expanded.isArrival(node)) {
+                int edge = expanded.edgeOf(node);
+                edges.add(graph.toEdge(edge));
+                price += graph.price(edge);
+            } else if (expanded.isArrival(previous) && expanded.stationOf(previous) != expanded.stationOf(node)) {
+                edges.add(graph.toTransferEdge(expanded.stationOf(previous)));
+                price += CompactGraph.TRANSFER_PRICE;
+            }
+        }
+        Collections.reverse(edges);
+        return new Route(edges, duration, price, edges.size(), startTime);
+    }
+}
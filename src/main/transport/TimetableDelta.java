@@ -0,0 +1,306 @@
+package main.transport;
+
+import main.util.TimetableReader;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Izmjena reda vožnje: niz dodavanja, otkazivanja i izmjena pojedinačnih polazaka, koji
+ * se primjenjuje na učitanu mrežu bez ponovnog učitavanja (vidi {@link Network#applyDelta}).
+ * <p>
+ * Polazak se određuje polaznom stanicom i vremenom polaska, a ako sa stanice u isto
+ * vrijeme polazi više linija, i destinacijskim gradom. JSON oblik izmjene koristi iste
+ * nazive polja kao niz "departures" reda vožnje:
+ * <pre>
+ * {"changes": [
+ *   {"op": "add", "from": "A_0_0", "to": "G_0_1", "departureTime": "08:00",
+ *    "duration": 30, "price": 100, "minTransferTime": 5},
+ *   {"op": "remove", "from": "A_0_0", "departureTime": "09:15"},
+ *   {"op": "modify", "from": "Z_0_0", "to": "G_1_0", "departureTime": "10:00",
+ *    "newDepartureTime": "10:20", "price": 120}
+ * ]}
+ * </pre>
+ * Kod izmjene se navode samo polja koja se mijenjaju. Izmjene se primjenjuju redom.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class TimetableDelta {
+    /** Vrijednost polja izmjene koje se ne mijenja. */
+    public static final int UNCHANGED = -1;
+
+    private final List<Change> changes;
+
+    /**
+     * Vrsta izmjene polaska.
+     */
+    public enum Operation {
+        /** Dodavanje novog polaska. */
+        ADD,
+        /** Otkazivanje postojećeg polaska. */
+        REMOVE,
+        /** Izmjena vremena, trajanja, cijene ili vremena transfera postojećeg polaska. */
+        MODIFY
+    }
+
+    /**
+     * Jedna izmjena polaska.
+     */
+    public static final class Change {
+        private final Operation operation;
+        private final String station;
+        private final String toCity;
+        private final int departureTime;
+        private final int newDepartureTime;
+        private final int duration;
+        private final int price;
+        private final int minTransferTime;
+
+        /**
+         * Konstruktor za izmjenu.
+         *
+         * @param operation Vrsta izmjene.
+         * @param station Ime polazne stanice.
+         * @param toCity Ime destinacijskog grada, ili null ako nije potrebno.
+         * @param departureTime Vrijeme (postojećeg) polaska u minutama.
+         * @param newDepartureTime Novo vrijeme polaska, ili {@link #UNCHANGED}.
+         * @param duration Trajanje putovanja, ili {@link #UNCHANGED}.
+         * @param price Cijena, ili {@link #UNCHANGED}.
+         * @param minTransferTime Minimalno vrijeme transfera, ili {@link #UNCHANGED}.
+         * @throws IllegalArgumentException Ako stanica nije zadata ili vrijednosti nisu u opsegu.
+         */
+        private Change(Operation operation, String station, String toCity, int departureTime,
+                       int newDepartureTime, int duration, int price, int minTransferTime) {
+            if (station == null) {
+                throw new IllegalArgumentException("Stanica izmjene nije zadata");
+            }
+            checkTime(departureTime);
+            if (newDepartureTime != UNCHANGED) checkTime(newDepartureTime);
+            if (duration < UNCHANGED || price < UNCHANGED || minTransferTime < UNCHANGED) {
+                throw new IllegalArgumentException("Neispravni podaci polaska sa " + station);
+            }
+            this.operation = operation;
+            this.station = station;
+            this.toCity = toCity;
+            this.departureTime = departureTime;
+            this.newDepartureTime = newDepartureTime;
+            this.duration = duration;
+            this.price = price;
+            this.minTransferTime = minTransferTime;
+        }
+
+        /**
+         * Kreira izmjenu koja dodaje polazak.
+         *
+         * @param station Ime polazne stanice.
+         * @param toCity Ime destinacijskog grada.
+         * @param departureTime Vrijeme polaska u minutama (0-1439).
+         * @param duration Trajanje putovanja u minutama.
+         * @param price Cijena.
+         * @param minTransferTime Minimalno vrijeme transfera u minutama.
+         * @return Izmjena.
+         * @throws IllegalArgumentException Ako podaci polaska nisu ispravni.
+         */
+        public static Change add(String station, String toCity, int departureTime, int duration,
+                                 int price, int minTransferTime) {
+            if (toCity == null || duration < 0 || price < 0 || minTransferTime < 0) {
+                throw new IllegalArgumentException("Novi polazak sa " + station + " mora imati sve podatke");
+            }
+            return new Change(Operation.ADD, station, toCity, departureTime, UNCHANGED, duration, price, minTransferTime);
+        }
+
+        /**
+         * Kreira izmjenu koja otkazuje polazak.
+         *
+         * @param station Ime polazne stanice.
+         * @param toCity Ime destinacijskog grada, ili null ako je polazak jednoznačan po vremenu.
+         * @param departureTime Vrijeme polaska u minutama (0-1439).
+         * @return Izmjena.
+         */
+        public static Change remove(String station, String toCity, int departureTime) {
+            return new Change(Operation.REMOVE, station, toCity, departureTime, UNCHANGED, UNCHANGED, UNCHANGED, UNCHANGED);
+        }
+
+        /**
+         * Kreira izmjenu postojećeg polaska.
+         *
+         * @param station Ime polazne stanice.
+         * @param toCity Ime destinacijskog grada, ili null ako je polazak jednoznačan po vremenu.
+         * @param departureTime Vrijeme polaska u minutama (0-1439).
+         * @param newDepartureTime Novo vrijeme polaska, ili {@link #UNCHANGED}.
+         * @param duration Novo trajanje, ili {@link #UNCHANGED}.
+         * @param price Nova cijena, ili {@link #UNCHANGED}.
+         * @param minTransferTime Novo minimalno vrijeme transfera, ili {@link #UNCHANGED}.
+         * @return Izmjena.
+         */
+        public static Change modify(String station, String toCity, int departureTime, int newDepartureTime,
+                                    int duration, int price, int minTransferTime) {
+            return new Change(Operation.MODIFY, station, toCity, departureTime, newDepartureTime,
+                    duration, price, minTransferTime);
+        }
+
+        /**
+         * Provjerava da li je vrijeme u opsegu jednog dana.
+         *
+         * @param time Vrijeme u minutama.
+         * @throws IllegalArgumentException Ako vrijeme nije u opsegu 0-1439.
+         */
+        private static void checkTime(int time) {
+            if (time < 0 || time >= 1440) {
+                throw new IllegalArgumentException("Vrijeme polaska mora biti u opsegu 0-1439: " + time);
+            }
+        }
+
+        /**
+         * Provjerava da li se izmjena odnosi na dati polazak.
+         *
+         * @param departure Polazak stanice.
+         * @return true ako se vrijeme, i destinacija ako je zadata, poklapaju.
+         */
+        boolean matches(Departure departure) {
+            return departure.getDepartureTime() == departureTime
+                    && (toCity == null || departure.getToCity().getName().equals(toCity));
+        }
+
+        /**
+         * Vraća vrstu izmjene.
+         *
+         * @return Vrsta izmjene.
+         */
+        public Operation getOperation() { return operation; }
+
+        /**
+         * Vraća ime polazne stanice.
+         *
+         * @return Ime stanice.
+         */
+        public String getStation() { return station; }
+
+        /**
+         * Vraća ime destinacijskog grada.
+         *
+         * @return Ime grada, ili null ako nije zadato.
+         */
+        public String getToCity() { return toCity; }
+
+        /**
+         * Vraća vrijeme polaska na koji se izmjena odnosi.
+         *
+         * @return Vrijeme u minutama.
+         */
+        public int getDepartureTime() { return departureTime; }
+
+        /**
+         * Vraća novo vrijeme polaska.
+         *
+         * @return Vrijeme u minutama, ili {@link #UNCHANGED}.
+         */
+        public int getNewDepartureTime() { return newDepartureTime; }
+
+        /**
+         * Vraća trajanje putovanja.
+         *
+         * @return Trajanje u minutama, ili {@link #UNCHANGED}.
+         */
+        public int getDuration() { return duration; }
+
+        /**
+         * Vraća cijenu.
+         *
+         * @return Cijena, ili {@link #UNCHANGED}.
+         */
+        public int getPrice() { return price; }
+
+        /**
+         * Vraća minimalno vrijeme transfera.
+         *
+         * @return Vrijeme u minutama, ili {@link #UNCHANGED}.
+         */
+        public int getMinTransferTime() { return minTransferTime; }
+
+        @Override
+        public String toString() {
+            return operation + " " + station + (toCity == null ? "" : " -> " + toCity) + " @" + departureTime;
+        }
+    }
+
+    /**
+     * Kreira izmjenu reda vožnje.
+     *
+     * @param changes Izmjene polazaka, redom kojim se primjenjuju.
+     */
+    public TimetableDelta(List<Change> changes) {
+        this.changes = Collections.unmodifiableList(new ArrayList<>(changes));
+    }
+
+    /**
+     * Čita izmjenu reda vožnje iz JSON fajla.
+     *
+     * @param filePath Putanja do JSON fajla.
+     * @return Izmjena reda vožnje.
+     * @throws IOException Ako dođe do greške pri čitanju fajla.
+     * @throws org.json.JSONException Ako fajl nije ispravan JSON.
+     * @throws IllegalArgumentException Ako neka izmjena nije ispravna.
+     */
+    public static TimetableDelta read(String filePath) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Čita izmjenu reda vožnje iz datog toka.
+     *
+     * @param reader Tok sa JSON sadržajem.
+     * @return Izmjena reda vožnje.
+     * @throws org.json.JSONException Ako sadržaj nije ispravan JSON.
+     * @throws IllegalArgumentException Ako neka izmjena nije ispravna.
+     */
+    public static TimetableDelta read(Reader reader) {
+        JSONArray array = new JSONObject(new JSONTokener(reader)).getJSONArray("changes");
+        List<Change> changes = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject change = array.getJSONObject(i);
+            String station = change.getString("from");
+            String toCity = change.optString("to", null);
+            int departureTime = TimetableReader.timeToMinutes(change.getString("departureTime"));
+            String op = change.getString("op");
+            switch (op) {
+                case "add" -> changes.add(Change.add(station, toCity, departureTime, change.getInt("duration"),
+                        change.getInt("price"), change.getInt("minTransferTime")));
+                case "remove" -> changes.add(Change.remove(station, toCity, departureTime));
+                case "modify" -> changes.add(Change.modify(station, toCity, departureTime,
+                        change.has("newDepartureTime")
+                                ? TimetableReader.timeToMinutes(change.getString("newDepartureTime")) : UNCHANGED,
+                        change.optInt("duration", UNCHANGED), change.optInt("price", UNCHANGED),
+                        change.optInt("minTransferTime", UNCHANGED)));
+                default -> throw new IllegalArgumentException("Nepoznata vrsta izmjene: " + op);
+            }
+        }
+        return new TimetableDelta(changes);
+    }
+
+    /**
+     * Vraća izmjene polazaka.
+     *
+     * @return Nepromjenljiva lista izmjena, redom kojim se primjenjuju.
+     */
+    public List<Change> getChanges() { return changes; }
+
+    /**
+     * Vraća broj izmjena.
+     *
+     * @return Broj izmjena.
+     */
+    public int size() { return changes.size(); }
+}
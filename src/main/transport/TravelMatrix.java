@@ -0,0 +1,313 @@
+package main.transport;
+
+import main.model.City;
+import main.model.CompactGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Matrica najkraćih vremena putovanja i najnižih cijena između svih parova gradova.
+ * Red matrice za jedan početni grad računa se jednom pretragom do svih stanica:
+ * CSA prolazom za vrijeme putovanja pri polasku u referentno vrijeme i Dijkstrinim
+ * algoritmom za cijenu. Redovi se računaju paralelno, a vrijednosti se čuvaju u
+ * nizovima prostih tipova indeksiranim identifikatorima gradova, pa je upit O(1).
+ * <p>
+ * Nakon izmjene reda vožnje ponovo se računaju samo redovi na koje promjena polazaka
+ * može da utiče (vidi {@link #refresh}); provjera koristi samo vrijednosti matrice za
+ * gradove promijenjenih polazaka, pa matrica ne čuva ništa po stanicama.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class TravelMatrix {
+    /** Vrijednost u matrici za par gradova između kojih ruta ne postoji. */
+    public static final int UNREACHABLE = -1;
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int DAY = 1440;
+
+    private final int cityCount;
+    private final int stationCount;
+    private final int startTime;
+    private final int[] times;
+    private final int[] prices;
+    private CompactGraph graph;
+    private int maxMinTransferTime;
+
+    /**
+     * Kreira praznu matricu za dati graf.
+     *
+     * @param graph Kompaktni graf mreže.
+     * @param startTime Referentno vrijeme polaska u minutama (0-1439).
+     */
+    private TravelMatrix(CompactGraph graph, int startTime) {
+        this.graph = graph;
+        this.startTime = startTime;
+        this.cityCount = graph.cityCount();
+        this.stationCount = graph.stationCount();
+        this.times = new int[cityCount * cityCount];
+        this.prices = new int[cityCount * cityCount];
+        for (int s = 0; s < stationCount; s++) {
+            for (int e = graph.firstEdge(s); e < graph.endEdge(s); e++) {
+                maxMinTransferTime = Math.max(maxMinTransferTime, graph.minTransferTime(e));
+            }
+        }
+    }
+
+    /**
+     * Računa matricu za sve parove gradova učitane mreže.
+     *
+     * @param network Učitana transportna mreža.
+     * @param startTime Referentno vrijeme polaska u minutama (0-1439).
+     * @return Izračunata matrica.
+     * @throws IllegalStateException Ako mreža nije učitana.
+     * @throws IllegalArgumentException Ako vrijeme nije u opsegu 0-1439.
+     */
+    public static TravelMatrix build(Network network, int startTime) {
+        CompactGraph graph = network.getGraph().getCompactGraph();
+        if (graph == null) {
+            throw new IllegalStateException("Mreža nije učitana");
+        }
+        if (startTime < 0 || startTime >= DAY) {
+            throw new IllegalArgumentException("Vrijeme polaska mora biti u opsegu 0-1439: " + startTime);
+        }
+        TravelMatrix matrix = new TravelMatrix(graph, startTime);
+        matrix.computeRows(IntStream.range(0, matrix.cityCount).toArray());
+        return matrix;
+    }
+
+    /**
+     * Vraća najkraće vrijeme putovanja između dva grada pri polasku u referentno vrijeme,
+     * uključujući čekanje na prvi polazak.
+     *
+     * @param from Početni grad.
+     * @param to Krajnji grad.
+     * @return Vrijeme putovanja u minutama, ili {@link #UNREACHABLE}.
+     */
+    public int getTravelTime(City from, City to) {
+        return times[from.getId() * cityCount + to.getId()];
+    }
+
+    /**
+     * Vraća najnižu cijenu putovanja između dva grada, bez obzira na vrijeme polaska.
+     *
+     * @param from Početni grad.
+     * @param to Krajnji grad.
+     * @return Cijena putovanja, ili {@link #UNREACHABLE}.
+     */
+    public int getPrice(City from, City to) {
+        return prices[from.getId() * cityCount + to.getId()];
+    }
+
+    /**
+     * Vraća referentno vrijeme polaska za koje su računata vremena putovanja.
+     *
+     * @return Vrijeme polaska u minutama.
+     */
+    public int getStartTime() { return startTime; }
+
+    /**
+     * Vraća graf nad kojim su izračunate vrijednosti matrice.
+     *
+     * @return Kompaktni graf mreže.
+     */
+    synchronized CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Vraća broj gradova (redova i kolona) matrice.
+     *
+     * @return Broj gradova.
+     */
+    public int getCityCount() { return cityCount; }
+
+    /**
+     * Ponovo računa redove na koje utiče izmjena polazaka datih stanica.
+     * Polasci stanica u starom i novom grafu se porede, pa se red računa ponovo samo
+     * ako je uklonjeni (ili izmijenjeni) polazak mogao biti dio najbolje rute iz
+     * početnog grada, ili ako novi polazak može stići ranije ili jeftinije od dosadašnjih
+     * vrijednosti u redu. Za vrijeme osvježavanja upiti mogu vratiti stare ili nove
+     * vrijednosti pojedinih redova.
+     * <p>
+     * Provjera polaska iz grada {@code a} u grad {@code b} koristi samo ćelije {@code (red, a)}
+     * i {@code (red, b)}: spremnost u polaznoj stanici nije ranija od dolaska u grad {@code a},
+     * pa je prvi polazak koji se može uhvatiti donja granica vremena dolaska polaskom, a
+     * spremnost u stanici grada {@code b} nije kasnija od dolaska u taj grad uvećanog za
+     * najduže minimalno vrijeme transfera i prelazak na partnersku stanicu. Polazak koji ni
+     * sa donjom granicom ne stiže prije te gornje granice ne može promijeniti red. Cijene se
+     * provjeravaju isto, sa cijenom prelaska na partnersku stanicu.
+     *
+     * @param updatedGraph Graf mreže nakon izmjene, sa istim gradovima i stanicama.
+     * @param changedStations Identifikatori stanica čiji su polasci promijenjeni.
+     * @return Broj ponovo izračunatih redova.
+     * @throws IllegalArgumentException Ako graf nema iste stanice kao matrica.
+     */
+    public synchronized int refresh(CompactGraph updatedGraph, int[] changedStations) {
+        if (updatedGraph.stationCount() != stationCount || updatedGraph.cityCount() != cityCount) {
+            throw new IllegalArgumentException("Graf nema iste gradove i stanice kao matrica");
+        }
+        List<int[]> removed = new ArrayList<>();
+        List<int[]> added = new ArrayList<>();
+        for (int s : changedStations) {
+            removed.addAll(departuresMissingFrom(graph, updatedGraph, s));
+            added.addAll(departuresMissingFrom(updatedGraph, graph, s));
+        }
+        for (int[] d : added) {
+            maxMinTransferTime = Math.max(maxMinTransferTime, d[5]);
+        }
+        int[] affected = new int[cityCount];
+        int count = 0;
+        for (int row = 0; row < cityCount; row++) {
+            if (isAffected(row, removed, true) || isAffected(row, added, false)) {
+                affected[count++] = row;
+            }
+        }
+        graph = updatedGraph;
+        computeRows(Arrays.copyOf(affected, count));
+        return count;
+    }
+
+    /**
+     * Vraća polaske stanice iz prvog grafa koji ne postoje u drugom grafu.
+     * Polasci se porede po destinaciji, vremenu polaska, trajanju, cijeni i vremenu transfera.
+     *
+     * @param graph Graf čiji se polasci traže.
+     * @param other Graf sa kojim se poredi.
+     * @param s Identifikator stanice.
+     * @return Polasci kao nizovi {polazna stanica, destinacija, polazak, trajanje, cijena, transfer}.
+     */
+    private static List<int[]> departuresMissingFrom(CompactGraph graph, CompactGraph other, int s) {
+        boolean[] matched = new boolean[other.endEdge(s) - other.firstEdge(s)];
+        List<int[]> missing = new ArrayList<>();
+        for (int e = graph.firstEdge(s); e < graph.endEdge(s); e++) {
+            boolean found = false;
+            for (int f = other.firstEdge(s); f < other.endEdge(s) && !found; f++) {
+                int k = f - other.firstEdge(s);
+                if (!matched[k] && graph.target(e) == other.target(f)
+                        && graph.departureTime(e) == other.departureTime(f)
+                        && graph.duration(e) == other.duration(f) && graph.price(e) == other.price(f)
+                        && graph.minTransferTime(e) == other.minTransferTime(f)) {
+                    matched[k] = true;
+                    found = true;
+                }
+            }
+            if (!found) {
+                missing.add(new int[]{s, graph.target(e), graph.departureTime(e), graph.duration(e),
+                        graph.price(e), graph.minTransferTime(e)});
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Provjerava da li polasci mogu promijeniti red matrice. Uklonjeni polazak utiče na
+     * red ako je mogao dati vrijednost jednaku najboljoj (mogao je biti korišten), a novi
+     * polazak ako može dati bolju vrijednost.
+     *
+     * @param row Red (početni grad).
+     * @param departures Polasci kao nizovi {polazna stanica, destinacija, polazak, trajanje, cijena, transfer}.
+     * @param removed Da li su polasci uklonjeni (true) ili dodati (false).
+     * @return true ako red treba ponovo izračunati.
+     */
+    private boolean isAffected(int row, List<int[]> departures, boolean removed) {
+        int slack = removed ? 1 : 0;
+        for (int[] d : departures) {
+            int from = graph.cityOf(d[0]);
+            int to = graph.cityOf(d[1]);
+            int fromTime = from == row ? 0 : times[row * cityCount + from];
+            int toTime = times[row * cityCount + to];
+            if (fromTime != UNREACHABLE) {
+                int ready = startTime + fromTime;
+                int arrival = ready + Math.floorMod(d[2] - ready, DAY) + d[3];
+                if (toTime == UNREACHABLE || arrival + d[5]
+                        < startTime + toTime + maxMinTransferTime + CompactGraph.TRANSFER_TIME + slack) {
+                    return true;
+                }
+            }
+            int fromPrice = from == row ? 0 : prices[row * cityCount + from];
+            int toPrice = prices[row * cityCount + to];
+            if (fromPrice != UNREACHABLE && (toPrice == UNREACHABLE
+                    || fromPrice + d[4] < toPrice + CompactGraph.TRANSFER_PRICE + slack)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Paralelno računa date redove matrice.
+     *
+     * @param rows Redovi (identifikatori početnih gradova).
+     */
+    private void computeRows(int[] rows) {
+        ConnectionScan scan = new ConnectionScan(graph);
+        Arrays.stream(rows).parallel().forEach(row -> {
+            computeTimeRow(scan, row);
+            computePriceRow(row);
+        });
+    }
+
+    /**
+     * Računa vremena putovanja iz jednog grada CSA prolazom do svih stanica.
+     *
+     * @param scan CSA pretraga nad trenutnim grafom.
+     * @param row Red (početni grad).
+     */
+    private void computeTimeRow(ConnectionScan scan, int row) {
+        int[] ready = new int[stationCount];
+        int[] arrival = new int[stationCount];
+        int[] readyEdge = new int[stationCount];
+        int[] arrivalEdge = new int[stationCount];
+        boolean[] viaTransfer = new boolean[stationCount];
+        scan.scan(2 * row, 2 * row + 1, startTime, -1, -1, ready, arrival, readyEdge, arrivalEdge, viaTransfer);
+
+        for (int c = 0; c < cityCount; c++) {
+            int best = c == row ? startTime : Math.min(arrival[2 * c], arrival[2 * c + 1]);
+            times[row * cityCount + c] = best == INFINITY ? UNREACHABLE : best - startTime;
+        }
+    }
+
+    /**
+     * Računa najniže cijene iz jednog grada Dijkstrinim algoritmom nad stanicama.
+     *
+     * @param row Red (početni grad).
+     */
+    private void computePriceRow(int row) {
+        int[] dist = new int[stationCount];
+        Arrays.fill(dist, INFINITY);
+        LongHeap heap = new LongHeap(stationCount);
+        dist[2 * row] = 0;
+        dist[2 * row + 1] = 0;
+        heap.push(2 * row);
+        heap.push(2 * row + 1);
+
+        while (!heap.isEmpty()) {
+            long top = heap.pop();
+            int s = (int) top;
+            int d = (int) (top >>> 32);
+            if (d > dist[s]) continue;
+
+            int other = graph.partner(s);
+            if (d + CompactGraph.TRANSFER_PRICE < dist[other]) {
+                dist[other] = d + CompactGraph.TRANSFER_PRICE;
+                heap.push(((long) dist[other] << 32) | other);
+            }
+            for (int e = graph.firstEdge(s); e < graph.endEdge(s); e++) {
+                int to = graph.target(e);
+                if (d + graph.price(e) < dist[to]) {
+                    dist[to] = d + graph.price(e);
+                    heap.push(((long) dist[to] << 32) | to);
+                }
+            }
+        }
+
+        for (int c = 0; c < cityCount; c++) {
+            int best = Math.min(dist[2 * c], dist[2 * c + 1]);
+            prices[row * cityCount + c] = best == INFINITY ? UNREACHABLE : best;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package main.util;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asinhroni ispis poruka loggera. Poruke se stavljaju u ograničen prsten
+ * ({@link ArrayBlockingQueue}) i jedna pozadinska nit ih formatira i ispisuje:
+ * DEBUG i INFO na standardni izlaz, WARN i ERROR na standardni izlaz za greške.
+ * <p>
+ * Nit koja loguje DEBUG ili INFO poruku nikad ne čeka: ako je prsten pun, poruka se
+ * odbacuje i broji, a broj odbačenih poruka se ispisuje uz sljedeću poruku. WARN i ERROR
+ * poruke se ne odbacuju, već čekaju mjesto u prstenu. Preostale poruke se ispisuju i
+ * pri gašenju JVM-a.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+final class AsyncAppender {
+    private static final int CAPACITY = 8192;
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final AsyncAppender INSTANCE = new AsyncAppender();
+
+    private final ArrayBlockingQueue<LogRecord> buffer = new ArrayBlockingQueue<>(CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong appended = new AtomicLong();
+    private final Object writeLock = new Object();
+    private long written;
+
+    /**
+     * Jedna zabilježena poruka.
+     */
+    static final class LogRecord {
+        final long timestamp;
+        final Logger.Level level;
+        final String thread;
+        final String logger;
+        final String message;
+        final Throwable error;
+
+        LogRecord(long timestamp, Logger.Level level, String thread, String logger, String message, Throwable error) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.thread = thread;
+            this.logger = logger;
+            this.message = message;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Kreira ispis i pokreće pozadinsku nit.
+     */
+    private AsyncAppender() {
+        Thread writer = new Thread(this::run, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "log-shutdown"));
+    }
+
+    /**
+     * Vraća zajednički ispis.
+     *
+     * @return Ispis poruka.
+     */
+    static AsyncAppender getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Stavlja poruku u prsten. Ako je prsten pun, DEBUG i INFO poruka se odbacuje, a
+     * WARN i ERROR poruka čeka mjesto.
+     *
+     * @param record Poruka.
+     */
+    void append(LogRecord record) {
+        if (buffer.offer(record)) {
+            appended.incrementAndGet();
+        } else if (record.level.compareTo(Logger.Level.WARN) < 0) {
+            dropped.incrementAndGet();
+        } else {
+            try {
+                buffer.put(record);
+                appended.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Čeka da pozadinska nit ispiše sve poruke stavljene u prsten prije poziva.
+     */
+    void flush() {
+        long target = appended.get();
+        synchronized (writeLock) {
+            while (written < target) {
+                try {
+                    writeLock.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Petlja pozadinske niti: uzima poruke iz prstena i ispisuje ih.
+     */
+    private void run() {
+        while (true) {
+            try {
+                LogRecord record = buffer.poll(1, TimeUnit.SECONDS);
+                if (record != null) {
+                    write(record);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Ispisuje sve poruke preostale u prstenu.
+     */
+    private void drain() {
+        LogRecord record;
+        while ((record = buffer.poll()) != null) {
+            write(record);
+        }
+    }
+
+    /**
+     * Formatira i ispisuje jednu poruku.
+     *
+     * @param record Poruka.
+     */
+    private void write(LogRecord record) {
+        synchronized (writeLock) {
+            long lost = dropped.getAndSet(0);
+            PrintStream out = record.level.compareTo(Logger.Level.WARN) >= 0 ? System.err : System.out;
+            if (lost > 0) {
+                System.err.println(TIME_FORMAT.format(Instant.ofEpochMilli(record.timestamp))
+                        + " WARN  [log-writer] AsyncAppender - Odbačeno poruka zbog punog bafera: " + lost);
+            }
+            out.println(TIME_FORMAT.format(Instant.ofEpochMilli(record.timestamp)) + " "
+                    + String.format("%-5s", record.level) + " [" + record.thread + "] "
+                    + record.logger + " - " + record.message);
+            if (record.error != null) {
+                record.error.printStackTrace(out);
+            }
+            written++;
+            writeLock.notifyAll();
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package main.util;
 
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
 /**
  * Uslužna klasa za učitavanje JSON fajlova.
+ * Za velike fajlove sa redom vožnje koristiti {@link TimetableReader}, koji ne gradi cijelo JSON stablo.
  *
  * @author Mladen Grbić
  * @version 1.0
@@ -15,18 +19,18 @@ import java.nio.file.Paths;
 public class JsonLoader {
 
     /**
-     * Učitava JSON fajl i vraća ga kao JSONObject.
+     * Učitava JSON fajl i vraća ga kao JSONObject. Fajl se parsira direktno iz toka,
+     * bez pravljenja međukopije sadržaja kao String.
      *
      * @param filePath Putanja do JSON fajla.
      * @return JSONObject koji predstavlja sadržaj fajla.
      * @throws RuntimeException Ako dođe do greške pri učitavanju fajla.
      */
     public static JSONObject loadJson(String filePath) {
-        try {
-            String content = new String(Files.readAllBytes(Paths.get(filePath)));
-            return new JSONObject(content);
+        try (Reader reader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            return new JSONObject(new JSONTokener(reader));
         } catch (IOException e) {
             throw new RuntimeException("Greška prilikom učitavanja JSON fajla: " + filePath, e);
         }
     }
-}
\ No newline at end of file
+}
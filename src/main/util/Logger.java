@@ -0,0 +1,180 @@
+package main.util;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Jednostavan logger sa nivoima i asinhronim ispisom.
+ * <p>
+ * Poruka se odbacuje odmah ako je njen nivo ispod globalnog praga, pa poziv na isključenom
+ * nivou košta samo jedno poređenje. Poruke koje se skupo grade prosljeđuju se kao
+ * {@link Supplier} i grade se samo ako će biti ispisane. Ispis radi {@link AsyncAppender}
+ * u posebnoj niti, pa nit koja loguje ne čeka na konzolu.
+ * <p>
+ * Prag se zadaje sistemskim svojstvom {@code transport.log.level} ({@code DEBUG},
+ * {@code INFO}, {@code WARN}, {@code ERROR} ili {@code OFF}; podrazumijevano {@code INFO})
+ * ili metodom {@link #setLevel(Level)}.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class Logger {
+    private static final String LEVEL_PROPERTY = "transport.log.level";
+
+    /**
+     * Nivo poruke, od najopširnijeg ka najozbiljnijem.
+     */
+    public enum Level {
+        /** Detalji za praćenje rada (npr. svaka pretraga ruta). */
+        DEBUG,
+        /** Važni događaji (npr. učitavanje mreže). */
+        INFO,
+        /** Neočekivana stanja od kojih se aplikacija oporavlja. */
+        WARN,
+        /** Greške. */
+        ERROR,
+        /** Isključuje sve poruke; koristi se samo kao prag. */
+        OFF
+    }
+
+    private static volatile Level threshold = initialLevel();
+
+    private final String name;
+
+    /**
+     * Konstruktor za logger.
+     *
+     * @param name Ime loggera koje se ispisuje uz poruku.
+     */
+    private Logger(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Vraća logger za datu klasu.
+     *
+     * @param type Klasa koja loguje.
+     * @return Logger sa kratkim imenom klase.
+     */
+    public static Logger getLogger(Class<?> type) {
+        return new Logger(type.getSimpleName());
+    }
+
+    /**
+     * Postavlja globalni prag: poruke ispod njega se ne ispisuju.
+     *
+     * @param level Najniži nivo koji se ispisuje.
+     */
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+
+    /**
+     * Vraća globalni prag.
+     *
+     * @return Najniži nivo koji se ispisuje.
+     */
+    public static Level getLevel() {
+        return threshold;
+    }
+
+    /**
+     * Čeka da se ispišu sve poruke zabilježene prije poziva.
+     */
+    public static void flush() {
+        AsyncAppender.getInstance().flush();
+    }
+
+    /**
+     * Provjerava da li se poruke datog nivoa ispisuju.
+     *
+     * @param level Nivo poruke.
+     * @return true ako nivo nije ispod praga.
+     */
+    public boolean isEnabled(Level level) {
+        return level != Level.OFF && level.compareTo(threshold) >= 0;
+    }
+
+    /**
+     * Provjerava da li se ispisuju poruke nivoa {@link Level#DEBUG}.
+     *
+     * @return true ako je DEBUG uključen.
+     */
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    /**
+     * Bilježi DEBUG poruku koja se gradi samo ako se ispisuje.
+     *
+     * @param message Gradi poruku.
+     */
+    public void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) log(Level.DEBUG, message.get(), null);
+    }
+
+    /**
+     * Bilježi INFO poruku.
+     *
+     * @param message Poruka.
+     */
+    public void info(String message) {
+        if (isEnabled(Level.INFO)) log(Level.INFO, message, null);
+    }
+
+    /**
+     * Bilježi INFO poruku koja se gradi samo ako se ispisuje.
+     *
+     * @param message Gradi poruku.
+     */
+    public void info(Supplier<String> message) {
+        if (isEnabled(Level.INFO)) log(Level.INFO, message.get(), null);
+    }
+
+    /**
+     * Bilježi WARN poruku.
+     *
+     * @param message Poruka.
+     */
+    public void warn(String message) {
+        if (isEnabled(Level.WARN)) log(Level.WARN, message, null);
+    }
+
+    /**
+     * Bilježi ERROR poruku sa izuzetkom.
+     *
+     * @param message Poruka.
+     * @param error Izuzetak čiji se stek ispisuje, ili null.
+     */
+    public void error(String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) log(Level.ERROR, message, error);
+    }
+
+    /**
+     * Predaje poruku asinhronom ispisu.
+     *
+     * @param level Nivo poruke.
+     * @param message Poruka.
+     * @param error Izuzetak, ili null.
+     */
+    private void log(Level level, String message, Throwable error) {
+        AsyncAppender.getInstance().append(new AsyncAppender.LogRecord(System.currentTimeMillis(), level,
+                Thread.currentThread().getName(), name, message, error));
+    }
+
+    /**
+     * Čita početni prag iz sistemskog svojstva.
+     *
+     * @return Prag, ili {@link Level#INFO} ako svojstvo nije zadato ili nije ispravno.
+     */
+    private static Level initialLevel() {
+        String value = System.getProperty(LEVEL_PROPERTY);
+        if (value == null) return Level.INFO;
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Nepoznat nivo logovanja " + value + ", koristi se INFO");
+            return Level.INFO;
+        }
+    }
+}
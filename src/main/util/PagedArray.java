@@ -0,0 +1,91 @@
+package main.util;
+
+import java.util.Arrays;
+
+/**
+ * Nepromjenljiv niz objekata podijeljen na stranice fiksne veličine, sa izmjenom koja
+ * kopira samo izmijenjene stranice (vidi {@link PagedIntArray}).
+ *
+ * @param <T> Tip elemenata niza.
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class PagedArray<T> {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private final Object[][] pages;
+    private final int length;
+
+    /**
+     * Kreira niz nad datim stranicama.
+     *
+     * @param pages Stranice niza.
+     * @param length Dužina niza.
+     */
+    private PagedArray(Object[][] pages, int length) {
+        this.pages = pages;
+        this.length = length;
+    }
+
+    /**
+     * Pravi niz sa kopijom datih elemenata.
+     *
+     * @param values Elementi niza.
+     * @param <T> Tip elemenata niza.
+     * @return Novi niz.
+     */
+    public static <T> PagedArray<T> of(T[] values) {
+        Object[][] pages = new Object[(values.length + PAGE_MASK) >>> PAGE_BITS][];
+        for (int p = 0; p < pages.length; p++) {
+            pages[p] = Arrays.copyOfRange(values, p << PAGE_BITS, (p + 1) << PAGE_BITS, Object[].class);
+        }
+        return new PagedArray<>(pages, values.length);
+    }
+
+    /**
+     * Vraća element na datoj poziciji.
+     *
+     * @param index Pozicija u nizu.
+     * @return Element.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) pages[index >>> PAGE_BITS][index & PAGE_MASK];
+    }
+
+    /**
+     * Vraća dužinu niza.
+     *
+     * @return Broj elemenata.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Vraća niz u kojem su elementi na datim pozicijama zamijenjeni. Ovaj niz se ne mijenja.
+     *
+     * @param indices Pozicije koje se mijenjaju.
+     * @param values Novi elementi, redom za pozicije.
+     * @return Novi niz.
+     * @throws IndexOutOfBoundsException Ako neka pozicija nije u nizu.
+     */
+    public PagedArray<T> with(int[] indices, T[] values) {
+        Object[][] copy = pages.clone();
+        boolean[] copied = new boolean[pages.length];
+        for (int i = 0; i < indices.length; i++) {
+            int index = indices[i];
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Pozicija " + index + " van niza dužine " + length);
+            }
+            int page = index >>> PAGE_BITS;
+            if (!copied[page]) {
+                copy[page] = copy[page].clone();
+                copied[page] = true;
+            }
+            copy[page][index & PAGE_MASK] = values[i];
+        }
+        return new PagedArray<>(copy, length);
+    }
+}
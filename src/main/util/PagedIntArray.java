@@ -0,0 +1,172 @@
+package main.util;
+
+import java.util.Arrays;
+
+/**
+ * Nepromjenljiv niz cijelih brojeva podijeljen na stranice fiksne veličine.
+ * <p>
+ * Izmjena ({@link #edit()}) pravi novi niz koji sa ovim dijeli sve stranice osim onih u
+ * kojima mijenja vrijednosti: kopira se samo niz pokazivača na stranice (dužina/1024
+ * elemenata) i izmijenjene stranice. Zato je izmjena nekoliko vrijednosti velikog niza
+ * jeftina, a stari niz ostaje važeći za one koji ga i dalje čitaju.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public final class PagedIntArray {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int[][] pages;
+    private final int length;
+
+    /**
+     * Kreira niz nad datim stranicama.
+     *
+     * @param pages Stranice niza.
+     * @param length Dužina niza.
+     */
+    private PagedIntArray(int[][] pages, int length) {
+        this.pages = pages;
+        this.length = length;
+    }
+
+    /**
+     * Pravi niz sa kopijom datih vrijednosti.
+     *
+     * @param values Vrijednosti niza.
+     * @return Novi niz.
+     */
+    public static PagedIntArray of(int[] values) {
+        int[][] pages = new int[pageCount(values.length)][];
+        for (int p = 0; p < pages.length; p++) {
+            pages[p] = Arrays.copyOfRange(values, p << PAGE_BITS, (p + 1) << PAGE_BITS);
+        }
+        return new PagedIntArray(pages, values.length);
+    }
+
+    /**
+     * Vraća broj stranica potreban za niz date dužine.
+     *
+     * @param length Dužina niza.
+     * @return Broj stranica.
+     */
+    private static int pageCount(int length) {
+        return (length + PAGE_MASK) >>> PAGE_BITS;
+    }
+
+    /**
+     * Vraća vrijednost na datoj poziciji.
+     *
+     * @param index Pozicija u nizu.
+     * @return Vrijednost.
+     */
+    public int get(int index) {
+        return pages[index >>> PAGE_BITS][index & PAGE_MASK];
+    }
+
+    /**
+     * Vraća dužinu niza.
+     *
+     * @return Broj elemenata.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Počinje izmjenu niza. Ovaj niz se ne mijenja; izmijenjeni niz vraća {@link Editor#build()}.
+     *
+     * @return Izmjena nad kopijom niza.
+     */
+    public Editor edit() {
+        return new Editor(pages, length);
+    }
+
+    /**
+     * Izmjena niza: stranica se kopira pri prvoj izmjeni vrijednosti u njoj. Izmjenu koristi
+     * jedna nit, a nakon {@link #build()} se više ne koristi.
+     */
+    public static final class Editor {
+        private int[][] pages;
+        private boolean[] copied;
+        private int length;
+
+        /**
+         * Konstruktor za izmjenu nad stranicama postojećeg niza.
+         *
+         * @param pages Stranice niza koji se mijenja.
+         * @param length Dužina niza.
+         */
+        private Editor(int[][] pages, int length) {
+            this.pages = pages.clone();
+            this.copied = new boolean[pages.length];
+            this.length = length;
+        }
+
+        /**
+         * Vraća vrijednost na datoj poziciji, sa dosadašnjim izmjenama.
+         *
+         * @param index Pozicija u nizu.
+         * @return Vrijednost.
+         */
+        public int get(int index) {
+            return pages[index >>> PAGE_BITS][index & PAGE_MASK];
+        }
+
+        /**
+         * Postavlja vrijednost na datoj poziciji.
+         *
+         * @param index Pozicija u nizu.
+         * @param value Nova vrijednost.
+         * @throws IndexOutOfBoundsException Ako pozicija nije u nizu.
+         */
+        public void set(int index, int value) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Pozicija " + index + " van niza dužine " + length);
+            }
+            int page = index >>> PAGE_BITS;
+            if (!copied[page]) {
+                pages[page] = pages[page].clone();
+                copied[page] = true;
+            }
+            pages[page][index & PAGE_MASK] = value;
+        }
+
+        /**
+         * Produžava niz; nove pozicije imaju vrijednost 0.
+         *
+         * @param newLength Nova dužina, ne manja od tekuće.
+         * @throws IllegalArgumentException Ako je nova dužina manja od tekuće.
+         */
+        public void grow(int newLength) {
+            if (newLength < length) {
+                throw new IllegalArgumentException("Niz se ne može skratiti: " + newLength + " < " + length);
+            }
+            int count = pageCount(newLength);
+            if (count > pages.length) {
+                int old = pages.length;
+                pages = Arrays.copyOf(pages, count);
+                copied = Arrays.copyOf(copied, count);
+                for (int p = old; p < count; p++) {
+                    pages[p] = new int[PAGE_SIZE];
+                    copied[p] = true;
+                }
+            }
+            length = newLength;
+        }
+
+        /**
+         * Završava izmjenu.
+         *
+         * @return Izmijenjeni niz.
+         */
+        public PagedIntArray build() {
+            PagedIntArray built = new PagedIntArray(pages, length);
+            pages = null;
+            copied = null;
+            return built;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package main.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Skica za procjenu percentila nenegativnih cijelih vrijednosti sa ograničenom relativnom greškom.
+ * <p>
+ * Vrijednosti se broje u logaritamskim korpama: korpa {@code i} sadrži vrijednosti iz
+ * intervala {@code (gamma^(i-1), gamma^i]}, gdje je {@code gamma = (1 + a) / (1 - a)}, a
+ * {@code a} relativna tačnost. Procjena percentila se od stvarne vrijednosti razlikuje
+ * najviše za {@code a} puta tu vrijednost. Dvije skice iste tačnosti spajaju se sabiranjem
+ * korpi, pa se skice iz različitih perioda mogu spojiti bez ponovnog čitanja podataka.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class QuantileSketch {
+    private final double relativeAccuracy;
+    private final double logGamma;
+    private long zeroCount;
+    private long[] counts = new long[64];
+    private long count;
+    private long max;
+
+    /**
+     * Konstruktor za praznu skicu.
+     *
+     * @param relativeAccuracy Relativna tačnost procjene, između 0 i 1 (npr. 0.01 za 1%).
+     * @throws IllegalArgumentException Ako tačnost nije između 0 i 1.
+     */
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relativna tačnost mora biti između 0 i 1: " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+    }
+
+    /**
+     * Dodaje vrijednost u skicu.
+     *
+     * @param value Nenegativna vrijednost.
+     * @throws IllegalArgumentException Ako je vrijednost negativna.
+     */
+    public void add(long value) {
+        if (value < 0) throw new IllegalArgumentException("Vrijednost ne može biti negativna: " + value);
+        if (value == 0) {
+            zeroCount++;
+        } else {
+            int bucket = bucketOf(value);
+            if (bucket >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(bucket + 1, counts.length * 2));
+            }
+            counts[bucket]++;
+        }
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Dodaje u ovu skicu sve vrijednosti druge skice iste tačnosti.
+     *
+     * @param other Skica koja se spaja.
+     * @throws IllegalArgumentException Ako skice nemaju istu tačnost.
+     */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Skice različite tačnosti se ne mogu spojiti");
+        }
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Procjenjuje vrijednost datog percentila.
+     *
+     * @param quantile Percentil kao udio između 0 i 1 (npr. 0.9 za 90. percentil).
+     * @return Procjena vrijednosti, ili 0 ako je skica prazna.
+     * @throws IllegalArgumentException Ako percentil nije između 0 i 1.
+     */
+    public long quantile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Percentil mora biti između 0 i 1: " + quantile);
+        }
+        if (count == 0) return 0;
+        long rank = (long) Math.floor(quantile * (count - 1));
+        if (rank < zeroCount) return 0;
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                long estimate = Math.round(2 * Math.exp(i * logGamma) / (1 + Math.exp(logGamma)));
+                return Math.min(estimate, max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Vraća broj vrijednosti u skici.
+     *
+     * @return Broj vrijednosti.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Vraća relativnu tačnost skice.
+     *
+     * @return Relativna tačnost.
+     */
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /**
+     * Upisuje skicu u binarni izlaz.
+     *
+     * @param out Izlaz.
+     * @throws IOException Ako dođe do greške pri pisanju.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int used = counts.length;
+        while (used > 0 && counts[used - 1] == 0) used--;
+        out.writeDouble(relativeAccuracy);
+        out.writeLong(zeroCount);
+        out.writeLong(max);
+        out.writeInt(used);
+        for (int i = 0; i < used; i++) {
+            out.writeLong(counts[i]);
+        }
+    }
+
+    /**
+     * Čita skicu upisanu sa {@link #writeTo(DataOutput)}.
+     *
+     * @param in Ulaz.
+     * @return Pročitana skica.
+     * @throws IOException Ako dođe do greške pri čitanju.
+     */
+    public static QuantileSketch readFrom(DataInput in) throws IOException {
+        QuantileSketch sketch = new QuantileSketch(in.readDouble());
+        sketch.zeroCount = in.readLong();
+        sketch.max = in.readLong();
+        int used = in.readInt();
+        if (used < 0) throw new IOException("Neispravna skica percentila");
+        sketch.counts = new long[Math.max(used, 1)];
+        sketch.count = sketch.zeroCount;
+        for (int i = 0; i < used; i++) {
+            sketch.counts[i] = in.readLong();
+            sketch.count += sketch.counts[i];
+        }
+        return sketch;
+    }
+
+    /**
+     * Računa korpu za pozitivnu vrijednost.
+     *
+     * @param value Pozitivna vrijednost.
+     * @return Indeks korpe.
+     */
+    private int bucketOf(long value) {
+        return Math.max(0, (int) Math.ceil(Math.log(value) / logGamma));
+    }
+}
@@ -0,0 +1,344 @@
+package main.util;
+
+import main.model.Ticket;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Statistika prodaje koja se ažurira sa svakom prodatom kartom.
+ * <p>
+ * Zbirni podaci (broj karata, prihod, presjedanja, prihod po danu i po satu, broj karata
+ * po relaciji i skica cijena za percentile) drže se u memoriji i povremeno čuvaju u
+ * kontrolnu tačku pored knjige prodaje. Pri otvaranju se učitava kontrolna tačka i
+ * dodaju samo karte iz knjige prodate nakon nje, pa prikaz statistike ne zavisi od
+ * ukupnog broja prodatih karata. Prihod po satu čuva se za posljednjih
+ * {@value #HOURLY_RETENTION_HOURS} sati.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class SalesStatistics {
+    private static final Logger LOG = Logger.getLogger(SalesStatistics.class);
+
+    /** Ime fajla kontrolne tačke statistike. */
+    public static final String CHECKPOINT_FILE = "statistika.dat";
+    /** Broj sati za koje se čuva prihod po satu. */
+    public static final int HOURLY_RETENTION_HOURS = 24 * 31;
+    /** Relativna tačnost percentila cijena. */
+    public static final double PRICE_ACCURACY = 0.01;
+
+    private static final int MAGIC = 0x53544154;
+    private static final int VERSION = 1;
+    private static final int CHECKPOINT_INTERVAL = 64;
+
+    private static SalesStatistics defaultStatistics;
+
+    private final TicketLedger ledger;
+    private final Path checkpointPath;
+    private int coveredTickets;
+    private long totalRevenue;
+    private long totalTransfers;
+    private final NavigableMap<Integer, long[]> daily = new TreeMap<>();
+    private final NavigableMap<Long, long[]> hourly = new TreeMap<>();
+    private final Map<String, Long> relations = new HashMap<>();
+    private QuantileSketch prices = new QuantileSketch(PRICE_ACCURACY);
+    private final NavigableMap<Integer, Ticket> pending = new TreeMap<>();
+    private int sinceCheckpoint;
+
+    /**
+     * Konstruktor koji učitava kontrolnu tačku i dodaje karte prodate nakon nje.
+     *
+     * @param ledger Knjiga prodaje.
+     * @param checkpointPath Putanja do kontrolne tačke.
+     * @throws IOException Ako dođe do greške pri čitanju knjige.
+     */
+    private SalesStatistics(TicketLedger ledger, Path checkpointPath) throws IOException {
+        this.ledger = ledger;
+        this.checkpointPath = checkpointPath;
+        if (Files.exists(checkpointPath)) {
+            try {
+                readCheckpoint();
+            } catch (IOException e) {
+                LOG.warn("Greška pri čitanju statistike, statistika se računa ponovo: " + e.getMessage());
+                clear();
+            }
+        }
+        if (coveredTickets > ledger.size()) {
+            clear();
+        }
+        int size = ledger.size();
+        boolean replayed = coveredTickets < size;
+        while (coveredTickets < size) {
+            apply(ledger.read(coveredTickets));
+            coveredTickets++;
+        }
+        if (replayed) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Otvara statistiku za datu knjigu prodaje, sa kontrolnom tačkom u datom direktorijumu.
+     *
+     * @param ledger Knjiga prodaje.
+     * @param directory Direktorijum kontrolne tačke.
+     * @return Statistika prodaje.
+     * @throws IOException Ako dođe do greške pri čitanju knjige.
+     */
+    public static SalesStatistics open(TicketLedger ledger, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new SalesStatistics(ledger, directory.resolve(CHECKPOINT_FILE));
+    }
+
+    /**
+     * Vraća statistiku knjige prodaje aplikacije, otvarajući je pri prvom pozivu.
+     *
+     * @return Statistika prodaje aplikacije.
+     * @throws IOException Ako knjiga ne može biti otvorena ili pročitana.
+     */
+    public static synchronized SalesStatistics getDefault() throws IOException {
+        if (defaultStatistics == null) {
+            TicketLedger ledger = TicketLedger.getDefault();
+            defaultStatistics = open(ledger, ledger.getLedgerPath().getParent());
+        }
+        return defaultStatistics;
+    }
+
+    /**
+     * Dodaje u statistiku kartu upisanu u knjigu prodaje. Karte se uračunavaju redoslijedom
+     * rednih brojeva; karta koja stigne prije neke ranije upisane čeka da ta bude dodata.
+     *
+     * @param number Redni broj karte u knjizi.
+     * @param ticket Karta.
+     */
+    public synchronized void record(int number, Ticket ticket) {
+        if (number < coveredTickets) return;
+        pending.put(number, ticket);
+        while (!pending.isEmpty() && pending.firstKey() == coveredTickets) {
+            apply(pending.pollFirstEntry().getValue());
+            coveredTickets++;
+            sinceCheckpoint++;
+        }
+        if (sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                LOG.warn("Greška pri čuvanju statistike: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Čuva kontrolnu tačku statistike. Fajl se prvo upisuje pod privremenim imenom,
+     * pa premješta na mjesto kontrolne tačke.
+     *
+     * @throws IOException Ako dođe do greške pri pisanju.
+     */
+    public synchronized void checkpoint() throws IOException {
+        Path temporary = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(coveredTickets);
+            out.writeLong(totalRevenue);
+            out.writeLong(totalTransfers);
+            out.writeInt(daily.size());
+            for (Map.Entry<Integer, long[]> entry : daily.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeLong(entry.getValue()[0]);
+                out.writeLong(entry.getValue()[1]);
+            }
+            out.writeInt(hourly.size());
+            for (Map.Entry<Long, long[]> entry : hourly.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue()[0]);
+                out.writeLong(entry.getValue()[1]);
+            }
+            out.writeInt(relations.size());
+            for (Map.Entry<String, Long> entry : relations.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            prices.writeTo(out);
+        }
+        Files.move(temporary, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        sinceCheckpoint = 0;
+    }
+
+    /**
+     * Vraća ukupan broj prodatih karata.
+     *
+     * @return Broj karata.
+     */
+    public synchronized int getTotalTickets() {
+        return coveredTickets;
+    }
+
+    /**
+     * Vraća ukupan prihod od prodatih karata.
+     *
+     * @return Prihod u novčanim jedinicama.
+     */
+    public synchronized long getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    /**
+     * Vraća prosječan broj presjedanja po karti.
+     *
+     * @return Prosječan broj presjedanja, ili 0 ako nema karata.
+     */
+    public synchronized double getAverageTransfers() {
+        return coveredTickets == 0 ? 0 : (double) totalTransfers / coveredTickets;
+    }
+
+    /**
+     * Vraća prihod po danu za dati period.
+     *
+     * @param from Prvi dan perioda.
+     * @param to Posljednji dan perioda (uključen).
+     * @return Prihod po danu, samo za dane sa prodatim kartama.
+     */
+    public synchronized SortedMap<LocalDate, Long> getDailyRevenue(LocalDate from, LocalDate to) {
+        SortedMap<LocalDate, Long> result = new TreeMap<>();
+        for (Map.Entry<Integer, long[]> entry : daily.subMap((int) from.toEpochDay(), true, (int) to.toEpochDay(), true).entrySet()) {
+            result.put(LocalDate.ofEpochDay(entry.getKey()), entry.getValue()[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Vraća prihod po satu za dati dan. Za dane starije od perioda čuvanja prihoda po satu
+     * rezultat je prazan.
+     *
+     * @param day Dan.
+     * @return Prihod po satu (0-23), samo za sate sa prodatim kartama.
+     */
+    public synchronized SortedMap<Integer, Long> getHourlyRevenue(LocalDate day) {
+        long firstHour = day.toEpochDay() * 24;
+        SortedMap<Integer, Long> result = new TreeMap<>();
+        for (Map.Entry<Long, long[]> entry : hourly.subMap(firstHour, true, firstHour + 23, true).entrySet()) {
+            result.put((int) (entry.getKey() - firstHour), entry.getValue()[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Vraća relacije sa najviše prodatih karata.
+     *
+     * @param limit Najveći broj relacija.
+     * @return Relacije i broj karata, od najprodavanije.
+     */
+    public synchronized List<Map.Entry<String, Long>> getTopRelations(int limit) {
+        PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<>(
+                Map.Entry.<String, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())));
+        for (Map.Entry<String, Long> entry : relations.entrySet()) {
+            top.add(Map.entry(entry.getKey(), entry.getValue()));
+            if (top.size() > limit) top.poll();
+        }
+        List<Map.Entry<String, Long>> result = new ArrayList<>(top);
+        result.sort(Collections.reverseOrder(top.comparator()));
+        return result;
+    }
+
+    /**
+     * Procjenjuje percentil cijene prodatih karata.
+     *
+     * @param quantile Percentil kao udio između 0 i 1.
+     * @return Procjena cijene, sa relativnom greškom najviše {@value #PRICE_ACCURACY}.
+     */
+    public synchronized long getPricePercentile(double quantile) {
+        return prices.quantile(quantile);
+    }
+
+    /**
+     * Vraća kopiju skice cijena, npr. za spajanje sa statistikom druge prodajne mreže.
+     *
+     * @return Kopija skice cijena.
+     */
+    public synchronized QuantileSketch getPriceSketch() {
+        QuantileSketch copy = new QuantileSketch(PRICE_ACCURACY);
+        copy.merge(prices);
+        return copy;
+    }
+
+    /**
+     * Dodaje kartu u zbirne podatke.
+     *
+     * @param ticket Karta.
+     */
+    private void apply(Ticket ticket) {
+        LocalDateTime purchaseDate = ticket.getPurchaseDate();
+        int price = ticket.getPrice();
+        totalRevenue += price;
+        totalTransfers += ticket.getTransfers();
+        add(daily.computeIfAbsent((int) purchaseDate.toLocalDate().toEpochDay(), k -> new long[2]), price);
+        long hour = Math.floorDiv(purchaseDate.toEpochSecond(ZoneOffset.UTC), 3600);
+        if (hourly.isEmpty() || hour > hourly.lastKey() - HOURLY_RETENTION_HOURS) {
+            add(hourly.computeIfAbsent(hour, k -> new long[2]), price);
+            hourly.headMap(hourly.lastKey() - HOURLY_RETENTION_HOURS, true).clear();
+        }
+        relations.merge(ticket.getRoute(), 1L, Long::sum);
+        prices.add(Math.max(0, price));
+    }
+
+    /**
+     * Dodaje kartu u korpu [broj karata, prihod].
+     *
+     * @param bucket Korpa.
+     * @param price Cijena karte.
+     */
+    private static void add(long[] bucket, int price) {
+        bucket[0]++;
+        bucket[1] += price;
+    }
+
+    /**
+     * Briše sve zbirne podatke.
+     */
+    private void clear() {
+        coveredTickets = 0;
+        totalRevenue = 0;
+        totalTransfers = 0;
+        daily.clear();
+        hourly.clear();
+        relations.clear();
+        prices = new QuantileSketch(PRICE_ACCURACY);
+    }
+
+    /**
+     * Učitava zbirne podatke iz kontrolne tačke.
+     *
+     * @throws IOException Ako fajl nije ispravna kontrolna tačka.
+     */
+    private void readCheckpoint() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Fajl nije kontrolna tačka statistike: " + checkpointPath);
+            }
+            coveredTickets = in.readInt();
+            totalRevenue = in.readLong();
+            totalTransfers = in.readLong();
+            for (int i = in.readInt(); i > 0; i--) {
+                daily.put(in.readInt(), new long[]{in.readLong(), in.readLong()});
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                hourly.put(in.readLong(), new long[]{in.readLong(), in.readLong()});
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                relations.put(in.readUTF(), in.readLong());
+            }
+            prices = QuantileSketch.readFrom(in);
+            if (prices.getRelativeAccuracy() != PRICE_ACCURACY) {
+                throw new IOException("Kontrolna tačka ima skicu cijena druge tačnosti");
+            }
+        }
+    }
+}
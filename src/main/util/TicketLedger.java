@@ -0,0 +1,627 @@
+package main.util;
+
+import main.model.Ticket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Knjiga prodaje: binarni fajl u koji se karte samo dopisuju, uz prateći indeks.
+ * <p>
+ * Svaki zapis u knjizi ima dužinu, CRC32 kontrolnu sumu i sadržaj karte. Indeks ima
+ * zapis fiksne dužine po karti (pozicija i dužina u knjizi, dan kupovine, heš relacije
+ * i cijena), pa se pri otvaranju učitava bez čitanja knjige, a pretrage po datumu i
+ * relaciji čitaju samo pronađene karte. Ako je rad prekinut usred upisa, pri otvaranju
+ * se nepotpuni zapis odbacuje, a indeks dopunjava iz knjige.
+ * <p>
+ * Zaglavlje knjige pamti poziciju do koje je upis potvrđen na disku. Zapisi indeksa do te
+ * pozicije se pri otvaranju prihvataju bez čitanja knjige; zapis indeksa iza nje mogao je
+ * stići na disk prije zapisa knjige na koji upućuje, pa se taj zapis knjige čita i provjerava
+ * kontrolnom sumom, a knjiga se odsijeca na prvom zapisu koji nije ispravan.
+ * <p>
+ * Upis se potvrđuje na disk grupno: nit koja je upisala kartu čeka dok {@code force}
+ * ne obuhvati njen zapis, a jedan poziv {@code force} potvrđuje sve karte upisane do tada,
+ * pa istovremene kupovine dijele jedan upis na disk.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class TicketLedger implements Closeable {
+    private static final Logger LOG = Logger.getLogger(TicketLedger.class);
+
+    /** Ime fajla knjige prodaje. */
+    public static final String LEDGER_FILE = "prodaja.dat";
+    /** Ime fajla indeksa knjige prodaje. */
+    public static final String INDEX_FILE = "prodaja.idx";
+
+    private static final int MAGIC = 0x31524B54;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int DURABLE_POSITION_OFFSET = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int INDEX_ENTRY_BYTES = 24;
+    private static final DateTimeFormatter RECEIPT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private static TicketLedger defaultLedger;
+
+    private final Path ledgerPath;
+    private final FileChannel ledger;
+    private final FileChannel index;
+    private final Object syncLock = new Object();
+
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private int[] days = new int[1024];
+    private int[] relationHashes = new int[1024];
+    private int[] prices = new int[1024];
+    private int size;
+    private long totalRevenue;
+    private final NavigableMap<Integer, List<Integer>> byDay = new TreeMap<>();
+    private final Map<Integer, List<Integer>> byRelation = new HashMap<>();
+    private long writePosition;
+    private volatile long durablePosition;
+
+    /**
+     * Otvara knjigu i indeks, odbacuje nepotpun zapis na kraju i dopunjava indeks.
+     *
+     * @param ledgerPath Putanja do fajla knjige.
+     * @param indexPath Putanja do fajla indeksa.
+     * @throws IOException Ako fajlovi ne mogu biti otvoreni ili knjiga nije ispravna.
+     */
+    private TicketLedger(Path ledgerPath, Path indexPath) throws IOException {
+        this.ledgerPath = ledgerPath;
+        this.ledger = FileChannel.open(ledgerPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Otvara (ili kreira) knjigu prodaje u datom direktorijumu.
+     *
+     * @param directory Direktorijum knjige.
+     * @return Otvorena knjiga.
+     * @throws IOException Ako knjiga ne može biti otvorena ili nije ispravna.
+     */
+    public static TicketLedger open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new TicketLedger(directory.resolve(LEDGER_FILE), directory.resolve(INDEX_FILE));
+    }
+
+    /**
+     * Vraća knjigu prodaje aplikacije u direktorijumu "racuni", otvarajući je pri prvom
+     * pozivu. Kada se knjiga kreira prvi put, u nju se prenose postojeći tekstualni računi
+     * iz istog direktorijuma.
+     *
+     * @return Knjiga prodaje aplikacije.
+     * @throws IOException Ako knjiga ne može biti otvorena.
+     */
+    public static synchronized TicketLedger getDefault() throws IOException {
+        if (defaultLedger == null) {
+            Path directory = Paths.get("racuni");
+            boolean created = !Files.exists(directory.resolve(LEDGER_FILE));
+            TicketLedger ledger = open(directory);
+            if (created) {
+                ledger.importLegacyReceipts(directory);
+            }
+            defaultLedger = ledger;
+        }
+        return defaultLedger;
+    }
+
+    /**
+     * Dopisuje kartu u knjigu i čeka da zapis bude potvrđen na disku.
+     *
+     * @param ticket Karta koja se dopisuje.
+     * @return Redni broj karte u knjizi.
+     * @throws IOException Ako dođe do greške pri upisu.
+     */
+    public int append(Ticket ticket) throws IOException {
+        return append(ticket, number -> { });
+    }
+
+    /**
+     * Dopisuje kartu u knjigu, javlja njen redni broj i čeka da zapis bude potvrđen na
+     * disku. Broj se javlja čim je karta upisana, i kada potvrda ne uspije: zapis je tada
+     * već u knjizi i indeksu (i ostaje u njima nakon ponovnog otvaranja ako je stigao na
+     * disk), pa onaj ko prati karte po rednom broju ne smije da ga preskoči.
+     *
+     * @param ticket Karta koja se dopisuje.
+     * @param written Prima redni broj upisane karte; poziva se van brave knjige.
+     * @return Redni broj karte u knjizi.
+     * @throws IOException Ako dođe do greške pri upisu ili potvrdi.
+     */
+    public int append(Ticket ticket, IntConsumer written) throws IOException {
+        int number;
+        long end;
+        synchronized (this) {
+            number = write(ticket);
+            end = writePosition;
+        }
+        try {
+            commit(end);
+        } finally {
+            written.accept(number);
+        }
+        return number;
+    }
+
+    /**
+     * Vraća broj karata u knjizi.
+     *
+     * @return Broj karata.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Vraća ukupan prihod svih karata u knjizi, izračunat iz indeksa.
+     *
+     * @return Ukupan prihod u novčanim jedinicama.
+     */
+    public synchronized long getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    /**
+     * Čita kartu sa datim rednim brojem.
+     *
+     * @param number Redni broj karte.
+     * @return Karta.
+     * @throws IOException Ako dođe do greške pri čitanju.
+     * @throws IndexOutOfBoundsException Ako karta sa tim brojem ne postoji.
+     */
+    public Ticket read(int number) throws IOException {
+        long offset;
+        int length;
+        synchronized (this) {
+            Objects.checkIndex(number, size);
+            offset = offsets[number];
+            length = lengths[number];
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(buffer, offset);
+        buffer.flip();
+        buffer.position(RECORD_HEADER_BYTES);
+        return decode(buffer);
+    }
+
+    /**
+     * Pronalazi karte kupljene u datom periodu.
+     *
+     * @param from Prvi dan perioda.
+     * @param to Posljednji dan perioda (uključen).
+     * @return Karte redoslijedom kupovine.
+     * @throws IOException Ako dođe do greške pri čitanju.
+     */
+    public List<Ticket> findByDate(LocalDate from, LocalDate to) throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        synchronized (this) {
+            for (List<Integer> day : byDay.subMap((int) from.toEpochDay(), true, (int) to.toEpochDay(), true).values()) {
+                numbers.addAll(day);
+            }
+        }
+        Collections.sort(numbers);
+        List<Ticket> tickets = new ArrayList<>(numbers.size());
+        for (int number : numbers) {
+            tickets.add(read(number));
+        }
+        return tickets;
+    }
+
+    /**
+     * Pronalazi karte za datu relaciju.
+     *
+     * @param relation Relacija u formatu "G_0_0 -> G_1_1".
+     * @return Karte redoslijedom kupovine.
+     * @throws IOException Ako dođe do greške pri čitanju.
+     */
+    public List<Ticket> findByRelation(String relation) throws IOException {
+        List<Integer> numbers;
+        synchronized (this) {
+            numbers = new ArrayList<>(byRelation.getOrDefault(relation.hashCode(), Collections.emptyList()));
+        }
+        List<Ticket> tickets = new ArrayList<>(numbers.size());
+        for (int number : numbers) {
+            Ticket ticket = read(number);
+            if (ticket.getRoute().equals(relation)) {
+                tickets.add(ticket);
+            }
+        }
+        return tickets;
+    }
+
+    /**
+     * Upisuje kartu kao tekstualni račun u starom formatu ({@link Ticket#toFileFormat()}).
+     * Ime fajla je "racun_yyyyMMdd_HHmmss.txt", uz redni broj karte ako fajl sa tim
+     * imenom već postoji.
+     *
+     * @param number Redni broj karte.
+     * @param directory Direktorijum u koji se upisuje račun.
+     * @return Putanja do računa.
+     * @throws IOException Ako dođe do greške pri čitanju ili pisanju.
+     */
+    public Path exportReceipt(int number, Path directory) throws IOException {
+        Ticket ticket = read(number);
+        Files.createDirectories(directory);
+        String name = "racun_" + ticket.getPurchaseDate().format(RECEIPT_NAME);
+        Path receipt = directory.resolve(name + ".txt");
+        if (Files.exists(receipt)) {
+            receipt = directory.resolve(name + "_" + number + ".txt");
+        }
+        Files.writeString(receipt, ticket.toFileFormat());
+        return receipt;
+    }
+
+    /**
+     * Prenosi tekstualne račune iz direktorijuma u knjigu, redoslijedom imena fajlova.
+     * Neispravni računi se preskaču.
+     *
+     * @param directory Direktorijum sa računima "*.txt".
+     * @return Broj prenesenih računa.
+     * @throws IOException Ako dođe do greške pri čitanju direktorijuma ili upisu.
+     */
+    public int importLegacyReceipts(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.toString().endsWith(".txt")).sorted().collect(Collectors.toList());
+        }
+        int imported = 0;
+        long end;
+        synchronized (this) {
+            for (Path file : files) {
+                try {
+                    write(Ticket.fromFileFormat(Files.readString(file)));
+                    imported++;
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Greška pri učitavanju računa: " + file + " - " + e.getMessage());
+                }
+            }
+            end = writePosition;
+        }
+        commit(end);
+        return imported;
+    }
+
+    /**
+     * Zatvara knjigu i indeks.
+     *
+     * @throws IOException Ako dođe do greške pri zatvaranju.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            ledger.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Vraća putanju do fajla knjige.
+     *
+     * @return Putanja do knjige.
+     */
+    public Path getLedgerPath() {
+        return ledgerPath;
+    }
+
+    /**
+     * Upisuje kartu u knjigu i indeks bez potvrde na disku. Poziva se pod bravom knjige.
+     *
+     * @param ticket Karta.
+     * @return Redni broj karte.
+     * @throws IOException Ako dođe do greške pri upisu.
+     */
+    private int write(Ticket ticket) throws IOException {
+        ByteBuffer record = encode(ticket);
+        long offset = writePosition;
+        writeFully(ledger, record, offset);
+        writePosition += record.limit();
+        int number = addEntry(offset, record.limit(), ticket);
+        writeFully(index, indexEntry(number), (long) number * INDEX_ENTRY_BYTES);
+        return number;
+    }
+
+    /**
+     * Potvrđuje upis na disku do date pozicije knjige. Ako je neka druga nit u
+     * međuvremenu potvrdila tu poziciju, metoda se vraća bez novog upisa na disk.
+     *
+     * @param end Pozicija u knjizi do koje upis treba biti potvrđen.
+     * @throws IOException Ako potvrda ne uspije.
+     */
+    private void commit(long end) throws IOException {
+        if (durablePosition >= end) return;
+        synchronized (syncLock) {
+            if (durablePosition >= end) return;
+            long target;
+            synchronized (this) {
+                target = writePosition;
+            }
+            ledger.force(false);
+            index.force(false);
+            writeDurablePosition(target);
+            durablePosition = target;
+        }
+    }
+
+    /**
+     * Upisuje u zaglavlje knjige poziciju do koje je upis potvrđen na disku. Pozicija se
+     * ne potvrđuje posebno, već sa sljedećom potvrdom; ako ne stigne na disk, pri otvaranju
+     * se samo provjerava više zapisa.
+     *
+     * @param position Potvrđena pozicija u knjizi.
+     * @throws IOException Ako dođe do greške pri upisu.
+     */
+    private void writeDurablePosition(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        writeFully(ledger, buffer.putLong(position).flip(), DURABLE_POSITION_OFFSET);
+    }
+
+    /**
+     * Učitava indeks, odbacuje nepotpun ili oštećen zapis na kraju knjige i indeksira zapise
+     * koji nedostaju u indeksu. Zapisi indeksa iza potvrđene pozicije iz zaglavlja prihvataju
+     * se tek kada se zapis knjige na koji upućuju provjeri kontrolnom sumom.
+     *
+     * @throws IOException Ako knjiga nije ispravna ili dođe do greške pri čitanju.
+     */
+    private void recover() throws IOException {
+        long durable = 0;
+        if (ledger.size() < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(0).flip();
+            ledger.truncate(0);
+            writeFully(ledger, header, 0);
+            index.truncate(0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Fajl nije knjiga prodaje: " + ledgerPath);
+            }
+            durable = header.getLong();
+        }
+        long ledgerSize = ledger.size();
+
+        long expected = HEADER_BYTES;
+        long entries = index.size() / INDEX_ENTRY_BYTES;
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < entries; i++) {
+            entry.clear();
+            readFully(index, entry, (long) i * INDEX_ENTRY_BYTES);
+            entry.flip();
+            long offset = entry.getLong();
+            int length = entry.getInt();
+            if (offset != expected || length < RECORD_HEADER_BYTES || offset + length > ledgerSize) break;
+            if (offset + length <= durable) {
+                addEntry(offset, length, entry.getInt(), entry.getInt(), entry.getInt());
+            } else {
+                ByteBuffer payload = readRecord(offset, ledgerSize);
+                if (payload == null || RECORD_HEADER_BYTES + payload.limit() != length) break;
+                int number = addEntry(offset, length, decode(payload));
+                writeFully(index, indexEntry(number), (long) number * INDEX_ENTRY_BYTES);
+            }
+            expected = offset + length;
+        }
+        index.truncate((long) size * INDEX_ENTRY_BYTES);
+
+        for (ByteBuffer payload = readRecord(expected, ledgerSize); payload != null;
+             payload = readRecord(expected, ledgerSize)) {
+            int length = RECORD_HEADER_BYTES + payload.limit();
+            int number = addEntry(expected, length, decode(payload));
+            writeFully(index, indexEntry(number), (long) number * INDEX_ENTRY_BYTES);
+            expected += length;
+        }
+        if (expected < ledgerSize) {
+            LOG.warn("Knjiga prodaje: odbačen nepotpun zapis na kraju fajla " + ledgerPath);
+            ledger.truncate(expected);
+        }
+        ledger.force(false);
+        index.force(false);
+        writeDurablePosition(expected);
+        writePosition = expected;
+        durablePosition = expected;
+    }
+
+    /**
+     * Čita zapis knjige na datoj poziciji i provjerava njegovu kontrolnu sumu.
+     *
+     * @param position Pozicija zapisa u knjizi.
+     * @param ledgerSize Veličina knjige.
+     * @return Sadržaj zapisa spreman za dekodiranje, ili null ako zapis nije potpun ili
+     *         kontrolna suma ne odgovara.
+     * @throws IOException Ako dođe do greške pri čitanju.
+     */
+    private ByteBuffer readRecord(long position, long ledgerSize) throws IOException {
+        if (position + RECORD_HEADER_BYTES > ledgerSize) return null;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(recordHeader, position);
+        recordHeader.flip();
+        int payloadLength = recordHeader.getInt();
+        int crc = recordHeader.getInt();
+        if (payloadLength < 0 || position + RECORD_HEADER_BYTES + payloadLength > ledgerSize) return null;
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(payload, position + RECORD_HEADER_BYTES);
+        if (crc32(payload.array(), payloadLength) != crc) return null;
+        return payload.flip();
+    }
+
+    /**
+     * Dodaje kartu u indeks u memoriji.
+     *
+     * @param offset Pozicija zapisa u knjizi.
+     * @param length Dužina zapisa u bajtovima.
+     * @param ticket Karta.
+     * @return Redni broj karte.
+     */
+    private int addEntry(long offset, int length, Ticket ticket) {
+        return addEntry(offset, length, (int) ticket.getPurchaseDate().toLocalDate().toEpochDay(),
+                ticket.getRoute().hashCode(), ticket.getPrice());
+    }
+
+    /**
+     * Dodaje zapis u indeks u memoriji.
+     *
+     * @param offset Pozicija zapisa u knjizi.
+     * @param length Dužina zapisa u bajtovima.
+     * @param day Dan kupovine (broj dana od 1.1.1970).
+     * @param relationHash Heš relacije.
+     * @param price Cijena karte.
+     * @return Redni broj karte.
+     */
+    private int addEntry(long offset, int length, int day, int relationHash, int price) {
+        if (size == offsets.length) {
+            int capacity = size * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            days = Arrays.copyOf(days, capacity);
+            relationHashes = Arrays.copyOf(relationHashes, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+        }
+        int number = size++;
+        offsets[number] = offset;
+        lengths[number] = length;
+        days[number] = day;
+        relationHashes[number] = relationHash;
+        prices[number] = price;
+        totalRevenue += price;
+        byDay.computeIfAbsent(day, k -> new ArrayList<>()).add(number);
+        byRelation.computeIfAbsent(relationHash, k -> new ArrayList<>()).add(number);
+        return number;
+    }
+
+    /**
+     * Pravi zapis indeksa za kartu.
+     *
+     * @param number Redni broj karte.
+     * @return Bafer sa zapisom indeksa, spreman za upis.
+     */
+    private ByteBuffer indexEntry(int number) {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putLong(offsets[number]).putInt(lengths[number]).putInt(days[number])
+                .putInt(relationHashes[number]).putInt(prices[number]);
+        return entry.flip();
+    }
+
+    /**
+     * Kodira kartu u zapis knjige: dužina sadržaja, CRC32 i sadržaj.
+     *
+     * @param ticket Karta.
+     * @return Bafer sa zapisom, spreman za upis.
+     */
+    private static ByteBuffer encode(Ticket ticket) {
+        byte[] route = ticket.getRoute().getBytes(StandardCharsets.UTF_8);
+        byte[] segmentedRoute = ticket.getSegmentedRoute().getBytes(StandardCharsets.UTF_8);
+        int payloadLength = 8 + 4 + 4 * 3 + 4 + route.length + 4 + segmentedRoute.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payloadLength).order(ByteOrder.LITTLE_ENDIAN);
+        record.position(RECORD_HEADER_BYTES);
+        LocalDateTime purchaseDate = ticket.getPurchaseDate();
+        record.putLong(purchaseDate.toEpochSecond(ZoneOffset.UTC)).putInt(purchaseDate.getNano())
+                .putInt(ticket.getTotalTime()).putInt(ticket.getPrice()).putInt(ticket.getTransfers())
+                .putInt(route.length).put(route)
+                .putInt(segmentedRoute.length).put(segmentedRoute);
+        int crc = crc32(Arrays.copyOfRange(record.array(), RECORD_HEADER_BYTES, record.limit()), payloadLength);
+        record.putInt(0, payloadLength).putInt(4, crc);
+        record.position(0);
+        return record;
+    }
+
+    /**
+     * Dekodira kartu iz sadržaja zapisa.
+     *
+     * @param payload Bafer pozicioniran na početak sadržaja zapisa.
+     * @return Karta.
+     */
+    private static Ticket decode(ByteBuffer payload) {
+        long epochSecond = payload.getLong();
+        int nano = payload.getInt();
+        int totalTime = payload.getInt();
+        int price = payload.getInt();
+        int transfers = payload.getInt();
+        byte[] route = new byte[payload.getInt()];
+        payload.get(route);
+        byte[] segmentedRoute = new byte[payload.getInt()];
+        payload.get(segmentedRoute);
+        return new Ticket(new String(route, StandardCharsets.UTF_8), new String(segmentedRoute, StandardCharsets.UTF_8),
+                totalTime, price, transfers, LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+    }
+
+    /**
+     * Računa CRC32 kontrolnu sumu.
+     *
+     * @param bytes Bajtovi.
+     * @param length Broj bajtova od početka niza.
+     * @return Kontrolna suma.
+     */
+    private static int crc32(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Čita iz knjige dok se bafer ne napuni.
+     *
+     * @param buffer Bafer.
+     * @param position Pozicija u knjizi.
+     * @throws IOException Ako fajl završi prije nego što se bafer napuni.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        readFully(ledger, buffer, position);
+    }
+
+    /**
+     * Čita iz kanala dok se bafer ne napuni.
+     *
+     * @param channel Kanal.
+     * @param buffer Bafer.
+     * @param position Pozicija u kanalu.
+     * @throws IOException Ako kanal završi prije nego što se bafer napuni.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Neočekivan kraj fajla");
+            position += read;
+        }
+    }
+
+    /**
+     * Upisuje cijeli bafer u kanal na datu poziciju.
+     *
+     * @param channel Kanal.
+     * @param buffer Bafer.
+     * @param position Pozicija u kanalu.
+     * @throws IOException Ako dođe do greške pri upisu.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
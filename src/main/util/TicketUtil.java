@@ -5,34 +5,53 @@ import main.model.Ticket;
 import main.transport.Route;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Uslužna klasa za generisanje računa za kupljene karte.
+ * Računi se upisuju u knjigu prodaje ({@link TicketLedger}), a svaka karta se odmah
+ * uračunava u statistiku prodaje ({@link SalesStatistics}).
  *
  * @author Mladen Grbić
  * @version 1.0
  */
 public class TicketUtil {
+    private final TicketLedger ledger;
+    private final SalesStatistics statistics;
 
     /**
-     * Generiše račun za datu rutu i čuva ga kao tekstualni fajl.
+     * Konstruktor koji upisuje račune u knjigu prodaje aplikacije ({@link TicketLedger#getDefault()})
+     * i ažurira statistiku aplikacije ({@link SalesStatistics#getDefault()}).
+     */
+    public TicketUtil() {
+        this(null, null);
+    }
+
+    /**
+     * Konstruktor koji upisuje račune u datu knjigu prodaje.
+     *
+     * @param ledger Knjiga prodaje, ili null za knjigu prodaje i statistiku aplikacije.
+     * @param statistics Statistika koja se ažurira, ili null ako je data knjiga bez statistike.
+     */
+    public TicketUtil(TicketLedger ledger, SalesStatistics statistics) {
+        this.ledger = ledger;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Generiše račun za datu rutu, dopisuje ga u knjigu prodaje i uračunava u statistiku.
+     * Tekstualni račun u starom formatu može se dobiti sa {@link TicketLedger#exportReceipt(int, Path)}.
      *
      * @param route Ruta za koju se generiše račun.
      * @param startCity Početni grad.
      * @param endCity Krajnji grad.
-     * @return Apsolutna putanja do generisanog računa.
-     * @throws IOException Ako dođe do greške pri kreiranju direktorijuma ili pisanju fajla.
+     * @return Opis računa: redni broj i apsolutna putanja do knjige prodaje.
+     * @throws IOException Ako dođe do greške pri otvaranju knjige ili upisu računa.
      */
     public String generateReceipt(Route route, City startCity, City endCity) throws IOException {
-        Path receiptsDir = Paths.get("racuni");
-        if (!Files.exists(receiptsDir)) {
-            Files.createDirectories(receiptsDir);
-        }
+        TicketLedger target = ledger != null ? ledger : TicketLedger.getDefault();
+        SalesStatistics targetStatistics = ledger != null ? statistics : SalesStatistics.getDefault();
 
         // Kreiraj Ticket objekat
         LocalDateTime now = LocalDateTime.now();
@@ -43,14 +62,14 @@ public class TicketUtil {
         int transferCount = route.getTransferCount();
         Ticket ticket = new Ticket(travelRelation, segmentedRoute, totalTime, price, transferCount, now);
 
-        // Generiši jedinstveno ime fajla
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-        String fileName = "racun_" + now.format(formatter) + ".txt";
-        Path receiptPath = receiptsDir.resolve(fileName);
-
-        // Sačuvaj račun u fajl
-        Files.writeString(receiptPath, ticket.toFileFormat());
+        // Dopiši račun u knjigu prodaje; karta se uračunava i ako potvrda upisa ne uspije,
+        // jer statistika prima karte strogo redom rednih brojeva
+        int number = target.append(ticket, written -> {
+            if (targetStatistics != null) {
+                targetStatistics.record(written, ticket);
+            }
+        });
 
-        return receiptPath.toAbsolutePath().toString();
+        return "račun br. " + (number + 1) + ", " + target.getLedgerPath().toAbsolutePath();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package main.util;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+/**
+ * Uslužna klasa za učitavanje reda vožnje iz JSON fajla bez učitavanja cijelog
+ * fajla u memoriju. Fajl se čita tok po tok, a za svaki zapis iz nizova
+ * "countryMap", "stations" i "departures" poziva se odgovarajuća metoda
+ * {@link Handler}-a. U memoriji se u svakom trenutku drži samo jedan zapis,
+ * pa potrošnja memorije zavisi od veličine mreže, a ne od veličine JSON teksta.
+ * <p>
+ * Polasci se obrađuju redoslijedom iz fajla, pa niz "stations" treba da prethodi
+ * nizu "departures" (kao u fajlovima koje pravi generator podataka).
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+public class TimetableReader {
+
+    /**
+     * Prima događaje za zapise reda vožnje redoslijedom kojim su pročitani.
+     */
+    public interface Handler {
+
+        /**
+         * Poziva se nakon čitanja niza "countryMap".
+         *
+         * @param rows Broj redova mreže.
+         * @param cols Broj kolona mreže.
+         */
+        void grid(int rows, int cols);
+
+        /**
+         * Poziva se za svaki zapis niza "stations".
+         *
+         * @param city Ime grada.
+         * @param busStation Ime autobuske stanice.
+         * @param trainStation Ime železničke stanice.
+         */
+        void station(String city, String busStation, String trainStation);
+
+        /**
+         * Poziva se za svaki zapis niza "departures".
+         *
+         * @param from Ime polazne stanice.
+         * @param toCity Ime destinacijskog grada.
+         * @param departureTime Vrijeme polaska u minutama.
+         * @param duration Trajanje putovanja u minutama.
+         * @param price Cijena putovanja.
+         * @param minTransferTime Minimalno vrijeme čekanja za transfer.
+         */
+        void departure(String from, String toCity, int departureTime, int duration, int price, int minTransferTime);
+    }
+
+    /**
+     * Čita JSON fajl sa redom vožnje i prosljeđuje zapise handler-u.
+     *
+     * @param filePath Putanja do JSON fajla.
+     * @param handler Handler koji prima zapise.
+     * @throws IOException Ako dođe do greške pri čitanju fajla.
+     * @throws org.json.JSONException Ako fajl nije ispravan JSON.
+     */
+    public static void read(String filePath, Handler handler) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            read(reader, handler);
+        }
+    }
+
+    /**
+     * Čita red vožnje iz datog toka i prosljeđuje zapise handler-u.
+     *
+     * @param reader Tok sa JSON sadržajem.
+     * @param handler Handler koji prima zapise.
+     * @throws org.json.JSONException Ako sadržaj nije ispravan JSON.
+     */
+    public static void read(Reader reader, Handler handler) {
+        JSONTokener tokener = new JSONTokener(reader);
+        expect(tokener, '{');
+        if (tokener.nextClean() == '}') return;
+        tokener.back();
+
+        while (true) {
+            expect(tokener, '"');
+            String key = tokener.nextString('"');
+            expect(tokener, ':');
+            switch (key) {
+                case "countryMap" -> readCountryMap(tokener, handler);
+                case "stations" -> readArray(tokener, value -> {
+                    JSONObject station = (JSONObject) value;
+                    handler.station(station.getString("city"), station.getString("busStation"),
+                            station.getString("trainStation"));
+                });
+                case "departures" -> readArray(tokener, value -> {
+                    JSONObject departure = (JSONObject) value;
+                    handler.departure(departure.getString("from"), departure.getString("to"),
+                            timeToMinutes(departure.getString("departureTime")), departure.getInt("duration"),
+                            departure.getInt("price"), departure.getInt("minTransferTime"));
+                });
+                default -> tokener.nextValue();
+            }
+
+            char next = tokener.nextClean();
+            if (next == '}') return;
+            if (next != ',') throw tokener.syntaxError("Očekivan ',' ili '}'");
+        }
+    }
+
+    /**
+     * Čita niz "countryMap" red po red i javlja dimenzije mreže.
+     *
+     * @param tokener JSON tokenizer.
+     * @param handler Handler koji prima dimenzije.
+     */
+    private static void readCountryMap(JSONTokener tokener, Handler handler) {
+        int[] size = new int[2];
+        readArray(tokener, value -> {
+            size[0]++;
+            size[1] = Math.max(size[1], ((JSONArray) value).length());
+        });
+        handler.grid(size[0], size[1]);
+    }
+
+    /**
+     * Čita JSON niz element po element.
+     *
+     * @param tokener JSON tokenizer.
+     * @param consumer Obrađuje svaki element niza.
+     */
+    private static void readArray(JSONTokener tokener, Consumer<Object> consumer) {
+        expect(tokener, '[');
+        if (tokener.nextClean() == ']') return;
+        tokener.back();
+        while (true) {
+            consumer.accept(tokener.nextValue());
+            char next = tokener.nextClean();
+            if (next == ']') return;
+            if (next != ',') throw tokener.syntaxError("Očekivan ',' ili ']'");
+        }
+    }
+
+    /**
+     * Provjerava da je sljedeći znak (bez razmaka) očekivani znak.
+     *
+     * @param tokener JSON tokenizer.
+     * @param expected Očekivani znak.
+     */
+    private static void expect(JSONTokener tokener, char expected) {
+        if (tokener.nextClean() != expected) {
+            throw tokener.syntaxError("Očekivan '" + expected + "'");
+        }
+    }
+
+    /**
+     * Konvertuje vrijeme u formatu "HH:mm" u minute.
+     *
+     * @param time Vrijeme u formatu "HH:mm".
+     * @return Vrijeme u minutama.
+     */
+    public static int timeToMinutes(String time) {
+        int colon = time.indexOf(':');
+        int hours = Integer.parseInt(time.substring(0, colon));
+        int minutes = Integer.parseInt(time.substring(colon + 1));
+        return hours * 60 + minutes;
+    }
+}
@@ -0,0 +1,237 @@
+package main.transport;
+
+import main.model.City;
+import main.model.Edge;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Provjerava da paketna pretraga na fork-join bazenu vraća iste rute kao sekvencijalna
+ * pretraga, i kada se mreža istovremeno mijenja izmjenama reda vožnje i novim snimcima.
+ *
+ * @author Mladen Grbić
+ * @version 1.0
+ */
+class BatchRouterTest {
+    private static final String DATA = "src/main/resources/transport_data.json";
+    private static final int QUERIES = 96;
+    private static final int ROUNDS = 2;
+
+    private static NetworkSnapshot loaded;
+    private static TimetableDelta delta;
+
+    /**
+     * Učitava mrežu i pravi izmjenu reda vožnje koja skraćuje dio polazaka. Polasci koji
+     * se ne mogu jednoznačno navesti (isti grad i vrijeme polaska) se preskaču.
+     *
+     * @throws Exception Ako mreža ne može da se učita.
+     */
+    @BeforeAll
+    static void load() throws Exception {
+        loaded = NetworkSnapshot.fromJson(DATA, StandardEngine.BEST_FIRST);
+        List<String> names = new ArrayList<>(loaded.getStations().keySet());
+        Collections.sort(names);
+        List<TimetableDelta.Change> changes = new ArrayList<>();
+        for (int i = 0; i < names.size(); i += 3) {
+            List<Departure> departures = loaded.getStations().get(names.get(i)).getDepartures();
+            Map<String, Integer> sameDeparture = new HashMap<>();
+            for (Departure departure : departures) {
+                sameDeparture.merge(departure.getToCity().getName() + "@" + departure.getDepartureTime(), 1, Integer::sum);
+            }
+            for (int d = 0; d < departures.size(); d += 2) {
+                Departure departure = departures.get(d);
+                if (sameDeparture.get(departure.getToCity().getName() + "@" + departure.getDepartureTime()) > 1) {
+                    continue;
+                }
+                changes.add(TimetableDelta.Change.modify(names.get(i), departure.getToCity().getName(),
+                        departure.getDepartureTime(), TimetableDelta.UNCHANGED,
+                        Math.max(1, departure.getDuration() / 2), departure.getPrice() + 1,
+                        TimetableDelta.UNCHANGED));
+            }
+        }
+        delta = new TimetableDelta(changes);
+    }
+
+    /**
+     * Paketna pretraga bez izmjena mreže vraća iste rute kao sekvencijalna.
+     */
+    @Test
+    void batchMatchesSequential() {
+        for (StandardEngine engine : StandardEngine.values()) {
+            Network network = network(engine);
+            List<BatchRouter.Query> queries = queries(network.getSnapshot());
+            List<List<String>> expected = sequential(network, queries);
+            List<BatchRouter.Result> results = new BatchRouter(network, new ForkJoinPool(4)).route(queries);
+            for (int i = 0; i < queries.size(); i++) {
+                BatchRouter.Result result = results.get(i);
+                assertTrue(result.isSuccessful(), () -> engine + ": " + result.getError());
+                assertEquals(expected.get(i), describe(result.getRoutes()), engine + ", upit " + i);
+            }
+        }
+    }
+
+    /**
+     * Paketna pretraga dok druga nit naizmjenično postavlja učitani snimak i primjenjuje
+     * izmjenu reda vožnje: svaki upit vraća rute jedne od dvije verzije mreže, nikad
+     * mješavinu. Rute se porede po trošku kriterijuma, jer A* dok se granice računaju
+     * može vratiti drugu rutu jednakog troška. {@link StandardEngine#CORRIDOR} se ne
+     * provjerava, jer do izgradnje nove hijerarhije pretražuje koridor prethodne.
+     *
+     * @throws InterruptedException Ako je nit testa prekinuta.
+     */
+    @Test
+    void batchSeesConsistentSnapshotsUnderConcurrentUpdates() throws InterruptedException {
+        for (StandardEngine engine : StandardEngine.values()) {
+            if (engine == StandardEngine.CORRIDOR) continue;
+            Network network = network(engine);
+            NetworkSnapshot original = network.getSnapshot();
+            List<BatchRouter.Query> queries = queries(original);
+            List<List<Long>> before = costs(network, queries);
+            network.applyDelta(delta);
+            List<List<Long>> after = costs(network, queries);
+            assertNotEquals(before, after, engine + ": izmjena ne mijenja nijednu rutu");
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicReference<Throwable> writerError = new AtomicReference<>();
+            Thread writer = new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        network.setSnapshot(original);
+                        network.applyDelta(delta);
+                    }
+                } catch (Throwable e) {
+                    writerError.set(e);
+                }
+            }, "timetable-writer");
+            writer.start();
+            try {
+                BatchRouter router = new BatchRouter(network, new ForkJoinPool(4));
+                for (int round = 0; round < ROUNDS; round++) {
+                    List<BatchRouter.Result> results = router.route(queries);
+                    for (int i = 0; i < queries.size(); i++) {
+                        BatchRouter.Result result = results.get(i);
+                        assertTrue(result.isSuccessful(), () -> engine + ": " + result.getError());
+                        List<Long> routes = cost(result.getRoutes(), queries.get(i).getCriterion());
+                        int query = i;
+                        assertTrue(routes.equals(before.get(i)) || routes.equals(after.get(i)),
+                                () -> engine + ", upit " + query + ": " + routes + " nije ni "
+                                        + before.get(query) + " ni " + after.get(query));
+                    }
+                }
+            } finally {
+                running.set(false);
+                writer.join();
+            }
+            assertNull(writerError.get(), () -> engine + ": " + writerError.get());
+        }
+    }
+
+    /**
+     * Pravi mrežu sa učitanim snimkom i datim algoritmom.
+     *
+     * @param engine Algoritam pretrage.
+     * @return Mreža.
+     */
+    private static Network network(StandardEngine engine) {
+        Network network = new Network();
+        network.setEngine(engine);
+        network.setSnapshot(loaded);
+        return network;
+    }
+
+    /**
+     * Pravi upite između nasumično izabranih gradova, uvijek istim redom.
+     *
+     * @param snapshot Snimak mreže.
+     * @return Upiti.
+     */
+    private static List<BatchRouter.Query> queries(NetworkSnapshot snapshot) {
+        List<City> cities = new ArrayList<>(snapshot.getCities().values());
+        cities.sort(Comparator.comparing(City::getName));
+        Criterion[] criteria = StandardCriterion.values();
+        Random random = new Random(42);
+        List<BatchRouter.Query> queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            City start = cities.get(random.nextInt(cities.size()));
+            City end = cities.get(random.nextInt(cities.size()));
+            queries.add(new BatchRouter.Query(start, end, criteria[i % criteria.length], random.nextInt(1440)));
+        }
+        return queries;
+    }
+
+    /**
+     * Izvršava upite jedan za drugim u niti testa.
+     *
+     * @param network Mreža.
+     * @param queries Upiti.
+     * @return Opisi ruta za svaki upit.
+     */
+    private static List<List<String>> sequential(Network network, List<BatchRouter.Query> queries) {
+        List<List<String>> results = new ArrayList<>(queries.size());
+        for (BatchRouter.Query query : queries) {
+            results.add(describe(network.findRoutes(query.getStartCity(), query.getEndCity(),
+                    query.getCriterion(), query.getStartTime())));
+        }
+        return results;
+    }
+
+    /**
+     * Izvršava upite jedan za drugim u niti testa i vraća trošak pronađenih ruta.
+     *
+     * @param network Mreža.
+     * @param queries Upiti.
+     * @return Troškovi ruta za svaki upit.
+     */
+    private static List<List<Long>> costs(Network network, List<BatchRouter.Query> queries) {
+        List<List<Long>> results = new ArrayList<>(queries.size());
+        for (BatchRouter.Query query : queries) {
+            results.add(cost(network.findRoutes(query.getStartCity(), query.getEndCity(),
+                    query.getCriterion(), query.getStartTime()), query.getCriterion()));
+        }
+        return results;
+    }
+
+    /**
+     * Vraća trošak svake rute po kriterijumu.
+     *
+     * @param routes Rute.
+     * @param criterion Kriterijum optimizacije.
+     * @return Troškovi ruta, redom.
+     */
+    private static List<Long> cost(List<Route> routes, Criterion criterion) {
+        List<Long> costs = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            costs.add(criterion.cost(route.getTotalTime(), route.getTotalPrice(), route.getTransferCount()));
+        }
+        return costs;
+    }
+
+    /**
+     * Opisuje rute nezavisno od objekata snimka iz kojeg su pronađene.
+     *
+     * @param routes Rute.
+     * @return Opis svake rute: vrijeme, cijena, broj transfera i ivice.
+     */
+    private static List<String> describe(List<Route> routes) {
+        List<String> descriptions = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            StringBuilder description = new StringBuilder()
+                    .append(route.getTotalTime()).append('/')
+                    .append(route.getTotalPrice()).append('/')
+                    .append(route.getTransferCount());
+            for (Edge edge : route.getEdges()) {
+                description.append(' ').append(edge.getFrom().getName()).append('>').append(edge.getTo().getName())
+                        .append('@').append(edge.getDepartureTime()).append('+').append(edge.getDuration());
+            }
+            descriptions.add(description.toString());
+        }
+        return descriptions;
+    }
+}